@@ -25,18 +25,37 @@ android {
             )
         }
     }
+    buildFeatures {
+        buildConfig = true // BuildConfig.DEBUG gates developer diagnostics
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.all {
+            // The database scale suite only runs with -Pscale=true. Sizes and budgets can be
+            // overridden, e.g. -Pscale.students=20000 -Pscale.budget.getAllStudents=400
+            if (project.findProperty("scale")?.toString() == "true") {
+                project.properties.filterKeys { it == "scale" || it.startsWith("scale.") }
+                    .forEach { (key, value) -> it.systemProperty(key, value.toString()) }
+                it.maxHeapSize = "2g"
+            } else {
+                it.exclude("**/AttendanceDatabaseScaleTest.class")
+            }
+        }
+    }
 }
 
 dependencies {
 
+    implementation(project(":recognition-core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
+    implementation(libs.lifecycle.viewmodel)
     
     // ML Kit Face Detection (offline)
     implementation("com.google.mlkit:face-detection:16.1.6")
@@ -48,6 +67,8 @@ dependencies {
     implementation("androidx.camera:camera-view:1.3.4")
     
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.myapplication.models.TheoryClass;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures roster import throughput for a 2,000-student intake on a device.
+ * Runs against an in-memory database so app data is untouched.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RosterImportBenchmark {
+
+    private static final String TAG = "RosterImportBenchmark";
+    private static final int STUDENTS = 2000;
+
+    private AttendanceDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = new AttendanceDatabase(context, null);
+        database.insertClass(new TheoryClass("CSE101", "A", 1));
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void importTwoThousandStudents() throws Exception {
+        byte[] csv = buildRoster(STUDENTS);
+
+        RosterImporter.Result first = new RosterImporter(database)
+                .importRoster(new ByteArrayInputStream(csv), null);
+        Log.i(TAG, "Insert: " + first.getProcessed() + " rows in " + first.durationMs + " ms ("
+                + first.getRowsPerSecond() + " rows/s)");
+        assertEquals(STUDENTS, first.inserted);
+        assertEquals(0, first.skipped);
+        assertEquals(STUDENTS, database.countStudents());
+
+        // A second pass exercises the update side of the upsert
+        RosterImporter.Result second = new RosterImporter(database)
+                .importRoster(new ByteArrayInputStream(csv), null);
+        Log.i(TAG, "Upsert: " + second.getProcessed() + " rows in " + second.durationMs + " ms ("
+                + second.getRowsPerSecond() + " rows/s)");
+        assertEquals(STUDENTS, second.updated);
+        assertEquals(STUDENTS, database.countStudents());
+    }
+
+    private byte[] buildRoster(int count) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("name,student_id,section,class,embedding\n");
+        for (int i = 0; i < count; i++) {
+            ByteBuffer buffer = ByteBuffer.allocate(7 * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (int f = 0; f < 7; f++) {
+                buffer.putFloat(0.5f + random.nextFloat());
+            }
+            sb.append("Student ").append(i).append(',')
+                    .append("242-15-").append(i).append(',')
+                    .append("A,CSE101 - A,")
+                    .append(Base64.encodeToString(buffer.array(), Base64.NO_WRAP))
+                    .append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -4,35 +4,79 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import com.example.myapplication.models.*;
+import com.example.myapplication.recognition.EmbeddingCodec;
+import com.example.myapplication.recognition.PrototypeLearner;
+import com.example.myapplication.sync.Change;
+import com.example.myapplication.sync.ChangeSource;
+import com.example.myapplication.sync.PresenceSet;
+
+import org.json.JSONObject;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Database helper class for managing all attendance-related data.
  * Isolated from UI logic for better separation of concerns.
+ * Student and attendance writes also append to a change log in the same transaction,
+ * which SyncEngine uploads and prunes once the server acknowledges it.
+ * Presence marks of sessions recorded on several devices are kept per device
+ * (see PresenceSet) until the session is old enough to be settled.
  */
-public class AttendanceDatabase extends SQLiteOpenHelper {
+public class AttendanceDatabase extends SQLiteOpenHelper implements ChangeSource {
 
     private static final String DATABASE_NAME = "attendance.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 8;
 
     // Table names
     private static final String TABLE_TEACHERS = "teachers";
     private static final String TABLE_CLASSES = "classes";
     private static final String TABLE_STUDENTS = "students";
+    private static final String TABLE_STUDENT_CLASSES = "student_classes";
     private static final String TABLE_ATTENDANCE = "attendance";
     private static final String TABLE_ATTENDANCE_RECORDS = "attendance_records";
+    private static final String TABLE_STUDENT_TEMPLATES = "student_templates";
+    private static final String TABLE_CHANGE_LOG = "change_log";
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String TABLE_SESSION_PRESENCE = "session_presence";
+    private static final String TABLE_CLASS_SCHEDULE = "class_schedule";
+
+    // Change log entities and operations
+    private static final String ENTITY_STUDENT = "student";
+    private static final String ENTITY_ATTENDANCE = "attendance";
+    private static final String OP_INSERT = "insert";
+    private static final String OP_UPDATE = "update";
+    private static final String OP_DELETE = "delete";
+    private static final String STATE_ACKNOWLEDGED_SEQ = "acknowledged_seq";
+
+    // Students of a class by membership, home class or not
+    private static final String IN_CLASS = "id IN (SELECT student_id FROM " + TABLE_STUDENT_CLASSES +
+            " WHERE class_id=?)";
+
+    // Bumped on every student or template write so in-memory indexes know when to reload
+    private static final AtomicLong studentsVersion = new AtomicLong();
 
     public AttendanceDatabase(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
 
+    /**
+     * Opens a database under a different file name. Passing null creates an
+     * in-memory database, which tests and benchmarks use to avoid touching app data.
+     */
+    AttendanceDatabase(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         // Teachers table
@@ -60,13 +104,10 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
                 "class_id INTEGER, " +
                 "face_features BLOB, " +
                 "FOREIGN KEY(class_id) REFERENCES " + TABLE_CLASSES + "(id))");
+        createStudentClassesTable(db);
 
-        // Attendance table
-        db.execSQL("CREATE TABLE " + TABLE_ATTENDANCE + " (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                "class_id INTEGER NOT NULL, " +
-                "date TEXT NOT NULL, " +
-                "FOREIGN KEY(class_id) REFERENCES " + TABLE_CLASSES + "(id))");
+        // Attendance table (date is an epoch day)
+        createAttendanceTable(db, TABLE_ATTENDANCE);
 
         // Attendance records table
         db.execSQL("CREATE TABLE " + TABLE_ATTENDANCE_RECORDS + " (" +
@@ -76,16 +117,218 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
                 "present INTEGER NOT NULL, " +
                 "FOREIGN KEY(attendance_id) REFERENCES " + TABLE_ATTENDANCE + "(id), " +
                 "FOREIGN KEY(student_id) REFERENCES " + TABLE_STUDENTS + "(id))");
+
+        createTemplatesTable(db);
+        createSyncTables(db);
+        createPresenceTable(db);
+        createScheduleTable(db);
+        createIndexes(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ATTENDANCE_RECORDS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ATTENDANCE);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_STUDENTS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CLASSES);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TEACHERS);
-        onCreate(db);
+        if (oldVersion < 8) {
+            createStudentClassesTable(db); // Before version 3 collapses students onto one row
+        }
+        if (oldVersion < 2) {
+            migrateDatesToEpochDays(db);
+        }
+        if (oldVersion < 3) {
+            migrateUniqueStudentIds(db);
+        }
+        if (oldVersion < 8) {
+            // Home classes, before version 5 logs every student with their classes
+            db.execSQL("INSERT OR IGNORE INTO " + TABLE_STUDENT_CLASSES + " (student_id, class_id) " +
+                    "SELECT id, class_id FROM " + TABLE_STUDENTS + " WHERE class_id IS NOT NULL");
+        }
+        if (oldVersion < 4) {
+            createTemplatesTable(db);
+            db.execSQL("INSERT INTO " + TABLE_STUDENT_TEMPLATES + " (student_id, features, weight) " +
+                    "SELECT id, face_features, 1 FROM " + TABLE_STUDENTS + " WHERE face_features IS NOT NULL");
+        }
+        if (oldVersion < 5) {
+            createSyncTables(db);
+            seedChangeLog(db);
+        }
+        if (oldVersion < 6) {
+            createPresenceTable(db);
+        }
+        if (oldVersion < 7) {
+            createScheduleTable(db);
+        }
+        createIndexes(db);
+    }
+
+    private void createAttendanceTable(SQLiteDatabase db, String tableName) {
+        db.execSQL("CREATE TABLE " + tableName + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "class_id INTEGER NOT NULL, " +
+                "date INTEGER NOT NULL, " +
+                "FOREIGN KEY(class_id) REFERENCES " + TABLE_CLASSES + "(id))");
+    }
+
+    private void createStudentClassesTable(SQLiteDatabase db) {
+        // Every class a student is enrolled in; students.class_id is their home class
+        db.execSQL("CREATE TABLE " + TABLE_STUDENT_CLASSES + " (" +
+                "student_id INTEGER NOT NULL, " +
+                "class_id INTEGER NOT NULL, " +
+                "PRIMARY KEY(student_id, class_id), " +
+                "FOREIGN KEY(student_id) REFERENCES " + TABLE_STUDENTS + "(id), " +
+                "FOREIGN KEY(class_id) REFERENCES " + TABLE_CLASSES + "(id))");
+    }
+
+    private void createTemplatesTable(SQLiteDatabase db) {
+        // Face prototypes; a student has one or more (see PrototypeLearner)
+        db.execSQL("CREATE TABLE " + TABLE_STUDENT_TEMPLATES + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "student_id INTEGER NOT NULL, " +
+                "features BLOB NOT NULL, " +
+                "weight INTEGER NOT NULL DEFAULT 1, " +
+                "FOREIGN KEY(student_id) REFERENCES " + TABLE_STUDENTS + "(id))");
+    }
+
+    private void createSyncTables(SQLiteDatabase db) {
+        // AUTOINCREMENT so a pruned seq is never handed out again
+        db.execSQL("CREATE TABLE " + TABLE_CHANGE_LOG + " (" +
+                "seq INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "entity TEXT NOT NULL, " +
+                "operation TEXT NOT NULL, " +
+                "row_id INTEGER NOT NULL, " +
+                "payload TEXT NOT NULL, " +
+                "created_at INTEGER NOT NULL)");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " (" +
+                "name TEXT PRIMARY KEY, " +
+                "value INTEGER NOT NULL)");
+    }
+
+    private void createPresenceTable(SQLiteDatabase db) {
+        // One row per student and device that saw them; keys are campus-wide, not row ids
+        db.execSQL("CREATE TABLE " + TABLE_SESSION_PRESENCE + " (" +
+                "session_key TEXT NOT NULL, " +
+                "date INTEGER NOT NULL, " +
+                "student_key TEXT NOT NULL, " +
+                "device_id TEXT NOT NULL, " +
+                "first_seen INTEGER NOT NULL, " +
+                "source INTEGER NOT NULL, " +
+                "PRIMARY KEY(session_key, student_key, device_id))");
+    }
+
+    private void createScheduleTable(SQLiteDatabase db) {
+        // Weekly timetable; day 1 is Monday, times are minutes after midnight
+        db.execSQL("CREATE TABLE " + TABLE_CLASS_SCHEDULE + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "class_id INTEGER NOT NULL, " +
+                "day_of_week INTEGER NOT NULL, " +
+                "start_minute INTEGER NOT NULL, " +
+                "end_minute INTEGER NOT NULL, " +
+                "FOREIGN KEY(class_id) REFERENCES " + TABLE_CLASSES + "(id))");
+    }
+
+    private void createIndexes(SQLiteDatabase db) {
+        // (class_id, date) serves both the per-day lookup and date range scans
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_attendance_class_date ON " +
+                TABLE_ATTENDANCE + "(class_id, date)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_records_attendance ON " +
+                TABLE_ATTENDANCE_RECORDS + "(attendance_id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_students_class ON " +
+                TABLE_STUDENTS + "(class_id)");
+        db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_students_student_id ON " +
+                TABLE_STUDENTS + "(student_id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_student_classes_class ON " +
+                TABLE_STUDENT_CLASSES + "(class_id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_templates_student ON " +
+                TABLE_STUDENT_TEMPLATES + "(student_id)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_presence_date ON " +
+                TABLE_SESSION_PRESENCE + "(date)");
+    }
+
+    /**
+     * Version 1 stored dates as locale-formatted "yyyy-MM-dd" text. Rebuilds the
+     * attendance table with integer epoch days. Parsing happens in Java because
+     * older rows may contain non-ASCII digits that SQLite date functions reject.
+     */
+    private void migrateDatesToEpochDays(SQLiteDatabase db) {
+        String tempTable = TABLE_ATTENDANCE + "_v2";
+        createAttendanceTable(db, tempTable);
+
+        Cursor cursor = db.query(TABLE_ATTENDANCE, new String[] { "id", "class_id", "date" },
+                null, null, null, null, "id");
+        while (cursor.moveToNext()) {
+            long epochDay;
+            try {
+                epochDay = EpochDays.parse(cursor.getString(2));
+            } catch (IllegalArgumentException e) {
+                continue; // Unreadable date, its records are removed below
+            }
+            ContentValues values = new ContentValues();
+            values.put("id", cursor.getLong(0));
+            values.put("class_id", cursor.getLong(1));
+            values.put("date", epochDay);
+            db.insert(tempTable, null, values);
+        }
+        cursor.close();
+
+        db.execSQL("DROP TABLE " + TABLE_ATTENDANCE);
+        db.execSQL("ALTER TABLE " + tempTable + " RENAME TO " + TABLE_ATTENDANCE);
+
+        // Keep only the first session per class and day so the unique index can be built
+        db.execSQL("DELETE FROM " + TABLE_ATTENDANCE + " WHERE id NOT IN (" +
+                "SELECT MIN(id) FROM " + TABLE_ATTENDANCE + " GROUP BY class_id, date)");
+        db.execSQL("DELETE FROM " + TABLE_ATTENDANCE_RECORDS + " WHERE attendance_id NOT IN (" +
+                "SELECT id FROM " + TABLE_ATTENDANCE + ")");
+    }
+
+    /**
+     * Version 3 makes student_id unique so roster imports can upsert on it.
+     * Earlier versions enrolled a student in several classes as one row per class.
+     * Duplicate rows are collapsed onto the newest one, which keeps every class of
+     * the removed rows as a membership, and their attendance records are re-pointed
+     * before the old rows are removed. Databases upgraded to version 3 before
+     * memberships existed kept only the newest row's class; those memberships are lost
+     * and the students have to be added to their other classes again.
+     */
+    private void migrateUniqueStudentIds(SQLiteDatabase db) {
+        db.execSQL("INSERT OR IGNORE INTO " + TABLE_STUDENT_CLASSES + " (student_id, class_id) " +
+                "SELECT (SELECT MAX(s2.id) FROM " + TABLE_STUDENTS + " s2 WHERE s2.student_id = s1.student_id), " +
+                "s1.class_id FROM " + TABLE_STUDENTS + " s1 WHERE s1.class_id IS NOT NULL");
+        db.execSQL("UPDATE " + TABLE_ATTENDANCE_RECORDS + " SET student_id = (" +
+                "SELECT MAX(s2.id) FROM " + TABLE_STUDENTS + " s1 JOIN " + TABLE_STUDENTS + " s2 " +
+                "ON s1.student_id = s2.student_id WHERE s1.id = " + TABLE_ATTENDANCE_RECORDS + ".student_id) " +
+                "WHERE student_id IN (SELECT id FROM " + TABLE_STUDENTS + ")");
+        db.execSQL("DELETE FROM " + TABLE_STUDENTS + " WHERE id NOT IN (" +
+                "SELECT MAX(id) FROM " + TABLE_STUDENTS + " GROUP BY student_id)");
+    }
+
+    /**
+     * Version 5 adds the change log. Existing students and sessions are logged as
+     * inserts so the first sync uploads everything once; later syncs send only changes.
+     */
+    private void seedChangeLog(SQLiteDatabase db) {
+        Cursor cursor = db.query(TABLE_STUDENTS, new String[] { "id", "name", "student_id", "section", "class_id" },
+                null, null, null, null, "id");
+        while (cursor.moveToNext()) {
+            Student student = new Student();
+            student.setName(cursor.getString(1));
+            student.setStudentId(cursor.getString(2));
+            student.setSection(cursor.getString(3));
+            student.setClassId(cursor.getLong(4));
+            logChange(db, ENTITY_STUDENT, OP_INSERT, cursor.getLong(0),
+                    studentPayload(student, getClassIds(db, cursor.getLong(0))));
+        }
+        cursor.close();
+
+        cursor = db.query(TABLE_ATTENDANCE, new String[] { "id", "class_id", "date" }, null, null, null, null, "id");
+        while (cursor.moveToNext()) {
+            Attendance attendance = new Attendance(cursor.getLong(1), cursor.getLong(2));
+            Cursor records = db.query(TABLE_ATTENDANCE_RECORDS, new String[] { "student_id", "present" },
+                    "attendance_id=?", new String[] { String.valueOf(cursor.getLong(0)) }, null, null, "id");
+            while (records.moveToNext()) {
+                attendance.addRecord(new AttendanceRecord(records.getLong(0), records.getInt(1) == 1));
+            }
+            records.close();
+            logChange(db, ENTITY_ATTENDANCE, OP_INSERT, cursor.getLong(0), attendancePayload(attendance));
+        }
+        cursor.close();
     }
 
     // ==================== TEACHER OPERATIONS ====================
@@ -160,6 +403,48 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
         return baseClass;
     }
 
+    // ==================== SCHEDULE OPERATIONS ====================
+
+    public long insertSchedule(ClassSchedule schedule) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("class_id", schedule.getClassId());
+        values.put("day_of_week", schedule.getDayOfWeek());
+        values.put("start_minute", schedule.getStartMinute());
+        values.put("end_minute", schedule.getEndMinute());
+        return db.insert(TABLE_CLASS_SCHEDULE, null, values);
+    }
+
+    public void deleteSchedule(long scheduleId) {
+        getWritableDatabase().delete(TABLE_CLASS_SCHEDULE, "id=?", new String[] { String.valueOf(scheduleId) });
+    }
+
+    /**
+     * The whole weekly timetable; small enough to read every time it is needed.
+     */
+    public List<ClassSchedule> getSchedule() {
+        return querySchedule(null, null);
+    }
+
+    public List<ClassSchedule> getScheduleForClass(long classId) {
+        return querySchedule("class_id=?", new String[] { String.valueOf(classId) });
+    }
+
+    private List<ClassSchedule> querySchedule(String selection, String[] args) {
+        List<ClassSchedule> slots = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_CLASS_SCHEDULE,
+                new String[] { "id", "class_id", "day_of_week", "start_minute", "end_minute" },
+                selection, args, null, null, "day_of_week, start_minute");
+        while (cursor.moveToNext()) {
+            ClassSchedule slot = new ClassSchedule(cursor.getLong(1), cursor.getInt(2), cursor.getInt(3), cursor.getInt(4));
+            slot.setId(cursor.getLong(0));
+            slots.add(slot);
+        }
+        cursor.close();
+        return slots;
+    }
+
     // ==================== STUDENT OPERATIONS ====================
 
     public long insertStudent(Student student) {
@@ -170,38 +455,221 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
         values.put("section", student.getSection());
         values.put("class_id", student.getClassId());
         if (student.getFaceFeatures() != null) {
-            values.put("face_features", floatArrayToBytes(student.getFaceFeatures()));
+            values.put("face_features", EmbeddingCodec.encode(student.getFaceFeatures()));
+        }
+
+        db.beginTransaction();
+        try {
+            long id = db.insert(TABLE_STUDENTS, null, values);
+            if (id != -1 && student.getFaceFeatures() != null) {
+                insertTemplate(db, id, student.getFaceFeatures(), 1);
+            }
+            if (id != -1) {
+                addToClass(db, id, student.getClassId());
+                logChange(db, ENTITY_STUDENT, OP_INSERT, id,
+                        studentPayload(student, Collections.singletonList(student.getClassId())));
+            }
+            db.setTransactionSuccessful();
+            return id;
+        } finally {
+            db.endTransaction();
+            studentsVersion.incrementAndGet();
         }
-        return db.insert(TABLE_STUDENTS, null, values);
     }
 
-    public List<Student> getStudentsByClass(long classId) {
+    /**
+     * Inserts or updates students keyed on student_id inside a single transaction.
+     * A student already enrolled keeps their home class and is added to the incoming
+     * student's class, so rosters of several classes can name the same student.
+     * Existing face features are kept when the incoming student has none; incoming
+     * features replace the student's templates. Only students whose roster fields or
+     * classes actually changed are logged for sync, so re-importing a roster uploads nothing.
+     *
+     * @return the number of newly inserted students; the rest were updated
+     */
+    public int upsertStudents(List<Student> students) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement find = db.compileStatement("SELECT id FROM " + TABLE_STUDENTS + " WHERE student_id = ?");
+        SQLiteStatement updateRoster = db.compileStatement("UPDATE " + TABLE_STUDENTS +
+                " SET name = ?1, section = ?2 WHERE id = ?3 AND (name <> ?1 OR section <> ?2)");
+        SQLiteStatement addClass = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_STUDENT_CLASSES +
+                " (student_id, class_id) VALUES (?, ?)");
+        SQLiteStatement updateFeatures = db.compileStatement("UPDATE " + TABLE_STUDENTS +
+                " SET face_features = ? WHERE id = ?");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_STUDENTS +
+                " (name, section, class_id, face_features, student_id) VALUES (?, ?, ?, ?, ?)");
+        SQLiteStatement deleteTemplates = db.compileStatement("DELETE FROM " + TABLE_STUDENT_TEMPLATES +
+                " WHERE student_id = ?");
+        SQLiteStatement insertTemplate = db.compileStatement("INSERT INTO " + TABLE_STUDENT_TEMPLATES +
+                " (student_id, features, weight) VALUES (?, ?, 1)");
+        int inserted = 0;
+
+        db.beginTransaction();
+        try {
+            for (Student student : students) {
+                long id;
+                find.bindString(1, student.getStudentId());
+                try {
+                    id = find.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    id = -1; // Not enrolled yet
+                }
+                if (id == -1) {
+                    bindStudent(insert, student);
+                    id = insert.executeInsert();
+                    inserted++;
+                    addClass.bindLong(1, id);
+                    addClass.bindLong(2, student.getClassId());
+                    addClass.executeInsert();
+                    logChange(db, ENTITY_STUDENT, OP_INSERT, id,
+                            studentPayload(student, Collections.singletonList(student.getClassId())));
+                } else {
+                    updateRoster.clearBindings();
+                    updateRoster.bindString(1, student.getName());
+                    updateRoster.bindString(2, student.getSection());
+                    updateRoster.bindLong(3, id);
+                    boolean changed = updateRoster.executeUpdateDelete() > 0;
+                    addClass.bindLong(1, id);
+                    addClass.bindLong(2, student.getClassId());
+                    changed |= addClass.executeInsert() != -1; // -1 when already a member
+                    if (changed) {
+                        logChange(db, ENTITY_STUDENT, OP_UPDATE, id, studentPayload(db, id));
+                    }
+                    if (student.getFaceFeatures() == null) continue;
+                    // Features stay on the device, so replacing them is not a change to sync
+                    updateFeatures.bindBlob(1, EmbeddingCodec.encode(student.getFaceFeatures()));
+                    updateFeatures.bindLong(2, id);
+                    updateFeatures.executeUpdateDelete();
+                    deleteTemplates.bindLong(1, id);
+                    deleteTemplates.executeUpdateDelete();
+                }
+                if (student.getFaceFeatures() != null) {
+                    insertTemplate.bindLong(1, id);
+                    insertTemplate.bindBlob(2, EmbeddingCodec.encode(student.getFaceFeatures()));
+                    insertTemplate.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            studentsVersion.incrementAndGet();
+            find.close();
+            updateRoster.close();
+            addClass.close();
+            updateFeatures.close();
+            insert.close();
+            deleteTemplates.close();
+            insertTemplate.close();
+        }
+        return inserted;
+    }
+
+    private void bindStudent(SQLiteStatement statement, Student student) {
+        statement.clearBindings();
+        statement.bindString(1, student.getName());
+        statement.bindString(2, student.getSection());
+        statement.bindLong(3, student.getClassId());
+        if (student.getFaceFeatures() != null) {
+            statement.bindBlob(4, EmbeddingCodec.encode(student.getFaceFeatures()));
+        } else {
+            statement.bindNull(4);
+        }
+        statement.bindString(5, student.getStudentId());
+    }
+
+    /**
+     * Sets a student's enrollment features, replacing all of its templates.
+     */
+    public int updateStudentFeatures(long id, float[] features) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put("face_features", EmbeddingCodec.encode(features));
+
+        db.beginTransaction();
+        try {
+            int updated = db.update(TABLE_STUDENTS, values, "id=?", new String[] { String.valueOf(id) });
+            if (updated > 0) {
+                db.delete(TABLE_STUDENT_TEMPLATES, "student_id=?", new String[] { String.valueOf(id) });
+                insertTemplate(db, id, features, 1);
+            }
+            db.setTransactionSuccessful();
+            return updated;
+        } finally {
+            db.endTransaction();
+            studentsVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the students of a class that have no face features yet, e.g. from a
+     * roster imported without embeddings, in roster order.
+     */
+    public List<Student> getStudentsWithoutFeatures(long classId) {
         List<Student> students = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.query(TABLE_STUDENTS, null, "class_id=?",
-                new String[] { String.valueOf(classId) }, null, null, null);
+        Cursor cursor = db.query(TABLE_STUDENTS, new String[] { "id", "name", "student_id", "section", "class_id" },
+                "face_features IS NULL AND " + IN_CLASS, new String[] { String.valueOf(classId) },
+                null, null, "student_id");
 
         while (cursor.moveToNext()) {
             Student student = new Student();
-            student.setId(cursor.getLong(cursor.getColumnIndexOrThrow("id")));
-            student.setName(cursor.getString(cursor.getColumnIndexOrThrow("name")));
-            student.setStudentId(cursor.getString(cursor.getColumnIndexOrThrow("student_id")));
-            student.setSection(cursor.getString(cursor.getColumnIndexOrThrow("section")));
-            student.setClassId(cursor.getLong(cursor.getColumnIndexOrThrow("class_id")));
-            byte[] features = cursor.getBlob(cursor.getColumnIndexOrThrow("face_features"));
-            if (features != null) {
-                student.setFaceFeatures(bytesToFloatArray(features));
-            }
+            student.setId(cursor.getLong(0));
+            student.setName(cursor.getString(1));
+            student.setStudentId(cursor.getString(2));
+            student.setSection(cursor.getString(3));
+            student.setClassId(cursor.getLong(4));
             students.add(student);
         }
         cursor.close();
         return students;
     }
 
+    /**
+     * Changes whenever students or templates are written through any instance.
+     */
+    public static long getStudentsVersion() {
+        return studentsVersion.get();
+    }
+
+    public int countStudents() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_STUDENTS, null);
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
+    }
+
+    public List<Student> getStudentsByClass(long classId) {
+        return getStudents(IN_CLASS, new String[] { String.valueOf(classId) });
+    }
+
+    /**
+     * Every class a student is enrolled in besides their home class, keyed by student row id.
+     */
+    public Map<Long, List<Long>> getOtherClasses() {
+        Map<Long, List<Long>> classes = new HashMap<>();
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT m.student_id, m.class_id FROM " +
+                TABLE_STUDENT_CLASSES + " m JOIN " + TABLE_STUDENTS + " s ON s.id = m.student_id " +
+                "WHERE m.class_id <> s.class_id", null);
+        while (cursor.moveToNext()) {
+            classes.computeIfAbsent(cursor.getLong(0), id -> new ArrayList<>()).add(cursor.getLong(1));
+        }
+        cursor.close();
+        return classes;
+    }
+
     public List<Student> getAllStudents() {
+        return getStudents(null, null);
+    }
+
+    /**
+     * Loads students matching a filter on the students table, together with their templates.
+     */
+    private List<Student> getStudents(String selection, String[] selectionArgs) {
         List<Student> students = new ArrayList<>();
+        Map<Long, Student> byId = new HashMap<>();
         SQLiteDatabase db = getReadableDatabase();
-        Cursor cursor = db.query(TABLE_STUDENTS, null, null, null, null, null, null);
+        Cursor cursor = db.query(TABLE_STUDENTS, null, selection, selectionArgs, null, null, null);
 
         while (cursor.moveToNext()) {
             Student student = new Student();
@@ -212,45 +680,129 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
             student.setClassId(cursor.getLong(cursor.getColumnIndexOrThrow("class_id")));
             byte[] features = cursor.getBlob(cursor.getColumnIndexOrThrow("face_features"));
             if (features != null) {
-                student.setFaceFeatures(bytesToFloatArray(features));
+                student.setFaceFeatures(EmbeddingCodec.decode(features));
             }
             students.add(student);
+            byId.put(student.getId(), student);
+        }
+        cursor.close();
+
+        String query = "SELECT t.id, t.student_id, t.features, t.weight FROM " + TABLE_STUDENT_TEMPLATES + " t" +
+                (selection != null ? " JOIN " + TABLE_STUDENTS + " s ON s.id = t.student_id WHERE s." + selection : "");
+        cursor = db.rawQuery(query, selectionArgs);
+        while (cursor.moveToNext()) {
+            Student student = byId.get(cursor.getLong(1));
+            if (student != null) {
+                student.getTemplates().add(readTemplate(cursor));
+            }
         }
         cursor.close();
         return students;
     }
 
+    // ==================== TEMPLATE OPERATIONS ====================
+
+    public List<FaceTemplate> getStudentTemplates(long studentId) {
+        return getStudentTemplates(getReadableDatabase(), studentId);
+    }
+
+    /**
+     * Adds a template learned from a confident live match. The student's prototypes are
+     * clustered back down to PrototypeLearner.MAX_PROTOTYPES and saved in one transaction.
+     */
+    public void addLearnedTemplate(long studentId, float[] features) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<FaceTemplate> templates = getStudentTemplates(db, studentId);
+            PrototypeLearner.addPrototype(templates, features, PrototypeLearner.MAX_PROTOTYPES);
+            db.delete(TABLE_STUDENT_TEMPLATES, "student_id=?", new String[] { String.valueOf(studentId) });
+            for (FaceTemplate template : templates) {
+                insertTemplate(db, studentId, template.getFeatures(), template.getWeight());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            studentsVersion.incrementAndGet();
+        }
+    }
+
+    private List<FaceTemplate> getStudentTemplates(SQLiteDatabase db, long studentId) {
+        List<FaceTemplate> templates = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_STUDENT_TEMPLATES, new String[] { "id", "student_id", "features", "weight" },
+                "student_id=?", new String[] { String.valueOf(studentId) }, null, null, "id");
+        while (cursor.moveToNext()) {
+            templates.add(readTemplate(cursor));
+        }
+        cursor.close();
+        return templates;
+    }
+
+    private FaceTemplate readTemplate(Cursor cursor) {
+        FaceTemplate template = new FaceTemplate();
+        template.setId(cursor.getLong(0));
+        template.setStudentId(cursor.getLong(1));
+        template.setFeatures(EmbeddingCodec.decode(cursor.getBlob(2)));
+        template.setWeight(cursor.getInt(3));
+        return template;
+    }
+
+    private void insertTemplate(SQLiteDatabase db, long studentId, float[] features, int weight) {
+        ContentValues values = new ContentValues();
+        values.put("student_id", studentId);
+        values.put("features", EmbeddingCodec.encode(features));
+        values.put("weight", weight);
+        db.insert(TABLE_STUDENT_TEMPLATES, null, values);
+    }
+
     // ==================== ATTENDANCE OPERATIONS ====================
 
+    /**
+     * Inserts a session and its records.
+     *
+     * @return the new session's id, or -1 if it was not inserted, e.g. because a session
+     *         for the same class and date already exists
+     */
     public long insertAttendance(Attendance attendance) {
         SQLiteDatabase db = getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put("class_id", attendance.getClassId());
         values.put("date", attendance.getDate());
-        long attendanceId = db.insert(TABLE_ATTENDANCE, null, values);
 
-        // Insert attendance records
-        for (AttendanceRecord record : attendance.getRecords()) {
-            ContentValues recordValues = new ContentValues();
-            recordValues.put("attendance_id", attendanceId);
-            recordValues.put("student_id", record.getStudentId());
-            recordValues.put("present", record.isPresent() ? 1 : 0);
-            db.insert(TABLE_ATTENDANCE_RECORDS, null, recordValues);
+        db.beginTransaction();
+        try {
+            long attendanceId = db.insert(TABLE_ATTENDANCE, null, values);
+            if (attendanceId == -1) {
+                return -1; // Records would point at no session
+            }
+
+            // Insert attendance records
+            for (AttendanceRecord record : attendance.getRecords()) {
+                ContentValues recordValues = new ContentValues();
+                recordValues.put("attendance_id", attendanceId);
+                recordValues.put("student_id", record.getStudentId());
+                recordValues.put("present", record.isPresent() ? 1 : 0);
+                db.insert(TABLE_ATTENDANCE_RECORDS, null, recordValues);
+            }
+            logChange(db, ENTITY_ATTENDANCE, OP_INSERT, attendanceId, attendancePayload(attendance));
+            db.setTransactionSuccessful();
+            return attendanceId;
+        } finally {
+            db.endTransaction();
         }
-        return attendanceId;
     }
 
-    public Attendance getAttendance(long classId, String date) {
+    public Attendance getAttendance(long classId, long date) {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.query(TABLE_ATTENDANCE, null, "class_id=? AND date=?",
-                new String[] { String.valueOf(classId), date }, null, null, null);
+                new String[] { String.valueOf(classId), String.valueOf(date) }, null, null, null);
 
         Attendance attendance = null;
         if (cursor.moveToFirst()) {
             attendance = new Attendance();
             attendance.setId(cursor.getLong(cursor.getColumnIndexOrThrow("id")));
             attendance.setClassId(cursor.getLong(cursor.getColumnIndexOrThrow("class_id")));
-            attendance.setDate(cursor.getString(cursor.getColumnIndexOrThrow("date")));
+            attendance.setDate(cursor.getLong(cursor.getColumnIndexOrThrow("date")));
 
             // Get class name
             BaseClass baseClass = getClassById(classId);
@@ -267,8 +819,110 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
 
     public void deleteAttendance(long attendanceId) {
         SQLiteDatabase db = getWritableDatabase();
-        db.delete(TABLE_ATTENDANCE_RECORDS, "attendance_id=?", new String[] { String.valueOf(attendanceId) });
-        db.delete(TABLE_ATTENDANCE, "id=?", new String[] { String.valueOf(attendanceId) });
+        String[] args = new String[] { String.valueOf(attendanceId) };
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(TABLE_ATTENDANCE, new String[] { "class_id", "date" }, "id=?", args,
+                    null, null, null);
+            String payload = cursor.moveToFirst()
+                    ? "{\"classId\":" + cursor.getLong(0) + ",\"date\":" + cursor.getLong(1) + "}" : null;
+            cursor.close();
+
+            db.delete(TABLE_ATTENDANCE_RECORDS, "attendance_id=?", args);
+            db.delete(TABLE_ATTENDANCE, "id=?", args);
+            if (payload != null) {
+                logChange(db, ENTITY_ATTENDANCE, OP_DELETE, attendanceId, payload);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Inserts a session, or merges it into the one already saved for its class and date.
+     * The lookup and the write share one transaction, so two screens saving the same
+     * session at once, each through its own helper, end up merged.
+     *
+     * @return true if it was merged into an existing session
+     */
+    public boolean saveOrMergeAttendance(Attendance attendance) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long existingId = findAttendanceId(db, attendance.getClassId(), attendance.getDate());
+            boolean merged = existingId != -1;
+            if (!merged && insertAttendance(attendance) == -1) {
+                // Saved by another connection since the lookup
+                existingId = findAttendanceId(db, attendance.getClassId(), attendance.getDate());
+                merged = existingId != -1;
+            }
+            if (merged) {
+                mergeAttendance(existingId, attendance);
+            }
+            db.setTransactionSuccessful();
+            return merged;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long findAttendanceId(SQLiteDatabase db, long classId, long date) {
+        Cursor cursor = db.query(TABLE_ATTENDANCE, new String[] { "id" }, "class_id=? AND date=?",
+                new String[] { String.valueOf(classId), String.valueOf(date) }, null, null, null);
+        long id = cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        cursor.close();
+        return id;
+    }
+
+    /**
+     * Merges a session recorded on this device into one already saved for the same class
+     * and date, e.g. by another device at the same hall. A student present in either is
+     * present in the result; nobody is marked absent who was present before.
+     */
+    public void mergeAttendance(long attendanceId, Attendance attendance) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement markPresent = db.compileStatement("UPDATE " + TABLE_ATTENDANCE_RECORDS +
+                " SET present = 1 WHERE attendance_id = ? AND student_id = ?");
+        SQLiteStatement exists = db.compileStatement("SELECT COUNT(*) FROM " + TABLE_ATTENDANCE_RECORDS +
+                " WHERE attendance_id = ? AND student_id = ?");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_ATTENDANCE_RECORDS +
+                " (attendance_id, student_id, present) VALUES (?, ?, ?)");
+
+        db.beginTransaction();
+        try {
+            for (AttendanceRecord record : attendance.getRecords()) {
+                if (record.isPresent()) {
+                    markPresent.bindLong(1, attendanceId);
+                    markPresent.bindLong(2, record.getStudentId());
+                    if (markPresent.executeUpdateDelete() > 0) continue;
+                } else {
+                    exists.bindLong(1, attendanceId);
+                    exists.bindLong(2, record.getStudentId());
+                    if (exists.simpleQueryForLong() > 0) continue;
+                }
+                insert.bindLong(1, attendanceId);
+                insert.bindLong(2, record.getStudentId());
+                insert.bindLong(3, record.isPresent() ? 1 : 0);
+                insert.executeInsert();
+            }
+
+            // The change carries the merged session, so the server needs no merge logic
+            Attendance merged = new Attendance(attendance.getClassId(), attendance.getDate());
+            Cursor records = db.query(TABLE_ATTENDANCE_RECORDS, new String[] { "student_id", "present" },
+                    "attendance_id=?", new String[] { String.valueOf(attendanceId) }, null, null, "id");
+            while (records.moveToNext()) {
+                merged.addRecord(new AttendanceRecord(records.getLong(0), records.getInt(1) == 1));
+            }
+            records.close();
+            logChange(db, ENTITY_ATTENDANCE, OP_UPDATE, attendanceId, attendancePayload(merged));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            markPresent.close();
+            exists.close();
+            insert.close();
+        }
     }
 
     private List<AttendanceRecord> getAttendanceRecords(long attendanceId) {
@@ -283,47 +937,413 @@ public class AttendanceDatabase extends SQLiteOpenHelper {
         Cursor cursor = db.rawQuery(query, new String[] { String.valueOf(attendanceId) });
 
         while (cursor.moveToNext()) {
-            AttendanceRecord record = new AttendanceRecord();
-            record.setId(cursor.getLong(cursor.getColumnIndexOrThrow("id")));
-            record.setStudentId(cursor.getLong(cursor.getColumnIndexOrThrow("student_id")));
-            record.setStudentName(cursor.getString(cursor.getColumnIndexOrThrow("student_name")));
-            record.setStudentIdNumber(cursor.getString(cursor.getColumnIndexOrThrow("student_id_number")));
-            record.setPresent(cursor.getInt(cursor.getColumnIndexOrThrow("present")) == 1);
-            records.add(record);
+            records.add(readAttendanceRecord(cursor));
         }
         cursor.close();
         return records;
     }
 
-    public List<String> getAttendanceDates(long classId) {
-        List<String> dates = new ArrayList<>();
+    private AttendanceRecord readAttendanceRecord(Cursor cursor) {
+        AttendanceRecord record = new AttendanceRecord();
+        record.setId(cursor.getLong(cursor.getColumnIndexOrThrow("id")));
+        record.setStudentId(cursor.getLong(cursor.getColumnIndexOrThrow("student_id")));
+        record.setStudentName(cursor.getString(cursor.getColumnIndexOrThrow("student_name")));
+        record.setStudentIdNumber(cursor.getString(cursor.getColumnIndexOrThrow("student_id_number")));
+        record.setPresent(cursor.getInt(cursor.getColumnIndexOrThrow("present")) == 1);
+        return record;
+    }
+
+    /**
+     * Returns present and total record counts for a session without loading the records.
+     */
+    public AttendanceRollup getAttendanceSummary(long attendanceId) {
+        SQLiteDatabase db = getReadableDatabase();
+        String query = "SELECT a.date, COALESCE(SUM(ar.present), 0), COUNT(ar.id) " +
+                "FROM " + TABLE_ATTENDANCE + " a " +
+                "LEFT JOIN " + TABLE_ATTENDANCE_RECORDS + " ar ON ar.attendance_id = a.id " +
+                "WHERE a.id = ? GROUP BY a.id";
+        Cursor cursor = db.rawQuery(query, new String[] { String.valueOf(attendanceId) });
+
+        AttendanceRollup summary = null;
+        if (cursor.moveToFirst()) {
+            summary = new AttendanceRollup(cursor.getLong(0), 1, cursor.getInt(1), cursor.getInt(2));
+        }
+        cursor.close();
+        return summary;
+    }
+
+    /**
+     * Returns one page of a session's records, ordered by record id.
+     */
+    public List<AttendanceRecord> getAttendanceRecordsPage(long attendanceId, int offset, int limit) {
+        List<AttendanceRecord> records = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+
+        String query = "SELECT ar.*, s.name as student_name, s.student_id as student_id_number " +
+                "FROM " + TABLE_ATTENDANCE_RECORDS + " ar " +
+                "JOIN " + TABLE_STUDENTS + " s ON ar.student_id = s.id " +
+                "WHERE ar.attendance_id = ? ORDER BY ar.id LIMIT ? OFFSET ?";
+
+        Cursor cursor = db.rawQuery(query, new String[] {
+                String.valueOf(attendanceId), String.valueOf(limit), String.valueOf(offset) });
+
+        while (cursor.moveToNext()) {
+            records.add(readAttendanceRecord(cursor));
+        }
+        cursor.close();
+        return records;
+    }
+
+    public int countAttendanceDates(long classId) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_ATTENDANCE + " WHERE class_id = ?",
+                new String[] { String.valueOf(classId) });
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
+    }
+
+    /**
+     * Returns one page of a class's session dates, newest first.
+     */
+    public List<Long> getAttendanceDatesPage(long classId, int offset, int limit) {
+        List<Long> dates = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_ATTENDANCE, new String[] { "date" }, "class_id=?",
+                new String[] { String.valueOf(classId) }, null, null, "date DESC",
+                offset + "," + limit);
+
+        while (cursor.moveToNext()) {
+            dates.add(cursor.getLong(0));
+        }
+        cursor.close();
+        return dates;
+    }
+
+    public List<Long> getAttendanceDates(long classId) {
+        List<Long> dates = new ArrayList<>();
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = db.query(TABLE_ATTENDANCE, new String[] { "date" }, "class_id=?",
                 new String[] { String.valueOf(classId) }, null, null, "date DESC");
 
         while (cursor.moveToNext()) {
-            dates.add(cursor.getString(0));
+            dates.add(cursor.getLong(0));
         }
         cursor.close();
         return dates;
     }
 
-    // ==================== UTILITY METHODS ====================
+    // ==================== RANGE QUERIES ====================
+
+    /**
+     * Returns the sessions of a class between two epoch days (inclusive), oldest first.
+     * Records are not loaded; use getAttendance for a single session's details.
+     */
+    public List<Attendance> getSessionsBetween(long classId, long fromDate, long toDate) {
+        List<Attendance> sessions = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_ATTENDANCE, new String[] { "id", "class_id", "date" },
+                "class_id=? AND date BETWEEN ? AND ?",
+                new String[] { String.valueOf(classId), String.valueOf(fromDate), String.valueOf(toDate) },
+                null, null, "date");
+
+        while (cursor.moveToNext()) {
+            Attendance attendance = new Attendance();
+            attendance.setId(cursor.getLong(0));
+            attendance.setClassId(cursor.getLong(1));
+            attendance.setDate(cursor.getLong(2));
+            sessions.add(attendance);
+        }
+        cursor.close();
+        return sessions;
+    }
+
+    /**
+     * Aggregates attendance per week (weeks start on Monday) between two epoch days.
+     */
+    public List<AttendanceRollup> getWeeklyRollups(long classId, long fromDate, long toDate) {
+        // Epoch day 0 was a Thursday, so (date + 3) mod 7 is the offset from Monday. SQLite's %
+        // keeps the sign of the dividend, so days before 1970 need the extra + 7.
+        return getRollups("a.date - (((a.date + 3) % 7 + 7) % 7)", classId, fromDate, toDate);
+    }
+
+    /**
+     * Aggregates attendance per calendar month between two epoch days.
+     */
+    public List<AttendanceRollup> getMonthlyRollups(long classId, long fromDate, long toDate) {
+        return getRollups("CAST(julianday(a.date * 86400, 'unixepoch', 'start of month') - 2440587.5 AS INTEGER)",
+                classId, fromDate, toDate);
+    }
+
+    private List<AttendanceRollup> getRollups(String periodExpression, long classId, long fromDate, long toDate) {
+        List<AttendanceRollup> rollups = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+
+        String query = "SELECT " + periodExpression + " AS period_start, " +
+                "COUNT(DISTINCT a.id) AS sessions, " +
+                "COALESCE(SUM(ar.present), 0) AS present, " +
+                "COUNT(ar.id) AS records " +
+                "FROM " + TABLE_ATTENDANCE + " a " +
+                "LEFT JOIN " + TABLE_ATTENDANCE_RECORDS + " ar ON ar.attendance_id = a.id " +
+                "WHERE a.class_id = ? AND a.date BETWEEN ? AND ? " +
+                "GROUP BY period_start ORDER BY period_start";
+
+        Cursor cursor = db.rawQuery(query, new String[] {
+                String.valueOf(classId), String.valueOf(fromDate), String.valueOf(toDate) });
+
+        while (cursor.moveToNext()) {
+            rollups.add(new AttendanceRollup(
+                    cursor.getLong(cursor.getColumnIndexOrThrow("period_start")),
+                    cursor.getInt(cursor.getColumnIndexOrThrow("sessions")),
+                    cursor.getInt(cursor.getColumnIndexOrThrow("present")),
+                    cursor.getInt(cursor.getColumnIndexOrThrow("records"))));
+        }
+        cursor.close();
+        return rollups;
+    }
+
+    // ==================== EXPORT CURSORS ====================
+
+    /**
+     * Opens a cursor over every attendance record in scope, ordered by class and date.
+     * The caller must close it. Pass classId <= 0 for all classes.
+     * Columns: class_id, class_name, class_section, date, student_row_id, student_id,
+     * student_name, present.
+     */
+    public Cursor queryExportRecords(long classId, long fromDate, long toDate) {
+        SQLiteDatabase db = getReadableDatabase();
+        String query = "SELECT a.class_id, c.name AS class_name, c.section AS class_section, a.date, " +
+                "s.id AS student_row_id, s.student_id, s.name AS student_name, ar.present " +
+                "FROM " + TABLE_ATTENDANCE + " a " +
+                "JOIN " + TABLE_CLASSES + " c ON c.id = a.class_id " +
+                "JOIN " + TABLE_ATTENDANCE_RECORDS + " ar ON ar.attendance_id = a.id " +
+                "JOIN " + TABLE_STUDENTS + " s ON s.id = ar.student_id " +
+                "WHERE " + exportScope(classId) + " " +
+                "ORDER BY a.class_id, a.date";
+        return db.rawQuery(query, exportScopeArgs(classId, fromDate, toDate));
+    }
+
+    /**
+     * Opens a cursor over the students referenced by records in scope.
+     * Columns: id, student_id, name.
+     */
+    public Cursor queryExportStudents(long classId, long fromDate, long toDate) {
+        SQLiteDatabase db = getReadableDatabase();
+        String query = "SELECT id, student_id, name FROM " + TABLE_STUDENTS + " WHERE id IN (" +
+                "SELECT ar.student_id FROM " + TABLE_ATTENDANCE + " a " +
+                "JOIN " + TABLE_ATTENDANCE_RECORDS + " ar ON ar.attendance_id = a.id " +
+                "WHERE " + exportScope(classId) + ")";
+        return db.rawQuery(query, exportScopeArgs(classId, fromDate, toDate));
+    }
+
+    private String exportScope(long classId) {
+        return classId > 0 ? "a.class_id = ? AND a.date BETWEEN ? AND ?" : "a.date BETWEEN ? AND ?";
+    }
+
+    private String[] exportScopeArgs(long classId, long fromDate, long toDate) {
+        return classId > 0
+                ? new String[] { String.valueOf(classId), String.valueOf(fromDate), String.valueOf(toDate) }
+                : new String[] { String.valueOf(fromDate), String.valueOf(toDate) };
+    }
 
-    private byte[] floatArrayToBytes(float[] floats) {
-        ByteBuffer buffer = ByteBuffer.allocate(floats.length * 4);
-        buffer.order(ByteOrder.nativeOrder());
-        for (float f : floats)
-            buffer.putFloat(f);
-        return buffer.array();
+    // ==================== SESSION PRESENCE ====================
+
+    /**
+     * Stores marks that changed a session's PresenceSet. A mark only replaces an earlier
+     * one for the same student and device if it is older, as in PresenceSet itself, so
+     * saving the same marks twice or out of order leaves the same rows.
+     */
+    public void savePresenceMarks(String sessionKey, long date, List<PresenceSet.Mark> marks) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_SESSION_PRESENCE +
+                " (session_key, date, student_key, device_id, first_seen, source) VALUES (?, ?, ?, ?, ?, ?)");
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_SESSION_PRESENCE +
+                " SET first_seen = ?, source = ? WHERE session_key = ? AND student_key = ? AND device_id = ?" +
+                " AND (first_seen > ? OR (first_seen = ? AND source > ?))");
+
+        db.beginTransaction();
+        try {
+            for (PresenceSet.Mark mark : marks) {
+                insert.bindString(1, sessionKey);
+                insert.bindLong(2, date);
+                insert.bindString(3, mark.studentKey);
+                insert.bindString(4, mark.deviceId);
+                insert.bindLong(5, mark.firstSeenMs);
+                insert.bindLong(6, mark.source);
+                if (insert.executeInsert() != -1) continue;
+
+                update.bindLong(1, mark.firstSeenMs);
+                update.bindLong(2, mark.source);
+                update.bindString(3, sessionKey);
+                update.bindString(4, mark.studentKey);
+                update.bindString(5, mark.deviceId);
+                update.bindLong(6, mark.firstSeenMs);
+                update.bindLong(7, mark.firstSeenMs);
+                update.bindLong(8, mark.source);
+                update.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+            update.close();
+        }
     }
 
-    private float[] bytesToFloatArray(byte[] bytes) {
-        ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        buffer.order(ByteOrder.nativeOrder());
-        float[] floats = new float[bytes.length / 4];
-        for (int i = 0; i < floats.length; i++)
-            floats[i] = buffer.getFloat();
-        return floats;
+    /**
+     * Every device's marks for a session, as last saved; empty if none were.
+     */
+    public PresenceSet loadPresence(String sessionKey) {
+        PresenceSet presence = new PresenceSet(sessionKey);
+        List<PresenceSet.Mark> marks = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_SESSION_PRESENCE,
+                new String[] { "student_key", "device_id", "first_seen", "source" },
+                "session_key=?", new String[] { sessionKey }, null, null, "first_seen");
+        while (cursor.moveToNext()) {
+            marks.add(new PresenceSet.Mark(cursor.getString(0), cursor.getString(1),
+                    cursor.getLong(2), cursor.getInt(3)));
+        }
+        cursor.close();
+        presence.merge(marks);
+        return presence;
+    }
+
+    /**
+     * Drops the marks of sessions before an epoch day; by then every device has saved.
+     */
+    public int deletePresenceBefore(long date) {
+        return getWritableDatabase().delete(TABLE_SESSION_PRESENCE, "date < ?",
+                new String[] { String.valueOf(date) });
+    }
+
+    // ==================== CHANGE LOG ====================
+
+    /**
+     * Appends a change; call inside the transaction that made it.
+     */
+    private void logChange(SQLiteDatabase db, String entity, String operation, long rowId, String payload) {
+        ContentValues values = new ContentValues();
+        values.put("entity", entity);
+        values.put("operation", operation);
+        values.put("row_id", rowId);
+        values.put("payload", payload);
+        values.put("created_at", System.currentTimeMillis());
+        db.insert(TABLE_CHANGE_LOG, null, values);
+    }
+
+    private static void addToClass(SQLiteDatabase db, long studentId, long classId) {
+        ContentValues values = new ContentValues();
+        values.put("student_id", studentId);
+        values.put("class_id", classId);
+        db.insertWithOnConflict(TABLE_STUDENT_CLASSES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    private static List<Long> getClassIds(SQLiteDatabase db, long studentId) {
+        List<Long> classIds = new ArrayList<>();
+        Cursor cursor = db.query(TABLE_STUDENT_CLASSES, new String[] { "class_id" }, "student_id=?",
+                new String[] { String.valueOf(studentId) }, null, null, "class_id");
+        while (cursor.moveToNext()) {
+            classIds.add(cursor.getLong(0));
+        }
+        cursor.close();
+        return classIds;
+    }
+
+    // The stored roster fields of a student, for logging a change made in SQL
+    private static String studentPayload(SQLiteDatabase db, long studentId) {
+        Cursor cursor = db.query(TABLE_STUDENTS, new String[] { "name", "student_id", "section", "class_id" },
+                "id=?", new String[] { String.valueOf(studentId) }, null, null, null);
+        Student student = new Student();
+        if (cursor.moveToFirst()) {
+            student.setName(cursor.getString(0));
+            student.setStudentId(cursor.getString(1));
+            student.setSection(cursor.getString(2));
+            student.setClassId(cursor.getLong(3));
+        }
+        cursor.close();
+        return studentPayload(student, getClassIds(db, studentId));
+    }
+
+    // Face features stay on the device; only roster fields are synced. classId is the
+    // home class, classIds every class the student is enrolled in.
+    private static String studentPayload(Student student, List<Long> classIds) {
+        StringBuilder sb = new StringBuilder("{\"name\":").append(JSONObject.quote(student.getName()))
+                .append(",\"studentId\":").append(JSONObject.quote(student.getStudentId()))
+                .append(",\"section\":").append(JSONObject.quote(student.getSection()))
+                .append(",\"classId\":").append(student.getClassId())
+                .append(",\"classIds\":[");
+        for (int i = 0; i < classIds.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append(classIds.get(i));
+        }
+        return sb.append("]}").toString();
+    }
+
+    // Records are [studentRowId, present] pairs to keep a full session small
+    private static String attendancePayload(Attendance attendance) {
+        StringBuilder sb = new StringBuilder(32 + attendance.getRecords().size() * 12);
+        sb.append("{\"classId\":").append(attendance.getClassId())
+                .append(",\"date\":").append(attendance.getDate())
+                .append(",\"records\":[");
+        List<AttendanceRecord> records = attendance.getRecords();
+        for (int i = 0; i < records.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append('[').append(records.get(i).getStudentId()).append(',')
+                    .append(records.get(i).isPresent() ? 1 : 0).append(']');
+        }
+        return sb.append("]}").toString();
+    }
+
+    @Override
+    public List<Change> readChanges(long afterSeq, int limit) {
+        List<Change> changes = new ArrayList<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_CHANGE_LOG,
+                new String[] { "seq", "entity", "operation", "row_id", "payload", "created_at" },
+                "seq > ?", new String[] { String.valueOf(afterSeq) }, null, null, "seq", String.valueOf(limit));
+        while (cursor.moveToNext()) {
+            changes.add(new Change(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getLong(3), cursor.getString(4), cursor.getLong(5)));
+        }
+        cursor.close();
+        return changes;
+    }
+
+    @Override
+    public long getAcknowledgedSeq() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.query(TABLE_SYNC_STATE, new String[] { "value" }, "name=?",
+                new String[] { STATE_ACKNOWLEDGED_SEQ }, null, null, null);
+        long seq = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return seq;
+    }
+
+    /**
+     * Saves the server's acknowledgement and drops the changes it covers.
+     */
+    @Override
+    public void acknowledge(long seq) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put("name", STATE_ACKNOWLEDGED_SEQ);
+            values.put("value", seq);
+            db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.delete(TABLE_CHANGE_LOG, "seq <= ?", new String[] { String.valueOf(seq) });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public int countPendingChanges() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_CHANGE_LOG, null);
+        int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        cursor.close();
+        return count;
     }
 }
@@ -0,0 +1,58 @@
+package com.example.myapplication;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+/**
+ * Spinner adapter over a class's session dates (epoch days), newest first.
+ * Dates are fetched a page at a time as the dropdown scrolls, and rows are recycled.
+ */
+public class AttendanceDateAdapter extends BaseAdapter {
+
+    private final PagedList<Long> dates;
+
+    public AttendanceDateAdapter(PagedList<Long> dates) {
+        this.dates = dates;
+    }
+
+    @Override
+    public int getCount() {
+        return dates.size();
+    }
+
+    @Override
+    public Long getItem(int position) {
+        return dates.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        Long date = getItem(position);
+        return date != null ? date : position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return bind(position, convertView, parent, android.R.layout.simple_spinner_item);
+    }
+
+    @Override
+    public View getDropDownView(int position, View convertView, ViewGroup parent) {
+        return bind(position, convertView, parent, android.R.layout.simple_spinner_dropdown_item);
+    }
+
+    public void close() {
+        dates.close();
+    }
+
+    private View bind(int position, View convertView, ViewGroup parent, int layout) {
+        TextView view = convertView != null ? (TextView) convertView
+                : (TextView) LayoutInflater.from(parent.getContext()).inflate(layout, parent, false);
+        Long date = getItem(position);
+        view.setText(date != null ? EpochDays.format(date) : "");
+        return view;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.myapplication;
+
+import android.database.Cursor;
+
+import com.example.myapplication.models.BaseClass;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Streams attendance records from a single database cursor straight to an output stream.
+ * Nothing is collected in memory, so exports of any size run in constant space.
+ *
+ * Binary format: int MAGIC, byte VERSION, then tagged entries. Class and student
+ * entries come first, followed by a session entry whenever class or date changes and
+ * one present/absent entry per record. Numbers are unsigned LEB128 varints; dates are
+ * zigzag-encoded deltas from the previous session date.
+ */
+public class AttendanceExporter {
+
+    public enum Format { CSV, BINARY }
+
+    public interface ProgressListener {
+        /** Called from the exporting thread every PROGRESS_INTERVAL rows. */
+        void onProgress(long rows);
+    }
+
+    public static final int MAGIC = 0x41544558; // "ATEX"
+    public static final int VERSION = 1;
+
+    public static final int TAG_END = 0;
+    public static final int TAG_CLASS = 1;
+    public static final int TAG_STUDENT = 2;
+    public static final int TAG_SESSION = 3;
+    public static final int TAG_PRESENT = 4;
+    public static final int TAG_ABSENT = 5;
+
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AttendanceDatabase database;
+    private volatile boolean cancelled = false;
+
+    public AttendanceExporter(AttendanceDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Requests cancellation. The running export stops at the next row and throws
+     * CancellationException; an export not started yet throws before writing anything.
+     * Use a new exporter for each export.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Exports records between two epoch days (inclusive). Pass classId <= 0 for all classes,
+     * and Long.MIN_VALUE / Long.MAX_VALUE for an open date range. The stream is flushed
+     * but not closed.
+     *
+     * @return the number of records written
+     */
+    public long export(long classId, long fromDate, long toDate, Format format,
+                       OutputStream out, ProgressListener listener) throws IOException {
+        checkCancelled(); // E.g. cancelled while queued behind another task
+        return format == Format.CSV
+                ? exportCsv(classId, fromDate, toDate, out, listener)
+                : exportBinary(classId, fromDate, toDate, out, listener);
+    }
+
+    private long exportCsv(long classId, long fromDate, long toDate,
+                           OutputStream out, ProgressListener listener) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("class_id,class_name,section,date,student_id,student_name,present\n");
+
+        long rows = 0;
+        Cursor cursor = database.queryExportRecords(classId, fromDate, toDate);
+        try {
+            int colClassId = cursor.getColumnIndexOrThrow("class_id");
+            int colClassName = cursor.getColumnIndexOrThrow("class_name");
+            int colSection = cursor.getColumnIndexOrThrow("class_section");
+            int colDate = cursor.getColumnIndexOrThrow("date");
+            int colStudentId = cursor.getColumnIndexOrThrow("student_id");
+            int colStudentName = cursor.getColumnIndexOrThrow("student_name");
+            int colPresent = cursor.getColumnIndexOrThrow("present");
+
+            long lastDate = Long.MIN_VALUE;
+            String lastDateText = "";
+            while (cursor.moveToNext()) {
+                checkCancelled();
+                long date = cursor.getLong(colDate);
+                if (date != lastDate) {
+                    lastDate = date;
+                    lastDateText = EpochDays.format(date);
+                }
+                writer.write(Long.toString(cursor.getLong(colClassId)));
+                writer.write(',');
+                writeCsvField(writer, cursor.getString(colClassName));
+                writer.write(',');
+                writeCsvField(writer, cursor.getString(colSection));
+                writer.write(',');
+                writer.write(lastDateText);
+                writer.write(',');
+                writeCsvField(writer, cursor.getString(colStudentId));
+                writer.write(',');
+                writeCsvField(writer, cursor.getString(colStudentName));
+                writer.write(',');
+                writer.write(cursor.getInt(colPresent) == 1 ? '1' : '0');
+                writer.write('\n');
+                rows = reportProgress(rows, listener);
+            }
+        } finally {
+            cursor.close();
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private long exportBinary(long classId, long fromDate, long toDate,
+                              OutputStream out, ProgressListener listener) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+
+        for (BaseClass c : database.getAllClasses()) {
+            if (classId > 0 && c.getId() != classId) continue;
+            data.writeByte(TAG_CLASS);
+            writeVarLong(data, c.getId());
+            data.writeUTF(c.getName());
+            data.writeUTF(c.getSection());
+        }
+
+        Cursor students = database.queryExportStudents(classId, fromDate, toDate);
+        try {
+            while (students.moveToNext()) {
+                checkCancelled();
+                data.writeByte(TAG_STUDENT);
+                writeVarLong(data, students.getLong(0));
+                data.writeUTF(students.getString(1));
+                data.writeUTF(students.getString(2));
+            }
+        } finally {
+            students.close();
+        }
+
+        long rows = 0;
+        Cursor cursor = database.queryExportRecords(classId, fromDate, toDate);
+        try {
+            int colClassId = cursor.getColumnIndexOrThrow("class_id");
+            int colDate = cursor.getColumnIndexOrThrow("date");
+            int colStudentRowId = cursor.getColumnIndexOrThrow("student_row_id");
+            int colPresent = cursor.getColumnIndexOrThrow("present");
+
+            long lastClassId = -1;
+            long lastDate = 0;
+            boolean inSession = false;
+            while (cursor.moveToNext()) {
+                checkCancelled();
+                long rowClassId = cursor.getLong(colClassId);
+                long date = cursor.getLong(colDate);
+                if (!inSession || rowClassId != lastClassId || date != lastDate) {
+                    data.writeByte(TAG_SESSION);
+                    writeVarLong(data, rowClassId);
+                    long delta = date - lastDate;
+                    writeVarLong(data, (delta << 1) ^ (delta >> 63));
+                    lastClassId = rowClassId;
+                    lastDate = date;
+                    inSession = true;
+                }
+                data.writeByte(cursor.getInt(colPresent) == 1 ? TAG_PRESENT : TAG_ABSENT);
+                writeVarLong(data, cursor.getLong(colStudentRowId));
+                rows = reportProgress(rows, listener);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        data.writeByte(TAG_END);
+        data.flush();
+        return rows;
+    }
+
+    private long reportProgress(long rows, ProgressListener listener) {
+        rows++;
+        if (listener != null && rows % PROGRESS_INTERVAL == 0) {
+            listener.onProgress(rows);
+        }
+        return rows;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Export cancelled");
+        }
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.myapplication;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.myapplication.models.AttendanceRecord;
+
+/**
+ * RecyclerView adapter that shows attendance records from a PagedList.
+ * Only the rows visible on screen are ever inflated.
+ */
+public class AttendanceRecordAdapter extends RecyclerView.Adapter<AttendanceRecordAdapter.RecordViewHolder> {
+
+    private static final int COLOR_PRESENT = 0xFF4CAF50;
+    private static final int COLOR_ABSENT = 0xFFF44336;
+    private static final int COLOR_LOADING = 0xFF9E9E9E;
+
+    private PagedList<AttendanceRecord> records;
+
+    /**
+     * Replaces the current records. Pass null to clear the list.
+     */
+    public void setRecords(PagedList<AttendanceRecord> records) {
+        if (this.records != null) {
+            this.records.close();
+        }
+        this.records = records;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Called by the PagedList callback once a page is available.
+     */
+    public void onPageLoaded(int offset, int count) {
+        notifyItemRangeChanged(offset, count);
+    }
+
+    @NonNull
+    @Override
+    public RecordViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_attendance_record, parent, false);
+        return new RecordViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecordViewHolder holder, int position) {
+        AttendanceRecord record = records.get(position);
+        if (record == null) {
+            holder.tvRecord.setText("Loading...");
+            holder.tvRecord.setTextColor(COLOR_LOADING);
+            return;
+        }
+        String status = record.isPresent() ? "✓ Present" : "✗ Absent";
+        holder.tvRecord.setText(record.getStudentName() + " (" + record.getStudentIdNumber() + ") - " + status);
+        holder.tvRecord.setTextColor(record.isPresent() ? COLOR_PRESENT : COLOR_ABSENT);
+    }
+
+    @Override
+    public int getItemCount() {
+        return records == null ? 0 : records.size();
+    }
+
+    static class RecordViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvRecord;
+
+        RecordViewHolder(View itemView) {
+            super(itemView);
+            tvRecord = (TextView) itemView;
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package com.example.myapplication;
+
+import android.app.Application;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
+import androidx.camera.core.ExperimentalGetImage;
+import androidx.camera.core.ImageAnalysis;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.AndroidViewModel;
+
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.example.myapplication.models.*;
+import com.example.myapplication.recognition.AuditLog;
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.FaceGallery;
+import com.example.myapplication.recognition.LandmarkLog;
+import com.example.myapplication.recognition.PrototypeLearner;
+import com.example.myapplication.recognition.RecognitionEventBuffer;
+import com.example.myapplication.recognition.SessionMatcher;
+import com.example.myapplication.sync.PresenceSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Attendance session state for GiveAttendanceActivity that survives configuration changes.
+ * This includes the roster snapshot, the campus index, presence state and the
+ * recognition pipeline. A recreated activity attaches a listener and re-binds the
+ * camera to its new PreviewView; nothing is reloaded or rebuilt.
+ * Presence changes are published to an event buffer rather than to the listener, so
+ * consumers take them in batches at their own pace. Every recognition decision is also
+ * written to the AuditLogger, so a disputed absence can be checked later.
+ * Marks are also kept in a PresenceSet for the class and date, which other devices at
+ * the same session can merge, e.g. one per entrance of a large hall.
+ * Everything except the background work is used on the main thread.
+ */
+public class AttendanceSessionViewModel extends AndroidViewModel {
+
+    /** Session events, delivered on the main thread while an activity is attached. */
+    public interface Listener {
+        void onSessionReady();
+
+        void onGroupPhotoProgress(int tilesDone, int tileCount);
+
+        void onGroupPhotoProcessed(GroupPhotoProcessor.Result result, int newlyPresent);
+
+        void onGroupPhotoFailed(String message);
+
+        void onPresenceExported(int marks);
+
+        void onPresenceMerged(int marks, int newlyPresent);
+
+        void onPresenceExchangeFailed(String message);
+    }
+
+    private final AttendanceDatabase database;
+    private final FaceHelper faceHelper = new FaceHelper();
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+    private final CameraLifecycle cameraLifecycle = new CameraLifecycle(); // Survives rotation
+    private final Executor mainExecutor;
+    private final RecognitionEventBuffer events = new RecognitionEventBuffer(EVENT_CAPACITY);
+    private final AuditLogger audit;
+    private Listener listener;
+
+    private List<BaseClass> classes;
+    private int classPosition = -1;
+    private List<Student> students = new ArrayList<>();
+    private final Set<Long> presentStudents = new HashSet<>();
+    private final Set<Long> crossClassStudents = new LinkedHashSet<>(); // Present, but enrolled in another class
+    private long selectedDate = EpochDays.today();
+    private boolean sessionStarted = false;
+    private boolean crossClassFallback;
+    private boolean photoRunning = false;
+
+    private CampusIndex index;
+    private SessionMatcher session;
+    private ImageAnalysis.Analyzer analyzer;
+    private LandmarkRecorder recorder;
+    private final Set<Long> learned = new HashSet<>();
+
+    private final String deviceId;
+    private PresenceSet presence; // For the selected class and date, loaded on first use
+    private long sharedVersion; // Marks up to this version were exported already
+
+    private static final int EVENT_CAPACITY = 1024; // A full hall, with room for a slow consumer
+    private static final int PRESENCE_RETENTION_DAYS = 14;
+    private static final long RECORDING_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    public AttendanceSessionViewModel(@NonNull Application application) {
+        super(application);
+        database = new AttendanceDatabase(application);
+        mainExecutor = ContextCompat.getMainExecutor(application);
+        audit = AuditLogger.getInstance(application);
+        deviceId = new AttendanceSync(application, database).getDeviceId();
+        CampusIndexCache.acquire(); // Session, photo and merge all search it
+        faceHelper.warmUp(); // This screen always recognizes faces
+        backgroundExecutor.execute(() ->
+                database.deletePresenceBefore(EpochDays.today() - PRESENCE_RETENTION_DAYS));
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public AttendanceDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Every presence change of this session, for the UI and any other consumer.
+     */
+    public RecognitionEventBuffer getEvents() {
+        return events;
+    }
+
+    // ==================== ROSTER ====================
+
+    public List<BaseClass> getClasses() {
+        if (classes == null) {
+            classes = database.getAllClasses();
+        }
+        return classes;
+    }
+
+    public int getClassPosition() {
+        return classPosition;
+    }
+
+    /**
+     * Position of the class the timetable says is running or about to start, or -1.
+     */
+    public int getScheduledClassPosition() {
+        for (long classId : GalleryPreloader.getInstance(getApplication()).getDueClasses()) {
+            for (int i = 0; i < getClasses().size(); i++) {
+                if (classes.get(i).getId() == classId) return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Selects a class and loads its roster, unless it is already selected. The roster
+     * comes from the GalleryPreloader when it loaded the class ahead of time.
+     * Presence is reset when the class changes, then restored from marks this or
+     * another device already recorded for the class and date.
+     */
+    public void selectClass(int position) {
+        if (position == classPosition || position < 0 || position >= getClasses().size()) {
+            return;
+        }
+        classPosition = position;
+        long classId = classes.get(position).getId();
+        GalleryPreloader.Snapshot snapshot = GalleryPreloader.getInstance(getApplication()).get(classId);
+        students = snapshot != null ? new ArrayList<>(snapshot.roster) : database.getStudentsByClass(classId);
+        resetPresence();
+    }
+
+    /**
+     * Forgets the presence of the previous class or date and restores the marks already
+     * recorded for the current one. A running session gets a fresh matcher, so students
+     * present on the old date are recognized again.
+     */
+    private void resetPresence() {
+        presentStudents.clear();
+        crossClassStudents.clear();
+        presence = null;
+        if (session != null) session = index.newSession(getSelectedClass().getId(), crossClassFallback);
+        applyPresence(presence().getPresent(), null, false); // Already audited when first marked
+    }
+
+    public BaseClass getSelectedClass() {
+        return classPosition >= 0 ? classes.get(classPosition) : null;
+    }
+
+    public BaseClass findClass(long classId) {
+        for (BaseClass c : getClasses()) {
+            if (c.getId() == classId) return c;
+        }
+        return null;
+    }
+
+    public List<Student> getStudents() {
+        return students;
+    }
+
+    /**
+     * Looks up a student on the roster, or anywhere on campus once the session has an index.
+     */
+    public Student findStudent(long studentId) {
+        for (Student s : students) {
+            if (s.getId() == studentId) return s;
+        }
+        return index != null ? index.getStudent(studentId) : null;
+    }
+
+    public Set<Long> getPresentStudents() {
+        return presentStudents;
+    }
+
+    public Set<Long> getCrossClassStudents() {
+        return crossClassStudents;
+    }
+
+    public long getSelectedDate() {
+        return selectedDate;
+    }
+
+    /**
+     * Changes the date attendance is taken for. Presence is reset, then restored from
+     * marks already recorded for the class on the new date.
+     */
+    public void setSelectedDate(long selectedDate) {
+        if (selectedDate == this.selectedDate) return;
+        this.selectedDate = selectedDate;
+        if (getSelectedClass() != null) resetPresence();
+    }
+
+    // ==================== LIVE SESSION ====================
+
+    public boolean isSessionStarted() {
+        return sessionStarted;
+    }
+
+    /**
+     * The analyzer to bind to the camera, or null while the index is still loading.
+     */
+    public ImageAnalysis.Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public Executor getAnalysisExecutor() {
+        return analysisExecutor;
+    }
+
+    /**
+     * The owner to bind the camera to, so a recreated activity keeps the camera open.
+     */
+    public CameraLifecycle getCameraLifecycle() {
+        return cameraLifecycle;
+    }
+
+    /**
+     * Loads the campus index in the background and builds the session pipeline.
+     * The listener's onSessionReady fires once the analyzer can be bound.
+     *
+     * @param record also write every analysed frame's landmarks to a LandmarkLog file
+     */
+    public void startSession(boolean crossClassFallback, boolean record) {
+        if (sessionStarted || getSelectedClass() == null) return;
+        sessionStarted = true;
+        this.crossClassFallback = crossClassFallback;
+        long classId = getSelectedClass().getId();
+        long requested = System.nanoTime();
+        Set<Long> crossClass = new HashSet<>(crossClassStudents); // E.g. from a group photo
+        backgroundExecutor.execute(() -> {
+            CampusIndex loaded = CampusIndexCache.get(database); // Instant when preloaded
+            LandmarkRecorder opened = record ? openRecorder(loaded, classId, crossClassFallback, crossClass) : null;
+            mainExecutor.execute(() -> {
+                index = loaded;
+                recorder = opened;
+                faceHelper.setRecorder(opened);
+                session = loaded.newSession(classId, crossClassFallback);
+                // Students marked before the camera started, e.g. from a group photo
+                for (long id : presentStudents) session.markPresent(id);
+                analyzer = createAnalyzer();
+                PipelineMetrics.SESSION_READY.recordNanos(System.nanoTime() - requested);
+                if (listener != null) listener.onSessionReady();
+            });
+        });
+    }
+
+    /**
+     * Opens a recording in private storage, deleting recordings older than RECORDING_MAX_AGE_MS.
+     * The header holds the roster and students already matched from other classes; later
+     * cross-class matches are appended as they happen.
+     */
+    private LandmarkRecorder openRecorder(CampusIndex index, long classId, boolean crossClassFallback,
+                                          Set<Long> crossClass) {
+        File dir = new File(getApplication().getFilesDir(), "sessions");
+        if (!dir.isDirectory() && !dir.mkdirs()) return null;
+        long now = System.currentTimeMillis();
+        File[] old = dir.listFiles();
+        if (old != null) {
+            for (File f : old) {
+                if (now - f.lastModified() > RECORDING_MAX_AGE_MS) f.delete();
+            }
+        }
+        File file = new File(dir, "session-" + classId + "-" + now + ".alog");
+        List<Student> students = new ArrayList<>();
+        for (Student s : index.getStudents()) {
+            if (s.getClassId() != classId && index.getClassIds(s.getId()).contains(classId)) {
+                s = asMemberOf(s, classId); // Recordings know only home classes
+            }
+            if (s.getClassId() == classId || crossClass.contains(s.getId())) students.add(s);
+        }
+        LandmarkLog.Header header = new LandmarkLog.Header(classId, crossClassFallback,
+                FaceHelper.RECOGNITION_THRESHOLD, students);
+        try {
+            return LandmarkRecorder.open(file, header);
+        } catch (IOException e) {
+            return null; // The session runs without recording
+        }
+    }
+
+    private static Student asMemberOf(Student student, long classId) {
+        Student copy = new Student(student.getName(), student.getStudentId(), student.getSection(), classId,
+                student.getFaceFeatures());
+        copy.setId(student.getId());
+        copy.setTemplates(student.getTemplates());
+        return copy;
+    }
+
+    /**
+     * The file this session's landmarks are recorded to, or null if it is not recorded.
+     */
+    public File getRecordingFile() {
+        return recorder != null ? recorder.getFile() : null;
+    }
+
+    @OptIn(markerClass = ExperimentalGetImage.class)
+    private ImageAnalysis.Analyzer createAnalyzer() {
+        FaceHelper.FaceRecognitionCallback recognitionCallback = new FaceHelper.FaceRecognitionCallback() {
+            @Override
+            public void onFaceRecognized(FaceGallery.Match match, float[] features) {
+                // ML Kit delivers results on the main thread
+                Student student = index.getStudent(match.studentId);
+                if (match.crossClass && recorder != null) {
+                    recorder.addStudent(student); // So the recording replays this match
+                }
+                boolean newlyPresent = session.markPresent(student.getId());
+                if (newlyPresent) {
+                    onRecognized(student, match);
+                    recordMark(student, PresenceSet.SOURCE_CAMERA);
+                }
+                logDecision(!newlyPresent ? AuditLog.Decision.ALREADY_PRESENT
+                        : match.crossClass ? AuditLog.Decision.CROSS_CLASS : AuditLog.Decision.PRESENT,
+                        0, student.getId(), match);
+                if (PrototypeLearner.shouldLearn(match) && learned.add(student.getId())) {
+                    backgroundExecutor.execute(() -> database.addLearnedTemplate(student.getId(), features));
+                }
+            }
+
+            @Override
+            public void onFaceNotRecognized(FaceGallery.Match nearest) {
+                logDecision(AuditLog.Decision.NOT_RECOGNIZED, 0, nearest != null ? nearest.studentId : -1, nearest);
+            }
+
+            @Override
+            public void onFaceRejected(FaceQualityGate.Rejection reason, FaceGallery.Match nearest) {
+                logDecision(AuditLog.Decision.REJECTED, reason.ordinal() + 1,
+                        nearest != null ? nearest.studentId : -1, nearest);
+            }
+
+            @Override
+            public void onNoFaceDetected() {}
+
+            @Override
+            public void onError(String message) {}
+        };
+        return image -> faceHelper.recognizeFace(image, session, recognitionCallback);
+    }
+
+    private void logDecision(AuditLog.Decision decision, int detail, long studentId, FaceGallery.Match match) {
+        audit.log(getSelectedClass().getId(), decision, detail, studentId, match, FaceHelper.RECOGNITION_THRESHOLD);
+    }
+
+    private void onRecognized(Student student, FaceGallery.Match match) {
+        long classId = getSelectedClass().getId();
+        if (match.crossClass) {
+            if (crossClassStudents.add(student.getId())) {
+                events.publish(RecognitionEventBuffer.Kind.CROSS_CLASS, RecognitionEventBuffer.Source.CAMERA,
+                        student.getId(), classId, match.distance);
+            }
+        } else if (presentStudents.add(student.getId())) {
+            events.publish(RecognitionEventBuffer.Kind.PRESENT, RecognitionEventBuffer.Source.CAMERA,
+                    student.getId(), classId, match.distance);
+        }
+    }
+
+    // ==================== GROUP PHOTO ====================
+
+    public boolean isPhotoRunning() {
+        return photoRunning;
+    }
+
+    /**
+     * Marks everyone found in a group photo as present. The result is a draft: it is
+     * merged with any live recognition and only stored when the teacher saves.
+     */
+    public void processGroupPhoto(Uri uri) {
+        if (photoRunning || getSelectedClass() == null) return;
+        photoRunning = true;
+        long classId = getSelectedClass().getId();
+        GroupPhotoProcessor processor = new GroupPhotoProcessor(getApplication(), faceHelper);
+        backgroundExecutor.execute(() -> {
+            GroupPhotoProcessor.Result result = null;
+            String error = null;
+            try {
+                result = processor.process(uri, CampusIndexCache.get(database), classId, (done, total) ->
+                        mainExecutor.execute(() -> {
+                            if (listener != null) listener.onGroupPhotoProgress(done, total);
+                        }));
+            } catch (Exception e) {
+                error = "Could not process photo: " + e.getMessage();
+            }
+
+            GroupPhotoProcessor.Result finalResult = result;
+            String finalError = error;
+            mainExecutor.execute(() -> {
+                photoRunning = false;
+                if (finalError != null) {
+                    if (listener != null) listener.onGroupPhotoFailed(finalError);
+                    return;
+                }
+                int added = 0;
+                for (long id : finalResult.presentStudentIds) {
+                    if (presentStudents.add(id)) {
+                        added++;
+                        Student student = findStudent(id);
+                        if (student != null) recordMark(student, PresenceSet.SOURCE_PHOTO);
+                        audit.log(classId, AuditLog.Decision.PHOTO_PRESENT, 0, id, null, FaceHelper.RECOGNITION_THRESHOLD);
+                        events.publish(RecognitionEventBuffer.Kind.PRESENT, RecognitionEventBuffer.Source.PHOTO,
+                                id, classId, Float.NaN);
+                    }
+                    if (session != null) session.markPresent(id);
+                }
+                if (listener != null) listener.onGroupPhotoProcessed(finalResult, added);
+            });
+        });
+    }
+
+    // ==================== MULTI-DEVICE ====================
+
+    private PresenceSet presence() {
+        BaseClass selectedClass = getSelectedClass();
+        String key = PresenceSet.sessionKey(selectedClass.getName(), selectedClass.getSection(), selectedDate);
+        if (presence == null || !presence.getSessionKey().equals(key)) {
+            presence = database.loadPresence(key);
+            sharedVersion = 0;
+        }
+        return presence;
+    }
+
+    private void recordMark(Student student, int source) {
+        PresenceSet set = presence();
+        List<PresenceSet.Mark> changed = set.merge(Collections.singletonList(
+                new PresenceSet.Mark(student.getStudentId(), deviceId, System.currentTimeMillis(), source)));
+        persistMarks(set.getSessionKey(), changed);
+    }
+
+    private void persistMarks(String sessionKey, List<PresenceSet.Mark> marks) {
+        if (marks.isEmpty()) return;
+        long date = selectedDate;
+        backgroundExecutor.execute(() -> database.savePresenceMarks(sessionKey, date, marks));
+    }
+
+    /**
+     * Marks students present from campus ids another device or an earlier run recorded.
+     * Students not on the roster count as cross-class when the campus map knows them.
+     *
+     * @param fromPeer audit newly present students as marked by another device
+     * @return how many were not present before
+     */
+    private int applyPresence(Collection<String> studentKeys, Map<String, Student> campus, boolean fromPeer) {
+        Map<String, Student> roster = new HashMap<>();
+        for (Student s : students) roster.put(s.getStudentId(), s);
+        long classId = getSelectedClass().getId();
+        int added = 0;
+        for (String key : studentKeys) {
+            Student student = roster.get(key);
+            boolean crossClass = student == null;
+            if (crossClass) student = campus != null ? campus.get(key) : null;
+            if (student == null) continue;
+            if (session != null) session.markPresent(student.getId());
+            boolean newlyPresent = crossClass
+                    ? crossClassStudents.add(student.getId())
+                    : presentStudents.add(student.getId());
+            if (!newlyPresent) continue;
+            added++;
+            if (fromPeer) {
+                audit.log(classId, AuditLog.Decision.PEER_PRESENT, 0, student.getId(), null,
+                        FaceHelper.RECOGNITION_THRESHOLD);
+            }
+            events.publish(crossClass ? RecognitionEventBuffer.Kind.CROSS_CLASS : RecognitionEventBuffer.Kind.PRESENT,
+                    RecognitionEventBuffer.Source.PEER, student.getId(), classId, Float.NaN);
+        }
+        return added;
+    }
+
+    /**
+     * How many marks would be exported.
+     *
+     * @param everything all marks of the session, not just those since the last export
+     */
+    public int countMarksToShare(boolean everything) {
+        return presence().delta(everything ? 0 : sharedVersion).size();
+    }
+
+    /**
+     * Writes this session's marks to a document for other devices to merge. Merging is
+     * idempotent, so sending a mark twice, or through several devices, is harmless.
+     */
+    public void exportPresence(Uri uri, boolean everything) {
+        if (getSelectedClass() == null) return;
+        PresenceSet set = presence();
+        List<PresenceSet.Mark> marks = set.delta(everything ? 0 : sharedVersion);
+        long version = set.getVersion();
+        byte[] data = PresenceSet.encode(set.getSessionKey(), marks);
+        backgroundExecutor.execute(() -> {
+            String error = null;
+            try (OutputStream out = getApplication().getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    error = "Could not open file";
+                } else {
+                    out.write(data);
+                }
+            } catch (IOException e) {
+                error = "Could not write marks: " + e.getMessage();
+            }
+
+            String finalError = error;
+            mainExecutor.execute(() -> {
+                if (finalError != null) {
+                    if (listener != null) listener.onPresenceExchangeFailed(finalError);
+                    return;
+                }
+                if (presence == set) sharedVersion = Math.max(sharedVersion, version);
+                if (listener != null) listener.onPresenceExported(marks.size());
+            });
+        });
+    }
+
+    /**
+     * Merges marks exported by another device at the same session.
+     */
+    public void mergePresence(Uri uri) {
+        if (getSelectedClass() == null) return;
+        backgroundExecutor.execute(() -> {
+            PresenceSet.Delta delta = null;
+            Map<String, Student> campus = null;
+            String error = null;
+            try (InputStream in = getApplication().getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    error = "Could not open file";
+                } else {
+                    delta = PresenceSet.decode(readAll(in));
+                    campus = new HashMap<>();
+                    for (Student s : CampusIndexCache.get(database).getStudents()) {
+                        campus.put(s.getStudentId(), s);
+                    }
+                }
+            } catch (IOException e) {
+                error = "Could not read marks: " + e.getMessage();
+            }
+
+            PresenceSet.Delta finalDelta = delta;
+            Map<String, Student> finalCampus = campus;
+            String finalError = error;
+            mainExecutor.execute(() -> {
+                String failure = finalError;
+                if (failure == null && !finalDelta.sessionKey.equals(presence().getSessionKey())) {
+                    failure = "These marks are for another class or date";
+                }
+                if (failure != null) {
+                    if (listener != null) listener.onPresenceExchangeFailed(failure);
+                    return;
+                }
+                List<PresenceSet.Mark> changed = presence.merge(finalDelta.marks);
+                persistMarks(presence.getSessionKey(), changed);
+                Set<String> keys = new LinkedHashSet<>();
+                for (PresenceSet.Mark mark : changed) keys.add(mark.studentKey);
+                int added = applyPresence(keys, finalCampus, true);
+                if (listener != null) listener.onPresenceMerged(changed.size(), added);
+            });
+        });
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    // ==================== SAVE ====================
+
+    /**
+     * Stores the session as an attendance record. If one already exists for this class
+     * and date, e.g. saved by another device at the same session, the two are merged.
+     *
+     * @return true if it was merged into an existing record
+     */
+    public boolean saveAttendance() {
+        BaseClass selectedClass = getSelectedClass();
+        Attendance attendance = new Attendance(selectedClass.getId(), selectedDate);
+        for (Student s : students) {
+            attendance.addRecord(new AttendanceRecord(s.getId(), presentStudents.contains(s.getId())));
+        }
+        for (long studentId : crossClassStudents) {
+            attendance.addRecord(new AttendanceRecord(studentId, true));
+        }
+        return database.saveOrMergeAttendance(attendance);
+    }
+
+    @Override
+    protected void onCleared() {
+        listener = null;
+        cameraLifecycle.destroy();
+        analysisExecutor.shutdown();
+        faceHelper.setRecorder(null);
+        if (recorder != null) recorder.close();
+        CampusIndexCache.release();
+        audit.flush();
+        faceHelper.close();
+        backgroundExecutor.execute(database::close); // After any pending template writes
+        backgroundExecutor.shutdown();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.myapplication.sync.SyncEngine;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.UUID;
+
+/**
+ * Uploads the attendance database's change log to the registrar's server.
+ * The server URL and this device's id are kept in shared preferences; the
+ * acknowledged position lives in the database next to the changes themselves.
+ */
+public class AttendanceSync {
+
+    private static final String PREFS = "sync";
+    private static final String KEY_ENDPOINT = "endpoint";
+    private static final String KEY_DEVICE_ID = "device_id";
+
+    private final SharedPreferences prefs;
+    private final AttendanceDatabase database;
+
+    public AttendanceSync(Context context, AttendanceDatabase database) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.database = database;
+    }
+
+    public String getEndpoint() {
+        return prefs.getString(KEY_ENDPOINT, "");
+    }
+
+    /**
+     * @throws IllegalArgumentException if the URL is not http or https
+     */
+    public void setEndpoint(String endpoint) {
+        parseEndpoint(endpoint);
+        prefs.edit().putString(KEY_ENDPOINT, endpoint).apply();
+    }
+
+    /**
+     * A random id generated on first use, so the server can tell devices apart.
+     */
+    public String getDeviceId() {
+        String id = prefs.getString(KEY_DEVICE_ID, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString();
+            prefs.edit().putString(KEY_DEVICE_ID, id).apply();
+        }
+        return id;
+    }
+
+    public int getPendingCount() {
+        return database.countPendingChanges();
+    }
+
+    /**
+     * Uploads everything the server has not acknowledged. Blocks, including while
+     * backing off between retries; call on a background thread.
+     */
+    public SyncEngine.Result sync() {
+        SyncEngine engine = new SyncEngine(database, parseEndpoint(getEndpoint()), getDeviceId());
+        return engine.sync();
+    }
+
+    private static URL parseEndpoint(String endpoint) {
+        try {
+            URL url = new URL(endpoint);
+            if (!url.getProtocol().equals("https") && !url.getProtocol().equals("http")) {
+                throw new IllegalArgumentException("Server URL must be http or https");
+            }
+            return url;
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid server URL: " + endpoint);
+        }
+    }
+}
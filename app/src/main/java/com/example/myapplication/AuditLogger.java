@@ -0,0 +1,186 @@
+package com.example.myapplication;
+
+import android.content.Context;
+
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.example.myapplication.recognition.AuditLog;
+import com.example.myapplication.recognition.AuditThrottle;
+import com.example.myapplication.recognition.FaceGallery;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes recognition decisions to the AuditLog in the app's private files.
+ * Logging a decision only encodes it into an in-memory buffer. Full buffers, and
+ * anything left after FLUSH_INTERVAL_MS, are written in one call on a dedicated
+ * thread, so the recognition path never waits on storage. Segments rotate at
+ * midnight (device time zone) and at MAX_SEGMENT_BYTES.
+ *
+ * Decisions repeated frame after frame pass through an AuditThrottle, and opening a
+ * segment deletes segments older than RETENTION_DAYS or beyond MAX_LOG_BYTES in total.
+ */
+public class AuditLogger {
+
+    private static final int BUFFER_RECORDS = 512;
+    private static final long FLUSH_INTERVAL_MS = 2000;
+    private static final long MAX_SEGMENT_BYTES = 4L * 1024 * 1024;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long REPEAT_INTERVAL_MS = 5000;
+    private static final int RETENTION_DAYS = 90;
+    private static final long MAX_LOG_BYTES = 64L * 1024 * 1024;
+
+    private static AuditLogger instance;
+
+    private final File dir;
+    private final ScheduledExecutorService writerExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final ConcurrentLinkedQueue<ByteBuffer> spareBuffers = new ConcurrentLinkedQueue<>();
+    private final Object lock = new Object();
+    private final AuditThrottle throttle = new AuditThrottle(REPEAT_INTERVAL_MS);
+    private ByteBuffer active = newBuffer();
+    private boolean flushScheduled = false;
+
+    // Writer thread only
+    private FileOutputStream segment;
+    private long segmentDay = Long.MIN_VALUE;
+    private long segmentBytes;
+
+    private AuditLogger(File dir) {
+        this.dir = dir;
+    }
+
+    public static synchronized AuditLogger getInstance(Context context) {
+        if (instance == null) {
+            instance = new AuditLogger(new File(context.getApplicationContext().getFilesDir(), "audit"));
+        }
+        return instance;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Records one decision, unless it repeats one logged moments ago. Never blocks on I/O;
+     * safe from any thread.
+     *
+     * @param match the match behind the decision, or null if nobody was matched
+     */
+    public void log(long classId, AuditLog.Decision decision, int detail, long studentId,
+                    FaceGallery.Match match, float threshold) {
+        long now = System.currentTimeMillis();
+        if (!throttle.shouldLog(now, classId, decision, detail, studentId)) {
+            PipelineMetrics.AUDIT_THROTTLED.inc();
+            return;
+        }
+        synchronized (lock) {
+            if (active.remaining() < AuditLog.RECORD_SIZE) handOff();
+            AuditLog.encode(active, now, classId, decision, detail, studentId,
+                    match != null ? match.distance : Float.NaN,
+                    match != null ? match.runnerUpId : -1,
+                    match != null ? match.runnerUpDistance : Float.NaN, threshold);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                writerExecutor.schedule(this::flush, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes everything logged so far, in the background.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushScheduled = false;
+            if (active.position() > 0) handOff();
+        }
+    }
+
+    /**
+     * A day's decisions involving a student, as the match or the runner-up, including
+     * ones still buffered. Pass a negative studentId for the whole day.
+     */
+    public Future<List<AuditLog.Record>> query(long studentId, long epochDay) {
+        flush();
+        return writerExecutor.submit(() -> AuditLog.query(dir, studentId, epochDay)); // After the flush
+    }
+
+    // Caller holds the lock
+    private void handOff() {
+        ByteBuffer full = active;
+        ByteBuffer spare = spareBuffers.poll();
+        active = spare != null ? spare : newBuffer();
+        writerExecutor.execute(() -> write(full));
+    }
+
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(AuditLog.RECORD_SIZE * BUFFER_RECORDS);
+    }
+
+    // ==================== WRITER THREAD ====================
+
+    private void write(ByteBuffer batch) {
+        long start = System.nanoTime();
+        batch.flip();
+        try {
+            int from = 0;
+            while (from < batch.limit()) {
+                long day = localDay(AuditLog.timestampAt(batch, from));
+                if (segment == null || day != segmentDay || segmentBytes + AuditLog.RECORD_SIZE > MAX_SEGMENT_BYTES) {
+                    openSegment(day);
+                }
+                // Write the longest run that belongs in this segment in one call
+                int to = from + AuditLog.RECORD_SIZE;
+                while (to < batch.limit() && segmentBytes + (to - from) + AuditLog.RECORD_SIZE <= MAX_SEGMENT_BYTES
+                        && localDay(AuditLog.timestampAt(batch, to)) == day) {
+                    to += AuditLog.RECORD_SIZE;
+                }
+                segment.write(batch.array(), from, to - from);
+                segmentBytes += to - from;
+                from = to;
+            }
+        } catch (IOException e) {
+            PipelineMetrics.AUDIT_WRITE_FAILED.inc();
+            closeSegment(); // The next batch starts a fresh segment
+        } finally {
+            batch.clear();
+            spareBuffers.offer(batch);
+            PipelineMetrics.AUDIT_FLUSH.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void openSegment(long day) throws IOException {
+        closeSegment();
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        AuditLog.prune(dir, day - RETENTION_DAYS + 1, MAX_LOG_BYTES - MAX_SEGMENT_BYTES); // Room for this one
+        // Always a new file: appending after a partial record would misalign the rest
+        File file = new File(dir, AuditLog.segmentName(day, AuditLog.nextSequence(dir, day)));
+        segment = new FileOutputStream(file);
+        segment.write(AuditLog.header(day));
+        segmentDay = day;
+        segmentBytes = AuditLog.HEADER_SIZE;
+    }
+
+    private void closeSegment() {
+        if (segment == null) return;
+        try {
+            segment.close();
+        } catch (IOException ignored) {
+            // Whole records already written stay readable
+        }
+        segment = null;
+    }
+
+    private static long localDay(long timestampMs) {
+        return Math.floorDiv(timestampMs + TimeZone.getDefault().getOffset(timestampMs), DAY_MS);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.myapplication;
+
+/**
+ * Decides when to capture automatically during batch enrollment.
+ * A capture fires once the same well-posed face has been seen in several consecutive
+ * frames, and the best-quality frame of that run is returned. After a capture the
+ * selector waits for the face to change (or leave) so the previous student is never
+ * enrolled again under the next name.
+ */
+public class AutoCaptureSelector {
+
+    public static final int STABLE_FRAMES = 5;
+    private static final float STABILITY_DISTANCE = 0.15f; // Between consecutive frames
+    private static final float SAME_PERSON_DISTANCE = 0.4f; // Same as the recognition threshold
+
+    private final float[][] frames = new float[STABLE_FRAMES][];
+    private final float[] qualities = new float[STABLE_FRAMES];
+    private int count = 0;
+    private float[] lastCaptured;
+
+    /**
+     * Offers a well-posed frame.
+     *
+     * @return the features to enroll once the face has been stable long enough, otherwise null
+     */
+    public float[] offer(float[] features, float quality) {
+        if (lastCaptured != null) {
+            if (distance(features, lastCaptured) <= SAME_PERSON_DISTANCE) {
+                return null; // Previous student is still in front of the camera
+            }
+            lastCaptured = null;
+        }
+
+        if (count > 0 && distance(features, frames[count - 1]) > STABILITY_DISTANCE) {
+            count = 0; // Face moved or changed, start a new run
+        }
+        frames[count] = features;
+        qualities[count] = quality;
+        count++;
+
+        if (count < STABLE_FRAMES) {
+            return null;
+        }
+
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (qualities[i] > qualities[best]) best = i;
+        }
+        float[] captured = frames[best];
+        lastCaptured = captured;
+        count = 0;
+        return captured;
+    }
+
+    /**
+     * Called when a frame has no usable face. Breaks the current run and
+     * means the previously captured student has left the frame.
+     */
+    public void onNoFace() {
+        count = 0;
+        lastCaptured = null;
+    }
+
+    /**
+     * Discards the current run, e.g. when the teacher skips a student.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Number of consecutive stable frames collected so far, for progress hints.
+     */
+    public int getStableCount() {
+        return count;
+    }
+
+    public boolean isWaitingForNextFace() {
+        return lastCaptured != null;
+    }
+
+    private static float distance(float[] f1, float[] f2) {
+        if (f1.length != f2.length)
+            return Float.MAX_VALUE;
+        float sum = 0;
+        for (int i = 0; i < f1.length; i++) {
+            float diff = f1[i] - f2[i];
+            sum += diff * diff;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
@@ -6,21 +6,21 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ExperimentalGetImage;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.Preview;
-import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
-import androidx.core.content.ContextCompat;
 
 import com.example.myapplication.models.Student;
-import com.google.common.util.concurrent.ListenableFuture;
+import com.example.myapplication.recognition.FaceGallery;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -39,14 +39,40 @@ public class CameraDialogHelper {
         void onResult(Student student);
     }
 
+    public interface BatchEnrollCallback {
+        /** Called on the main thread; the caller should persist off the main thread. */
+        void onStudentEnrolled(Student student, float[] features);
+
+        void onFinished(int enrolled, int skipped);
+    }
+
     private final AppCompatActivity activity;
     private final FaceHelper faceHelper;
-    private final ExecutorService cameraExecutor;
+    private final CameraSessionManager cameraSession;
+    private final CameraSessionManager.BindCallback bindCallback;
+    private ExecutorService cameraExecutor; // Created when analysis first starts
 
     public CameraDialogHelper(AppCompatActivity activity) {
         this.activity = activity;
         this.faceHelper = new FaceHelper();
-        this.cameraExecutor = Executors.newSingleThreadExecutor();
+        this.cameraSession = CameraSessionManager.getInstance(activity);
+        this.bindCallback = new CameraSessionManager.BindCallback() {
+            @Override
+            public void onBound(long elapsedMs) {}
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(activity, "Camera unavailable: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+        };
+    }
+
+    /**
+     * Starts loading the face detector in the background, for screens that are about
+     * to recognize faces. The camera provider is already initializing by now.
+     */
+    public void warmUp() {
+        faceHelper.warmUp();
     }
 
     /**
@@ -109,21 +135,100 @@ public class CameraDialogHelper {
         dialog.show();
     }
 
+    /**
+     * Shows the batch enrollment dialog. Walks through the roster one student at a time,
+     * keeping the camera running and capturing automatically once a stable, well-posed
+     * face has been seen. The teacher only needs to skip students who are absent.
+     */
+    @OptIn(markerClass = ExperimentalGetImage.class)
+    public void showBatchEnrollDialog(List<Student> roster, BatchEnrollCallback callback) {
+        View dialogView = LayoutInflater.from(activity).inflate(R.layout.dialog_batch_enroll, null);
+        PreviewView previewView = dialogView.findViewById(R.id.previewView);
+        TextView tvProgress = dialogView.findViewById(R.id.tvProgress);
+        TextView tvStudent = dialogView.findViewById(R.id.tvStudent);
+        TextView tvHint = dialogView.findViewById(R.id.tvHint);
+        Button btnSkip = dialogView.findViewById(R.id.btnSkip);
+        Button btnDone = dialogView.findViewById(R.id.btnDone);
+
+        AlertDialog dialog = new AlertDialog.Builder(activity)
+                .setView(dialogView)
+                .setCancelable(false)
+                .create();
+
+        AutoCaptureSelector selector = new AutoCaptureSelector();
+        final int[] index = {0};
+        final int[] enrolled = {0};
+        final boolean[] finished = {false};
+
+        Runnable showCurrent = () -> {
+            if (index[0] >= roster.size()) {
+                dialog.dismiss();
+                return;
+            }
+            tvProgress.setText("Student " + (index[0] + 1) + " of " + roster.size());
+            tvStudent.setText(roster.get(index[0]).toString());
+        };
+
+        FaceHelper.FaceCandidateCallback candidateCallback = new FaceHelper.FaceCandidateCallback() {
+            @Override
+            public void onCandidate(float[] features, float quality) {
+                if (finished[0] || index[0] >= roster.size()) return;
+                float[] captured = selector.offer(features, quality);
+                if (captured == null) {
+                    tvHint.setText(selector.isWaitingForNextFace()
+                            ? "Next student, please step in"
+                            : "Hold still... " + selector.getStableCount() + "/" + AutoCaptureSelector.STABLE_FRAMES);
+                    return;
+                }
+                callback.onStudentEnrolled(roster.get(index[0]), captured);
+                enrolled[0]++;
+                index[0]++;
+                tvHint.setText("Captured! Next student, please step in");
+                showCurrent.run();
+            }
+
+            @Override
+            public void onNoCandidate(String reason) {
+                if (finished[0]) return;
+                selector.onNoFace();
+                tvHint.setText(reason);
+            }
+
+            @Override
+            public void onError(String message) {
+                if (finished[0]) return;
+                selector.onNoFace();
+            }
+        };
+
+        btnSkip.setOnClickListener(v -> {
+            selector.reset();
+            index[0]++;
+            showCurrent.run();
+        });
+        btnDone.setOnClickListener(v -> dialog.dismiss());
+
+        dialog.setOnShowListener(d -> {
+            showCurrent.run();
+            startCameraWithAnalysis(previewView, image -> faceHelper.detectCandidate(image, candidateCallback));
+        });
+        dialog.setOnDismissListener(d -> {
+            finished[0] = true;
+            stopCamera();
+            callback.onFinished(enrolled[0], Math.min(index[0], roster.size()) - enrolled[0]);
+        });
+        dialog.show();
+    }
+
     /**
      * Shows the recognize face dialog with continuous face recognition.
      */
+    @OptIn(markerClass = ExperimentalGetImage.class)
     public void showRecognizeDialog(List<Student> students, RecognizeCallback callback) {
-        // Convert Student list to FaceData format for recognition
-        List<FaceData> storedFaces = new ArrayList<>();
-        for (Student s : students) {
-            if (s.getFaceFeatures() != null) {
-                FaceData fd = new FaceData(s.getName(), s.getFaceFeatures());
-                fd.studentId = s.getId();
-                storedFaces.add(fd);
-            }
-        }
+        Map<Long, Student> studentsById = new HashMap<>();
+        FaceGallery gallery = buildGallery(students, studentsById);
 
-        if (storedFaces.isEmpty()) {
+        if (gallery.size() == 0) {
             callback.onResult(null);
             return;
         }
@@ -138,57 +243,39 @@ public class CameraDialogHelper {
                 .setView(dialogView)
                 .create();
 
-        final boolean[] isProcessing = {false};
+        // Frames go straight to the detector; KEEP_ONLY_LATEST drops frames until the
+        // previous one is closed, so no Bitmap copy or busy flag is needed
+        FaceHelper.FaceRecognitionCallback recognitionCallback = new FaceHelper.FaceRecognitionCallback() {
+            @Override
+            public void onFaceRecognized(FaceGallery.Match match, float[] features) {
+                Student student = studentsById.get(match.studentId);
+                activity.runOnUiThread(() -> {
+                    tvResult.setText("Recognized: " + student.getName());
+                    callback.onResult(student);
+                });
+            }
 
-        dialog.setOnShowListener(d -> startCameraWithAnalysis(previewView, image -> {
-            if (isProcessing[0]) {
-                image.close();
-                return;
+            @Override
+            public void onFaceNotRecognized(FaceGallery.Match nearest) {
+                activity.runOnUiThread(() -> tvResult.setText("Unknown face"));
             }
-            isProcessing[0] = true;
-            image.close();
-
-            activity.runOnUiThread(() -> {
-                Bitmap bitmap = previewView.getBitmap();
-                if (bitmap != null) {
-                    faceHelper.recognizeFace(bitmap, storedFaces, new FaceHelper.FaceRecognitionCallback() {
-                        @Override
-                        public void onFaceRecognized(String name, float confidence) {
-                            activity.runOnUiThread(() -> {
-                                tvResult.setText("Recognized: " + name);
-                                // Find matching student
-                                for (Student s : students) {
-                                    if (s.getName().equals(name)) {
-                                        callback.onResult(s);
-                                        break;
-                                    }
-                                }
-                            });
-                            isProcessing[0] = false;
-                        }
-
-                        @Override
-                        public void onFaceNotRecognized() {
-                            activity.runOnUiThread(() -> tvResult.setText("Unknown face"));
-                            isProcessing[0] = false;
-                        }
-
-                        @Override
-                        public void onNoFaceDetected() {
-                            activity.runOnUiThread(() -> tvResult.setText("No face detected"));
-                            isProcessing[0] = false;
-                        }
-
-                        @Override
-                        public void onError(String message) {
-                            isProcessing[0] = false;
-                        }
-                    });
-                } else {
-                    isProcessing[0] = false;
-                }
-            });
-        }));
+
+            @Override
+            public void onNoFaceDetected() {
+                activity.runOnUiThread(() -> tvResult.setText("No face detected"));
+            }
+
+            @Override
+            public void onFaceRejected(FaceQualityGate.Rejection reason, FaceGallery.Match nearest) {
+                activity.runOnUiThread(() -> tvResult.setText(FaceQualityGate.describe(reason)));
+            }
+
+            @Override
+            public void onError(String message) {}
+        };
+
+        dialog.setOnShowListener(d -> startCameraWithAnalysis(previewView,
+                image -> faceHelper.recognizeFace(image, gallery, recognitionCallback)));
 
         btnClose.setOnClickListener(v -> dialog.dismiss());
         dialog.setOnDismissListener(d -> stopCamera());
@@ -196,112 +283,47 @@ public class CameraDialogHelper {
     }
 
     /**
-     * Starts continuous attendance taking with auto-recognition.
+     * Builds a gallery over every template of the given students and fills studentsById.
      */
-    public void startAttendanceCamera(PreviewView previewView, List<Student> students, 
-                                       AttendanceCallback callback) {
-        List<FaceData> storedFaces = new ArrayList<>();
+    private FaceGallery buildGallery(List<Student> students, Map<Long, Student> studentsById) {
+        FaceGallery.Builder builder = new FaceGallery.Builder();
         for (Student s : students) {
-            if (s.getFaceFeatures() != null) {
-                FaceData fd = new FaceData(s.getName(), s.getFaceFeatures());
-                fd.studentId = s.getId();
-                storedFaces.add(fd);
-            }
+            builder.add(s.getId(), s.getTemplateFeatures());
+            studentsById.put(s.getId(), s);
         }
+        return builder.build();
+    }
 
-        final boolean[] isProcessing = {false};
-
-        startCameraWithAnalysis(previewView, image -> {
-            if (isProcessing[0]) {
-                image.close();
-                return;
-            }
-            isProcessing[0] = true;
-            image.close();
-
-            activity.runOnUiThread(() -> {
-                Bitmap bitmap = previewView.getBitmap();
-                if (bitmap != null) {
-                    faceHelper.recognizeFace(bitmap, storedFaces, new FaceHelper.FaceRecognitionCallback() {
-                        @Override
-                        public void onFaceRecognized(String name, float confidence) {
-                            activity.runOnUiThread(() -> {
-                                for (Student s : students) {
-                                    if (s.getName().equals(name)) {
-                                        callback.onStudentRecognized(s);
-                                        break;
-                                    }
-                                }
-                            });
-                            isProcessing[0] = false;
-                        }
-
-                        @Override
-                        public void onFaceNotRecognized() {
-                            isProcessing[0] = false;
-                        }
-
-                        @Override
-                        public void onNoFaceDetected() {
-                            isProcessing[0] = false;
-                        }
-
-                        @Override
-                        public void onError(String message) {
-                            isProcessing[0] = false;
-                        }
-                    });
-                } else {
-                    isProcessing[0] = false;
-                }
-            });
-        });
+    private void startCameraPreview(PreviewView previewView) {
+        cameraSession.bind(activity, previewView, null, null, bindCallback);
     }
 
-    public interface AttendanceCallback {
-        void onStudentRecognized(Student student);
+    private void startCameraWithAnalysis(PreviewView previewView, ImageAnalysis.Analyzer analyzer) {
+        if (cameraExecutor == null) {
+            cameraExecutor = Executors.newSingleThreadExecutor();
+        }
+        cameraSession.bind(activity, previewView, analyzer, cameraExecutor, bindCallback);
     }
 
-    private void startCameraPreview(PreviewView previewView) {
-        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(activity);
-        future.addListener(() -> {
-            try {
-                ProcessCameraProvider provider = future.get();
-                Preview preview = new Preview.Builder().build();
-                preview.setSurfaceProvider(previewView.getSurfaceProvider());
-                provider.unbindAll();
-                provider.bindToLifecycle(activity, CameraSelector.DEFAULT_FRONT_CAMERA, preview);
-            } catch (Exception ignored) {}
-        }, ContextCompat.getMainExecutor(activity));
+    public FaceHelper getFaceHelper() {
+        return faceHelper;
     }
 
-    private void startCameraWithAnalysis(PreviewView previewView, ImageAnalysis.Analyzer analyzer) {
-        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(activity);
-        future.addListener(() -> {
-            try {
-                ProcessCameraProvider provider = future.get();
-                Preview preview = new Preview.Builder().build();
-                preview.setSurfaceProvider(previewView.getSurfaceProvider());
-
-                ImageAnalysis analysis = new ImageAnalysis.Builder()
-                        .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                        .build();
-                analysis.setAnalyzer(cameraExecutor, analyzer);
-
-                provider.unbindAll();
-                provider.bindToLifecycle(activity, CameraSelector.DEFAULT_FRONT_CAMERA, preview, analysis);
-            } catch (Exception ignored) {}
-        }, ContextCompat.getMainExecutor(activity));
+    /**
+     * Frame quality counters for every dialog and session run by this helper.
+     */
+    public FaceQualityGate getQualityGate() {
+        return faceHelper.getQualityGate();
     }
 
     public void stopCamera() {
-        try {
-            ProcessCameraProvider.getInstance(activity).get().unbindAll();
-        } catch (Exception ignored) {}
+        cameraSession.stop();
     }
 
     public void close() {
         faceHelper.close();
-        cameraExecutor.shutdown();
+        if (cameraExecutor != null) {
+            cameraExecutor.shutdown();
+        }
     }
 }
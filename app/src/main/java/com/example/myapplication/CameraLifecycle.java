@@ -0,0 +1,64 @@
+package com.example.myapplication;
+
+import androidx.activity.ComponentActivity;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+/**
+ * Lifecycle for a camera binding that outlives configuration changes. It follows the
+ * attached activity's start and stop, except across a rotation: then it stays started,
+ * CameraX keeps the camera open, and the new activity only swaps the preview surface.
+ * Owned by a view model, which destroys it when cleared. Main thread only.
+ */
+public final class CameraLifecycle implements LifecycleOwner {
+
+    private final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+    public CameraLifecycle() {
+        registry.setCurrentState(Lifecycle.State.CREATED);
+    }
+
+    /**
+     * Follows an activity until it is destroyed. Call from each recreated activity's onCreate.
+     */
+    public void attach(ComponentActivity activity) {
+        activity.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner owner) {
+                if (registry.getCurrentState() != Lifecycle.State.DESTROYED) {
+                    registry.setCurrentState(Lifecycle.State.STARTED);
+                }
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                // The next activity starts right away; stopping here would close the camera
+                if (!activity.isChangingConfigurations()
+                        && registry.getCurrentState() != Lifecycle.State.DESTROYED) {
+                    registry.setCurrentState(Lifecycle.State.CREATED);
+                }
+            }
+
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner owner) {
+                owner.getLifecycle().removeObserver(this);
+            }
+        });
+    }
+
+    /**
+     * Ends the lifecycle; CameraX then releases anything bound to it.
+     */
+    public void destroy() {
+        registry.setCurrentState(Lifecycle.State.DESTROYED);
+    }
+
+    @NonNull
+    @Override
+    public Lifecycle getLifecycle() {
+        return registry;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.Preview;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide owner of the CameraX provider and use cases.
+ * The provider is obtained once and kept; nothing here ever blocks on it. When the
+ * same lifecycle owner binds again, only what changed is updated: the preview surface
+ * is swapped, the analyzer replaced, and the analysis use case added or removed.
+ * A full rebind only happens for a new owner, so sessions bind with their view model's
+ * CameraLifecycle and a rotated activity reuses the open camera.
+ * All methods must be called on the main thread.
+ */
+public final class CameraSessionManager {
+
+    public interface BindCallback {
+        /** The camera is running; elapsedMs includes waiting for the provider. */
+        void onBound(long elapsedMs);
+
+        void onError(Exception e);
+    }
+
+    private static CameraSessionManager instance;
+
+    private final Context context;
+    private final ListenableFuture<ProcessCameraProvider> providerFuture;
+    private final Preview preview = new Preview.Builder().build();
+    private final ImageAnalysis analysis = new ImageAnalysis.Builder()
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+            .build();
+    private final CameraSelector cameraSelector = CameraSelector.DEFAULT_FRONT_CAMERA;
+
+    private LifecycleOwner boundOwner; // Owner of the current binding, null when stopped
+    private boolean analysisBound = false;
+    private int generation = 0; // Invalidates binds still waiting for the provider
+    private long lastBindMs = -1;
+
+    private CameraSessionManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.providerFuture = ProcessCameraProvider.getInstance(this.context);
+    }
+
+    /**
+     * Returns the manager, starting provider initialization in the background on first call.
+     */
+    public static synchronized CameraSessionManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new CameraSessionManager(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Shows the camera in previewView, with frames delivered to analyzer if it is not null.
+     */
+    public void bind(LifecycleOwner owner, PreviewView previewView, ImageAnalysis.Analyzer analyzer,
+                     Executor analyzerExecutor, BindCallback callback) {
+        long start = SystemClock.elapsedRealtime();
+        int bindGeneration = ++generation;
+        if (providerFuture.isDone()) {
+            bindNow(owner, previewView, analyzer, analyzerExecutor, callback, start);
+            return;
+        }
+        providerFuture.addListener(() -> {
+            if (bindGeneration == generation) {
+                bindNow(owner, previewView, analyzer, analyzerExecutor, callback, start);
+            }
+        }, ContextCompat.getMainExecutor(context));
+    }
+
+    private void bindNow(LifecycleOwner owner, PreviewView previewView, ImageAnalysis.Analyzer analyzer,
+                         Executor analyzerExecutor, BindCallback callback, long start) {
+        try {
+            ProcessCameraProvider provider = providerFuture.get(); // Already done, does not block
+            preview.setSurfaceProvider(previewView.getSurfaceProvider());
+            if (analyzer != null) {
+                analysis.setAnalyzer(analyzerExecutor, analyzer);
+            } else {
+                analysis.clearAnalyzer();
+            }
+
+            if (owner != boundOwner) {
+                provider.unbindAll();
+                if (analyzer != null) {
+                    provider.bindToLifecycle(owner, cameraSelector, preview, analysis);
+                } else {
+                    provider.bindToLifecycle(owner, cameraSelector, preview);
+                }
+                boundOwner = owner;
+                owner.getLifecycle().addObserver(ownerObserver);
+            } else if (analyzer != null && !analysisBound) {
+                provider.bindToLifecycle(owner, cameraSelector, analysis);
+            } else if (analyzer == null && analysisBound) {
+                provider.unbind(analysis);
+            }
+            analysisBound = analyzer != null;
+
+            lastBindMs = SystemClock.elapsedRealtime() - start;
+            PipelineMetrics.CAMERA_BIND.recordMillis(lastBindMs);
+            if (callback != null) callback.onBound(lastBindMs);
+        } catch (Exception e) {
+            boundOwner = null;
+            analysisBound = false;
+            PipelineMetrics.CAMERA_BIND_FAILED.inc();
+            if (callback != null) callback.onError(e);
+        }
+    }
+
+    // CameraX unbinds a destroyed owner itself; this drops our references to its views
+    private final DefaultLifecycleObserver ownerObserver = new DefaultLifecycleObserver() {
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            owner.getLifecycle().removeObserver(this);
+            if (owner == boundOwner) {
+                boundOwner = null;
+                analysisBound = false;
+                analysis.clearAnalyzer();
+                preview.setSurfaceProvider(null);
+            }
+        }
+    };
+
+    /**
+     * Releases the camera but keeps the provider, so the next bind is fast.
+     */
+    public void stop() {
+        generation++;
+        analysis.clearAnalyzer();
+        if (providerFuture.isDone() && boundOwner != null) {
+            try {
+                providerFuture.get().unbindAll();
+            } catch (Exception ignored) {
+                // The provider failed to initialize; there is nothing bound to release
+            }
+        }
+        boundOwner = null;
+        analysisBound = false;
+    }
+
+    /**
+     * Time the last successful bind took, or -1 if none has completed.
+     */
+    public long getLastBindMs() {
+        return lastBindMs;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.myapplication;
+
+import com.example.myapplication.models.Student;
+import com.example.myapplication.recognition.CampusIndex;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps one campus-wide face index in memory for the whole process.
+ * Every class session filters this shared index instead of building its own gallery.
+ * The index is rebuilt lazily after any student or template write, and dropped by
+ * the GalleryPreloader while no class is due, unless a screen has acquired it.
+ */
+public final class CampusIndexCache {
+
+    private static CampusIndex index;
+    private static long version = -1;
+    private static int holders; // Screens that keep using the index, e.g. a live session
+
+    private CampusIndexCache() {}
+
+    /**
+     * Returns the current index, loading it from the database if it is stale.
+     * Loads all students, so call it off the main thread.
+     */
+    public static synchronized CampusIndex get(AttendanceDatabase database) {
+        long current = AttendanceDatabase.getStudentsVersion();
+        if (index == null || version != current) {
+            CampusIndex.Builder builder = new CampusIndex.Builder();
+            for (Student student : database.getAllStudents()) {
+                builder.add(student);
+            }
+            for (Map.Entry<Long, List<Long>> entry : database.getOtherClasses().entrySet()) {
+                for (long classId : entry.getValue()) builder.addToClass(entry.getKey(), classId);
+            }
+            index = builder.build();
+            version = current;
+        }
+        return index;
+    }
+
+    /**
+     * Whether get would return without loading.
+     */
+    public static synchronized boolean isLoaded() {
+        return index != null && version == AttendanceDatabase.getStudentsVersion();
+    }
+
+    /**
+     * Keeps the index in memory until the matching release, so a running session or kiosk
+     * does not have it dropped and rebuilt between its uses.
+     */
+    public static synchronized void acquire() {
+        holders++;
+    }
+
+    public static synchronized void release() {
+        if (holders > 0) holders--;
+    }
+
+    /**
+     * Releases the index unless a screen has acquired it; callers that already got
+     * it keep working.
+     */
+    public static synchronized void clear() {
+        if (holders > 0) return;
+        index = null;
+        version = -1;
+    }
+}
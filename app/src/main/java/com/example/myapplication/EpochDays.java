@@ -0,0 +1,114 @@
+package com.example.myapplication;
+
+import java.util.Calendar;
+
+/**
+ * Utility for working with dates stored as epoch days (days since 1970-01-01).
+ * Uses plain integer arithmetic so results never depend on the device locale.
+ */
+public final class EpochDays {
+
+    private EpochDays() {}
+
+    /**
+     * Converts a calendar date to an epoch day. Month is 1-based.
+     */
+    public static long of(int year, int month, int dayOfMonth) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Returns today's date in the device time zone as an epoch day.
+     */
+    public static long today() {
+        Calendar cal = Calendar.getInstance();
+        return of(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Returns {year, month, dayOfMonth} for an epoch day. Month is 1-based.
+     */
+    public static int[] toYearMonthDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[] { year, month, day };
+    }
+
+    /**
+     * Formats an epoch day as "yyyy-MM-dd" using ASCII digits only.
+     */
+    public static String format(long epochDay) {
+        int[] ymd = toYearMonthDay(epochDay);
+        StringBuilder sb = new StringBuilder(10);
+        appendPadded(sb, ymd[0], 4);
+        sb.append('-');
+        appendPadded(sb, ymd[1], 2);
+        sb.append('-');
+        appendPadded(sb, ymd[2], 2);
+        return sb.toString();
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd" date. Accepts any Unicode decimal digits, so values
+     * written with a non-ASCII locale can still be migrated.
+     *
+     * @throws IllegalArgumentException if the text is not a valid date
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Date is null");
+        }
+        String[] parts = text.trim().split("-");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid date: " + text);
+        }
+        int year = parseNumber(parts[0], text);
+        int month = parseNumber(parts[1], text);
+        int day = parseNumber(parts[2], text);
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new IllegalArgumentException("Invalid date: " + text);
+        }
+        long epochDay = of(year, month, day);
+        // of() rolls days past the month's end into the next month; reject those
+        int[] ymd = toYearMonthDay(epochDay);
+        if (ymd[1] != month || ymd[2] != day) {
+            throw new IllegalArgumentException("Invalid date: " + text);
+        }
+        return epochDay;
+    }
+
+    private static int parseNumber(String part, String text) {
+        if (part.isEmpty()) {
+            throw new IllegalArgumentException("Invalid date: " + text);
+        }
+        int value = 0;
+        for (int i = 0; i < part.length(); i++) {
+            int digit = Character.digit(part.charAt(i), 10);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid date: " + text);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int width) {
+        String digits = Integer.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(digits);
+    }
+}
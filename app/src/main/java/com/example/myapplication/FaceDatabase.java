@@ -6,8 +6,8 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import com.example.myapplication.recognition.EmbeddingCodec;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -50,7 +50,7 @@ public class FaceDatabase extends SQLiteOpenHelper {
         SQLiteDatabase db = getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_NAME, faceData.name);
-        values.put(COLUMN_FEATURES, floatArrayToBytes(faceData.features));
+        values.put(COLUMN_FEATURES, EmbeddingCodec.encode(faceData.features));
         return db.insert(TABLE_FACES, null, values);
     }
 
@@ -69,7 +69,7 @@ public class FaceDatabase extends SQLiteOpenHelper {
             do {
                 String name = cursor.getString(nameIndex);
                 byte[] featuresBlob = cursor.getBlob(featuresIndex);
-                float[] features = bytesToFloatArray(featuresBlob);
+                float[] features = EmbeddingCodec.decode(featuresBlob);
                 faces.add(new FaceData(name, features));
             } while (cursor.moveToNext());
         }
@@ -84,29 +84,4 @@ public class FaceDatabase extends SQLiteOpenHelper {
         SQLiteDatabase db = getWritableDatabase();
         db.delete(TABLE_FACES, null, null);
     }
-
-    /**
-     * Converts float array to byte array for storage.
-     */
-    private byte[] floatArrayToBytes(float[] floats) {
-        ByteBuffer buffer = ByteBuffer.allocate(floats.length * 4);
-        buffer.order(ByteOrder.nativeOrder());
-        for (float f : floats) {
-            buffer.putFloat(f);
-        }
-        return buffer.array();
-    }
-
-    /**
-     * Converts byte array back to float array.
-     */
-    private float[] bytesToFloatArray(byte[] bytes) {
-        ByteBuffer buffer = ByteBuffer.wrap(bytes);
-        buffer.order(ByteOrder.nativeOrder());
-        float[] floats = new float[bytes.length / 4];
-        for (int i = 0; i < floats.length; i++) {
-            floats[i] = buffer.getFloat();
-        }
-        return floats;
-    }
 }
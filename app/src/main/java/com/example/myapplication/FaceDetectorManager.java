@@ -0,0 +1,95 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.face.FaceDetection;
+import com.google.mlkit.vision.face.FaceDetector;
+import com.google.mlkit.vision.face.FaceDetectorOptions;
+
+/**
+ * Process-wide owner of the ML Kit face detectors.
+ * Users acquire a reference and release it when done. Detectors are created on first
+ * use rather than on acquire, so a screen that never opens the camera never pays for
+ * one. They are closed when the last reference is released.
+ */
+public final class FaceDetectorManager {
+
+    private static final FaceDetectorManager INSTANCE = new FaceDetectorManager();
+
+    private int references = 0;
+    private FaceDetector detector;
+    private FaceDetector groupDetector;
+    private boolean warmedUp = false;
+
+    private FaceDetectorManager() {}
+
+    public static FaceDetectorManager getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void acquire() {
+        references++;
+    }
+
+    /**
+     * Drops a reference, closing the detectors when nobody holds one any more.
+     */
+    public synchronized void release() {
+        if (references == 0) return;
+        references--;
+        if (references == 0) {
+            if (detector != null) detector.close();
+            if (groupDetector != null) groupDetector.close();
+            detector = null;
+            groupDetector = null;
+            warmedUp = false;
+        }
+    }
+
+    /**
+     * Detector for live camera frames and single-face snapshots, with landmarks and contours.
+     */
+    public synchronized FaceDetector getDetector() {
+        if (detector == null) {
+            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
+                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
+                    .setContourMode(FaceDetectorOptions.CONTOUR_MODE_ALL)
+                    .build();
+            detector = FaceDetection.getClient(options);
+        }
+        return detector;
+    }
+
+    /**
+     * Contour mode only reports the most prominent face, so group photos use a second
+     * detector with landmarks only and a lower minimum face size.
+     */
+    public synchronized FaceDetector getGroupDetector() {
+        if (groupDetector == null) {
+            FaceDetectorOptions options = new FaceDetectorOptions.Builder()
+                    .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
+                    .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
+                    .setMinFaceSize(0.04f)
+                    .build();
+            groupDetector = FaceDetection.getClient(options);
+        }
+        return groupDetector;
+    }
+
+    /**
+     * Creates the live detector and runs one inference on a blank frame so the model is
+     * loaded before the first real frame arrives. Returns immediately; the inference
+     * runs on ML Kit's own threads. Does nothing if already warmed up.
+     */
+    public synchronized void warmUp() {
+        if (warmedUp || references == 0) return;
+        warmedUp = true;
+        Bitmap blank = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        blank.eraseColor(Color.GRAY);
+        getDetector().process(InputImage.fromBitmap(blank, 0))
+                .addOnCompleteListener(task -> blank.recycle());
+    }
+}
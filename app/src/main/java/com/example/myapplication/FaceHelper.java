@@ -2,20 +2,25 @@ package com.example.myapplication;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.PointF;
+import android.graphics.Rect;
 
 import androidx.annotation.NonNull;
 import androidx.camera.core.ImageProxy;
 
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.example.myapplication.recognition.FaceGallery;
+import com.example.myapplication.recognition.FaceMatcher;
+import com.example.myapplication.recognition.LandmarkFeatures;
+import com.example.myapplication.recognition.LandmarkLog;
+import com.google.android.gms.tasks.Tasks;
 import com.google.mlkit.vision.common.InputImage;
 import com.google.mlkit.vision.face.Face;
 import com.google.mlkit.vision.face.FaceContour;
-import com.google.mlkit.vision.face.FaceDetection;
-import com.google.mlkit.vision.face.FaceDetector;
-import com.google.mlkit.vision.face.FaceDetectorOptions;
 import com.google.mlkit.vision.face.FaceLandmark;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Helper class that abstracts all face detection and recognition logic.
@@ -32,26 +37,81 @@ public class FaceHelper {
     }
 
     public interface FaceRecognitionCallback {
-        void onFaceRecognized(String name, float confidence);
+        void onFaceRecognized(FaceGallery.Match match, float[] features);
 
-        void onFaceNotRecognized();
+        /**
+         * @param nearest the closest enrolled student however far, for audits; null if the
+         *                face has no features or there is nobody to search
+         */
+        void onFaceNotRecognized(FaceGallery.Match nearest);
 
         void onNoFaceDetected();
 
         void onError(String message);
+
+        /**
+         * Called when a face was found but failed the quality gate.
+         *
+         * @param nearest as for onFaceNotRecognized, if the rejected face had all landmarks
+         */
+        default void onFaceRejected(FaceQualityGate.Rejection reason, FaceGallery.Match nearest) {
+            onNoFaceDetected();
+        }
+    }
+
+    /**
+     * A face found in a still image, with its box in the image's upright coordinates.
+     */
+    public static class DetectedFace {
+        public final Rect box;
+        public final float[] features;
+
+        DetectedFace(Rect box, float[] features) {
+            this.box = box;
+            this.features = features;
+        }
+    }
+
+    public interface FaceCandidateCallback {
+        void onCandidate(float[] features, float quality);
+
+        void onNoCandidate(String reason);
+
+        void onError(String message);
     }
 
-    private final FaceDetector detector;
-    private static final float RECOGNITION_THRESHOLD = 0.4f; // Lower threshold for Euclidean distance (smaller is
+    private final FaceDetectorManager detectors = FaceDetectorManager.getInstance();
+    private boolean closed = false;
+    private final FaceQualityGate qualityGate = new FaceQualityGate();
+    private static final float CANDIDATE_DISTANCE = Float.MAX_VALUE; // Nearest student for audits, however far
+    static final float RECOGNITION_THRESHOLD = 0.4f; // Lower threshold for Euclidean distance (smaller is
                                                              // better, but we invert logic)
+    private static final float MAX_POSE_ANGLE = 15f; // Degrees of yaw, pitch or roll
+    private static final float MIN_FACE_FRACTION = 0.2f; // Face width relative to frame width
+    private static final long MAX_FRAME_GAP_NANOS = 1_000_000_000L; // Longer gaps are a camera restart
+
+    // ML Kit landmark types in LandmarkFeatures order
+    private static final int[] LANDMARK_TYPES = {
+            FaceLandmark.LEFT_EYE, FaceLandmark.RIGHT_EYE, FaceLandmark.NOSE_BASE,
+            FaceLandmark.MOUTH_LEFT, FaceLandmark.MOUTH_RIGHT, FaceLandmark.MOUTH_BOTTOM
+    };
+
+    private volatile LandmarkRecorder recorder; // Null unless the session is being recorded
+    private long lastFrameNanos = 0; // Analyzer thread only
+    private long shortestFrameIntervalNanos = Long.MAX_VALUE;
 
+    /**
+     * Holds a reference to the shared detectors; they are only created on first use.
+     */
     public FaceHelper() {
-        FaceDetectorOptions options = new FaceDetectorOptions.Builder()
-                .setPerformanceMode(FaceDetectorOptions.PERFORMANCE_MODE_ACCURATE)
-                .setLandmarkMode(FaceDetectorOptions.LANDMARK_MODE_ALL)
-                .setContourMode(FaceDetectorOptions.CONTOUR_MODE_ALL)
-                .build();
-        detector = FaceDetection.getClient(options);
+        detectors.acquire();
+    }
+
+    /**
+     * Loads the detector model in the background so the first recognition is fast.
+     */
+    public void warmUp() {
+        detectors.warmUp();
     }
 
     /**
@@ -59,17 +119,22 @@ public class FaceHelper {
      */
     public void detectFace(Bitmap bitmap, FaceDetectionCallback callback) {
         InputImage image = InputImage.fromBitmap(bitmap, 0);
-        detector.process(image)
+        detectors.getDetector().process(image)
                 .addOnSuccessListener(faces -> {
-                    if (faces.isEmpty()) {
+                    Face face = largestFace(faces);
+                    if (face == null) {
+                        qualityGate.recordNoFace();
                         callback.onNoFaceDetected();
+                        return;
+                    }
+                    FaceQualityGate.Rejection rejection = qualityGate.evaluate(face, bitmap);
+                    float[] features = rejection == null ? extractFeatures(face) : null;
+                    if (features != null) {
+                        callback.onFaceDetected(features);
+                    } else if (rejection != null) {
+                        callback.onError(FaceQualityGate.describe(rejection));
                     } else {
-                        float[] features = extractFeatures(faces.get(0));
-                        if (features != null) {
-                            callback.onFaceDetected(features);
-                        } else {
-                            callback.onError("Face detected but landmarks missing");
-                        }
+                        callback.onError("Face detected but landmarks missing");
                     }
                 })
                 .addOnFailureListener(e -> callback.onError(e.getMessage()));
@@ -87,14 +152,19 @@ public class FaceHelper {
         }
         InputImage image = InputImage.fromMediaImage(
                 imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
-        detector.process(image)
+        detectors.getDetector().process(image)
                 .addOnSuccessListener(faces -> {
-                    if (faces.isEmpty()) {
+                    Face face = largestFace(faces);
+                    if (face == null) {
+                        qualityGate.recordNoFace();
                         callback.onNoFaceDetected();
                     } else {
-                        float[] features = extractFeatures(faces.get(0));
+                        FaceQualityGate.Rejection rejection = qualityGate.evaluate(face, imageProxy);
+                        float[] features = rejection == null ? extractFeatures(face) : null;
                         if (features != null) {
                             callback.onFaceDetected(features);
+                        } else if (rejection != null) {
+                            callback.onError(FaceQualityGate.describe(rejection));
                         } else {
                             callback.onError("Face detected but landmarks missing");
                         }
@@ -108,86 +178,225 @@ public class FaceHelper {
     }
 
     /**
-     * Recognizes a face by comparing against stored face data.
+     * Detects the largest face in a camera frame and scores how well posed it is.
+     * Faces that fail the quality gate, or are turned, tilted or too small for
+     * enrollment, are reported as no candidate.
      */
-    public void recognizeFace(Bitmap bitmap, List<FaceData> storedFaces, FaceRecognitionCallback callback) {
-        detectFace(bitmap, new FaceDetectionCallback() {
-            @Override
-            public void onFaceDetected(float[] features) {
-                matchFace(features, storedFaces, callback);
-            }
+    @androidx.camera.core.ExperimentalGetImage
+    public void detectCandidate(ImageProxy imageProxy, FaceCandidateCallback callback) {
+        if (imageProxy.getImage() == null) {
+            callback.onError("No image available");
+            imageProxy.close();
+            return;
+        }
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        int frameWidth = rotation % 180 == 0 ? imageProxy.getWidth() : imageProxy.getHeight();
+        InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), rotation);
+        detectors.getDetector().process(image)
+                .addOnSuccessListener(faces -> {
+                    Face largest = largestFace(faces);
+                    FaceQualityGate.Rejection rejection = largest != null ? qualityGate.evaluate(largest, imageProxy) : null;
+                    if (largest == null) {
+                        qualityGate.recordNoFace();
+                        callback.onNoCandidate("No face detected");
+                    } else if (rejection != null) {
+                        callback.onNoCandidate(FaceQualityGate.describe(rejection));
+                    } else {
+                        float quality = poseQuality(largest, frameWidth);
+                        float[] features = quality > 0 ? extractFeatures(largest) : null;
+                        if (quality <= 0) {
+                            callback.onNoCandidate("Look straight at the camera and move closer");
+                        } else if (features == null) {
+                            callback.onNoCandidate("Face detected but landmarks missing");
+                        } else {
+                            callback.onCandidate(features, quality);
+                        }
+                    }
+                    imageProxy.close();
+                })
+                .addOnFailureListener(e -> {
+                    callback.onError(e.getMessage());
+                    imageProxy.close();
+                });
+    }
 
-            @Override
-            public void onNoFaceDetected() {
-                callback.onNoFaceDetected();
+    /**
+     * Detects every face in a still image, e.g. one tile of a group photo, and extracts
+     * features for those with all landmarks. Blocks until detection finishes, so it must
+     * not be called on the main thread.
+     *
+     * @param rotationDegrees clockwise rotation that makes the image upright
+     */
+    public List<DetectedFace> detectAllFaces(Bitmap bitmap, int rotationDegrees)
+            throws ExecutionException, InterruptedException {
+        List<Face> faces = Tasks.await(detectors.getGroupDetector().process(InputImage.fromBitmap(bitmap, rotationDegrees)));
+        List<DetectedFace> detected = new ArrayList<>(faces.size());
+        for (Face face : faces) {
+            float[] features = extractFeatures(face);
+            if (features != null) {
+                detected.add(new DetectedFace(face.getBoundingBox(), features));
             }
+        }
+        return detected;
+    }
 
-            @Override
-            public void onError(String message) {
-                callback.onError(message);
-            }
-        });
+    /**
+     * Scores a face between 0 (unusable) and 1 (frontal and close to the camera).
+     */
+    private float poseQuality(Face face, int frameWidth) {
+        float yaw = Math.abs(face.getHeadEulerAngleY());
+        float pitch = Math.abs(face.getHeadEulerAngleX());
+        float roll = Math.abs(face.getHeadEulerAngleZ());
+        float size = frameWidth > 0 ? face.getBoundingBox().width() / (float) frameWidth : 0f;
+        if (yaw > MAX_POSE_ANGLE || pitch > MAX_POSE_ANGLE || roll > MAX_POSE_ANGLE || size < MIN_FACE_FRACTION) {
+            return 0f;
+        }
+        float pose = (1 - yaw / MAX_POSE_ANGLE) * (1 - pitch / MAX_POSE_ANGLE) * (1 - roll / MAX_POSE_ANGLE);
+        return Math.max(pose * Math.min(1f, size / (2 * MIN_FACE_FRACTION)), Float.MIN_VALUE);
+    }
+
+    /**
+     * Recognizes a face by searching the matcher, usually a FaceGallery.
+     * Frames that fail the quality gate are rejected before features are extracted.
+     */
+    public void recognizeFace(Bitmap bitmap, FaceMatcher matcher, FaceRecognitionCallback callback) {
+        long start = System.nanoTime();
+        PipelineMetrics.FRAMES.inc();
+        InputImage image = InputImage.fromBitmap(bitmap, 0);
+        long detectStart = System.nanoTime();
+        PipelineMetrics.FRAME_ACQUIRE.recordNanos(detectStart - start);
+        detectors.getDetector().process(image)
+                .addOnSuccessListener(faces -> {
+                    PipelineMetrics.DETECT.recordNanos(System.nanoTime() - detectStart);
+                    Face face = largestFace(faces);
+                    if (face == null) {
+                        PipelineMetrics.FRAMES_SKIPPED.inc();
+                        qualityGate.recordNoFace();
+                        callback.onNoFaceDetected();
+                        return;
+                    }
+                    long gateStart = System.nanoTime();
+                    FaceQualityGate.Rejection rejection = qualityGate.evaluate(face, bitmap);
+                    PipelineMetrics.QUALITY_GATE.recordNanos(System.nanoTime() - gateStart);
+                    if (rejection != null) {
+                        PipelineMetrics.FRAMES_SKIPPED.inc();
+                        callback.onFaceRejected(rejection, nearestCandidate(face, matcher));
+                    } else {
+                        recognizeAccepted(face, matcher, callback);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    PipelineMetrics.FRAMES_FAILED.inc();
+                    callback.onError(e.getMessage());
+                });
     }
 
     /**
-     * Recognizes a face from ImageProxy by comparing against stored face data.
+     * Recognizes a face from ImageProxy by searching the matcher.
+     * The quality gate reads the luminance plane directly, so no Bitmap is created.
      */
     @androidx.camera.core.ExperimentalGetImage
-    public void recognizeFace(ImageProxy imageProxy, List<FaceData> storedFaces, FaceRecognitionCallback callback) {
+    public void recognizeFace(ImageProxy imageProxy, FaceMatcher matcher, FaceRecognitionCallback callback) {
+        long start = System.nanoTime();
+        recordFrameArrival(imageProxy.getImageInfo().getTimestamp());
         if (imageProxy.getImage() == null) {
+            PipelineMetrics.FRAMES_FAILED.inc();
             callback.onError("No image available");
             imageProxy.close();
             return;
         }
         InputImage image = InputImage.fromMediaImage(
                 imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
-        detector.process(image)
+        long detectStart = System.nanoTime();
+        PipelineMetrics.FRAME_ACQUIRE.recordNanos(detectStart - start);
+        detectors.getDetector().process(image)
                 .addOnSuccessListener(faces -> {
-                    if (faces.isEmpty()) {
+                    PipelineMetrics.DETECT.recordNanos(System.nanoTime() - detectStart);
+                    Face face = largestFace(faces);
+                    FaceQualityGate.Rejection rejection = null;
+                    FaceGallery.Match match = null;
+                    if (face == null) {
+                        PipelineMetrics.FRAMES_SKIPPED.inc();
+                        qualityGate.recordNoFace();
                         callback.onNoFaceDetected();
                     } else {
-                        float[] features = extractFeatures(faces.get(0));
-                        if (features != null) {
-                            matchFace(features, storedFaces, callback);
+                        // Evaluate before closing: the gate samples the frame's Y plane
+                        long gateStart = System.nanoTime();
+                        rejection = qualityGate.evaluate(face, imageProxy);
+                        PipelineMetrics.QUALITY_GATE.recordNanos(System.nanoTime() - gateStart);
+                        if (rejection != null) {
+                            PipelineMetrics.FRAMES_SKIPPED.inc();
+                            callback.onFaceRejected(rejection, nearestCandidate(face, matcher));
                         } else {
-                            callback.onFaceNotRecognized();
+                            match = recognizeAccepted(face, matcher, callback);
                         }
                     }
+                    LandmarkRecorder activeRecorder = recorder;
+                    if (activeRecorder != null) {
+                        activeRecorder.record(imageProxy.getImageInfo().getTimestamp(), face, rejection,
+                                match != null ? match.studentId : LandmarkLog.NO_MATCH);
+                    }
                     imageProxy.close();
                 })
                 .addOnFailureListener(e -> {
+                    PipelineMetrics.FRAMES_FAILED.inc();
                     callback.onError(e.getMessage());
                     imageProxy.close();
                 });
     }
 
-    private void matchFace(float[] features, List<FaceData> storedFaces, FaceRecognitionCallback callback) {
-        if (storedFaces.isEmpty()) {
-            callback.onFaceNotRecognized();
-            return;
+    /**
+     * Records the frame interval and estimates frames the camera dropped since the last one.
+     * With KEEP_ONLY_LATEST, frames that arrive while analysis is busy are discarded upstream,
+     * so a gap of several sensor periods means that many frames were never seen.
+     */
+    private void recordFrameArrival(long timestampNanos) {
+        PipelineMetrics.FRAMES.inc();
+        long interval = timestampNanos - lastFrameNanos;
+        if (lastFrameNanos > 0 && interval > 0 && interval < MAX_FRAME_GAP_NANOS) {
+            PipelineMetrics.FRAME_INTERVAL.recordNanos(interval);
+            shortestFrameIntervalNanos = Math.min(shortestFrameIntervalNanos, interval);
+            long missed = Math.round(interval / (double) shortestFrameIntervalNanos) - 1;
+            if (missed > 0) PipelineMetrics.FRAMES_DROPPED.add(missed);
         }
+        lastFrameNanos = timestampNanos;
+    }
 
-        String bestMatch = null;
-        float bestScore = Float.MAX_VALUE; // Lower is better for Euclidean distance
-
-        for (FaceData stored : storedFaces) {
-            float score = calculateEuclideanDistance(features, stored.features);
-            if (score < bestScore) {
-                bestScore = score;
-                bestMatch = stored.name;
-            }
+    private FaceGallery.Match recognizeAccepted(Face face, FaceMatcher matcher, FaceRecognitionCallback callback) {
+        long extractStart = System.nanoTime();
+        float[] features = extractFeatures(face);
+        PipelineMetrics.EXTRACT.recordNanos(System.nanoTime() - extractStart);
+        if (features != null) {
+            return matchFace(features, matcher, callback);
         }
+        callback.onFaceNotRecognized(null);
+        return null;
+    }
 
-        // Threshold check: if distance is small enough, it's a match
-        // We use RECOGNITION_THRESHOLD as the max allowed distance
-        if (bestScore <= RECOGNITION_THRESHOLD && bestMatch != null) {
-            // Convert distance to a confidence score (0 to 1) for display
-            // Simple inversion: 1.0 - (distance / max_expected_distance)
-            float confidence = Math.max(0f, 1.0f - (bestScore / 2.0f));
-            callback.onFaceRecognized(bestMatch, confidence);
+    /**
+     * The enrolled student closest to a face that will not be matched, so audits show who
+     * it nearly was. Null if the face lacks landmarks.
+     */
+    private FaceGallery.Match nearestCandidate(Face face, FaceMatcher matcher) {
+        float[] features = extractFeatures(face);
+        return features != null ? matcher.findNearest(features, CANDIDATE_DISTANCE) : null;
+    }
+
+    private FaceGallery.Match matchFace(float[] features, FaceMatcher matcher, FaceRecognitionCallback callback) {
+        // The matcher reports the closest student over all of that student's templates,
+        // ignoring anyone farther than RECOGNITION_THRESHOLD
+        long matchStart = System.nanoTime();
+        FaceGallery.Match match = matcher.findNearest(features, RECOGNITION_THRESHOLD);
+        PipelineMetrics.MATCH.recordNanos(System.nanoTime() - matchStart);
+        if (match != null) {
+            PipelineMetrics.RECOGNIZED.inc();
+            callback.onFaceRecognized(match, features);
         } else {
-            callback.onFaceNotRecognized();
+            PipelineMetrics.NOT_RECOGNIZED.inc();
+            // Searched again only on a miss, so the threshold still decides cross-class fallback
+            callback.onFaceNotRecognized(matcher.findNearest(features, CANDIDATE_DISTANCE));
         }
+        return match;
     }
 
     /**
@@ -195,82 +404,59 @@ public class FaceHelper {
      * This is more robust to scale and position than raw coordinates.
      */
     private float[] extractFeatures(Face face) {
-        // We need specific landmarks to calculate ratios
-        FaceLandmark leftEye = face.getLandmark(FaceLandmark.LEFT_EYE);
-        FaceLandmark rightEye = face.getLandmark(FaceLandmark.RIGHT_EYE);
-        FaceLandmark nose = face.getLandmark(FaceLandmark.NOSE_BASE);
-        FaceLandmark mouthLeft = face.getLandmark(FaceLandmark.MOUTH_LEFT);
-        FaceLandmark mouthRight = face.getLandmark(FaceLandmark.MOUTH_RIGHT);
-        FaceLandmark mouthBottom = face.getLandmark(FaceLandmark.MOUTH_BOTTOM);
-
+        float[] points = landmarkPoints(face);
         // If any essential landmark is missing, we can't compute features
-        if (leftEye == null || rightEye == null || nose == null ||
-                mouthLeft == null || mouthRight == null || mouthBottom == null) {
-            return null;
+        for (float p : points) {
+            if (Float.isNaN(p)) return null;
         }
+        return LandmarkFeatures.extract(points);
+    }
 
-        PointF pLeftEye = leftEye.getPosition();
-        PointF pRightEye = rightEye.getPosition();
-        PointF pNose = nose.getPosition();
-        PointF pMouthLeft = mouthLeft.getPosition();
-        PointF pMouthRight = mouthRight.getPosition();
-        PointF pMouthBottom = mouthBottom.getPosition();
-
-        // 1. Calculate Inter-Ocular Distance (IOD) as the reference scale
-        float iod = distance(pLeftEye, pRightEye);
-        if (iod == 0)
-            return null; // Avoid division by zero
-
-        // 2. Calculate other distances
-        float eyeToNose = distance(midPoint(pLeftEye, pRightEye), pNose);
-        float eyeToMouth = distance(midPoint(pLeftEye, pRightEye), midPoint(pMouthLeft, pMouthRight));
-        float noseToMouth = distance(pNose, midPoint(pMouthLeft, pMouthRight));
-        float mouthWidth = distance(pMouthLeft, pMouthRight);
-        float noseToMouthBottom = distance(pNose, pMouthBottom);
-
-        // New features for stricter matching
-        float leftEyeToMouthLeft = distance(pLeftEye, pMouthLeft);
-        float rightEyeToMouthRight = distance(pRightEye, pMouthRight);
-
-        // 3. Create feature vector using ratios (Distance / IOD)
-        // This makes the features scale-invariant
-        float[] features = new float[7];
-        features[0] = eyeToNose / iod;
-        features[1] = eyeToMouth / iod;
-        features[2] = noseToMouth / iod;
-        features[3] = mouthWidth / iod;
-        features[4] = noseToMouthBottom / iod;
-        features[5] = leftEyeToMouthLeft / iod;
-        features[6] = rightEyeToMouthRight / iod;
-
-        return features;
+    /**
+     * The landmarks features are computed from, in LandmarkFeatures layout; missing ones are NaN.
+     */
+    static float[] landmarkPoints(Face face) {
+        float[] points = new float[LandmarkFeatures.LANDMARK_COUNT * 2];
+        for (int i = 0; i < LandmarkFeatures.LANDMARK_COUNT; i++) {
+            FaceLandmark landmark = face.getLandmark(LANDMARK_TYPES[i]);
+            points[i * 2] = landmark != null ? landmark.getPosition().x : Float.NaN;
+            points[i * 2 + 1] = landmark != null ? landmark.getPosition().y : Float.NaN;
+        }
+        return points;
     }
 
-    private float distance(PointF p1, PointF p2) {
-        return (float) Math.hypot(p1.x - p2.x, p1.y - p2.y);
+    private Face largestFace(List<Face> faces) {
+        Face largest = null;
+        for (Face face : faces) {
+            if (largest == null || face.getBoundingBox().width() > largest.getBoundingBox().width()) {
+                largest = face;
+            }
+        }
+        return largest;
     }
 
-    private PointF midPoint(PointF p1, PointF p2) {
-        return new PointF((p1.x + p2.x) / 2, (p1.y + p2.y) / 2);
+    /**
+     * Records every analysed camera frame to the recorder, or stops recording if null.
+     * The caller owns the recorder and closes it.
+     */
+    public void setRecorder(LandmarkRecorder recorder) {
+        this.recorder = recorder;
     }
 
     /**
-     * Calculates Euclidean distance between two feature vectors.
-     * Lower value means more similar.
+     * Accepted and per-reason rejected frame counts since this helper was created.
      */
-    private float calculateEuclideanDistance(float[] f1, float[] f2) {
-        if (f1 == null || f2 == null || f1.length != f2.length)
-            return Float.MAX_VALUE;
-
-        float sum = 0;
-        for (int i = 0; i < f1.length; i++) {
-            float diff = f1[i] - f2[i];
-            sum += diff * diff;
-        }
-        return (float) Math.sqrt(sum);
+    public FaceQualityGate getQualityGate() {
+        return qualityGate;
     }
 
-    public void close() {
-        detector.close();
+    /**
+     * Releases this helper's reference to the shared detectors. Safe to call twice.
+     */
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            detectors.release();
+        }
     }
 }
@@ -0,0 +1,251 @@
+package com.example.myapplication;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import androidx.camera.core.ImageProxy;
+
+import com.google.mlkit.vision.face.Face;
+import com.google.mlkit.vision.face.FaceLandmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rejects faces that cannot produce a reliable match before features are extracted.
+ * Uses what the detector already reports (box size, head Euler angles, landmarks)
+ * plus a cheap sharpness estimate: the variance of a 4-neighbour Laplacian sampled
+ * on a sparse grid of luminance values inside the face box.
+ * Counters are lock-free so the analysis thread never blocks on them.
+ */
+public class FaceQualityGate {
+
+    public enum Rejection { NO_FACE, TOO_SMALL, POSE, LANDMARKS_MISSING, OUT_OF_FRAME, BLURRY }
+
+    private static final float MIN_FACE_FRACTION = 0.12f; // Face width relative to frame width
+    private static final float MAX_YAW = 25f;
+    private static final float MAX_PITCH = 20f;
+    private static final float MAX_ROLL = 20f;
+    private static final float MIN_SHARPNESS = 40f; // Laplacian variance on 8-bit luminance
+    private static final int SHARPNESS_GRID = 24; // Samples per box side
+
+    private static final int[] REQUIRED_LANDMARKS = {
+            FaceLandmark.LEFT_EYE, FaceLandmark.RIGHT_EYE, FaceLandmark.NOSE_BASE,
+            FaceLandmark.MOUTH_LEFT, FaceLandmark.MOUTH_RIGHT, FaceLandmark.MOUTH_BOTTOM
+    };
+
+    private final AtomicLongArray rejections = new AtomicLongArray(Rejection.values().length);
+    private final AtomicLong accepted = new AtomicLong();
+    private int[] rowBuffer = new int[0]; // Reused by the Bitmap path, detector listener thread only
+
+    /**
+     * Checks a face from a camera frame. The box is in upright coordinates.
+     *
+     * @return null if the face passes, otherwise the reason it was rejected
+     */
+    public Rejection evaluate(Face face, ImageProxy imageProxy) {
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        int width = rotation % 180 == 0 ? imageProxy.getWidth() : imageProxy.getHeight();
+        int height = rotation % 180 == 0 ? imageProxy.getHeight() : imageProxy.getWidth();
+        Rejection rejection = checkGeometry(face, width, height);
+        if (rejection == null && sharpness(imageProxy, face.getBoundingBox(), rotation) < MIN_SHARPNESS) {
+            rejection = Rejection.BLURRY;
+        }
+        return record(rejection);
+    }
+
+    /**
+     * Checks a face from a still image.
+     *
+     * @return null if the face passes, otherwise the reason it was rejected
+     */
+    public Rejection evaluate(Face face, Bitmap bitmap) {
+        Rejection rejection = checkGeometry(face, bitmap.getWidth(), bitmap.getHeight());
+        if (rejection == null && sharpness(bitmap, face.getBoundingBox()) < MIN_SHARPNESS) {
+            rejection = Rejection.BLURRY;
+        }
+        return record(rejection);
+    }
+
+    /**
+     * Short instruction for the user explaining how to fix a rejected frame.
+     */
+    public static String describe(Rejection reason) {
+        switch (reason) {
+            case NO_FACE:
+                return "No face detected";
+            case TOO_SMALL:
+                return "Move closer to the camera";
+            case POSE:
+                return "Look straight at the camera";
+            case LANDMARKS_MISSING:
+                return "Keep your eyes, nose and mouth visible";
+            case OUT_OF_FRAME:
+                return "Center your face in the frame";
+            case BLURRY:
+            default:
+                return "Hold still, the image is blurry";
+        }
+    }
+
+    /**
+     * Counts a frame in which the detector found no face at all.
+     */
+    public void recordNoFace() {
+        record(Rejection.NO_FACE);
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getRejectionCount(Rejection reason) {
+        return rejections.get(reason.ordinal());
+    }
+
+    public void reset() {
+        accepted.set(0);
+        for (int i = 0; i < rejections.length(); i++) {
+            rejections.set(i, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("accepted=").append(accepted.get());
+        for (Rejection reason : Rejection.values()) {
+            sb.append(", ").append(reason.name().toLowerCase(java.util.Locale.ROOT))
+                    .append('=').append(rejections.get(reason.ordinal()));
+        }
+        return sb.toString();
+    }
+
+    private Rejection record(Rejection rejection) {
+        if (rejection == null) {
+            accepted.incrementAndGet();
+        } else {
+            rejections.incrementAndGet(rejection.ordinal());
+        }
+        return rejection;
+    }
+
+    private Rejection checkGeometry(Face face, int frameWidth, int frameHeight) {
+        Rect box = face.getBoundingBox();
+        if (frameWidth <= 0 || box.width() < frameWidth * MIN_FACE_FRACTION) {
+            return Rejection.TOO_SMALL;
+        }
+        if (box.left < 0 || box.top < 0 || box.right > frameWidth || box.bottom > frameHeight) {
+            return Rejection.OUT_OF_FRAME; // Partially cut off by the frame edge
+        }
+        if (Math.abs(face.getHeadEulerAngleY()) > MAX_YAW
+                || Math.abs(face.getHeadEulerAngleX()) > MAX_PITCH
+                || Math.abs(face.getHeadEulerAngleZ()) > MAX_ROLL) {
+            return Rejection.POSE;
+        }
+        for (int type : REQUIRED_LANDMARKS) {
+            FaceLandmark landmark = face.getLandmark(type);
+            if (landmark == null || !box.contains((int) landmark.getPosition().x, (int) landmark.getPosition().y)) {
+                return Rejection.LANDMARKS_MISSING; // Missing or implausible, e.g. occluded
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Laplacian variance on the Y plane. The upright box is mapped back to sensor
+     * coordinates; the Laplacian itself is rotation invariant.
+     */
+    private float sharpness(ImageProxy imageProxy, Rect uprightBox, int rotation) {
+        ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+        ByteBuffer luma = plane.getBuffer();
+        int rowStride = plane.getRowStride();
+        int pixelStride = plane.getPixelStride();
+        int sensorWidth = imageProxy.getWidth();
+        int sensorHeight = imageProxy.getHeight();
+
+        Rect box = toSensor(uprightBox, rotation, sensorWidth, sensorHeight);
+        int left = Math.max(box.left, 1), right = Math.min(box.right, sensorWidth - 1);
+        int top = Math.max(box.top, 1), bottom = Math.min(box.bottom, sensorHeight - 1);
+        if (right - left < 3 || bottom - top < 3) return 0f;
+
+        int stepX = Math.max(1, (right - left) / SHARPNESS_GRID);
+        int stepY = Math.max(1, (bottom - top) / SHARPNESS_GRID);
+        double sum = 0, sumSquares = 0;
+        int n = 0;
+        for (int y = top; y < bottom; y += stepY) {
+            int row = y * rowStride;
+            for (int x = left; x < right; x += stepX) {
+                int index = row + x * pixelStride;
+                int laplacian = 4 * (luma.get(index) & 0xFF)
+                        - (luma.get(index - pixelStride) & 0xFF)
+                        - (luma.get(index + pixelStride) & 0xFF)
+                        - (luma.get(index - rowStride) & 0xFF)
+                        - (luma.get(index + rowStride) & 0xFF);
+                sum += laplacian;
+                sumSquares += (double) laplacian * laplacian;
+                n++;
+            }
+        }
+        return variance(sum, sumSquares, n);
+    }
+
+    /**
+     * Laplacian variance on the luminance of a bitmap. Reads three rows per sampled row.
+     */
+    private float sharpness(Bitmap bitmap, Rect faceBox) {
+        int left = Math.max(faceBox.left, 1), right = Math.min(faceBox.right, bitmap.getWidth() - 1);
+        int top = Math.max(faceBox.top, 1), bottom = Math.min(faceBox.bottom, bitmap.getHeight() - 1);
+        if (right - left < 3 || bottom - top < 3) return 0f;
+
+        int width = right - left + 2;
+        if (rowBuffer.length < width * 3) {
+            rowBuffer = new int[width * 3];
+        }
+        int stepX = Math.max(1, (right - left) / SHARPNESS_GRID);
+        int stepY = Math.max(1, (bottom - top) / SHARPNESS_GRID);
+        double sum = 0, sumSquares = 0;
+        int n = 0;
+        for (int y = top; y < bottom; y += stepY) {
+            bitmap.getPixels(rowBuffer, 0, width, left - 1, y - 1, width, 3);
+            for (int x = 1; x < width - 1; x += stepX) {
+                int laplacian = 4 * luminance(rowBuffer[width + x])
+                        - luminance(rowBuffer[width + x - 1])
+                        - luminance(rowBuffer[width + x + 1])
+                        - luminance(rowBuffer[x])
+                        - luminance(rowBuffer[2 * width + x]);
+                sum += laplacian;
+                sumSquares += (double) laplacian * laplacian;
+                n++;
+            }
+        }
+        return variance(sum, sumSquares, n);
+    }
+
+    /**
+     * Maps a box in upright coordinates back to the unrotated image it was detected in.
+     */
+    static Rect toSensor(Rect box, int rotation, int sensorWidth, int sensorHeight) {
+        switch (rotation) {
+            case 90:
+                return new Rect(box.top, sensorHeight - box.right, box.bottom, sensorHeight - box.left);
+            case 180:
+                return new Rect(sensorWidth - box.right, sensorHeight - box.bottom,
+                        sensorWidth - box.left, sensorHeight - box.top);
+            case 270:
+                return new Rect(sensorWidth - box.bottom, box.left, sensorWidth - box.top, box.right);
+            default:
+                return new Rect(box);
+        }
+    }
+
+    private static int luminance(int argb) {
+        return (((argb >> 16) & 0xFF) * 77 + ((argb >> 8) & 0xFF) * 150 + (argb & 0xFF) * 29) >> 8;
+    }
+
+    private static float variance(double sum, double sumSquares, int n) {
+        if (n == 0) return 0f;
+        double mean = sum / n;
+        return (float) (sumSquares / n - mean * mean);
+    }
+}
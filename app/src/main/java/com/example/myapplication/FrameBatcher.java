@@ -0,0 +1,108 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.example.myapplication.recognition.RecognitionEventBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers events from a RecognitionEventBuffer to the UI at most once per frame.
+ * A publish only schedules a frame callback if none is pending, so a burst of
+ * arrivals costs one drain and one batch on the next vsync, not one main-thread
+ * task per event. Nothing runs while no events arrive.
+ */
+public class FrameBatcher implements Choreographer.FrameCallback {
+
+    public interface BatchListener {
+        /** Called on the main thread with every event since the last batch, oldest first. */
+        void onBatch(List<RecognitionEventBuffer.Event> events);
+    }
+
+    private static final int MAX_PER_FRAME = 256; // The rest waits for the next frame
+
+    private final RecognitionEventBuffer buffer;
+    private final RecognitionEventBuffer.Cursor cursor;
+    private final BatchListener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final List<RecognitionEventBuffer.Event> batch = new ArrayList<>();
+    private boolean running = false;
+    private volatile long scheduledAtNanos; // First unserved publish, for the delivery histogram
+    private long lostReported = 0;
+
+    private final Runnable wakeup = this::schedule;
+
+    /**
+     * Only events published after construction are delivered.
+     */
+    public FrameBatcher(RecognitionEventBuffer buffer, BatchListener listener) {
+        this.buffer = buffer;
+        this.cursor = buffer.newCursor();
+        this.listener = listener;
+    }
+
+    /**
+     * Starts delivering, including anything published while stopped. Main thread only.
+     */
+    public void start() {
+        if (running) return;
+        running = true;
+        buffer.addWakeup(wakeup);
+        if (cursor.hasPending()) schedule();
+    }
+
+    /**
+     * Stops delivering; events keep accumulating for the next start. Main thread only.
+     */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        buffer.removeWakeup(wakeup);
+        Choreographer.getInstance().removeFrameCallback(this);
+        scheduled.set(false);
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) return;
+        scheduledAtNanos = System.nanoTime();
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            mainHandler.post(() -> {
+                if (running) Choreographer.getInstance().postFrameCallback(this);
+                else scheduled.set(false);
+            });
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        long publishedAtNanos = scheduledAtNanos;
+        scheduled.set(false); // Events published from here on schedule the next frame
+        if (!running) return;
+        batch.clear();
+        cursor.drain(batch, MAX_PER_FRAME);
+        if (cursor.hasPending()) schedule();
+        if (cursor.getLost() > lostReported) {
+            PipelineMetrics.UI_EVENTS_LOST.add(cursor.getLost() - lostReported);
+            lostReported = cursor.getLost();
+        }
+        if (!batch.isEmpty()) {
+            PipelineMetrics.UI_DELIVERY.recordNanos(System.nanoTime() - publishedAtNanos);
+            listener.onBatch(batch);
+        }
+    }
+
+    /**
+     * Events this consumer missed because the UI fell a full ring behind.
+     */
+    public long getLost() {
+        return cursor.getLost();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.myapplication;
+
+import android.content.Context;
+
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.example.myapplication.models.ClassSchedule;
+import com.example.myapplication.models.FaceTemplate;
+import com.example.myapplication.models.Student;
+import com.example.myapplication.recognition.PreloadPlanner;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads recognition data ahead of the timetable, so a session screen opened when a class
+ * starts finds the campus index and the class roster already in memory. Once a minute
+ * it asks a PreloadPlanner which classes are due, loads the campus index and the rosters
+ * of those classes, most urgent first, within a memory budget, and drops rosters of
+ * classes that are over. While no class is due, the campus index is released as well,
+ * unless a session or kiosk still holds it.
+ */
+public final class GalleryPreloader {
+
+    /** A class roster loaded ahead of its session. */
+    public static final class Snapshot {
+        public final long classId;
+        public final List<Student> roster;
+        final long studentsVersion;
+        final long bytes;
+
+        Snapshot(long classId, List<Student> roster, long studentsVersion) {
+            this.classId = classId;
+            this.roster = Collections.unmodifiableList(roster);
+            this.studentsVersion = studentsVersion;
+            this.bytes = estimateBytes(roster);
+        }
+    }
+
+    private static final int LEAD_MINUTES = 20;
+    private static final int GRACE_MINUTES = 15;
+    private static final long CHECK_INTERVAL_MS = 60_000;
+    private static final long ROSTER_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    private static GalleryPreloader instance;
+
+    private final AttendanceDatabase database;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private volatile List<Long> dueClasses; // Null until the first check
+    private boolean started = false;
+
+    private GalleryPreloader(Context context) {
+        this.database = new AttendanceDatabase(context);
+    }
+
+    public static synchronized GalleryPreloader getInstance(Context context) {
+        if (instance == null) {
+            instance = new GalleryPreloader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Starts checking the timetable, right away and then once a minute. Idempotent.
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        executor.scheduleWithFixedDelay(this::check, 0, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks the timetable now, e.g. after it was edited.
+     */
+    public void refresh() {
+        executor.execute(this::check);
+    }
+
+    /**
+     * Classes due as of the last check, most urgent first. Before the first check, e.g.
+     * right after a cold start, reads the timetable now instead.
+     */
+    public List<Long> getDueClasses() {
+        List<Long> due = dueClasses;
+        return due != null ? due : classesDue(database.getSchedule());
+    }
+
+    /**
+     * The preloaded roster of a class, or null if it is not loaded or students changed since.
+     */
+    public Snapshot get(long classId) {
+        Snapshot snapshot = snapshots.get(classId);
+        if (snapshot != null && snapshot.studentsVersion == AttendanceDatabase.getStudentsVersion()) {
+            PipelineMetrics.PRELOAD_HITS.inc();
+            return snapshot;
+        }
+        PipelineMetrics.PRELOAD_MISSES.inc();
+        return null;
+    }
+
+    private void check() {
+        long start = System.nanoTime();
+        try {
+            List<ClassSchedule> slots = database.getSchedule();
+            List<Long> due = classesDue(slots);
+            dueClasses = due;
+
+            snapshots.keySet().retainAll(due);
+            if (due.isEmpty()) {
+                // Keep the index when nobody uses the timetable; then nothing would reload it
+                if (!slots.isEmpty()) CampusIndexCache.clear();
+                return;
+            }
+
+            CampusIndexCache.get(database);
+            long used = 0;
+            for (long classId : due) {
+                Snapshot snapshot = snapshots.get(classId);
+                long version = AttendanceDatabase.getStudentsVersion();
+                if (snapshot == null || snapshot.studentsVersion != version) {
+                    snapshot = new Snapshot(classId, database.getStudentsByClass(classId), version);
+                }
+                if (used + snapshot.bytes > ROSTER_BUDGET_BYTES) {
+                    snapshots.remove(classId); // Later classes wait for a later check
+                    continue;
+                }
+                used += snapshot.bytes;
+                snapshots.put(classId, snapshot);
+            }
+        } catch (RuntimeException e) {
+            // A failed check leaves the previous snapshots; the next one tries again
+        } finally {
+            PipelineMetrics.PRELOAD.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private static List<Long> classesDue(List<ClassSchedule> slots) {
+        Calendar now = Calendar.getInstance();
+        int dayOfWeek = (now.get(Calendar.DAY_OF_WEEK) + 5) % 7 + 1; // Calendar weeks start on Sunday
+        int minute = now.get(Calendar.HOUR_OF_DAY) * 60 + now.get(Calendar.MINUTE);
+        return Collections.unmodifiableList(
+                new PreloadPlanner(slots, LEAD_MINUTES, GRACE_MINUTES).classesDue(dayOfWeek, minute));
+    }
+
+    // Rough heap size: object headers, two short strings and every template's floats
+    private static long estimateBytes(List<Student> roster) {
+        long bytes = 0;
+        for (Student student : roster) {
+            bytes += 160 + 2L * (student.getName().length() + student.getStudentId().length());
+            for (FaceTemplate template : student.getTemplates()) {
+                bytes += 32 + 4L * template.getFeatures().length;
+            }
+        }
+        return bytes;
+    }
+}
@@ -3,57 +3,92 @@ package com.example.myapplication;
 import android.Manifest;
 import android.app.DatePickerDialog;
 import android.content.pm.PackageManager;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.example.myapplication.models.*;
+import com.example.myapplication.recognition.RecognitionEventBuffer;
 
-import java.text.SimpleDateFormat;
+import java.io.File;
 import java.util.*;
 
 /**
  * Activity for taking attendance using face recognition.
  * Teacher selects class and date, then camera auto-recognizes students.
+ * Session state lives in AttendanceSessionViewModel, so rotating the device only
+ * re-attaches the views and the camera. Recognitions are shown in per-frame batches,
+ * so a rush of arrivals gives one status refresh and one notice per frame.
+ * When several devices take the same session, each shares its marks as a file the
+ * others merge; saving on any of them merges with what the others saved.
  */
 public class GiveAttendanceActivity extends AppCompatActivity {
 
-    private AttendanceDatabase database;
-    private CameraDialogHelper cameraHelper;
+    private AttendanceSessionViewModel viewModel;
+    private CameraSessionManager cameraSession;
+    private FrameBatcher eventBatcher;
+    private Toast arrivalToast; // Replaced, never queued, so notices cannot lag behind
 
     private Spinner spinnerClass;
     private TextView tvDate, tvAttendanceStatus;
     private PreviewView previewView;
-    private Button btnStartCamera, btnSave;
+    private Button btnStartCamera, btnFromPhoto, btnShareMarks, btnMergeMarks, btnSave;
+    private CheckBox cbCrossClass, cbRecordSession;
     private View layoutCamera;
 
-    private List<BaseClass> classes = new ArrayList<>();
-    private List<Student> students = new ArrayList<>();
-    private Set<Long> presentStudents = new HashSet<>();
-    private String selectedDate;
-    private boolean cameraStarted = false;
+    private final ActivityResultLauncher<String> photoPicker = registerForActivityResult(
+            new ActivityResultContracts.GetContent(), this::processGroupPhoto);
+    private boolean shareEverything; // Chosen before the document picker opened
+    private final ActivityResultLauncher<String> presenceExportPicker = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/octet-stream"), this::exportPresence);
+    private final ActivityResultLauncher<String[]> presenceMergePicker = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::mergePresence);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_give_attendance);
 
-        database = new AttendanceDatabase(this);
-        cameraHelper = new CameraDialogHelper(this);
+        viewModel = new ViewModelProvider(this).get(AttendanceSessionViewModel.class);
+        cameraSession = CameraSessionManager.getInstance(this);
+        viewModel.getCameraLifecycle().attach(this);
 
         initViews();
         loadClasses();
-        setCurrentDate();
+        tvDate.setText(EpochDays.format(viewModel.getSelectedDate()));
+
+        viewModel.setListener(sessionListener);
+        eventBatcher = new FrameBatcher(viewModel.getEvents(), this::onRecognitionBatch);
+        restoreSession();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        eventBatcher.start();
+    }
+
+    @Override
+    protected void onStop() {
+        eventBatcher.stop();
+        super.onStop();
     }
 
     private void initViews() {
@@ -62,18 +97,27 @@ public class GiveAttendanceActivity extends AppCompatActivity {
         tvAttendanceStatus = findViewById(R.id.tvAttendanceStatus);
         previewView = findViewById(R.id.previewView);
         btnStartCamera = findViewById(R.id.btnStartCamera);
+        btnFromPhoto = findViewById(R.id.btnFromPhoto);
+        btnShareMarks = findViewById(R.id.btnShareMarks);
+        btnMergeMarks = findViewById(R.id.btnMergeMarks);
         btnSave = findViewById(R.id.btnSave);
+        cbCrossClass = findViewById(R.id.cbCrossClass);
+        cbRecordSession = findViewById(R.id.cbRecordSession);
         layoutCamera = findViewById(R.id.layoutCamera);
 
         tvDate.setOnClickListener(v -> showDatePicker());
         btnStartCamera.setOnClickListener(v -> startAttendance());
+        btnFromPhoto.setOnClickListener(v -> pickGroupPhoto());
+        btnShareMarks.setOnClickListener(v -> shareMarks());
+        btnMergeMarks.setOnClickListener(v -> pickMarksToMerge());
         btnSave.setOnClickListener(v -> saveAttendance());
         findViewById(R.id.btnBack).setOnClickListener(v -> finish());
 
         spinnerClass.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
-                loadStudentsForClass();
+                viewModel.selectClass(position); // No-op when re-selected after rotation
+                updateStatus();
             }
 
             @Override
@@ -83,46 +127,54 @@ public class GiveAttendanceActivity extends AppCompatActivity {
     }
 
     private void loadClasses() {
-        classes = database.getAllClasses();
         List<String> classNames = new ArrayList<>();
-        for (BaseClass c : classes) {
+        for (BaseClass c : viewModel.getClasses()) {
             classNames.add(c.toString());
         }
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
                 android.R.layout.simple_spinner_item, classNames);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerClass.setAdapter(adapter);
+        if (viewModel.getClassPosition() >= 0) {
+            spinnerClass.setSelection(viewModel.getClassPosition(), false);
+        } else if (viewModel.getScheduledClassPosition() >= 0) {
+            // The class on the timetable now; the preloader has its roster and index ready
+            spinnerClass.setSelection(viewModel.getScheduledClassPosition(), false);
+        }
     }
 
-    private void loadStudentsForClass() {
-        if (classes.isEmpty() || spinnerClass.getSelectedItemPosition() < 0)
-            return;
-        BaseClass selectedClass = classes.get(spinnerClass.getSelectedItemPosition());
-        students = database.getStudentsByClass(selectedClass.getId());
-        presentStudents.clear();
+    /**
+     * Puts the views back into the state of a session that outlived the previous activity.
+     */
+    private void restoreSession() {
+        if (viewModel.isSessionStarted()) {
+            showCameraLayout();
+            bindCamera();
+        }
+        if (viewModel.isPhotoRunning()) {
+            btnFromPhoto.setText("Processing photo...");
+        }
+        if (viewModel.isSessionStarted() || viewModel.isPhotoRunning()) {
+            spinnerClass.setEnabled(false);
+        }
         updateStatus();
     }
 
-    private void setCurrentDate() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-        selectedDate = sdf.format(new Date());
-        tvDate.setText(selectedDate);
-    }
-
     private void showDatePicker() {
         Calendar cal = Calendar.getInstance();
         new DatePickerDialog(this, (view, year, month, dayOfMonth) -> {
-            selectedDate = String.format(Locale.getDefault(), "%04d-%02d-%02d", year, month + 1, dayOfMonth);
-            tvDate.setText(selectedDate);
+            viewModel.setSelectedDate(EpochDays.of(year, month + 1, dayOfMonth));
+            tvDate.setText(EpochDays.format(viewModel.getSelectedDate()));
+            updateStatus();
         }, cal.get(Calendar.YEAR), cal.get(Calendar.MONTH), cal.get(Calendar.DAY_OF_MONTH)).show();
     }
 
     private void startAttendance() {
-        if (classes.isEmpty()) {
+        if (viewModel.getClasses().isEmpty()) {
             Toast.makeText(this, "No classes available", Toast.LENGTH_SHORT).show();
             return;
         }
-        if (students.isEmpty()) {
+        if (viewModel.getStudents().isEmpty()) {
             Toast.makeText(this, "No students in this class", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -130,49 +182,219 @@ public class GiveAttendanceActivity extends AppCompatActivity {
         if (!hasCameraPermission())
             return;
 
+        showCameraLayout();
+        spinnerClass.setEnabled(false);
+        viewModel.startSession(cbCrossClass.isChecked(), cbRecordSession.isChecked()); // Binds in onSessionReady
+    }
+
+    private void showCameraLayout() {
         layoutCamera.setVisibility(View.VISIBLE);
         btnStartCamera.setVisibility(View.GONE);
-        cameraStarted = true;
+        cbCrossClass.setEnabled(false);
+        cbRecordSession.setEnabled(false);
+    }
 
-        cameraHelper.startAttendanceCamera(previewView, students, student -> {
-            if (!presentStudents.contains(student.getId())) {
-                presentStudents.add(student.getId());
-                updateStatus();
-                Toast.makeText(this, "Present: " + student.getName(), Toast.LENGTH_SHORT).show();
+    /**
+     * Attaches the session's analyzer to this activity's PreviewView, if it is ready.
+     */
+    private void bindCamera() {
+        if (viewModel.getAnalyzer() == null) return; // onSessionReady will call back
+        cameraSession.bind(viewModel.getCameraLifecycle(), previewView, viewModel.getAnalyzer(), viewModel.getAnalysisExecutor(),
+                new CameraSessionManager.BindCallback() {
+                    @Override
+                    public void onBound(long elapsedMs) {}
+
+                    @Override
+                    public void onError(Exception e) {
+                        Toast.makeText(GiveAttendanceActivity.this, "Camera unavailable: " + e.getMessage(),
+                                Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    private final AttendanceSessionViewModel.Listener sessionListener = new AttendanceSessionViewModel.Listener() {
+        @Override
+        public void onSessionReady() {
+            bindCamera();
+            if (cbRecordSession.isChecked()) {
+                File file = viewModel.getRecordingFile();
+                Toast.makeText(GiveAttendanceActivity.this, file != null
+                        ? "Recording landmarks to " + file.getName()
+                        : "Could not start recording", Toast.LENGTH_SHORT).show();
             }
-        });
+        }
+
+        @Override
+        public void onGroupPhotoProgress(int tilesDone, int tileCount) {
+            btnFromPhoto.setText("Processing photo... " + tilesDone + " / " + tileCount);
+        }
+
+        @Override
+        public void onGroupPhotoProcessed(GroupPhotoProcessor.Result result, int newlyPresent) {
+            btnFromPhoto.setText("From Group Photo");
+            updateStatus();
+            new AlertDialog.Builder(GiveAttendanceActivity.this)
+                    .setTitle("Group Photo")
+                    .setMessage("Faces found: " + result.facesFound
+                            + "\nStudents recognized: " + result.presentStudentIds.size()
+                            + " (" + newlyPresent + " new)"
+                            + "\nUnrecognized faces: " + result.unmatchedFaces
+                            + "\n\nPresent: " + viewModel.getPresentStudents().size()
+                            + " / " + viewModel.getStudents().size()
+                            + "\nReview, then tap Save Attendance.")
+                    .setPositiveButton("OK", null)
+                    .show();
+        }
+
+        @Override
+        public void onGroupPhotoFailed(String message) {
+            btnFromPhoto.setText("From Group Photo");
+            Toast.makeText(GiveAttendanceActivity.this, message, Toast.LENGTH_LONG).show();
+        }
+
+        @Override
+        public void onPresenceExported(int marks) {
+            Toast.makeText(GiveAttendanceActivity.this, "Shared " + marks + " marks", Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onPresenceMerged(int marks, int newlyPresent) {
+            updateStatus();
+            Toast.makeText(GiveAttendanceActivity.this, marks == 0 ? "Nothing new in these marks"
+                    : "Merged " + marks + " marks, " + newlyPresent + " newly present", Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onPresenceExchangeFailed(String message) {
+            Toast.makeText(GiveAttendanceActivity.this, message, Toast.LENGTH_LONG).show();
+        }
+    };
+
+    /**
+     * Shows one frame's worth of arrivals: a single status refresh and a single notice.
+     * Photo results are left out of the notice; their dialog already summarizes them.
+     */
+    private void onRecognitionBatch(List<RecognitionEventBuffer.Event> events) {
+        updateStatus();
+
+        List<String> names = new ArrayList<>();
+        for (RecognitionEventBuffer.Event event : events) {
+            if (event.source != RecognitionEventBuffer.Source.CAMERA) continue;
+            Student student = viewModel.findStudent(event.studentId);
+            if (student == null) continue;
+            if (event.kind == RecognitionEventBuffer.Kind.CROSS_CLASS) {
+                BaseClass home = viewModel.findClass(student.getClassId());
+                names.add(student.getName() + " (from " + (home != null ? home.toString() : "another class") + ")");
+            } else {
+                names.add(student.getName());
+            }
+        }
+        if (names.isEmpty()) return;
+
+        String message;
+        if (names.size() <= 3) {
+            message = "Present: " + TextUtils.join(", ", names);
+        } else {
+            message = "Present: " + TextUtils.join(", ", names.subList(0, 2))
+                    + " and " + (names.size() - 2) + " more";
+        }
+        if (arrivalToast != null) arrivalToast.cancel();
+        arrivalToast = Toast.makeText(this, message, Toast.LENGTH_SHORT);
+        arrivalToast.show();
     }
 
-    private void updateStatus() {
-        tvAttendanceStatus.setText("Present: " + presentStudents.size() + " / " + students.size());
+    private void pickGroupPhoto() {
+        if (viewModel.getClasses().isEmpty() || viewModel.getStudents().isEmpty()) {
+            Toast.makeText(this, "No students in this class", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (viewModel.isPhotoRunning()) {
+            Toast.makeText(this, "Photo is still being processed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        photoPicker.launch("image/*");
     }
 
-    private void saveAttendance() {
-        if (classes.isEmpty() || students.isEmpty()) {
-            Toast.makeText(this, "No data to save", Toast.LENGTH_SHORT).show();
+    private void processGroupPhoto(Uri uri) {
+        if (uri == null) return;
+        spinnerClass.setEnabled(false);
+        btnFromPhoto.setText("Processing photo...");
+        viewModel.processGroupPhoto(uri);
+    }
+
+    // ==================== MULTI-DEVICE ====================
+
+    /**
+     * Offers this device's marks to other devices at the same session. After the first
+     * share, sending only the new marks keeps the files small.
+     */
+    private void shareMarks() {
+        BaseClass selectedClass = viewModel.getSelectedClass();
+        if (selectedClass == null) {
+            Toast.makeText(this, "No classes available", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        int all = viewModel.countMarksToShare(true);
+        if (all == 0) {
+            Toast.makeText(this, "No marks to share yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String fileName = ("presence-" + selectedClass.getName() + "-" + selectedClass.getSection() + "-"
+                + EpochDays.format(viewModel.getSelectedDate())).replaceAll("[^A-Za-z0-9_-]", "_") + ".atps";
+        int unshared = viewModel.countMarksToShare(false);
+        if (unshared == all) {
+            shareEverything = true;
+            presenceExportPicker.launch(fileName);
             return;
         }
+        new AlertDialog.Builder(this)
+                .setTitle("Share Marks")
+                .setItems(new String[] { "New marks (" + unshared + ")", "All marks (" + all + ")" },
+                        (dialog, which) -> {
+                            shareEverything = which == 1;
+                            presenceExportPicker.launch(fileName);
+                        })
+                .show();
+    }
 
-        BaseClass selectedClass = classes.get(spinnerClass.getSelectedItemPosition());
+    private void exportPresence(Uri uri) {
+        if (uri == null) return;
+        viewModel.exportPresence(uri, shareEverything);
+    }
 
-        // Check if attendance already exists
-        if (database.getAttendance(selectedClass.getId(), selectedDate) != null) {
-            Toast.makeText(this, "Attendance already exists for this date", Toast.LENGTH_SHORT).show();
+    private void pickMarksToMerge() {
+        if (viewModel.getSelectedClass() == null) {
+            Toast.makeText(this, "No classes available", Toast.LENGTH_SHORT).show();
             return;
         }
+        presenceMergePicker.launch(new String[] { "*/*" }); // Shared files rarely keep a useful type
+    }
 
-        Attendance attendance = new Attendance(selectedClass.getId(), selectedDate);
+    private void mergePresence(Uri uri) {
+        if (uri == null) return;
+        viewModel.mergePresence(uri);
+    }
+
+    private void updateStatus() {
+        String status = "Present: " + viewModel.getPresentStudents().size() + " / " + viewModel.getStudents().size();
+        if (!viewModel.getCrossClassStudents().isEmpty()) {
+            status += " (+" + viewModel.getCrossClassStudents().size() + " from other classes)";
+        }
+        tvAttendanceStatus.setText(status);
+    }
 
-        for (Student s : students) {
-            AttendanceRecord record = new AttendanceRecord(s.getId(), presentStudents.contains(s.getId()));
-            attendance.addRecord(record);
+    private void saveAttendance() {
+        if (viewModel.getClasses().isEmpty() || viewModel.getStudents().isEmpty()) {
+            Toast.makeText(this, "No data to save", Toast.LENGTH_SHORT).show();
+            return;
         }
 
-        database.insertAttendance(attendance);
-        Toast.makeText(this, "Attendance saved!", Toast.LENGTH_SHORT).show();
+        boolean merged = viewModel.saveAttendance();
+        Toast.makeText(this, merged ? "Merged with attendance already saved for this date"
+                : "Attendance saved!", Toast.LENGTH_SHORT).show();
 
-        if (cameraStarted) {
-            cameraHelper.stopCamera();
+        if (viewModel.isSessionStarted()) {
+            cameraSession.stop();
         }
         finish();
     }
@@ -198,7 +420,7 @@ public class GiveAttendanceActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        cameraHelper.close();
-        database.close();
+        // The view model keeps the session; it is cleared when the activity finishes for good
+        viewModel.setListener(null);
     }
 }
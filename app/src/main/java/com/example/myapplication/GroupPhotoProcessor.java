@@ -0,0 +1,297 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.media.ExifInterface;
+import android.net.Uri;
+
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.FaceGallery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Takes attendance from one wide photo of the hall.
+ * The photo is never decoded whole: overlapping tiles are decoded one at a time per
+ * worker with BitmapRegionDecoder, so memory stays bounded by tile size and worker
+ * count even for 12 MP+ images. Small distant faces keep their full resolution in
+ * the tiles, while a low-resolution overview pass finds faces too large for one tile.
+ * Faces found twice across tile seams are merged before matching.
+ */
+public class GroupPhotoProcessor {
+
+    public interface ProgressListener {
+        void onProgress(int tilesDone, int tileCount);
+    }
+
+    public static class Result {
+        public final Set<Long> presentStudentIds;
+        public final int facesFound;
+        public final int unmatchedFaces;
+        public final int tileCount;
+        public final long durationMs;
+
+        Result(Set<Long> presentStudentIds, int facesFound, int unmatchedFaces, int tileCount, long durationMs) {
+            this.presentStudentIds = presentStudentIds;
+            this.facesFound = facesFound;
+            this.unmatchedFaces = unmatchedFaces;
+            this.tileCount = tileCount;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static final int MAX_LONG_SIDE = 4096; // Larger photos are subsampled to this
+    private static final int TILE_SIZE = 1024; // In decoded pixels
+    private static final int TILE_OVERLAP = 256; // Faces smaller than this are never lost to a seam
+    private static final float SAME_FACE_OVERLAP = 0.5f; // Intersection over the smaller box
+    private static final int MAX_WORKERS = 4; // Bounds memory at MAX_WORKERS decoded tiles
+
+    private final Context context;
+    private final FaceHelper faceHelper;
+
+    /** A face found in some tile, with its box in raw (unrotated, full-size) image pixels. */
+    private static class Candidate {
+        final Rect box;
+        final float[] features;
+        final boolean cutByTile; // Touches an inner tile edge, so it may be partial
+
+        Candidate(Rect box, float[] features, boolean cutByTile) {
+            this.box = box;
+            this.features = features;
+            this.cutByTile = cutByTile;
+        }
+    }
+
+    public GroupPhotoProcessor(Context context, FaceHelper faceHelper) {
+        this.context = context.getApplicationContext();
+        this.faceHelper = faceHelper;
+    }
+
+    /**
+     * Detects all faces in the photo and matches them against a class. Each student is
+     * matched at most once; closer matches are assigned first. Call off the main thread.
+     */
+    public Result process(Uri uri, CampusIndex index, long classId, ProgressListener listener)
+            throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        int rotation = readRotation(uri);
+
+        BitmapRegionDecoder decoder;
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Could not open image");
+            decoder = BitmapRegionDecoder.newInstance(in, false);
+        }
+        try {
+            int width = decoder.getWidth();
+            int height = decoder.getHeight();
+            int sampleSize = 1;
+            while (Math.max(width, height) / sampleSize > MAX_LONG_SIDE) {
+                sampleSize *= 2;
+            }
+
+            List<Rect> tiles = planTiles(width, height, sampleSize);
+            int[] tileSampleSizes = new int[tiles.size()];
+            for (int i = 0; i < tiles.size(); i++) {
+                tileSampleSizes[i] = sampleSize;
+            }
+            if (tiles.size() > 1) {
+                // Overview pass for faces larger than the tile overlap
+                int overviewSample = sampleSize;
+                while (Math.max(width, height) / overviewSample > TILE_SIZE) {
+                    overviewSample *= 2;
+                }
+                tiles.add(new Rect(0, 0, width, height));
+                tileSampleSizes = Arrays.copyOf(tileSampleSizes, tiles.size());
+                tileSampleSizes[tiles.size() - 1] = overviewSample;
+            }
+
+            List<Candidate> candidates = detectInTiles(decoder, tiles, tileSampleSizes, rotation, listener);
+            List<Candidate> faces = mergeSeams(candidates);
+            Set<Long> present = matchAll(faces, index, classId);
+            return new Result(present, faces.size(), faces.size() - present.size(), tiles.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    private List<Rect> planTiles(int width, int height, int sampleSize) {
+        int size = TILE_SIZE * sampleSize;
+        int step = (TILE_SIZE - TILE_OVERLAP) * sampleSize;
+        List<Rect> tiles = new ArrayList<>();
+        for (int top = 0; ; top += step) {
+            int bottom = Math.min(top + size, height);
+            for (int left = 0; ; left += step) {
+                int right = Math.min(left + size, width);
+                tiles.add(new Rect(left, top, right, bottom));
+                if (right >= width) break;
+            }
+            if (bottom >= height) break;
+        }
+        return tiles;
+    }
+
+    private List<Candidate> detectInTiles(BitmapRegionDecoder decoder, List<Rect> tiles, int[] sampleSizes,
+                                          int rotation, ProgressListener listener) throws InterruptedException, IOException {
+        int workers = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        AtomicInteger done = new AtomicInteger();
+        List<Future<List<Candidate>>> futures = new ArrayList<>(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            Rect tile = tiles.get(i);
+            int sampleSize = sampleSizes[i];
+            futures.add(executor.submit(() -> {
+                List<Candidate> found = detectInTile(decoder, tile, sampleSize, rotation);
+                if (listener != null) listener.onProgress(done.incrementAndGet(), tiles.size());
+                return found;
+            }));
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        try {
+            for (Future<List<Candidate>> future : futures) {
+                candidates.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Face detection failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return candidates;
+    }
+
+    private List<Candidate> detectInTile(BitmapRegionDecoder decoder, Rect tile, int sampleSize, int rotation)
+            throws ExecutionException, InterruptedException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = decoder.decodeRegion(tile, options);
+        if (bitmap == null) {
+            return Collections.emptyList();
+        }
+        try {
+            float scaleX = tile.width() / (float) bitmap.getWidth();
+            float scaleY = tile.height() / (float) bitmap.getHeight();
+            List<Candidate> candidates = new ArrayList<>();
+            for (FaceHelper.DetectedFace face : faceHelper.detectAllFaces(bitmap, rotation)) {
+                Rect local = FaceQualityGate.toSensor(face.box, rotation, bitmap.getWidth(), bitmap.getHeight());
+                Rect box = new Rect(
+                        tile.left + Math.round(local.left * scaleX),
+                        tile.top + Math.round(local.top * scaleY),
+                        tile.left + Math.round(local.right * scaleX),
+                        tile.top + Math.round(local.bottom * scaleY));
+                boolean cut = (local.left <= 1 && tile.left > 0)
+                        || (local.top <= 1 && tile.top > 0)
+                        || (local.right >= bitmap.getWidth() - 1 && tile.right < decoder.getWidth())
+                        || (local.bottom >= bitmap.getHeight() - 1 && tile.bottom < decoder.getHeight());
+                candidates.add(new Candidate(box, face.features, cut));
+            }
+            return candidates;
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Keeps one candidate per face. Whole faces win over faces cut by a tile edge,
+     * then larger boxes win, since a seam only ever shrinks a face.
+     */
+    private List<Candidate> mergeSeams(List<Candidate> candidates) {
+        List<Candidate> sorted = new ArrayList<>(candidates);
+        Collections.sort(sorted, (a, b) -> {
+            if (a.cutByTile != b.cutByTile) return a.cutByTile ? 1 : -1;
+            return Long.compare(area(b.box), area(a.box));
+        });
+
+        List<Candidate> kept = new ArrayList<>();
+        for (Candidate candidate : sorted) {
+            boolean duplicate = false;
+            for (Candidate other : kept) {
+                if (overlap(candidate.box, other.box) > SAME_FACE_OVERLAP) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) kept.add(candidate);
+        }
+        return kept;
+    }
+
+    private Set<Long> matchAll(List<Candidate> faces, CampusIndex index, long classId) {
+        FaceGallery gallery = index.getGallery();
+        BitSet unassigned = index.getClassMembers(classId);
+
+        // Closest faces claim their student first so a weaker look-alike cannot take it
+        List<FaceGallery.Match> matches = new ArrayList<>();
+        List<Candidate> matched = new ArrayList<>();
+        for (Candidate face : faces) {
+            FaceGallery.Match match = gallery.findNearest(face.features, unassigned, FaceHelper.RECOGNITION_THRESHOLD);
+            if (match != null) {
+                matches.add(match);
+                matched.add(face);
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < matches.size(); i++) order.add(i);
+        Collections.sort(order, (a, b) -> Float.compare(matches.get(a).distance, matches.get(b).distance));
+
+        Set<Long> present = new HashSet<>();
+        for (int i : order) {
+            FaceGallery.Match match = matches.get(i);
+            int ordinal = gallery.ordinalOf(match.studentId);
+            if (!unassigned.get(ordinal)) {
+                // Taken by a closer face; try the remaining students
+                match = gallery.findNearest(matched.get(i).features, unassigned, FaceHelper.RECOGNITION_THRESHOLD);
+                if (match == null) continue;
+                ordinal = gallery.ordinalOf(match.studentId);
+            }
+            unassigned.clear(ordinal);
+            present.add(match.studentId);
+        }
+        return present;
+    }
+
+    private int readRotation(Uri uri) {
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) return 0;
+            switch (new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long area(Rect r) {
+        return (long) r.width() * r.height();
+    }
+
+    private static float overlap(Rect a, Rect b) {
+        Rect intersection = new Rect();
+        if (!intersection.setIntersect(a, b)) return 0f;
+        return area(intersection) / (float) Math.max(1, Math.min(area(a), area(b)));
+    }
+}
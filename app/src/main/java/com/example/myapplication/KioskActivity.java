@@ -0,0 +1,243 @@
+package com.example.myapplication;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.view.PreviewView;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.example.myapplication.models.*;
+import com.example.myapplication.recognition.RecognitionEventBuffer;
+
+import java.util.*;
+
+/**
+ * Takes attendance for several classes at once with one camera, e.g. at the entrance
+ * of a corridor of lecture halls. The operator chooses which classes are running; each
+ * recognized student is counted in their own class. Classes the timetable says are
+ * running are opened on start. State lives in KioskViewModel, so
+ * rotating the device only re-attaches the views and the camera.
+ */
+public class KioskActivity extends AppCompatActivity {
+
+    private KioskViewModel viewModel;
+    private CameraSessionManager cameraSession;
+    private FrameBatcher eventBatcher;
+    private Toast arrivalToast; // Replaced, never queued, so notices cannot lag behind
+
+    private PreviewView previewView;
+    private TextView tvKioskTitle;
+    private TextView tvKioskStatus;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_kiosk);
+
+        viewModel = new ViewModelProvider(this).get(KioskViewModel.class);
+        cameraSession = CameraSessionManager.getInstance(this);
+        viewModel.getCameraLifecycle().attach(this);
+
+        previewView = findViewById(R.id.previewView);
+        tvKioskStatus = findViewById(R.id.tvKioskStatus);
+        tvKioskTitle = findViewById(R.id.tvKioskTitle);
+        findViewById(R.id.btnBack).setOnClickListener(v -> finish());
+        findViewById(R.id.btnChooseClasses).setOnClickListener(v -> showClassChooser());
+        findViewById(R.id.btnSaveAll).setOnClickListener(v -> saveAll());
+
+        viewModel.setListener(kioskListener);
+        eventBatcher = new FrameBatcher(viewModel.getEvents(), this::onRecognitionBatch);
+        if (viewModel.isStarted()) {
+            bindCamera();
+        } else if (viewModel.getClasses().isEmpty()) {
+            Toast.makeText(this, "No classes available", Toast.LENGTH_SHORT).show();
+        } else if (hasCameraPermission()) {
+            startKiosk();
+        }
+        updateTitle();
+        updateStatus();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        eventBatcher.start();
+        viewModel.checkDay(); // E.g. a kiosk left in the background overnight
+    }
+
+    @Override
+    protected void onStop() {
+        eventBatcher.stop();
+        super.onStop();
+    }
+
+    private void startKiosk() {
+        viewModel.start(); // Binds in onKioskReady
+        if (viewModel.getOpenClasses().isEmpty()) {
+            for (long classId : viewModel.getScheduledClasses()) viewModel.openClass(classId);
+        }
+        if (viewModel.getOpenClasses().isEmpty()) showClassChooser();
+    }
+
+    /**
+     * Attaches the kiosk's analyzer to this activity's PreviewView, if it is ready.
+     */
+    private void bindCamera() {
+        if (viewModel.getAnalyzer() == null) return; // onKioskReady will call back
+        cameraSession.bind(viewModel.getCameraLifecycle(), previewView, viewModel.getAnalyzer(), viewModel.getAnalysisExecutor(),
+                new CameraSessionManager.BindCallback() {
+                    @Override
+                    public void onBound(long elapsedMs) {}
+
+                    @Override
+                    public void onError(Exception e) {
+                        Toast.makeText(KioskActivity.this, "Camera unavailable: " + e.getMessage(),
+                                Toast.LENGTH_LONG).show();
+                    }
+                });
+    }
+
+    private final KioskViewModel.Listener kioskListener = new KioskViewModel.Listener() {
+        @Override
+        public void onKioskReady() {
+            bindCamera();
+            updateStatus();
+        }
+
+        @Override
+        public void onSaved(int sessions, int merged) {
+            String message = "Saved " + sessions + " classes";
+            if (merged > 0) message += " (" + merged + " merged with existing records)";
+            Toast.makeText(KioskActivity.this, message, Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onDayChanged(long date) {
+            updateTitle();
+            updateStatus();
+        }
+    };
+
+    private void updateTitle() {
+        tvKioskTitle.setText("Kiosk - " + EpochDays.format(viewModel.getDate()));
+    }
+
+    /**
+     * Lets the operator open classes as lectures start and close them as they end.
+     */
+    private void showClassChooser() {
+        List<BaseClass> classes = viewModel.getClasses();
+        String[] names = new String[classes.size()];
+        boolean[] checked = new boolean[classes.size()];
+        for (int i = 0; i < classes.size(); i++) {
+            names[i] = classes.get(i).toString();
+            checked[i] = viewModel.getOpenClasses().contains(classes.get(i).getId());
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Running Classes")
+                .setMultiChoiceItems(names, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("OK", (dialog, which) -> {
+                    for (int i = 0; i < classes.size(); i++) {
+                        if (checked[i]) {
+                            viewModel.openClass(classes.get(i).getId());
+                        } else {
+                            viewModel.closeClass(classes.get(i).getId());
+                        }
+                    }
+                    updateStatus();
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    /**
+     * Shows one frame's worth of arrivals: a single status refresh and a single notice.
+     */
+    private void onRecognitionBatch(List<RecognitionEventBuffer.Event> events) {
+        updateStatus();
+
+        List<String> names = new ArrayList<>();
+        for (RecognitionEventBuffer.Event event : events) {
+            Student student = viewModel.findStudent(event.studentId);
+            BaseClass baseClass = viewModel.findClass(event.classId);
+            if (student == null || baseClass == null) continue;
+            names.add(student.getName() + " (" + baseClass.getName() + ")");
+        }
+        if (names.isEmpty()) return;
+
+        String message;
+        if (names.size() <= 3) {
+            message = "Present: " + TextUtils.join(", ", names);
+        } else {
+            message = "Present: " + TextUtils.join(", ", names.subList(0, 2))
+                    + " and " + (names.size() - 2) + " more";
+        }
+        if (arrivalToast != null) arrivalToast.cancel();
+        arrivalToast = Toast.makeText(this, message, Toast.LENGTH_SHORT);
+        arrivalToast.show();
+    }
+
+    private void updateStatus() {
+        if (viewModel.getAnalyzer() == null && viewModel.isStarted()) {
+            tvKioskStatus.setText("Loading students...");
+            return;
+        }
+        if (viewModel.getOpenClasses().isEmpty()) {
+            tvKioskStatus.setText("No classes running. Tap Choose Classes.");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (long classId : viewModel.getOpenClasses()) {
+            BaseClass baseClass = viewModel.findClass(classId);
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(baseClass != null ? baseClass.toString() : "Class " + classId)
+                    .append(": ").append(viewModel.getPresent(classId).size())
+                    .append(" / ").append(viewModel.getRosterSize(classId));
+        }
+        tvKioskStatus.setText(sb.toString());
+    }
+
+    private void saveAll() {
+        if (viewModel.getAnalyzer() == null || viewModel.getOpenClasses().isEmpty()) {
+            Toast.makeText(this, "No data to save", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        viewModel.saveAll();
+    }
+
+    private boolean hasCameraPermission() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this, new String[] { Manifest.permission.CAMERA }, 100);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+            @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == 100 && grantResults.length > 0
+                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            startKiosk();
+        } else if (requestCode == 100) {
+            Toast.makeText(this, "The kiosk needs the camera", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The view model keeps the sessions; it is cleared when the activity finishes for good
+        viewModel.setListener(null);
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.myapplication;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
+import androidx.camera.core.ExperimentalGetImage;
+import androidx.camera.core.ImageAnalysis;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.AndroidViewModel;
+
+import com.example.myapplication.metrics.PipelineMetrics;
+import com.example.myapplication.models.*;
+import com.example.myapplication.recognition.AuditLog;
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.FaceGallery;
+import com.example.myapplication.recognition.KioskSessions;
+import com.example.myapplication.recognition.PrototypeLearner;
+import com.example.myapplication.recognition.RecognitionEventBuffer;
+import com.example.myapplication.sync.PresenceSet;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * State of a kiosk that takes attendance for several classes with one camera, e.g. at
+ * a building entrance. One recognition pipeline runs against the open classes' combined
+ * rosters (see KioskSessions) and each recognized student is routed to their session.
+ * Classes are opened and closed while the camera runs. Marks are kept per class in the
+ * same PresenceSet store as GiveAttendanceActivity, so a closed class reopens with its
+ * students present and other devices can merge the kiosk's marks.
+ * Marks are for the current day. A kiosk left running past midnight starts the new day
+ * with every open class reloaded from the marks stored for that day.
+ * Everything except the background work is used on the main thread.
+ */
+public class KioskViewModel extends AndroidViewModel {
+
+    /** Kiosk events, delivered on the main thread while an activity is attached. */
+    public interface Listener {
+        void onKioskReady();
+
+        void onSaved(int sessions, int merged);
+
+        void onDayChanged(long date);
+    }
+
+    private final AttendanceDatabase database;
+    private final FaceHelper faceHelper = new FaceHelper();
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+    private final CameraLifecycle cameraLifecycle = new CameraLifecycle(); // Survives rotation
+    private final Executor mainExecutor;
+    private final RecognitionEventBuffer events = new RecognitionEventBuffer(EVENT_CAPACITY);
+    private final AuditLogger audit;
+    private final String deviceId;
+    private long date = EpochDays.today(); // The day marks are taken for
+    private Listener listener;
+
+    private List<BaseClass> classes;
+    private final Set<Long> openClasses = new LinkedHashSet<>(); // Applied to the kiosk once it is loaded
+    private boolean started = false;
+    private KioskSessions kiosk;
+    private Map<String, Student> byStudentId; // Campus id -> student, for restoring marks
+    private Map<Long, Integer> rosterSizes;
+    private final Map<Long, PresenceSet> presence = new HashMap<>(); // Per open class
+    private ImageAnalysis.Analyzer analyzer;
+    private final Set<Long> learned = new HashSet<>();
+
+    private static final int EVENT_CAPACITY = 4096; // Several halls arriving at once
+
+    public KioskViewModel(@NonNull Application application) {
+        super(application);
+        database = new AttendanceDatabase(application);
+        mainExecutor = ContextCompat.getMainExecutor(application);
+        audit = AuditLogger.getInstance(application);
+        deviceId = new AttendanceSync(application, database).getDeviceId();
+        CampusIndexCache.acquire();
+        faceHelper.warmUp();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Every presence change, across all open classes.
+     */
+    public RecognitionEventBuffer getEvents() {
+        return events;
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    /**
+     * Moves the kiosk to today if the day changed since marks were last taken. The open
+     * classes are reopened with the marks stored for the new day, so nobody carries over.
+     *
+     * @return true if the day changed
+     */
+    public boolean checkDay() {
+        long today = EpochDays.today();
+        if (today == date) return false;
+        date = today;
+        presence.clear();
+        if (kiosk != null) {
+            kiosk = new KioskSessions(kiosk.getIndex());
+            for (long classId : openClasses) applyOpen(classId);
+        }
+        if (listener != null) listener.onDayChanged(date);
+        return true;
+    }
+
+    // ==================== CLASSES ====================
+
+    public List<BaseClass> getClasses() {
+        if (classes == null) {
+            classes = database.getAllClasses();
+        }
+        return classes;
+    }
+
+    public BaseClass findClass(long classId) {
+        for (BaseClass c : getClasses()) {
+            if (c.getId() == classId) return c;
+        }
+        return null;
+    }
+
+    public Student findStudent(long studentId) {
+        return kiosk != null ? kiosk.getIndex().getStudent(studentId) : null;
+    }
+
+    /**
+     * Classes the timetable says are running or about to start, most urgent first.
+     */
+    public List<Long> getScheduledClasses() {
+        return GalleryPreloader.getInstance(getApplication()).getDueClasses();
+    }
+
+    public Set<Long> getOpenClasses() {
+        return Collections.unmodifiableSet(openClasses);
+    }
+
+    public void openClass(long classId) {
+        checkDay();
+        if (!openClasses.add(classId)) return;
+        if (kiosk != null) applyOpen(classId);
+    }
+
+    /**
+     * Stops routing students to a class. Its marks stay stored; reopening restores them.
+     */
+    public void closeClass(long classId) {
+        if (!openClasses.remove(classId)) return;
+        presence.remove(classId);
+        if (kiosk != null) kiosk.close(classId);
+    }
+
+    private void applyOpen(long classId) {
+        kiosk.open(classId);
+        BaseClass baseClass = findClass(classId);
+        if (baseClass == null) return;
+        String sessionKey = PresenceSet.sessionKey(baseClass.getName(), baseClass.getSection(), date);
+        PresenceSet set = database.loadPresence(sessionKey);
+        presence.put(classId, set);
+        for (String key : set.getPresent()) {
+            Student student = byStudentId.get(key);
+            if (student != null) kiosk.markPresent(student.getId());
+        }
+    }
+
+    /**
+     * Present students of an open class; empty until the kiosk has loaded.
+     */
+    public Set<Long> getPresent(long classId) {
+        return kiosk != null ? kiosk.getPresent(classId) : Collections.emptySet();
+    }
+
+    /**
+     * Roster size of a class, counting students who cannot be recognized yet.
+     */
+    public int getRosterSize(long classId) {
+        Integer size = rosterSizes != null ? rosterSizes.get(classId) : null;
+        return size != null ? size : 0;
+    }
+
+    // ==================== PIPELINE ====================
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * The analyzer to bind to the camera, or null while the index is still loading.
+     */
+    public ImageAnalysis.Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public Executor getAnalysisExecutor() {
+        return analysisExecutor;
+    }
+
+    /**
+     * The owner to bind the camera to, so a recreated activity keeps the camera open.
+     */
+    public CameraLifecycle getCameraLifecycle() {
+        return cameraLifecycle;
+    }
+
+    /**
+     * Loads the campus index in the background. The listener's onKioskReady fires once
+     * the analyzer can be bound.
+     */
+    public void start() {
+        if (started) return;
+        started = true;
+        long requested = System.nanoTime();
+        backgroundExecutor.execute(() -> {
+            CampusIndex loaded = CampusIndexCache.get(database);
+            Map<String, Student> ids = new HashMap<>();
+            Map<Long, Integer> sizes = new HashMap<>();
+            for (Student s : loaded.getStudents()) {
+                ids.put(s.getStudentId(), s);
+                for (long classId : loaded.getClassIds(s.getId())) sizes.merge(classId, 1, Integer::sum);
+            }
+            mainExecutor.execute(() -> {
+                kiosk = new KioskSessions(loaded);
+                byStudentId = ids;
+                rosterSizes = sizes;
+                for (long classId : openClasses) applyOpen(classId);
+                analyzer = createAnalyzer();
+                PipelineMetrics.SESSION_READY.recordNanos(System.nanoTime() - requested);
+                if (listener != null) listener.onKioskReady();
+            });
+        });
+    }
+
+    @OptIn(markerClass = ExperimentalGetImage.class)
+    private ImageAnalysis.Analyzer createAnalyzer() {
+        FaceHelper.FaceRecognitionCallback recognitionCallback = new FaceHelper.FaceRecognitionCallback() {
+            @Override
+            public void onFaceRecognized(FaceGallery.Match match, float[] features) {
+                // ML Kit delivers results on the main thread
+                checkDay(); // Before routing, so yesterday's marks do not count as present
+                Student student = kiosk.getIndex().getStudent(match.studentId);
+                List<Long> routed = kiosk.markPresent(student.getId());
+                for (long classId : routed) {
+                    recordMark(classId, student);
+                    audit.log(classId, AuditLog.Decision.PRESENT, 0, student.getId(), match,
+                            FaceHelper.RECOGNITION_THRESHOLD);
+                    events.publish(RecognitionEventBuffer.Kind.PRESENT, RecognitionEventBuffer.Source.CAMERA,
+                            student.getId(), classId, match.distance);
+                }
+                if (routed.isEmpty()) {
+                    audit.log(student.getClassId(), AuditLog.Decision.ALREADY_PRESENT, 0, student.getId(), match,
+                            FaceHelper.RECOGNITION_THRESHOLD);
+                }
+                if (PrototypeLearner.shouldLearn(match) && learned.add(student.getId())) {
+                    backgroundExecutor.execute(() -> database.addLearnedTemplate(student.getId(), features));
+                }
+            }
+
+            @Override
+            public void onFaceNotRecognized(FaceGallery.Match nearest) {
+                audit.log(0, AuditLog.Decision.NOT_RECOGNIZED, 0, nearest != null ? nearest.studentId : -1,
+                        nearest, FaceHelper.RECOGNITION_THRESHOLD);
+            }
+
+            @Override
+            public void onFaceRejected(FaceQualityGate.Rejection reason, FaceGallery.Match nearest) {
+                audit.log(0, AuditLog.Decision.REJECTED, reason.ordinal() + 1,
+                        nearest != null ? nearest.studentId : -1, nearest, FaceHelper.RECOGNITION_THRESHOLD);
+            }
+
+            @Override
+            public void onNoFaceDetected() {}
+
+            @Override
+            public void onError(String message) {}
+        };
+        return image -> faceHelper.recognizeFace(image, kiosk, recognitionCallback);
+    }
+
+    private void recordMark(long classId, Student student) {
+        PresenceSet set = presence.get(classId);
+        if (set == null) return;
+        List<PresenceSet.Mark> changed = set.merge(Collections.singletonList(new PresenceSet.Mark(
+                student.getStudentId(), deviceId, System.currentTimeMillis(), PresenceSet.SOURCE_CAMERA)));
+        if (changed.isEmpty()) return;
+        String sessionKey = set.getSessionKey();
+        long date = this.date;
+        backgroundExecutor.execute(() -> database.savePresenceMarks(sessionKey, date, changed));
+    }
+
+    // ==================== SAVE ====================
+
+    /**
+     * Saves every open class as an attendance record for the day its marks were taken,
+     * merging with records other devices already saved, then moves on to today if the
+     * day has changed. Runs in the background; the listener's onSaved reports.
+     */
+    public void saveAll() {
+        if (kiosk == null) return;
+        Map<Long, Set<Long>> snapshot = new LinkedHashMap<>();
+        for (long classId : kiosk.getOpenClasses()) {
+            snapshot.put(classId, new HashSet<>(kiosk.getPresent(classId)));
+        }
+        long date = this.date;
+        checkDay();
+        backgroundExecutor.execute(() -> {
+            int merged = 0;
+            for (Map.Entry<Long, Set<Long>> entry : snapshot.entrySet()) {
+                Attendance attendance = new Attendance(entry.getKey(), date);
+                for (Student s : database.getStudentsByClass(entry.getKey())) {
+                    attendance.addRecord(new AttendanceRecord(s.getId(), entry.getValue().contains(s.getId())));
+                }
+                if (database.saveOrMergeAttendance(attendance)) merged++;
+            }
+            int finalMerged = merged;
+            mainExecutor.execute(() -> {
+                if (listener != null) listener.onSaved(snapshot.size(), finalMerged);
+            });
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        listener = null;
+        cameraLifecycle.destroy();
+        analysisExecutor.shutdown();
+        CampusIndexCache.release();
+        audit.flush();
+        faceHelper.close();
+        backgroundExecutor.execute(database::close); // After any pending writes
+        backgroundExecutor.shutdown();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.myapplication;
+
+import android.graphics.Rect;
+
+import com.example.myapplication.models.Student;
+import com.example.myapplication.recognition.LandmarkLog;
+import com.google.mlkit.vision.face.Face;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records what the detector saw in each analysed frame to a LandmarkLog file, for
+ * replay with LandmarkReplay on a JVM. Conversion is cheap and happens on the
+ * caller's thread; all file writes happen on a dedicated thread, so recording never
+ * blocks the analyzer. Gate verdicts are stored as the Rejection ordinal plus one.
+ */
+public class LandmarkRecorder {
+
+    private final File file;
+    private final ExecutorService writerExecutor = Executors.newSingleThreadExecutor();
+    private final LandmarkLog.Writer writer;
+    private final Set<Long> students = new HashSet<>(); // In the log; used on the caller's thread
+    private volatile boolean failed = false;
+    private volatile boolean closed = false;
+
+    private LandmarkRecorder(File file, LandmarkLog.Writer writer, LandmarkLog.Header header) {
+        this.file = file;
+        this.writer = writer;
+        for (Student student : header.students) students.add(student.getId());
+    }
+
+    /**
+     * Creates the log and writes its header. Call off the main thread.
+     */
+    public static LandmarkRecorder open(File file, LandmarkLog.Header header) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            return new LandmarkRecorder(file, new LandmarkLog.Writer(out, header), header);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Records one analysed frame.
+     *
+     * @param face      the face that was analysed, or null if none was found
+     * @param rejection the quality gate verdict, null if the face passed
+     * @param liveMatch the student matched live, or LandmarkLog.NO_MATCH
+     */
+    public void record(long timestampNanos, Face face, FaceQualityGate.Rejection rejection, long liveMatch) {
+        if (failed || closed) return;
+        LandmarkLog.Frame frame = new LandmarkLog.Frame(timestampNanos / 1000,
+                face == null ? Collections.emptyList() : Collections.singletonList(toLogFace(face, rejection, liveMatch)));
+        writerExecutor.execute(() -> {
+            try {
+                writer.write(frame);
+            } catch (IOException e) {
+                failed = true; // Keep the session running; the log ends at the last good frame
+            }
+        });
+    }
+
+    /**
+     * Adds a student outside the header's roster, e.g. one matched from another class.
+     * Students already in the log are ignored.
+     */
+    public void addStudent(Student student) {
+        if (failed || closed || !students.add(student.getId())) return;
+        writerExecutor.execute(() -> {
+            try {
+                writer.addStudent(student);
+            } catch (IOException e) {
+                failed = true;
+            }
+        });
+    }
+
+    private static LandmarkLog.Face toLogFace(Face face, FaceQualityGate.Rejection rejection, long liveMatch) {
+        Rect box = face.getBoundingBox();
+        Integer trackingId = face.getTrackingId();
+        return new LandmarkLog.Face(trackingId != null ? trackingId : -1,
+                box.left, box.top, box.right, box.bottom,
+                face.getHeadEulerAngleY(), face.getHeadEulerAngleX(), face.getHeadEulerAngleZ(),
+                FaceHelper.landmarkPoints(face),
+                rejection == null ? LandmarkLog.ACCEPTED : rejection.ordinal() + 1, liveMatch);
+    }
+
+    /**
+     * Finishes the log after any pending frames. Safe to call twice.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        writerExecutor.execute(() -> {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // Frames written so far stay readable
+            }
+        });
+        writerExecutor.shutdown();
+    }
+}
@@ -3,18 +3,24 @@ package com.example.myapplication;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Typeface;
+import android.net.Uri;
 import android.os.Bundle;
+import android.text.InputType;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.RadioGroup;
+import android.widget.ScrollView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
@@ -24,10 +30,25 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
+import com.example.myapplication.metrics.MetricsRegistry;
 import com.example.myapplication.models.*;
-
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.DuplicateFinder;
+import com.example.myapplication.sync.SyncEngine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Main Activity for the Attendance Management System.
@@ -45,6 +66,13 @@ public class MainActivity extends AppCompatActivity {
     private Teacher currentTeacher;
     private List<BaseClass> classes = new ArrayList<>();
 
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor(); // Backoff must not hold up other work
+    private boolean importRunning = false;
+    private boolean syncRunning = false;
+    private final ActivityResultLauncher<String[]> rosterPicker = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::importRoster);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -55,6 +83,7 @@ public class MainActivity extends AppCompatActivity {
 
         initViews();
         checkTeacherSetup();
+        GalleryPreloader.getInstance(this).start(); // Loads galleries ahead of timetabled classes
     }
 
     private void initViews() {
@@ -72,11 +101,24 @@ public class MainActivity extends AppCompatActivity {
         tvStatus = findViewById(R.id.tvStatus);
 
         findViewById(R.id.btnAddClass).setOnClickListener(v -> showAddClassDialog());
+        findViewById(R.id.btnClassSchedule).setOnClickListener(v -> showSelectClassDialog(this::showScheduleDialog));
         findViewById(R.id.btnAddStudent).setOnClickListener(v -> showAddStudentDialog());
+        findViewById(R.id.btnImportRoster).setOnClickListener(v -> pickRoster());
+        findViewById(R.id.btnBatchEnroll).setOnClickListener(v -> showBatchEnrollDialog());
+        findViewById(R.id.btnFindDuplicates).setOnClickListener(v -> findDuplicateFaces());
         findViewById(R.id.btnGiveAttendance).setOnClickListener(v -> 
                 startActivity(new Intent(this, GiveAttendanceActivity.class)));
+        findViewById(R.id.btnKiosk).setOnClickListener(v ->
+                startActivity(new Intent(this, KioskActivity.class)));
         findViewById(R.id.btnViewAttendance).setOnClickListener(v -> 
                 startActivity(new Intent(this, ViewAttendanceActivity.class)));
+        View btnPipelineMetrics = findViewById(R.id.btnPipelineMetrics);
+        if (BuildConfig.DEBUG) {
+            btnPipelineMetrics.setOnClickListener(v -> showPipelineMetrics());
+        } else {
+            btnPipelineMetrics.setVisibility(View.GONE); // Developer diagnostics only
+        }
+        findViewById(R.id.btnSync).setOnClickListener(v -> showSyncDialog());
     }
 
     private void checkTeacherSetup() {
@@ -145,15 +187,126 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
+    /**
+     * Lists a class's weekly times; tapping one removes it.
+     */
+    private void showScheduleDialog(BaseClass selectedClass) {
+        List<ClassSchedule> slots = database.getScheduleForClass(selectedClass.getId());
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle("Schedule: " + selectedClass)
+                .setPositiveButton("Add Time", (dialog, which) -> showAddScheduleDialog(selectedClass))
+                .setNegativeButton("Close", null);
+        if (slots.isEmpty()) {
+            builder.setMessage("No times yet. Scheduled classes are loaded before they start.");
+        } else {
+            String[] items = new String[slots.size()];
+            for (int i = 0; i < slots.size(); i++) items[i] = slots.get(i).toString();
+            builder.setItems(items, (dialog, which) -> new AlertDialog.Builder(this)
+                    .setMessage("Remove " + items[which] + "?")
+                    .setPositiveButton("Remove", (d, w) -> {
+                        database.deleteSchedule(slots.get(which).getId());
+                        GalleryPreloader.getInstance(this).refresh();
+                        showScheduleDialog(selectedClass);
+                    })
+                    .setNegativeButton("Cancel", null)
+                    .show());
+        }
+        builder.show();
+    }
+
+    private void showAddScheduleDialog(BaseClass selectedClass) {
+        View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_add_schedule, null);
+        Spinner spinnerDay = dialogView.findViewById(R.id.spinnerDay);
+        EditText etStart = dialogView.findViewById(R.id.etStart);
+        EditText etEnd = dialogView.findViewById(R.id.etEnd);
+        ArrayAdapter<String> days = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item,
+                ClassSchedule.DAY_NAMES);
+        days.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerDay.setAdapter(days);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Add Time")
+                .setView(dialogView)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    int start, end;
+                    try {
+                        start = ClassSchedule.parseTime(etStart.getText().toString());
+                        end = ClassSchedule.parseTime(etEnd.getText().toString());
+                    } catch (IllegalArgumentException e) {
+                        showToast("Enter times as HH:mm");
+                        return;
+                    }
+                    if (end <= start) {
+                        showToast("The class must end after it starts");
+                        return;
+                    }
+                    database.insertSchedule(new ClassSchedule(selectedClass.getId(),
+                            spinnerDay.getSelectedItemPosition() + 1, start, end));
+                    GalleryPreloader.getInstance(this).refresh();
+                    showScheduleDialog(selectedClass);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void showAddStudentDialog() {
+        if (!hasCameraPermission()) return;
+        showSelectClassDialog(this::showCaptureStudentDialog);
+    }
+
+    private void showBatchEnrollDialog() {
+        if (!hasCameraPermission()) return;
+        showSelectClassDialog(selectedClass -> {
+            List<Student> pending = database.getStudentsWithoutFeatures(selectedClass.getId());
+            if (pending.isEmpty()) {
+                showToast("Every student in this class already has a face enrolled");
+                return;
+            }
+            // Faces that look like another student wait for confirmation, as when adding one student
+            List<Student> held = new ArrayList<>();
+            List<Student> lookalikes = new ArrayList<>();
+            cameraHelper.showBatchEnrollDialog(pending, new CameraDialogHelper.BatchEnrollCallback() {
+                @Override
+                public void onStudentEnrolled(Student student, float[] features) {
+                    backgroundExecutor.execute(() -> {
+                        Student lookalike = CampusIndexCache.get(database).findLookalike(features, student.getStudentId());
+                        if (lookalike == null) {
+                            database.updateStudentFeatures(student.getId(), features);
+                            return;
+                        }
+                        student.setFaceFeatures(features);
+                        synchronized (held) {
+                            held.add(student);
+                            lookalikes.add(lookalike);
+                        }
+                    });
+                }
+
+                @Override
+                public void onFinished(int enrolled, int skipped) {
+                    // Queued behind the checks, so held is complete
+                    backgroundExecutor.execute(() -> runOnUiThreadIfAlive(() -> {
+                        updateStatus();
+                        showToast("Enrolled " + (enrolled - held.size()) + ", skipped " + skipped);
+                        if (held.isEmpty()) return;
+                        confirmLookalikes(held, lookalikes, () -> {
+                            for (Student student : held) {
+                                database.updateStudentFeatures(student.getId(), student.getFaceFeatures());
+                            }
+                        });
+                    }));
+                }
+            });
+        });
+    }
+
+    private void showSelectClassDialog(Consumer<BaseClass> onSelected) {
         classes = database.getAllClasses();
         if (classes.isEmpty()) {
             showToast("Add a class first");
             return;
         }
 
-        if (!hasCameraPermission()) return;
-
         // Show class selection first
         View selectView = LayoutInflater.from(this).inflate(R.layout.dialog_select_class, null);
         Spinner spinnerClass = selectView.findViewById(R.id.spinnerClass);
@@ -173,7 +326,7 @@ public class MainActivity extends AppCompatActivity {
                 .setPositiveButton("Next", (dialog, which) -> {
                     int selectedIndex = spinnerClass.getSelectedItemPosition();
                     if (selectedIndex >= 0) {
-                        showCaptureStudentDialog(classes.get(selectedIndex));
+                        onSelected.accept(classes.get(selectedIndex));
                     }
                 })
                 .setNegativeButton("Cancel", null)
@@ -185,9 +338,7 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onFaceCaptured(String name, String studentId, String section, float[] features) {
                 Student student = new Student(name, studentId, section, selectedClass.getId(), features);
-                database.insertStudent(student);
-                updateStatus();
-                showToast("Student added: " + name);
+                checkDuplicatesAndInsert(student);
             }
 
             @Override
@@ -197,10 +348,274 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Looks for enrolled students with nearly the same face before inserting, and asks
+     * for confirmation if any are found.
+     */
+    private void checkDuplicatesAndInsert(Student student) {
+        backgroundExecutor.execute(() -> {
+            CampusIndex index = CampusIndexCache.get(database);
+            List<DuplicateFinder.Duplicate> duplicates = index.getDuplicateFinder()
+                    .findNear(student.getFaceFeatures(), DuplicateFinder.DUPLICATE_DISTANCE);
+            runOnUiThreadIfAlive(() -> {
+                if (duplicates.isEmpty()) {
+                    insertStudent(student);
+                    return;
+                }
+                StringBuilder message = new StringBuilder("This face is very close to:\n");
+                for (DuplicateFinder.Duplicate duplicate : duplicates) {
+                    message.append("\n").append(describeStudent(index.getStudent(duplicate.otherStudentId)))
+                            .append(String.format(Locale.US, " (distance %.2f)", duplicate.distance));
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle("Possible duplicate")
+                        .setMessage(message)
+                        .setPositiveButton("Enroll anyway", (dialog, which) -> insertStudent(student))
+                        .setNegativeButton("Cancel", null)
+                        .show();
+            });
+        });
+    }
+
+    /**
+     * Asks whether to enroll students held back by a bulk enrollment because each looks
+     * like an enrolled student. The enrollment runs in the background.
+     */
+    private void confirmLookalikes(List<Student> held, List<Student> lookalikes, Runnable enroll) {
+        StringBuilder message = new StringBuilder("These faces are very close to students already enrolled:\n");
+        int shown = Math.min(held.size(), 50);
+        for (int i = 0; i < shown; i++) {
+            message.append("\n").append(describeStudent(held.get(i)))
+                    .append("\n  ↔ ").append(describeStudent(lookalikes.get(i)));
+        }
+        if (held.size() > shown) {
+            message.append("\n\n...and ").append(held.size() - shown).append(" more");
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(held.size() + " possible duplicates")
+                .setMessage(message)
+                .setPositiveButton("Enroll anyway", (dialog, which) -> backgroundExecutor.execute(() -> {
+                    enroll.run();
+                    runOnUiThreadIfAlive(() -> {
+                        updateStatus();
+                        showToast("Enrolled " + held.size() + " more students");
+                    });
+                }))
+                .setNegativeButton("Skip", null)
+                .show();
+    }
+
+    private void insertStudent(Student student) {
+        if (database.insertStudent(student) == -1) {
+            showToast("Student ID already exists: " + student.getStudentId());
+            return;
+        }
+        updateStatus();
+        showToast("Student added: " + student.getName());
+    }
+
+    /**
+     * Audits every enrolled face for near-identical pairs on a background thread.
+     */
+    private void findDuplicateFaces() {
+        tvStatus.setText("Searching for duplicate faces...");
+        backgroundExecutor.execute(() -> {
+            long start = System.currentTimeMillis();
+            CampusIndex index = CampusIndexCache.get(database);
+            List<DuplicateFinder.Duplicate> pairs = index.getDuplicateFinder()
+                    .findAllPairs(DuplicateFinder.DUPLICATE_DISTANCE);
+            long elapsed = System.currentTimeMillis() - start;
+
+            runOnUiThreadIfAlive(() -> {
+                updateStatus();
+                if (pairs.isEmpty()) {
+                    showToast("No duplicate faces found (" + elapsed + " ms)");
+                    return;
+                }
+                StringBuilder message = new StringBuilder();
+                int shown = Math.min(pairs.size(), 50);
+                for (int i = 0; i < shown; i++) {
+                    DuplicateFinder.Duplicate pair = pairs.get(i);
+                    message.append(describeStudent(index.getStudent(pair.studentId)))
+                            .append("\n  ↔ ").append(describeStudent(index.getStudent(pair.otherStudentId)))
+                            .append(String.format(Locale.US, " (%.2f)\n\n", pair.distance));
+                }
+                if (pairs.size() > shown) {
+                    message.append("...and ").append(pairs.size() - shown).append(" more");
+                }
+                new AlertDialog.Builder(this)
+                        .setTitle(pairs.size() + " possible duplicates (" + elapsed + " ms)")
+                        .setMessage(message)
+                        .setPositiveButton("OK", null)
+                        .show();
+            });
+        });
+    }
+
+    /**
+     * Shows recognition pipeline timings and frame counts since launch or the last reset.
+     * Debug builds only.
+     */
+    private void showPipelineMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        TextView text = new TextView(this);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setTextSize(12);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        text.setPadding(padding, padding, padding, padding);
+        String dump = metrics.dumpText();
+        text.setText(dump.isEmpty() ? "No recognitions yet" : dump);
+        ScrollView scroll = new ScrollView(this);
+        scroll.addView(text);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Pipeline Metrics")
+                .setView(scroll)
+                .setPositiveButton("Save JSON", (d, w) -> saveMetrics(metrics.dumpJson()))
+                .setNeutralButton("Reset", (d, w) -> {
+                    metrics.reset();
+                    showToast("Metrics reset");
+                })
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    private void saveMetrics(String json) {
+        backgroundExecutor.execute(() -> {
+            File file = new File(getExternalFilesDir(null), "metrics-" + System.currentTimeMillis() + ".json");
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+                runOnUiThreadIfAlive(() -> showToast("Saved to " + file.getAbsolutePath()));
+            } catch (IOException e) {
+                runOnUiThreadIfAlive(() -> showToast("Could not save metrics: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Asks for the registrar's server URL, then uploads changes since the last sync.
+     */
+    private void showSyncDialog() {
+        if (syncRunning) {
+            showToast("Sync already running");
+            return;
+        }
+        AttendanceSync sync = new AttendanceSync(this, database);
+        EditText etEndpoint = new EditText(this);
+        etEndpoint.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_VARIATION_URI);
+        etEndpoint.setHint("https://registrar.example.edu/attendance/sync");
+        etEndpoint.setText(sync.getEndpoint());
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        LinearLayout container = new LinearLayout(this);
+        container.setPadding(padding, 0, padding, 0);
+        container.addView(etEndpoint, new LinearLayout.LayoutParams(
+                LinearLayout.LayoutParams.MATCH_PARENT, LinearLayout.LayoutParams.WRAP_CONTENT));
+
+        new AlertDialog.Builder(this)
+                .setTitle("Sync to Server")
+                .setMessage(sync.getPendingCount() + " changes waiting to upload")
+                .setView(container)
+                .setPositiveButton("Sync", (dialog, which) -> {
+                    try {
+                        sync.setEndpoint(etEndpoint.getText().toString().trim());
+                    } catch (IllegalArgumentException e) {
+                        showToast(e.getMessage());
+                        return;
+                    }
+                    runSync(sync);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void runSync(AttendanceSync sync) {
+        syncRunning = true;
+        showToast("Syncing...");
+        syncExecutor.execute(() -> {
+            SyncEngine.Result result = sync.sync();
+            runOnUiThreadIfAlive(() -> {
+                syncRunning = false;
+                String summary = String.format(Locale.US, "%d changes in %d batches (%.1f KB)",
+                        result.changes, result.batches, result.bytesSent / 1024.0);
+                if (result.isSuccess()) {
+                    showToast("Synced " + summary);
+                } else {
+                    showToast("Sync stopped after " + summary + ": " + result.error + ". It will resume next time.");
+                }
+            });
+        });
+    }
+
+    private String describeStudent(Student student) {
+        return student.getName() + " [" + student.getStudentId() + "]";
+    }
+
+    private void pickRoster() {
+        if (importRunning) {
+            showToast("Import already running");
+            return;
+        }
+        if (database.getAllClasses().isEmpty()) {
+            showToast("Add a class first");
+            return;
+        }
+        rosterPicker.launch(new String[] { "text/*", "application/octet-stream" });
+    }
+
+    /**
+     * Imports the picked roster on a background thread. The status line shows progress
+     * and the dashboard refreshes once when the whole file has been committed.
+     */
+    private void importRoster(Uri uri) {
+        if (uri == null) return;
+        importRunning = true;
+        tvStatus.setText("Importing roster...");
+
+        backgroundExecutor.execute(() -> {
+            RosterImporter.Result result = null;
+            String error = null;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    error = "Could not open file";
+                } else {
+                    result = new RosterImporter(database).importRoster(in, processed ->
+                            runOnUiThreadIfAlive(() -> tvStatus.setText("Importing roster... " + processed + " students")));
+                }
+            } catch (Exception e) {
+                error = "Import failed: " + e.getMessage();
+            }
+
+            RosterImporter.Result finalResult = result;
+            String finalError = error;
+            runOnUiThreadIfAlive(() -> {
+                importRunning = false;
+                updateStatus();
+                if (finalError != null) {
+                    showToast(finalError);
+                } else {
+                    showToast("Imported " + finalResult.inserted + " new, " + finalResult.updated
+                            + " updated, " + finalResult.skipped + " skipped");
+                    if (!finalResult.held.isEmpty()) {
+                        confirmLookalikes(finalResult.held, finalResult.heldLookalikes,
+                                () -> database.upsertStudents(finalResult.held));
+                    }
+                }
+            });
+        });
+    }
+
     private void updateStatus() {
         classes = database.getAllClasses();
-        List<Student> students = database.getAllStudents();
-        tvStatus.setText("Classes: " + classes.size() + " | Students: " + students.size());
+        tvStatus.setText("Classes: " + classes.size() + " | Students: " + database.countStudents());
+    }
+
+    /**
+     * Posts a background result to the UI, dropping it if the activity was destroyed meanwhile.
+     */
+    private void runOnUiThreadIfAlive(Runnable action) {
+        runOnUiThread(() -> {
+            if (!isDestroyed()) action.run();
+        });
     }
 
     private void showToast(String message) {
@@ -237,7 +652,17 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        syncExecutor.shutdown();
         cameraHelper.close();
-        database.close();
+        // Imports and enrollments still queued finish first; a running sync is waited for as well
+        backgroundExecutor.execute(() -> {
+            try {
+                syncExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            database.close();
+        });
+        backgroundExecutor.shutdown();
     }
 }
@@ -0,0 +1,107 @@
+package com.example.myapplication;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Fixed-size list whose items are loaded a page at a time and cached in a small LRU.
+ * Memory stays bounded by maxPages * pageSize no matter how large the list is.
+ * All methods must be called from the thread behind the callback executor.
+ */
+public class PagedList<T> {
+
+    public interface PageLoader<T> {
+        List<T> loadPage(int offset, int limit);
+    }
+
+    public interface Callback {
+        void onPageLoaded(int offset, int count);
+    }
+
+    private final int size;
+    private final int pageSize;
+    private final PageLoader<T> loader;
+    private final Executor loadExecutor;
+    private final Executor callbackExecutor;
+    private final Callback callback;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    private boolean closed = false;
+
+    public PagedList(int size, int pageSize, int maxPages, PageLoader<T> loader,
+                     Executor loadExecutor, Executor callbackExecutor, Callback callback) {
+        this.size = size;
+        this.pageSize = pageSize;
+        this.loader = loader;
+        this.loadExecutor = loadExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.callback = callback;
+        this.pages = new LinkedHashMap<Integer, List<T>>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the item at position, or null if its page is still loading.
+     * With direct executors the page is loaded synchronously and never returns null.
+     */
+    public T get(int position) {
+        int page = position / pageSize;
+        int indexInPage = position % pageSize;
+
+        // Prefetch the next page once the reader is three quarters through this one
+        if (indexInPage >= pageSize * 3 / 4 && (page + 1) * pageSize < size) {
+            requestPage(page + 1);
+        }
+
+        List<T> items = pages.get(page);
+        if (items == null) {
+            requestPage(page);
+            items = pages.get(page);
+        }
+        return items != null && indexInPage < items.size() ? items.get(indexInPage) : null;
+    }
+
+    /**
+     * Stops delivering pages. Loads already in flight are discarded.
+     */
+    public void close() {
+        closed = true;
+        pages.clear();
+    }
+
+    private void requestPage(int page) {
+        if (closed || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int offset = page * pageSize;
+        loadExecutor.execute(() -> {
+            List<T> items = null;
+            try {
+                items = loader.loadPage(offset, pageSize);
+            } finally {
+                // Runs on failure too, so a later get() can retry the page
+                List<T> loaded = items;
+                callbackExecutor.execute(() -> {
+                    loading.remove(page);
+                    if (closed || loaded == null) {
+                        return;
+                    }
+                    pages.put(page, loaded);
+                    callback.onPageLoaded(offset, loaded.size());
+                });
+            }
+        });
+    }
+}
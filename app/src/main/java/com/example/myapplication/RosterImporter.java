@@ -0,0 +1,304 @@
+package com.example.myapplication;
+
+import android.util.Base64;
+
+import com.example.myapplication.models.BaseClass;
+import com.example.myapplication.models.Student;
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.EmbeddingCodec;
+import com.example.myapplication.recognition.LandmarkFeatures;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Imports a student roster in bulk.
+ * Rows are streamed from the file and written in chunks, each chunk in one transaction.
+ *
+ * CSV columns: name, student_id, section, class, [embedding]. The class column is either a
+ * class id, "Name - Section" or a class name. The optional embedding is base64 of
+ * little-endian float32 values. A header row starting with "name" is skipped.
+ * Rows with an embedding that does not decode, or whose length is not
+ * LandmarkFeatures.DIMENSION, are skipped: the gallery cannot match them, and a wrong
+ * length in the first template would make every other student unmatchable.
+ *
+ * Binary files start with the int MAGIC and a version int, followed by records of
+ * name, student_id, section and class (modified UTF-8), an unsigned short feature
+ * count and that many floats, all as written by DataOutputStream.
+ *
+ * Rows whose embedding is nearly identical to another enrolled student's are held back,
+ * as when adding a single student, and returned in the result for the user to confirm.
+ * Only students enrolled before the import are compared, and a row that repeats a
+ * student's enrolled embedding unchanged is not compared at all, so re-importing a
+ * roster never holds anyone back.
+ */
+public class RosterImporter {
+
+    public static final int MAGIC = 0x524F5354; // "ROST"
+    public static final int VERSION = 1;
+    private static final int CHUNK_SIZE = 500;
+
+    public interface ProgressListener {
+        /** Called from the importing thread after each committed chunk. */
+        void onProgress(int processed);
+    }
+
+    public static class Result {
+        public int inserted;
+        public int updated;
+        public int skipped;
+        public long durationMs;
+        /** Students not imported because they look like someone already enrolled. */
+        public final List<Student> held = new ArrayList<>();
+        /** For each held student, the enrolled student it looks like. */
+        public final List<Student> heldLookalikes = new ArrayList<>();
+
+        public int getProcessed() {
+            return inserted + updated;
+        }
+
+        public float getRowsPerSecond() {
+            return durationMs == 0 ? getProcessed() : getProcessed() * 1000f / durationMs;
+        }
+    }
+
+    private final AttendanceDatabase database;
+    private final Map<String, Long> classIds = new HashMap<>();
+    private CampusIndex index; // Loaded at the first row with an embedding
+    private Map<String, Student> enrolled; // Campus id -> student, from the index
+
+    public RosterImporter(AttendanceDatabase database) {
+        this.database = database;
+        for (BaseClass c : database.getAllClasses()) {
+            classIds.put(String.valueOf(c.getId()), c.getId());
+            classIds.put(key(c.getName() + " - " + c.getSection()), c.getId());
+            // A bare class name only resolves when it is unambiguous
+            String nameKey = key(c.getName());
+            classIds.put(nameKey, classIds.containsKey(nameKey) ? null : c.getId());
+        }
+    }
+
+    /**
+     * Imports a roster, detecting the binary format by its magic number.
+     * The stream is not closed.
+     */
+    public Result importRoster(InputStream in, ProgressListener listener) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(4);
+        byte[] header = new byte[4];
+        int read = 0;
+        while (read < 4) {
+            int n = buffered.read(header, read, 4 - read);
+            if (n < 0) break;
+            read += n;
+        }
+        buffered.reset();
+        boolean binary = read == 4 && ByteBuffer.wrap(header).getInt() == MAGIC;
+        return binary ? importBinary(buffered, listener) : importCsv(buffered, listener);
+    }
+
+    /**
+     * Imports a CSV roster. The stream is not closed.
+     */
+    public Result importCsv(InputStream in, ProgressListener listener) throws IOException {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        List<Student> chunk = new ArrayList<>(CHUNK_SIZE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        String line;
+        boolean firstLine = true;
+        while ((line = reader.readLine()) != null) {
+            List<String> fields = splitCsvLine(line);
+            if (firstLine && !fields.isEmpty() && "name".equalsIgnoreCase(fields.get(0).trim())) {
+                firstLine = false;
+                continue;
+            }
+            firstLine = false;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+
+            Student student = null;
+            if (fields.size() >= 4) {
+                try {
+                    student = toStudent(fields.get(0), fields.get(1), fields.get(2), fields.get(3),
+                            fields.size() > 4 ? decodeBase64Features(fields.get(4)) : null);
+                } catch (IllegalArgumentException e) {
+                    // Not an embedding; skipped
+                }
+            }
+            addOrSkip(student, chunk, result, listener);
+        }
+        flush(chunk, result, listener);
+        result.durationMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * Imports a binary roster. The stream is not closed.
+     */
+    public Result importBinary(InputStream in, ProgressListener listener) throws IOException {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        List<Student> chunk = new ArrayList<>(CHUNK_SIZE);
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a roster file");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported roster version " + version);
+        }
+
+        while (true) {
+            String name;
+            try {
+                name = data.readUTF();
+            } catch (EOFException e) {
+                break;
+            }
+            String studentId = data.readUTF();
+            String section = data.readUTF();
+            String className = data.readUTF();
+            int count = data.readUnsignedShort();
+            float[] features = count > 0 ? new float[count] : null;
+            for (int i = 0; i < count; i++) {
+                features[i] = data.readFloat();
+            }
+            addOrSkip(toStudent(name, studentId, section, className, features), chunk, result, listener);
+        }
+        flush(chunk, result, listener);
+        result.durationMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    private void addOrSkip(Student student, List<Student> chunk, Result result, ProgressListener listener) {
+        if (student == null) {
+            result.skipped++;
+            return;
+        }
+        Student lookalike = findLookalike(student);
+        if (lookalike != null) {
+            result.held.add(student);
+            result.heldLookalikes.add(lookalike);
+            return;
+        }
+        chunk.add(student);
+        if (chunk.size() >= CHUNK_SIZE) {
+            flush(chunk, result, listener);
+        }
+    }
+
+    private void flush(List<Student> chunk, Result result, ProgressListener listener) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int inserted = database.upsertStudents(chunk);
+        result.inserted += inserted;
+        result.updated += chunk.size() - inserted;
+        chunk.clear();
+        if (listener != null) {
+            listener.onProgress(result.getProcessed());
+        }
+    }
+
+    private Student findLookalike(Student student) {
+        if (student.getFaceFeatures() == null) {
+            return null;
+        }
+        if (index == null) {
+            index = CampusIndexCache.get(database);
+            enrolled = new HashMap<>();
+            for (Student s : index.getStudents()) {
+                enrolled.put(s.getStudentId(), s);
+            }
+        }
+        Student existing = enrolled.get(student.getStudentId());
+        if (existing != null && Arrays.equals(existing.getFaceFeatures(), student.getFaceFeatures())) {
+            return null; // Already enrolled with this face; checked when it was enrolled
+        }
+        return index.findLookalike(student.getFaceFeatures(), student.getStudentId());
+    }
+
+    private Student toStudent(String name, String studentId, String section, String className, float[] features) {
+        name = name.trim();
+        studentId = studentId.trim();
+        section = section.trim();
+        Long classId = classIds.get(key(className));
+        if (name.isEmpty() || studentId.isEmpty() || section.isEmpty() || classId == null) {
+            return null;
+        }
+        if (features != null && features.length != LandmarkFeatures.DIMENSION) {
+            return null;
+        }
+        return new Student(name, studentId, section, classId, features);
+    }
+
+    /**
+     * Decodes an embedding column; null when it is empty.
+     *
+     * @throws IllegalArgumentException if it is not base64 of whole floats
+     */
+    private static float[] decodeBase64Features(String field) {
+        field = field.trim();
+        if (field.isEmpty()) {
+            return null;
+        }
+        byte[] bytes = Base64.decode(field, Base64.DEFAULT);
+        if (bytes.length == 0 || bytes.length % 4 != 0) {
+            throw new IllegalArgumentException("Not a float32 embedding");
+        }
+        return EmbeddingCodec.decode(bytes, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields with "" escapes.
+     */
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String key(String className) {
+        return className.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.myapplication;
 
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.DocumentsContract;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
-import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.myapplication.models.*;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Activity for viewing attendance records.
@@ -22,15 +35,31 @@ import java.util.List;
  */
 public class ViewAttendanceActivity extends AppCompatActivity {
 
+    private static final int RECORD_PAGE_SIZE = 50;
+    private static final int RECORD_MAX_PAGES = 4;
+    private static final int DATE_PAGE_SIZE = 30;
+    private static final int DATE_MAX_PAGES = 3;
+
     private AttendanceDatabase database;
+    private ExecutorService loadExecutor;
+    private Executor mainExecutor;
 
     private Spinner spinnerClass, spinnerDate;
-    private LinearLayout layoutRecords;
+    private AttendanceRecordAdapter recordAdapter;
+    private AttendanceDateAdapter dateAdapter;
     private TextView tvSummary;
     private Button btnDelete;
 
     private List<BaseClass> classes = new ArrayList<>();
-    private List<String> dates = new ArrayList<>();
+
+    private ExecutorService exportExecutor;
+    private AttendanceExporter exporter;
+    private long exportClassId;
+    private AttendanceExporter.Format exportFormat;
+    private final ActivityResultLauncher<String> csvExportPicker = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/csv"), this::runExport);
+    private final ActivityResultLauncher<String> binaryExportPicker = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("application/octet-stream"), this::runExport);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -38,6 +67,9 @@ public class ViewAttendanceActivity extends AppCompatActivity {
         setContentView(R.layout.activity_view_attendance);
 
         database = new AttendanceDatabase(this);
+        loadExecutor = Executors.newSingleThreadExecutor();
+        exportExecutor = Executors.newSingleThreadExecutor();
+        mainExecutor = ContextCompat.getMainExecutor(this);
 
         initViews();
         loadClasses();
@@ -46,12 +78,17 @@ public class ViewAttendanceActivity extends AppCompatActivity {
     private void initViews() {
         spinnerClass = findViewById(R.id.spinnerClass);
         spinnerDate = findViewById(R.id.spinnerDate);
-        layoutRecords = findViewById(R.id.layoutRecords);
         tvSummary = findViewById(R.id.tvSummary);
         btnDelete = findViewById(R.id.btnDelete);
 
+        RecyclerView recyclerRecords = findViewById(R.id.recyclerRecords);
+        recyclerRecords.setLayoutManager(new LinearLayoutManager(this));
+        recordAdapter = new AttendanceRecordAdapter();
+        recyclerRecords.setAdapter(recordAdapter);
+
         findViewById(R.id.btnBack).setOnClickListener(v -> finish());
         findViewById(R.id.btnView).setOnClickListener(v -> viewAttendance());
+        findViewById(R.id.btnExport).setOnClickListener(v -> showExportDialog());
         btnDelete.setOnClickListener(v -> deleteAttendance());
 
         spinnerClass.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
@@ -81,72 +118,175 @@ public class ViewAttendanceActivity extends AppCompatActivity {
     private void loadDates() {
         if (classes.isEmpty() || spinnerClass.getSelectedItemPosition() < 0)
             return;
-        BaseClass selectedClass = classes.get(spinnerClass.getSelectedItemPosition());
-        dates = database.getAttendanceDates(selectedClass.getId());
+        long classId = classes.get(spinnerClass.getSelectedItemPosition()).getId();
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_spinner_item, dates);
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        spinnerDate.setAdapter(adapter);
+        if (dateAdapter != null) {
+            dateAdapter.close();
+        }
+        // Date pages are tiny index lookups, so they load synchronously as the dropdown scrolls
+        PagedList<Long> dates = new PagedList<>(database.countAttendanceDates(classId),
+                DATE_PAGE_SIZE, DATE_MAX_PAGES,
+                (offset, limit) -> database.getAttendanceDatesPage(classId, offset, limit),
+                Runnable::run, Runnable::run, (offset, count) -> {});
+        dateAdapter = new AttendanceDateAdapter(dates);
+        spinnerDate.setAdapter(dateAdapter);
+    }
+
+    private Long getSelectedDate() {
+        if (classes.isEmpty() || dateAdapter == null || dateAdapter.getCount() == 0
+                || spinnerDate.getSelectedItemPosition() < 0)
+            return null;
+        return dateAdapter.getItem(spinnerDate.getSelectedItemPosition());
     }
 
     private void viewAttendance() {
-        layoutRecords.removeAllViews();
+        recordAdapter.setRecords(null);
         btnDelete.setVisibility(View.GONE);
 
-        if (classes.isEmpty() || dates.isEmpty()) {
+        Long selectedDate = getSelectedDate();
+        if (selectedDate == null) {
             tvSummary.setText("No attendance records found");
             return;
         }
 
         BaseClass selectedClass = classes.get(spinnerClass.getSelectedItemPosition());
-        String selectedDate = dates.get(spinnerDate.getSelectedItemPosition());
-
-        Attendance attendance = database.getAttendance(selectedClass.getId(), selectedDate);
+        List<Attendance> sessions = database.getSessionsBetween(selectedClass.getId(), selectedDate, selectedDate);
+        AttendanceRollup summary = sessions.isEmpty() ? null
+                : database.getAttendanceSummary(sessions.get(0).getId());
 
-        if (attendance == null || attendance.getRecords().isEmpty()) {
+        if (summary == null || summary.getRecordCount() == 0) {
             tvSummary.setText("No records for this date");
             return;
         }
 
-        tvSummary.setText("Present: " + attendance.getPresentCount() + " / " + attendance.getTotalCount());
+        tvSummary.setText("Present: " + summary.getPresentCount() + " / " + summary.getRecordCount());
 
-        for (AttendanceRecord record : attendance.getRecords()) {
-            TextView tv = new TextView(this);
-            String status = record.isPresent() ? "✓ Present" : "✗ Absent";
-            tv.setText(record.getStudentName() + " (" + record.getStudentIdNumber() + ") - " + status);
-            tv.setTextSize(16);
-            tv.setPadding(0, 8, 0, 8);
-            tv.setTextColor(record.isPresent() ? 0xFF4CAF50 : 0xFFF44336);
-            layoutRecords.addView(tv);
-        }
+        long attendanceId = sessions.get(0).getId();
+        recordAdapter.setRecords(new PagedList<>(summary.getRecordCount(),
+                RECORD_PAGE_SIZE, RECORD_MAX_PAGES,
+                (offset, limit) -> database.getAttendanceRecordsPage(attendanceId, offset, limit),
+                loadExecutor, mainExecutor, recordAdapter::onPageLoaded));
 
         btnDelete.setVisibility(View.VISIBLE);
     }
 
     private void deleteAttendance() {
-        if (classes.isEmpty() || dates.isEmpty())
+        Long selectedDate = getSelectedDate();
+        if (selectedDate == null)
             return;
 
         BaseClass selectedClass = classes.get(spinnerClass.getSelectedItemPosition());
-        String selectedDate = dates.get(spinnerDate.getSelectedItemPosition());
 
-        Attendance attendance = database.getAttendance(selectedClass.getId(), selectedDate);
-        if (attendance != null) {
-            database.deleteAttendance(attendance.getId());
+        List<Attendance> sessions = database.getSessionsBetween(selectedClass.getId(), selectedDate, selectedDate);
+        if (!sessions.isEmpty()) {
+            recordAdapter.setRecords(null);
+            database.deleteAttendance(sessions.get(0).getId());
             Toast.makeText(this, "Attendance deleted", Toast.LENGTH_SHORT).show();
 
             // Refresh dates
             loadDates();
-            layoutRecords.removeAllViews();
             tvSummary.setText("Select class and date");
             btnDelete.setVisibility(View.GONE);
         }
     }
 
+    private void showExportDialog() {
+        if (exporter != null) {
+            Toast.makeText(this, "Export already running", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        String[] options = { "This class (CSV)", "This class (binary)", "All classes (CSV)", "All classes (binary)" };
+        new AlertDialog.Builder(this)
+                .setTitle("Export Attendance")
+                .setItems(options, (dialog, which) -> {
+                    boolean thisClass = which < 2;
+                    if (thisClass && (classes.isEmpty() || spinnerClass.getSelectedItemPosition() < 0)) {
+                        Toast.makeText(this, "No class selected", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    exportClassId = thisClass ? classes.get(spinnerClass.getSelectedItemPosition()).getId() : 0;
+                    exportFormat = which % 2 == 0 ? AttendanceExporter.Format.CSV : AttendanceExporter.Format.BINARY;
+                    String name = "attendance-" + EpochDays.format(EpochDays.today());
+                    if (exportFormat == AttendanceExporter.Format.CSV) {
+                        csvExportPicker.launch(name + ".csv");
+                    } else {
+                        binaryExportPicker.launch(name + ".bin");
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * Streams the export to the chosen document on a background thread.
+     * The progress dialog's Cancel button stops it at the next row and deletes the
+     * partly written document.
+     */
+    private void runExport(Uri uri) {
+        if (uri == null) return;
+        exporter = new AttendanceExporter(database);
+        AttendanceExporter activeExporter = exporter;
+
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Exporting")
+                .setMessage("Starting...")
+                .setCancelable(false)
+                .setNegativeButton("Cancel", (dialog, which) -> activeExporter.cancel())
+                .show();
+
+        long classId = exportClassId;
+        AttendanceExporter.Format format = exportFormat;
+        exportExecutor.execute(() -> {
+            String message;
+            try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    message = "Could not open file";
+                } else {
+                    long rows = activeExporter.export(classId, Long.MIN_VALUE, Long.MAX_VALUE, format, out,
+                            progress -> runOnUiThread(() -> progressDialog.setMessage(progress + " records written")));
+                    message = "Exported " + rows + " records";
+                }
+            } catch (CancellationException e) {
+                message = "Export cancelled";
+                try {
+                    DocumentsContract.deleteDocument(getContentResolver(), uri);
+                } catch (Exception deleteFailed) {
+                    // The provider may not support deletion; the partial file stays
+                }
+            } catch (Exception e) {
+                message = "Export failed: " + e.getMessage();
+            }
+
+            String finalMessage = message;
+            runOnUiThread(() -> {
+                exporter = null;
+                if (isFinishing() || isDestroyed()) return;
+                progressDialog.dismiss();
+                Toast.makeText(this, finalMessage, Toast.LENGTH_SHORT).show();
+            });
+        });
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        database.close();
+        if (exporter != null) {
+            exporter.cancel();
+        }
+        exportExecutor.shutdown();
+        // Closed lists drop pages still loading, so nothing is posted to this activity
+        recordAdapter.setRecords(null);
+        if (dateAdapter != null) {
+            dateAdapter.close();
+        }
+        // Close once pending page loads are done and the cancelled export has stopped
+        loadExecutor.execute(() -> {
+            try {
+                exportExecutor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            database.close();
+        });
+        loadExecutor.shutdown();
     }
 }
@@ -0,0 +1,36 @@
+package com.example.myapplication.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event count. Increments from many threads do not contend.
+ */
+public final class Counter {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void inc() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
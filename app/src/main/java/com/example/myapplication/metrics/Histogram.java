@@ -0,0 +1,115 @@
+package com.example.myapplication.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution over fixed, roughly logarithmic buckets from 50 µs to 2 s.
+ * Recording is a short bucket scan and a few atomic adds; nothing is allocated, so
+ * it is cheap enough for every camera frame. Percentiles are reported as the upper
+ * bound of the bucket they fall in.
+ */
+public final class Histogram {
+
+    /** Bucket upper bounds in microseconds; a final overflow bucket catches the rest. */
+    static final long[] BOUNDS_US = {
+            50, 100, 250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, 33_000, 66_000,
+            133_000, 250_000, 500_000, 1_000_000, 2_000_000
+    };
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_US.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumUs = new LongAdder();
+    private final AtomicLong maxUs = new AtomicLong();
+
+    Histogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a duration measured with System.nanoTime().
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1_000);
+    }
+
+    public void recordMillis(long millis) {
+        recordMicros(millis * 1_000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) micros = 0;
+        int bucket = 0;
+        while (bucket < BOUNDS_US.length && micros > BOUNDS_US[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        sumUs.add(micros);
+        long max;
+        while (micros > (max = maxUs.get()) && !maxUs.compareAndSet(max, micros)) {
+            // Lost a race with a larger or concurrent update; re-read
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxMicros() {
+        return maxUs.get();
+    }
+
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : sumUs.sum() / (double) n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile, or the maximum if it
+     * falls in the overflow bucket.
+     *
+     * @param quantile between 0 and 1, e.g. 0.99
+     */
+    public long getPercentileMicros(double quantile) {
+        long[] snapshot = getBucketCounts();
+        long total = 0;
+        for (long c : snapshot) total += c;
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total)); // Quantile 0 is the smallest sample
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i < BOUNDS_US.length ? Math.min(BOUNDS_US[i], getMaxMicros()) : getMaxMicros();
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * Per-bucket counts, one per BOUNDS_US entry plus the overflow bucket.
+     */
+    public long[] getBucketCounts() {
+        long[] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sumUs.reset();
+        maxUs.set(0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.myapplication.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named counters and histograms, created on first use and kept for the life of the
+ * registry. Look metrics up once and keep the reference; recording on the returned
+ * objects is lock-free. Dumps are consistent per metric, not across metrics.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * The process-wide registry used by the recognition pipeline.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Zeroes every metric; references held by callers stay valid.
+     */
+    public void reset() {
+        for (Counter c : counters.values()) c.reset();
+        for (Histogram h : histograms.values()) h.reset();
+    }
+
+    /**
+     * Human-readable dump, one metric per line, sorted by name. Times are in milliseconds.
+     */
+    public String dumpText() {
+        StringBuilder sb = new StringBuilder();
+        for (Counter c : new TreeMap<>(counters).values()) {
+            sb.append(c.getName()).append(": ").append(c.get()).append('\n');
+        }
+        for (Histogram h : new TreeMap<>(histograms).values()) {
+            sb.append(h.getName()).append(String.format(Locale.US,
+                    ": n=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f ms\n",
+                    h.getCount(), h.getMeanMicros() / 1000.0,
+                    h.getPercentileMicros(0.5) / 1000.0, h.getPercentileMicros(0.9) / 1000.0,
+                    h.getPercentileMicros(0.99) / 1000.0, h.getMaxMicros() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Machine-readable dump with raw bucket counts. Times are in microseconds.
+     */
+    public String dumpJson() {
+        StringBuilder sb = new StringBuilder("{\"counters\":{");
+        boolean first = true;
+        for (Counter c : new TreeMap<>(counters).values()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append('"').append(c.getName()).append("\":").append(c.get());
+        }
+        sb.append("},\"histograms\":{");
+        first = true;
+        for (Histogram h : new TreeMap<>(histograms).values()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append('"').append(h.getName()).append("\":{\"count\":").append(h.getCount())
+                    .append(",\"meanUs\":").append(Math.round(h.getMeanMicros()))
+                    .append(",\"p50Us\":").append(h.getPercentileMicros(0.5))
+                    .append(",\"p90Us\":").append(h.getPercentileMicros(0.9))
+                    .append(",\"p99Us\":").append(h.getPercentileMicros(0.99))
+                    .append(",\"maxUs\":").append(h.getMaxMicros())
+                    .append(",\"boundsUs\":[");
+            for (int i = 0; i < Histogram.BOUNDS_US.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(Histogram.BOUNDS_US[i]);
+            }
+            sb.append("],\"buckets\":[");
+            long[] buckets = h.getBucketCounts();
+            for (int i = 0; i < buckets.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(buckets[i]);
+            }
+            sb.append("]}");
+        }
+        return sb.append("}}").toString();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.myapplication.metrics;
+
+/**
+ * The recognition pipeline's metrics, resolved once from the default registry.
+ * Stages, in order: a camera frame arrives, it is wrapped for the detector, the
+ * detector runs, features are extracted, the gallery is searched, and finally the
+ * result reaches the UI on a frame tick.
+ */
+public final class PipelineMetrics {
+
+    private static final MetricsRegistry REGISTRY = MetricsRegistry.getDefault();
+
+    /** Time between consecutive camera frames, from sensor timestamps. */
+    public static final Histogram FRAME_INTERVAL = REGISTRY.histogram("frame.interval");
+    /** Getting a detector input from a camera frame or bitmap. */
+    public static final Histogram FRAME_ACQUIRE = REGISTRY.histogram("frame.acquire");
+    /** Detector call until its result listener runs, including queueing. */
+    public static final Histogram DETECT = REGISTRY.histogram("detect");
+    public static final Histogram QUALITY_GATE = REGISTRY.histogram("quality_gate");
+    public static final Histogram EXTRACT = REGISTRY.histogram("extract");
+    public static final Histogram MATCH = REGISTRY.histogram("match");
+    /** Publishing a recognition until the UI batch that shows it. */
+    public static final Histogram UI_DELIVERY = REGISTRY.histogram("ui.delivery");
+    public static final Histogram CAMERA_BIND = REGISTRY.histogram("camera.bind");
+    /** Writing one batch of audit records, on the audit writer thread. */
+    public static final Histogram AUDIT_FLUSH = REGISTRY.histogram("audit.flush");
+    /** Starting a session until its analyzer can be bound; short when the preloader ran. */
+    public static final Histogram SESSION_READY = REGISTRY.histogram("session.ready");
+    /** One timetable check of the GalleryPreloader, including any loading it did. */
+    public static final Histogram PRELOAD = REGISTRY.histogram("preload");
+
+    public static final Counter FRAMES = REGISTRY.counter("frames.analyzed");
+    /** Estimated from sensor timestamp gaps; the camera drops frames while analysis is busy. */
+    public static final Counter FRAMES_DROPPED = REGISTRY.counter("frames.dropped");
+    /** No face, or a face the quality gate rejected. */
+    public static final Counter FRAMES_SKIPPED = REGISTRY.counter("frames.skipped");
+    /** No image, or the detector failed. */
+    public static final Counter FRAMES_FAILED = REGISTRY.counter("frames.failed");
+    public static final Counter RECOGNIZED = REGISTRY.counter("faces.recognized");
+    public static final Counter NOT_RECOGNIZED = REGISTRY.counter("faces.not_recognized");
+    public static final Counter CAMERA_BIND_FAILED = REGISTRY.counter("camera.bind_failed");
+    public static final Counter UI_EVENTS_LOST = REGISTRY.counter("ui.events_lost");
+    public static final Counter AUDIT_WRITE_FAILED = REGISTRY.counter("audit.write_failed");
+    /** Repeats of a recent decision left out of the audit log. */
+    public static final Counter AUDIT_THROTTLED = REGISTRY.counter("audit.throttled");
+    /** A session screen found its class's roster already loaded, or had to load it. */
+    public static final Counter PRELOAD_HITS = REGISTRY.counter("preload.hits");
+    public static final Counter PRELOAD_MISSES = REGISTRY.counter("preload.misses");
+
+    private PipelineMetrics() {
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.myapplication;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.myapplication.models.Attendance;
+import com.example.myapplication.models.AttendanceRecord;
+import com.example.myapplication.models.Student;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times the AttendanceDatabase methods the app calls most against a production-sized
+ * dataset from ScaleDataGenerator, and fails when a method's median exceeds its budget
+ * in scale-budgets.properties. The dataset is generated once per test run into a
+ * temporary file and shared by every test; write tests undo their own changes.
+ *
+ * The suite is slow and its budgets depend on the machine, so it only runs when asked
+ * for, e.g. ./gradlew testDebugUnitTest -Pscale=true
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AttendanceDatabaseScaleTest {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 30;
+
+    private static File datasetFile;
+    private static ScaleDataGenerator.Dataset dataset;
+
+    private AttendanceDatabase database;
+    private final Random random = new Random(7);
+
+    @BeforeClass
+    public static void requireScaleRun() {
+        Assume.assumeTrue("Run with -Pscale=true", Boolean.getBoolean("scale"));
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        if (datasetFile == null) {
+            File file = File.createTempFile("attendance-scale", ".db");
+            file.delete(); // Let SQLite create it
+            file.deleteOnExit();
+            new File(file.getPath() + "-journal").deleteOnExit();
+            database = new AttendanceDatabase(context, file.getAbsolutePath());
+            dataset = ScaleDataGenerator.populate(database, ScaleDataGenerator.Config.fromSystemProperties());
+            datasetFile = file;
+        } else {
+            database = new AttendanceDatabase(context, datasetFile.getAbsolutePath());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    // ==================== READS ====================
+
+    @Test
+    public void getStudentsByClass_withinBudget() {
+        measure("getStudentsByClass", () -> {
+            long classId = randomClass();
+            List<Student> students = database.getStudentsByClass(classId);
+            assertEquals((int) dataset.classSizes.get(classId), students.size());
+        });
+    }
+
+    @Test
+    public void getAllStudents_withinBudget() {
+        measure("getAllStudents", () ->
+                assertEquals(dataset.config.students, database.getAllStudents().size()));
+    }
+
+    @Test
+    public void getAttendance_withinBudget() {
+        measure("getAttendance", () -> {
+            long classId = randomClass();
+            Attendance attendance = database.getAttendance(classId, randomDay());
+            assertNotNull(attendance);
+            assertEquals((int) dataset.classSizes.get(classId), attendance.getTotalCount());
+        });
+    }
+
+    @Test
+    public void getAttendanceDates_withinBudget() {
+        measure("getAttendanceDates", () ->
+                assertEquals(dataset.config.days, database.getAttendanceDates(randomClass()).size()));
+    }
+
+    // ==================== WRITES ====================
+
+    @Test
+    public void insertAttendance_withinBudget() {
+        List<Attendance> sessions = newSessions();
+        List<Long> inserted = new ArrayList<>();
+        try {
+            measure("insertAttendance", () -> inserted.add(database.insertAttendance(sessions.get(inserted.size()))));
+        } finally {
+            for (long id : inserted) database.deleteAttendance(id);
+        }
+        assertEquals(dataset.config.days, database.getAttendanceDates(dataset.classIds.get(0)).size());
+    }
+
+    @Test
+    public void deleteAttendance_withinBudget() {
+        List<Long> inserted = new ArrayList<>();
+        for (Attendance session : newSessions()) {
+            inserted.add(database.insertAttendance(session));
+        }
+        int[] next = { 0 };
+        measure("deleteAttendance", () -> database.deleteAttendance(inserted.get(next[0]++)));
+        assertEquals(dataset.config.days, database.getAttendanceDates(dataset.classIds.get(0)).size());
+    }
+
+    /**
+     * One full-roster session per timed call, dated after the dataset so none collides
+     * with a generated one.
+     */
+    private List<Attendance> newSessions() {
+        List<Attendance> sessions = new ArrayList<>();
+        for (int i = 0; i < WARMUP + RUNS; i++) {
+            long classId = dataset.classIds.get(i % dataset.classIds.size());
+            Attendance attendance = new Attendance(classId, dataset.lastDay() + 1 + i / dataset.classIds.size());
+            for (Student student : database.getStudentsByClass(classId)) {
+                attendance.addRecord(new AttendanceRecord(student.getId(), random.nextBoolean()));
+            }
+            sessions.add(attendance);
+        }
+        return sessions;
+    }
+
+    // ==================== TIMING ====================
+
+    private long randomClass() {
+        return dataset.classIds.get(random.nextInt(dataset.classIds.size()));
+    }
+
+    private long randomDay() {
+        return dataset.config.firstDay + random.nextInt(dataset.config.days);
+    }
+
+    /**
+     * Runs an operation WARMUP + RUNS times and checks the median of the timed runs.
+     */
+    private void measure(String method, Runnable operation) {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double medianMs = nanos[RUNS / 2] / 1e6;
+        double maxMs = nanos[RUNS - 1] / 1e6;
+        double budgetMs = budget(method);
+
+        String summary = String.format(Locale.US, "%s: median %.2f ms, max %.2f ms, budget %.2f ms (%s)",
+                method, medianMs, maxMs, budgetMs, dataset.config);
+        assertTrue("Over budget: " + summary, medianMs <= budgetMs);
+    }
+
+    private static double budget(String method) {
+        String override = System.getProperty("scale.budget." + method);
+        if (override != null) return Double.parseDouble(override);
+
+        Properties budgets = new Properties();
+        try (InputStream in = AttendanceDatabaseScaleTest.class.getClassLoader()
+                .getResourceAsStream("scale-budgets.properties")) {
+            if (in != null) budgets.load(in);
+        } catch (IOException e) {
+            throw new AssertionError("Could not read scale-budgets.properties", e);
+        }
+        String value = budgets.getProperty(method);
+        assertNotNull("No budget for " + method + " in scale-budgets.properties", value);
+        return Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.myapplication;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.myapplication.models.Attendance;
+import com.example.myapplication.models.Student;
+import com.example.myapplication.models.TheoryClass;
+import com.example.myapplication.sync.PresenceSet;
+import com.google.mlkit.common.sdkinternal.MlKitContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AttendanceSessionViewModelTest {
+
+    private static final long MONDAY = EpochDays.of(2025, 3, 3);
+    private static final long TUESDAY = MONDAY + 1;
+
+    private AttendanceDatabase database;
+    private AttendanceSessionViewModel viewModel;
+    private long classId;
+    private long ana;
+
+    @Before
+    public void setUp() {
+        Application application = ApplicationProvider.getApplicationContext();
+        MlKitContext.initializeIfNeeded(application); // The view model warms up the face detector
+        database = new AttendanceDatabase(application);
+        classId = database.insertClass(new TheoryClass("Physics", "A", 1));
+        ana = database.insertStudent(new Student("Ana", "S1", "A", classId, null));
+        database.insertStudent(new Student("Ben", "S2", "A", classId, null));
+        // Ana was marked on Monday by another device
+        database.savePresenceMarks(PresenceSet.sessionKey("Physics", "A", MONDAY), MONDAY,
+                Collections.singletonList(new PresenceSet.Mark("S1", "other-device", 0, PresenceSet.SOURCE_CAMERA)));
+
+        viewModel = new AttendanceSessionViewModel(application);
+        viewModel.setSelectedDate(MONDAY);
+        viewModel.selectClass(0);
+    }
+
+    @After
+    public void tearDown() {
+        viewModel.onCleared();
+        database.close();
+    }
+
+    @Test
+    public void selectClass_restoresMarksOfTheSelectedDate() {
+        assertEquals(Collections.singleton(ana), viewModel.getPresentStudents());
+    }
+
+    @Test
+    public void setSelectedDate_resetsPresence() {
+        viewModel.setSelectedDate(TUESDAY);
+        assertTrue(viewModel.getPresentStudents().isEmpty());
+        assertTrue(viewModel.getCrossClassStudents().isEmpty());
+
+        viewModel.saveAttendance();
+        Attendance saved = database.getAttendance(classId, TUESDAY);
+        assertEquals(2, saved.getTotalCount());
+        assertEquals(0, saved.getPresentCount());
+    }
+
+    @Test
+    public void setSelectedDate_restoresMarksWhenChangedBack() {
+        viewModel.setSelectedDate(TUESDAY);
+        viewModel.setSelectedDate(MONDAY);
+        assertEquals(Collections.singleton(ana), viewModel.getPresentStudents());
+    }
+}
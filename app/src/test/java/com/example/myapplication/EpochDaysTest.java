@@ -0,0 +1,59 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EpochDaysTest {
+
+    @Test
+    public void formatsAndParsesKnownDays() {
+        assertEquals("1970-01-01", EpochDays.format(0));
+        assertEquals("2024-02-29", EpochDays.format(EpochDays.of(2024, 2, 29)));
+        assertEquals(0, EpochDays.parse("1970-01-01"));
+        assertEquals(19782, EpochDays.parse("2024-02-29"));
+        assertEquals(-1, EpochDays.parse("1969-12-31"));
+    }
+
+    @Test
+    public void roundTripsEveryDayOfSeveralYears() {
+        for (long day = EpochDays.of(1999, 1, 1); day < EpochDays.of(2031, 1, 1); day++) {
+            assertEquals(day, EpochDays.parse(EpochDays.format(day)));
+        }
+    }
+
+    @Test
+    public void acceptsNonAsciiDigits() {
+        // Arabic-Indic digits, as written by the old locale-dependent formatter
+        assertEquals(EpochDays.of(2024, 3, 5), EpochDays.parse("٢٠٢٤-٠٣-٠٥"));
+    }
+
+    @Test
+    public void rejectsDaysPastTheEndOfTheMonth() {
+        assertInvalid("2024-02-31");
+        assertInvalid("2023-02-29");
+        assertInvalid("2024-04-31");
+        assertEquals(EpochDays.of(2024, 4, 30), EpochDays.parse("2024-04-30"));
+    }
+
+    @Test
+    public void rejectsMalformedText() {
+        assertInvalid(null);
+        assertInvalid("");
+        assertInvalid("2024-13-01");
+        assertInvalid("2024-00-10");
+        assertInvalid("2024-01-00");
+        assertInvalid("2024-1");
+        assertInvalid("2024--01");
+        assertInvalid("2024-01-0x");
+    }
+
+    private static void assertInvalid(String text) {
+        try {
+            EpochDays.parse(text);
+            fail("Accepted " + text);
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+}
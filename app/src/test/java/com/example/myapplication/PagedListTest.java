@@ -0,0 +1,65 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class PagedListTest {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @Test
+    public void loadsPagesOnDemand() {
+        List<Integer> offsets = new ArrayList<>();
+        PagedList<Integer> list = new PagedList<>(100, 10, 2, (offset, limit) -> {
+            offsets.add(offset);
+            return range(offset, Math.min(limit, 100 - offset));
+        }, DIRECT, DIRECT, (offset, count) -> {});
+
+        assertEquals(Integer.valueOf(3), list.get(3));
+        assertEquals(Integer.valueOf(52), list.get(52));
+        assertEquals(2, offsets.size());
+    }
+
+    @Test
+    public void retriesAPageAfterTheLoaderFails() {
+        int[] calls = { 0 };
+        PagedList<Integer> list = new PagedList<>(10, 10, 2, (offset, limit) -> {
+            if (calls[0]++ == 0) throw new IllegalStateException("Database busy");
+            return range(offset, limit);
+        }, DIRECT, DIRECT, (offset, count) -> {});
+
+        try {
+            list.get(0);
+            fail("Loader failure was swallowed");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        assertEquals(Integer.valueOf(4), list.get(4));
+        assertEquals(2, calls[0]);
+    }
+
+    @Test
+    public void dropsPagesLoadedAfterClose() {
+        List<Runnable> pending = new ArrayList<>();
+        int[] delivered = { 0 };
+        PagedList<Integer> list = new PagedList<>(10, 10, 2, (offset, limit) -> range(offset, limit),
+                DIRECT, pending::add, (offset, count) -> delivered[0]++);
+
+        assertNull(list.get(0));
+        list.close();
+        for (Runnable r : pending) r.run();
+        assertEquals(0, delivered[0]);
+        assertNull(list.get(0));
+    }
+
+    private static List<Integer> range(int from, int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) items.add(from + i);
+        return items;
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.myapplication;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.myapplication.models.Attendance;
+import com.example.myapplication.models.AttendanceRecord;
+import com.example.myapplication.models.BaseClass;
+import com.example.myapplication.models.LabClass;
+import com.example.myapplication.models.Student;
+import com.example.myapplication.models.TheoryClass;
+import com.example.myapplication.recognition.LandmarkFeatures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills an AttendanceDatabase with production-sized data: thousands of students with
+ * embeddings and learned templates, hundreds of classes and a year of daily sessions.
+ * Everything goes through the database's own write methods, so the rows look exactly
+ * like the app's. The output is deterministic for a given Config.
+ */
+final class ScaleDataGenerator {
+
+    /** Dataset sizes, read from scale.* system properties with production-like defaults. */
+    static final class Config {
+        final int students;
+        final int classes;
+        final int days;
+        final float learnedTemplateRate; // Students with extra templates from live matches
+        final long firstDay; // Epoch day of the first session
+        final long seed;
+
+        Config(int students, int classes, int days, float learnedTemplateRate, long firstDay, long seed) {
+            this.students = students;
+            this.classes = classes;
+            this.days = days;
+            this.learnedTemplateRate = learnedTemplateRate;
+            this.firstDay = firstDay;
+            this.seed = seed;
+        }
+
+        static Config fromSystemProperties() {
+            return new Config(
+                    Integer.getInteger("scale.students", 6000),
+                    Integer.getInteger("scale.classes", 200),
+                    Integer.getInteger("scale.days", 365),
+                    Float.parseFloat(System.getProperty("scale.learnedTemplateRate", "0.3")),
+                    Long.getLong("scale.firstDay", 19723), // 2024-01-01
+                    Long.getLong("scale.seed", 42));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d students, %d classes, %d days", students, classes, days);
+        }
+    }
+
+    /** What was generated, for sizing queries and checking their results. */
+    static final class Dataset {
+        final Config config;
+        final List<Long> classIds = new ArrayList<>();
+        final Map<Long, Integer> classSizes = new HashMap<>();
+        long sessions;
+        long records;
+        long generationMs;
+
+        Dataset(Config config) {
+            this.config = config;
+        }
+
+        long lastDay() {
+            return config.firstDay + config.days - 1;
+        }
+    }
+
+    private ScaleDataGenerator() {}
+
+    static Dataset populate(AttendanceDatabase database, Config config) {
+        long start = System.currentTimeMillis();
+        Random random = new Random(config.seed);
+        Dataset dataset = new Dataset(config);
+
+        for (int c = 0; c < config.classes; c++) {
+            String name = "CSE" + (101 + c / 4);
+            String section = String.valueOf((char) ('A' + c % 4));
+            BaseClass baseClass = c % 3 == 2 ? new LabClass(name, section, 1) : new TheoryClass(name, section, 1);
+            long classId = database.insertClass(baseClass);
+            dataset.classIds.add(classId);
+            dataset.classSizes.put(classId, 0);
+        }
+
+        // Students are spread round-robin, so every class has a roster of similar size
+        List<Student> roster = new ArrayList<>(config.students);
+        for (int i = 0; i < config.students; i++) {
+            long classId = dataset.classIds.get(i % config.classes);
+            roster.add(new Student("Student " + i, String.format(Locale.US, "24%d-15-%05d", i % 4, i),
+                    String.valueOf((char) ('A' + i % 4)), classId, randomFeatures(random)));
+            dataset.classSizes.merge(classId, 1, Integer::sum);
+        }
+        database.upsertStudents(roster);
+
+        Map<Long, List<Student>> byClass = new HashMap<>();
+        for (Student student : database.getAllStudents()) {
+            byClass.computeIfAbsent(student.getClassId(), id -> new ArrayList<>()).add(student);
+            if (random.nextFloat() < config.learnedTemplateRate) {
+                database.addLearnedTemplate(student.getId(), jitter(student.getFaceFeatures(), random));
+            }
+        }
+
+        // Each student gets a steady attendance habit between 60% and 98%
+        Map<Long, Float> propensity = new HashMap<>();
+        for (List<Student> students : byClass.values()) {
+            for (Student student : students) {
+                propensity.put(student.getId(), 0.6f + 0.38f * random.nextFloat());
+            }
+        }
+
+        // One transaction per day keeps generation fast without changing what is stored
+        SQLiteDatabase db = database.getWritableDatabase();
+        for (int d = 0; d < config.days; d++) {
+            long date = config.firstDay + d;
+            db.beginTransaction();
+            try {
+                for (long classId : dataset.classIds) {
+                    List<Student> students = byClass.get(classId);
+                    if (students == null) continue;
+                    Attendance attendance = new Attendance(classId, date);
+                    for (Student student : students) {
+                        boolean present = random.nextFloat() < propensity.get(student.getId());
+                        attendance.addRecord(new AttendanceRecord(student.getId(), present));
+                    }
+                    database.insertAttendance(attendance);
+                    dataset.sessions++;
+                    dataset.records += students.size();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        dataset.generationMs = System.currentTimeMillis() - start;
+        return dataset;
+    }
+
+    private static float[] randomFeatures(Random random) {
+        float[] features = new float[LandmarkFeatures.DIMENSION];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = 0.5f + random.nextFloat();
+        }
+        return features;
+    }
+
+    private static float[] jitter(float[] features, Random random) {
+        float[] jittered = features.clone();
+        for (int i = 0; i < jittered.length; i++) {
+            jittered[i] += (float) random.nextGaussian() * 0.02f;
+        }
+        return jittered;
+    }
+}
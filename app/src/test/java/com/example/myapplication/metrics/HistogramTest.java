@@ -0,0 +1,77 @@
+package com.example.myapplication.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void boundsAreInclusiveUpperLimits() {
+        Histogram histogram = new Histogram("test");
+        histogram.recordMicros(0);
+        histogram.recordMicros(50);
+        histogram.recordMicros(51);
+        histogram.recordMicros(100);
+        histogram.recordMicros(2_000_000);
+        histogram.recordMicros(2_000_001);
+        histogram.recordMicros(-5); // Clock went backwards; counted as zero
+
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(Histogram.BOUNDS_US.length + 1, counts.length);
+        assertEquals(3, counts[0]);
+        assertEquals(2, counts[1]);
+        assertEquals(1, counts[Histogram.BOUNDS_US.length - 1]);
+        assertEquals(1, counts[Histogram.BOUNDS_US.length]);
+        assertEquals(7, histogram.getCount());
+        assertEquals(2_000_001, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void unitConversions() {
+        Histogram histogram = new Histogram("test");
+        histogram.recordNanos(1_500_000);
+        histogram.recordMillis(3);
+        assertEquals(3_000, histogram.getMaxMicros());
+        assertEquals(2_250, histogram.getMeanMicros(), 0);
+        assertEquals(1, histogram.getBucketCounts()[5]); // 1 500 µs, up to 2 000
+        assertEquals(1, histogram.getBucketCounts()[6]); // 3 000 µs, up to 4 000
+    }
+
+    @Test
+    public void percentilesReportTheBucketUpperBound() {
+        Histogram histogram = new Histogram("test");
+        for (int i = 0; i < 90; i++) histogram.recordMicros(300); // Bucket up to 500
+        for (int i = 0; i < 9; i++) histogram.recordMicros(3_000); // Up to 4 000
+        histogram.recordMicros(40_000); // Up to 66 000
+
+        assertEquals(500, histogram.getPercentileMicros(0.5));
+        assertEquals(500, histogram.getPercentileMicros(0.9));
+        assertEquals(4_000, histogram.getPercentileMicros(0.91));
+        assertEquals(4_000, histogram.getPercentileMicros(0.99));
+        // The top bucket is capped at the largest sample seen
+        assertEquals(40_000, histogram.getPercentileMicros(1.0));
+        assertEquals(500, histogram.getPercentileMicros(0));
+    }
+
+    @Test
+    public void overflowPercentileIsTheMaximum() {
+        Histogram histogram = new Histogram("test");
+        histogram.recordMicros(10);
+        histogram.recordMicros(5_000_000);
+        assertEquals(50, histogram.getPercentileMicros(0.5));
+        assertEquals(5_000_000, histogram.getPercentileMicros(0.99));
+    }
+
+    @Test
+    public void emptyAndReset() {
+        Histogram histogram = new Histogram("test");
+        assertEquals(0, histogram.getPercentileMicros(0.99));
+        assertEquals(0, histogram.getMeanMicros(), 0);
+        histogram.recordMicros(700);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(0.5));
+    }
+}
@@ -0,0 +1,32 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+// JMH benchmarks for the recognition core. Run with
+//   ./gradlew :recognition-benchmarks:jmh
+// Add -Pjmh.gc to report allocation per operation, and -Pjmh.includes=<regex> to pick benchmarks.
+// Results are written as JSON to build/results/jmh/results.json.
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(project(":recognition-core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    if (project.hasProperty("jmh.gc")) {
+        profilers.add("gc")
+    }
+    if (project.hasProperty("jmh.includes")) {
+        includes.add(project.property("jmh.includes").toString())
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.recognition.EmbeddingCodec;
+import com.example.myapplication.recognition.LandmarkFeatures;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame feature extraction and the template blob codec used on every load and save.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeatureBenchmark {
+
+    private static final int SAMPLE_COUNT = 1024;
+
+    /** Feature length: today's landmark ratios, and a typical learned embedding. */
+    @Param({"7", "128"})
+    public int dimension;
+
+    private float[][] landmarks;
+    private float[][] features;
+    private byte[][] blobs;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        SyntheticFaces faces = new SyntheticFaces(42);
+        Random random = new Random(42);
+        landmarks = new float[SAMPLE_COUNT][];
+        features = new float[SAMPLE_COUNT][];
+        blobs = new byte[SAMPLE_COUNT][];
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            landmarks[i] = faces.landmarks();
+            features[i] = new float[dimension];
+            for (int d = 0; d < dimension; d++) features[i][d] = random.nextFloat();
+            blobs[i] = EmbeddingCodec.encode(features[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = (next + 1) & (SAMPLE_COUNT - 1);
+        return i;
+    }
+
+    /** Landmark ratios; independent of the dimension parameter. */
+    @Benchmark
+    public float[] extractFeatures() {
+        return LandmarkFeatures.extract(landmarks[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return EmbeddingCodec.encode(features[nextIndex()]);
+    }
+
+    @Benchmark
+    public float[] decode() {
+        return EmbeddingCodec.decode(blobs[nextIndex()]);
+    }
+}
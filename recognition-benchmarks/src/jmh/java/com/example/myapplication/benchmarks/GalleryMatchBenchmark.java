@@ -0,0 +1,59 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.recognition.FaceGallery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One live recognition against the whole gallery, as FaceHelper.matchFace does.
+ * Queries cycle through a fixed set so every size sees the same workload.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GalleryMatchBenchmark {
+
+    private static final float RECOGNITION_THRESHOLD = 0.4f; // As in FaceHelper
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int students;
+
+    private FaceGallery gallery;
+    private float[][] queries;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        SyntheticFaces faces = new SyntheticFaces(42);
+        gallery = faces.gallery(students);
+        queries = faces.queries(gallery, QUERY_COUNT);
+    }
+
+    private float[] nextQuery() {
+        float[] query = queries[next];
+        next = (next + 1) & (QUERY_COUNT - 1);
+        return query;
+    }
+
+    /** The live path: bounded search with early abandonment. */
+    @Benchmark
+    public FaceGallery.Match findNearestBounded() {
+        return gallery.findNearest(nextQuery(), RECOGNITION_THRESHOLD);
+    }
+
+    /** Full scan without a bound, the baseline the bounded search is measured against. */
+    @Benchmark
+    public FaceGallery.Match findNearestExhaustive() {
+        return gallery.findNearest(nextQuery());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.FaceGallery;
+import com.example.myapplication.recognition.SessionMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session presence updates and matching as a class fills up, on a campus-sized index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionBenchmark {
+
+    private static final float RECOGNITION_THRESHOLD = 0.4f;
+    private static final int CAMPUS_SIZE = 10_000;
+    private static final int CLASS_COUNT = 100; // About 100 students per class
+    private static final long CLASS_ID = 1;
+    private static final int QUERY_COUNT = 1024;
+
+    /** Fraction of the class already marked present when matching. */
+    @Param({"0", "0.5", "0.9"})
+    public double presentFraction;
+
+    private CampusIndex index;
+    private long[] roster;
+    private SessionMatcher filledSession;
+    private float[][] queries;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        SyntheticFaces faces = new SyntheticFaces(42);
+        index = faces.campus(CAMPUS_SIZE, CLASS_COUNT);
+        FaceGallery gallery = index.getGallery();
+        BitSet members = index.getClassMembers(CLASS_ID);
+        roster = new long[members.cardinality()];
+        int i = 0;
+        for (int ordinal = members.nextSetBit(0); ordinal >= 0; ordinal = members.nextSetBit(ordinal + 1)) {
+            roster[i++] = gallery.getStudentId(ordinal);
+        }
+
+        filledSession = index.newSession(CLASS_ID, true);
+        for (int p = 0; p < roster.length * presentFraction; p++) {
+            filledSession.markPresent(roster[p]);
+        }
+
+        // Class members arriving in front of the camera
+        queries = new float[QUERY_COUNT][];
+        float[] template = new float[gallery.getDimension()];
+        Random random = new Random(7);
+        for (int q = 0; q < QUERY_COUNT; q++) {
+            int ordinal = gallery.ordinalOf(roster[random.nextInt(roster.length)]);
+            gallery.copyTemplate(ordinal * SyntheticFaces.TEMPLATES_PER_STUDENT, template);
+            queries[q] = faces.noisyCopy(template);
+        }
+    }
+
+    /** Starting a session and marking the whole class present, one student at a time. */
+    @Benchmark
+    public int startAndFillSession() {
+        SessionMatcher session = index.newSession(CLASS_ID, true);
+        for (long studentId : roster) {
+            session.markPresent(studentId);
+        }
+        return session.getAbsentCount();
+    }
+
+    /** One recognition in a session where presentFraction of the class is present. */
+    @Benchmark
+    public FaceGallery.Match matchInSession() {
+        float[] query = queries[next];
+        next = (next + 1) & (QUERY_COUNT - 1);
+        return filledSession.findNearest(query, RECOGNITION_THRESHOLD);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.myapplication.benchmarks;
+
+import com.example.myapplication.models.FaceTemplate;
+import com.example.myapplication.models.Student;
+import com.example.myapplication.recognition.CampusIndex;
+import com.example.myapplication.recognition.FaceGallery;
+import com.example.myapplication.recognition.LandmarkFeatures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic faces for benchmarks. Landmarks are jittered around an
+ * average frontal face, so features fall in the same range as real enrollments,
+ * and queries are noisy re-captures of enrolled students, as in a live session.
+ */
+final class SyntheticFaces {
+
+    static final int TEMPLATES_PER_STUDENT = 3;
+    static final float QUERY_NOISE = 0.02f;
+
+    // Left eye, right eye, nose base, mouth left, mouth right, mouth bottom
+    private static final float[] AVERAGE_FACE = {
+            30, 40, 70, 40, 50, 60, 35, 75, 65, 75, 50, 85
+    };
+
+    private final Random random;
+
+    SyntheticFaces(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Landmark coordinates of a random face at a random position and scale.
+     */
+    float[] landmarks() {
+        float scale = 0.5f + random.nextFloat() * 3f;
+        float dx = random.nextFloat() * 400, dy = random.nextFloat() * 400;
+        float[] points = new float[AVERAGE_FACE.length];
+        for (int i = 0; i < points.length; i++) {
+            float jitter = (float) random.nextGaussian() * 3f;
+            points[i] = (AVERAGE_FACE[i] + jitter) * scale + (i % 2 == 0 ? dx : dy);
+        }
+        return points;
+    }
+
+    float[] features() {
+        float[] features;
+        do {
+            features = LandmarkFeatures.extract(landmarks());
+        } while (features == null);
+        return features;
+    }
+
+    /**
+     * A re-capture of an enrolled template with Gaussian noise added.
+     */
+    float[] noisyCopy(float[] template) {
+        float[] copy = template.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] += (float) random.nextGaussian() * QUERY_NOISE;
+        }
+        return copy;
+    }
+
+    /**
+     * Students with ids 1..count, spread round-robin over classCount classes, each
+     * with TEMPLATES_PER_STUDENT templates.
+     */
+    List<Student> students(int count, int classCount) {
+        List<Student> students = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            Student student = new Student("Student " + id, "S" + id, "A", id % classCount, features());
+            student.setId(id);
+            List<FaceTemplate> templates = new ArrayList<>(TEMPLATES_PER_STUDENT);
+            templates.add(new FaceTemplate(student.getFaceFeatures(), 1));
+            for (int t = 1; t < TEMPLATES_PER_STUDENT; t++) {
+                templates.add(new FaceTemplate(features(), 1));
+            }
+            student.setTemplates(templates);
+            students.add(student);
+        }
+        return students;
+    }
+
+    FaceGallery gallery(int studentCount) {
+        FaceGallery.Builder builder = new FaceGallery.Builder();
+        for (int id = 1; id <= studentCount; id++) {
+            List<float[]> templates = new ArrayList<>(TEMPLATES_PER_STUDENT);
+            for (int t = 0; t < TEMPLATES_PER_STUDENT; t++) {
+                templates.add(features());
+            }
+            builder.add(id, templates);
+        }
+        return builder.build();
+    }
+
+    CampusIndex campus(int studentCount, int classCount) {
+        CampusIndex.Builder builder = new CampusIndex.Builder();
+        for (Student student : students(studentCount, classCount)) {
+            builder.add(student);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Queries that re-capture random enrolled templates of the gallery.
+     */
+    float[][] queries(FaceGallery gallery, int count) {
+        float[][] queries = new float[count][];
+        float[] template = new float[gallery.getDimension()];
+        for (int i = 0; i < count; i++) {
+            gallery.copyTemplate(random.nextInt(gallery.getTemplateCount()), template);
+            queries[i] = noisyCopy(template);
+        }
+        return queries;
+    }
+}
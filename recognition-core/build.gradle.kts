@@ -0,0 +1,33 @@
+plugins {
+    `java-library`
+}
+
+// Plain JVM module: recognition math, indexes and models, with no Android or ML Kit types,
+// so it can be unit tested and profiled on any JVM.
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Sources are UTF-8 whatever the build machine's locale
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// Replays recorded sessions on the JVM:
+//   ./gradlew :recognition-core:replay -Plogs=session.alog[,more.alog] [-Pthreshold=0.4] [-Prepeat=5]
+tasks.register<JavaExec>("replay") {
+    group = "verification"
+    description = "Replays landmark logs through extraction, matching and session logic."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.myapplication.recognition.LandmarkReplay")
+    val replayArgs = mutableListOf<String>()
+    project.findProperty("threshold")?.let { replayArgs += listOf("--threshold", it.toString()) }
+    project.findProperty("repeat")?.let { replayArgs += listOf("--repeat", it.toString()) }
+    project.findProperty("logs")?.let { replayArgs += it.toString().split(",") }
+    args = replayArgs
+}
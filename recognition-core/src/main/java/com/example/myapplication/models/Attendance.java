@@ -11,14 +11,14 @@ public class Attendance {
     private long id;
     private long classId;
     private String className;
-    private String date; // Format: yyyy-MM-dd
+    private long date; // Epoch day (days since 1970-01-01)
     private List<AttendanceRecord> records;
 
     public Attendance() {
         this.records = new ArrayList<>();
     }
 
-    public Attendance(long classId, String date) {
+    public Attendance(long classId, long date) {
         this.classId = classId;
         this.date = date;
         this.records = new ArrayList<>();
@@ -28,14 +28,14 @@ public class Attendance {
     public long getId() { return id; }
     public long getClassId() { return classId; }
     public String getClassName() { return className; }
-    public String getDate() { return date; }
+    public long getDate() { return date; }
     public List<AttendanceRecord> getRecords() { return records; }
 
     // Setters
     public void setId(long id) { this.id = id; }
     public void setClassId(long classId) { this.classId = classId; }
     public void setClassName(String className) { this.className = className; }
-    public void setDate(String date) { this.date = date; }
+    public void setDate(long date) { this.date = date; }
     public void setRecords(List<AttendanceRecord> records) { this.records = records; }
 
     // Helper methods
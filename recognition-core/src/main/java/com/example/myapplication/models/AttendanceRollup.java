@@ -0,0 +1,38 @@
+package com.example.myapplication.models;
+
+/**
+ * Model class representing aggregated attendance over a period (a week or a month).
+ * Produced directly by the database so reports never load individual records.
+ */
+public class AttendanceRollup {
+    private long periodStart; // Epoch day of the first day in the period
+    private int sessionCount;
+    private int presentCount;
+    private int recordCount;
+
+    public AttendanceRollup() {}
+
+    public AttendanceRollup(long periodStart, int sessionCount, int presentCount, int recordCount) {
+        this.periodStart = periodStart;
+        this.sessionCount = sessionCount;
+        this.presentCount = presentCount;
+        this.recordCount = recordCount;
+    }
+
+    // Getters
+    public long getPeriodStart() { return periodStart; }
+    public int getSessionCount() { return sessionCount; }
+    public int getPresentCount() { return presentCount; }
+    public int getRecordCount() { return recordCount; }
+
+    // Setters
+    public void setPeriodStart(long periodStart) { this.periodStart = periodStart; }
+    public void setSessionCount(int sessionCount) { this.sessionCount = sessionCount; }
+    public void setPresentCount(int presentCount) { this.presentCount = presentCount; }
+    public void setRecordCount(int recordCount) { this.recordCount = recordCount; }
+
+    // Helper methods
+    public float getAttendanceRate() {
+        return recordCount == 0 ? 0f : (float) presentCount / recordCount;
+    }
+}
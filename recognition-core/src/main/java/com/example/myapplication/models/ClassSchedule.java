@@ -0,0 +1,70 @@
+package com.example.myapplication.models;
+
+import java.util.Locale;
+
+/**
+ * Model class for one weekly meeting of a class, e.g. Monday 09:00 to 10:30.
+ * Days run from 1 (Monday) to 7 (Sunday); times are minutes after midnight.
+ */
+public class ClassSchedule {
+    public static final String[] DAY_NAMES = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+
+    private long id;
+    private long classId;
+    private int dayOfWeek;
+    private int startMinute;
+    private int endMinute;
+
+    public ClassSchedule() {}
+
+    public ClassSchedule(long classId, int dayOfWeek, int startMinute, int endMinute) {
+        this.classId = classId;
+        this.dayOfWeek = dayOfWeek;
+        this.startMinute = startMinute;
+        this.endMinute = endMinute;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public long getClassId() { return classId; }
+    public int getDayOfWeek() { return dayOfWeek; }
+    public int getStartMinute() { return startMinute; }
+    public int getEndMinute() { return endMinute; }
+
+    // Setters
+    public void setId(long id) { this.id = id; }
+    public void setClassId(long classId) { this.classId = classId; }
+    public void setDayOfWeek(int dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+    public void setStartMinute(int startMinute) { this.startMinute = startMinute; }
+    public void setEndMinute(int endMinute) { this.endMinute = endMinute; }
+
+    /**
+     * Parses "HH:mm" into minutes after midnight.
+     *
+     * @throws IllegalArgumentException if the text is not a time of day
+     */
+    public static int parseTime(String text) {
+        String[] parts = text.trim().split(":");
+        try {
+            if (parts.length == 2) {
+                int hours = Integer.parseInt(parts[0]);
+                int minutes = Integer.parseInt(parts[1]);
+                if (hours >= 0 && hours < 24 && minutes >= 0 && minutes < 60) {
+                    return hours * 60 + minutes;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Fall through
+        }
+        throw new IllegalArgumentException("Not a time: " + text);
+    }
+
+    public static String formatTime(int minuteOfDay) {
+        return String.format(Locale.US, "%02d:%02d", minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    @Override
+    public String toString() {
+        return DAY_NAMES[dayOfWeek - 1] + " " + formatTime(startMinute) + " - " + formatTime(endMinute);
+    }
+}
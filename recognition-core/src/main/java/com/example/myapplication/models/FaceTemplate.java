@@ -0,0 +1,32 @@
+package com.example.myapplication.models;
+
+/**
+ * Model class representing one face template (prototype) of a student.
+ * A student keeps a few templates so that different poses can all be matched.
+ * The weight counts how many samples were merged into this prototype.
+ */
+public class FaceTemplate {
+    private long id;
+    private long studentId;
+    private float[] features;
+    private int weight = 1;
+
+    public FaceTemplate() {}
+
+    public FaceTemplate(float[] features, int weight) {
+        this.features = features;
+        this.weight = weight;
+    }
+
+    // Getters
+    public long getId() { return id; }
+    public long getStudentId() { return studentId; }
+    public float[] getFeatures() { return features; }
+    public int getWeight() { return weight; }
+
+    // Setters
+    public void setId(long id) { this.id = id; }
+    public void setStudentId(long studentId) { this.studentId = studentId; }
+    public void setFeatures(float[] features) { this.features = features; }
+    public void setWeight(int weight) { this.weight = weight; }
+}
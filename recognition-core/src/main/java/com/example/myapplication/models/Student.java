@@ -1,5 +1,9 @@
 package com.example.myapplication.models;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Model class representing a Student entity.
  * Demonstrates encapsulation with private fields and public accessors.
@@ -10,7 +14,8 @@ public class Student {
     private String studentId;
     private String section;
     private long classId;
-    private float[] faceFeatures;
+    private float[] faceFeatures; // Enrollment template
+    private List<FaceTemplate> templates = new ArrayList<>(); // All prototypes, including enrollment
 
     public Student() {}
 
@@ -29,6 +34,7 @@ public class Student {
     public String getSection() { return section; }
     public long getClassId() { return classId; }
     public float[] getFaceFeatures() { return faceFeatures; }
+    public List<FaceTemplate> getTemplates() { return templates; }
 
     // Setters
     public void setId(long id) { this.id = id; }
@@ -37,6 +43,23 @@ public class Student {
     public void setSection(String section) { this.section = section; }
     public void setClassId(long classId) { this.classId = classId; }
     public void setFaceFeatures(float[] faceFeatures) { this.faceFeatures = faceFeatures; }
+    public void setTemplates(List<FaceTemplate> templates) { this.templates = templates; }
+
+    // Helper methods
+    /**
+     * Returns the feature vectors to match against: all templates, or the
+     * enrollment features when no templates have been loaded.
+     */
+    public List<float[]> getTemplateFeatures() {
+        if (!templates.isEmpty()) {
+            List<float[]> features = new ArrayList<>(templates.size());
+            for (FaceTemplate template : templates) {
+                features.add(template.getFeatures());
+            }
+            return features;
+        }
+        return faceFeatures != null ? Collections.singletonList(faceFeatures) : Collections.emptyList();
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,280 @@
+package com.example.myapplication.recognition;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Append-only log of recognition decisions, kept so a disputed absence can be checked
+ * against what the camera actually decided. A log is a directory of segment files,
+ * each holding one local day: "audit-<epochDay>-<sequence>.log".
+ *
+ * Segment format: int MAGIC, int VERSION, long epoch day, then fixed-size records of
+ * RECORD_SIZE bytes, big-endian. A segment cut short by the app being killed loses at
+ * most its trailing partial record.
+ */
+public final class AuditLog {
+
+    public static final int MAGIC = 0x41544155; // "ATAU"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 48;
+
+    /** What the pipeline decided about one face, photo result or frame. */
+    public enum Decision {
+        /** Matched and marked present. */
+        PRESENT,
+        /** Matched a student enrolled in another class and marked present. */
+        CROSS_CLASS,
+        /** Matched a student who was already present. */
+        ALREADY_PRESENT,
+        /** Missing landmarks, or nobody within the threshold; studentId is the nearest candidate. */
+        NOT_RECOGNIZED,
+        /** The quality gate rejected the face; detail holds the reason code, studentId the nearest candidate. */
+        REJECTED,
+        /** Marked present from a group photo. */
+        PHOTO_PRESENT,
+        /** Marked present by another device at the same session. */
+        PEER_PRESENT
+    }
+
+    private static final Decision[] DECISIONS = Decision.values();
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+
+    private AuditLog() {}
+
+    /** One decision, as read back from a segment. */
+    public static final class Record {
+        public final long timestampMs; // Wall clock
+        public final long classId;
+        public final Decision decision;
+        public final int detail; // Rejection code for REJECTED, otherwise 0
+        public final long studentId; // Match or nearest candidate; -1 when there is none
+        public final float distance; // NaN when there is no match distance
+        public final long runnerUpId; // -1 when there is no runner-up
+        public final float runnerUpDistance;
+        public final float threshold;
+
+        public Record(long timestampMs, long classId, Decision decision, int detail, long studentId,
+                      float distance, long runnerUpId, float runnerUpDistance, float threshold) {
+            this.timestampMs = timestampMs;
+            this.classId = classId;
+            this.decision = decision;
+            this.detail = detail;
+            this.studentId = studentId;
+            this.distance = distance;
+            this.runnerUpId = runnerUpId;
+            this.runnerUpDistance = runnerUpDistance;
+            this.threshold = threshold;
+        }
+
+        /**
+         * True if the student was matched, or was the nearest alternative to the match.
+         */
+        public boolean involves(long id) {
+            return studentId == id || runnerUpId == id;
+        }
+    }
+
+    // ==================== ENCODING ====================
+
+    /**
+     * Appends one record at the buffer's position. The buffer needs RECORD_SIZE bytes left.
+     */
+    public static void encode(ByteBuffer out, long timestampMs, long classId, Decision decision, int detail,
+                              long studentId, float distance, long runnerUpId, float runnerUpDistance,
+                              float threshold) {
+        out.putLong(timestampMs);
+        out.putLong(classId);
+        out.putLong(studentId);
+        out.putLong(runnerUpId);
+        out.putFloat(distance);
+        out.putFloat(runnerUpDistance);
+        out.putFloat(threshold);
+        out.put((byte) decision.ordinal());
+        out.put((byte) detail);
+        out.putShort((short) 0); // Reserved
+    }
+
+    /**
+     * The timestamp of the record starting at an absolute offset, without decoding it.
+     */
+    public static long timestampAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset);
+    }
+
+    static Record decode(ByteBuffer in) {
+        long timestampMs = in.getLong();
+        long classId = in.getLong();
+        long studentId = in.getLong();
+        long runnerUpId = in.getLong();
+        float distance = in.getFloat();
+        float runnerUpDistance = in.getFloat();
+        float threshold = in.getFloat();
+        int decision = in.get() & 0xFF;
+        int detail = in.get() & 0xFF;
+        in.getShort();
+        return new Record(timestampMs, classId,
+                decision < DECISIONS.length ? DECISIONS[decision] : Decision.NOT_RECOGNIZED, detail,
+                studentId, distance, runnerUpId, runnerUpDistance, threshold);
+    }
+
+    /**
+     * The header that starts every segment.
+     */
+    public static byte[] header(long epochDay) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(epochDay).array();
+    }
+
+    // ==================== SEGMENTS ====================
+
+    public static String segmentName(long epochDay, int sequence) {
+        return PREFIX + epochDay + "-" + sequence + SUFFIX;
+    }
+
+    /**
+     * The segments holding a day's decisions, oldest first.
+     */
+    public static List<File> segments(File dir, long epochDay) {
+        String dayPrefix = PREFIX + epochDay + "-";
+        File[] files = dir.listFiles((d, name) -> name.startsWith(dayPrefix) && name.endsWith(SUFFIX));
+        if (files == null) return new ArrayList<>();
+        List<File> segments = new ArrayList<>(Arrays.asList(files));
+        segments.sort(Comparator.comparingInt(AuditLog::sequenceOf));
+        return segments;
+    }
+
+    /**
+     * The sequence number to use for a new segment of a day.
+     */
+    public static int nextSequence(File dir, long epochDay) {
+        List<File> segments = segments(dir, epochDay);
+        return segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+    }
+
+    /**
+     * Deletes segments of days before oldestDay, then the oldest remaining segments
+     * until the log fits in maxBytes.
+     *
+     * @return the number of segments deleted
+     */
+    public static int prune(File dir, long oldestDay, long maxBytes) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return 0;
+        List<File> segments = new ArrayList<>(Arrays.asList(files));
+        segments.sort(Comparator.comparingLong(AuditLog::dayOf).thenComparingInt(AuditLog::sequenceOf));
+        long total = 0;
+        for (File segment : segments) total += segment.length();
+
+        int deleted = 0;
+        for (File segment : segments) {
+            if (dayOf(segment) >= oldestDay && total <= maxBytes) break;
+            long length = segment.length();
+            if (segment.delete()) {
+                total -= length;
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private static long dayOf(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.lastIndexOf('-')));
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE; // Unparseable names go first
+        }
+    }
+
+    private static int sequenceOf(File segment) {
+        String name = segment.getName();
+        try {
+            return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Every decision of a day that involves a student, as the match or the runner-up,
+     * oldest first. Pass a negative studentId for all of the day's decisions.
+     */
+    public static List<Record> query(File dir, long studentId, long epochDay) throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (File segment : segments(dir, epochDay)) {
+            try (Reader reader = new Reader(new FileInputStream(segment))) {
+                Record record;
+                while ((record = reader.next()) != null) {
+                    if (studentId < 0 || record.involves(studentId)) records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads one segment front to back.
+     */
+    public static final class Reader implements Closeable {
+        private static final int CHUNK_RECORDS = 1024;
+
+        private final InputStream in;
+        private final long epochDay;
+        private final ByteBuffer chunk = ByteBuffer.allocate(RECORD_SIZE * CHUNK_RECORDS);
+
+        public Reader(InputStream in) throws IOException {
+            this.in = in;
+            byte[] header = new byte[HEADER_SIZE];
+            if (readFully(header, 0, HEADER_SIZE) < HEADER_SIZE) throw new IOException("Not an audit log");
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            if (buffer.getInt() != MAGIC) throw new IOException("Not an audit log");
+            int version = buffer.getInt();
+            if (version != VERSION) throw new IOException("Unsupported audit log version " + version);
+            epochDay = buffer.getLong();
+            chunk.limit(0);
+        }
+
+        public long getEpochDay() {
+            return epochDay;
+        }
+
+        /**
+         * @return the next record, or null at the end of the segment
+         */
+        public Record next() throws IOException {
+            if (chunk.remaining() < RECORD_SIZE) {
+                chunk.clear();
+                int read = readFully(chunk.array(), 0, chunk.capacity());
+                chunk.limit(read - read % RECORD_SIZE); // Drop a trailing partial record
+                if (chunk.remaining() < RECORD_SIZE) return null;
+            }
+            return decode(chunk);
+        }
+
+        private int readFully(byte[] buffer, int offset, int length) throws IOException {
+            int total = 0;
+            while (total < length) {
+                int read = in.read(buffer, offset + total, length - total);
+                if (read < 0) break;
+                total += read;
+            }
+            return total;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
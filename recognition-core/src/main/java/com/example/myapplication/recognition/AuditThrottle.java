@@ -0,0 +1,74 @@
+package com.example.myapplication.recognition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Thins out decisions the camera repeats on every frame before they reach the AuditLog.
+ * A face that stays unrecognized, rejected or already present produces the same
+ * decision about 30 times a second; each distinct decision (class, outcome, detail and
+ * student) is logged when it first appears and then at most once per interval.
+ * Decisions that change attendance are always logged. Thread-safe.
+ */
+public final class AuditThrottle {
+
+    private static final int MAX_TRACKED = 256;
+
+    private static final class Key {
+        final long classId;
+        final AuditLog.Decision decision;
+        final int detail;
+        final long studentId;
+
+        Key(long classId, AuditLog.Decision decision, int detail, long studentId) {
+            this.classId = classId;
+            this.decision = decision;
+            this.detail = detail;
+            this.studentId = studentId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return classId == other.classId && decision == other.decision && detail == other.detail
+                    && studentId == other.studentId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(classId, decision, detail, studentId);
+        }
+    }
+
+    private final long intervalMs;
+    private final Map<Key, Long> lastLogged = new LinkedHashMap<Key, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+            return size() > MAX_TRACKED;
+        }
+    };
+
+    public AuditThrottle(long intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Whether a decision made at nowMs should be logged; records it if so.
+     */
+    public synchronized boolean shouldLog(long nowMs, long classId, AuditLog.Decision decision, int detail,
+                                          long studentId) {
+        if (!isRepetitive(decision)) return true;
+        Key key = new Key(classId, decision, detail, studentId);
+        Long last = lastLogged.get(key);
+        if (last != null && nowMs - last < intervalMs && nowMs >= last) return false;
+        lastLogged.put(key, nowMs);
+        return true;
+    }
+
+    private static boolean isRepetitive(AuditLog.Decision decision) {
+        return decision == AuditLog.Decision.ALREADY_PRESENT || decision == AuditLog.Decision.NOT_RECOGNIZED
+                || decision == AuditLog.Decision.REJECTED;
+    }
+}
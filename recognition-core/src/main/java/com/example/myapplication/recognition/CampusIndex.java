@@ -0,0 +1,136 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.Student;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One gallery over every enrolled student on campus, with a membership filter per class.
+ * Class searches walk the shared gallery and skip non-members through the filter,
+ * so no per-class copy of the templates is ever built.
+ * A student is a member of their home class (Student.getClassId()) and of any other
+ * class added with Builder.addToClass, e.g. an elective taken with another section.
+ */
+public class CampusIndex {
+
+    public static class Builder {
+        private final FaceGallery.Builder gallery = new FaceGallery.Builder();
+        private final Map<Long, Student> students = new HashMap<>();
+        private final Map<Long, Set<Long>> classIds = new HashMap<>();
+
+        public Builder add(Student student) {
+            gallery.add(student.getId(), student.getTemplateFeatures());
+            students.put(student.getId(), student);
+            return addToClass(student.getId(), student.getClassId());
+        }
+
+        /**
+         * Enrolls a student in a class besides their home class.
+         */
+        public Builder addToClass(long studentId, long classId) {
+            classIds.computeIfAbsent(studentId, id -> new HashSet<>()).add(classId);
+            return this;
+        }
+
+        public CampusIndex build() {
+            return new CampusIndex(gallery.build(), students, classIds);
+        }
+    }
+
+    private final FaceGallery gallery;
+    private final Map<Long, Student> students;
+    private final Map<Long, Set<Long>> classIds; // Student id -> classes they are enrolled in
+    private final Map<Long, BitSet> classMembers = new HashMap<>();
+    private DuplicateFinder duplicateFinder; // Built on first use
+
+    private CampusIndex(FaceGallery gallery, Map<Long, Student> students, Map<Long, Set<Long>> classIds) {
+        this.gallery = gallery;
+        this.students = students;
+        this.classIds = classIds;
+        for (int ordinal = 0; ordinal < gallery.size(); ordinal++) {
+            for (long classId : getClassIds(gallery.getStudentId(ordinal))) {
+                BitSet members = classMembers.get(classId);
+                if (members == null) {
+                    members = new BitSet(gallery.size());
+                    classMembers.put(classId, members);
+                }
+                members.set(ordinal);
+            }
+        }
+    }
+
+    public FaceGallery getGallery() {
+        return gallery;
+    }
+
+    /**
+     * Returns any student added to the index, including those without templates.
+     */
+    public Student getStudent(long studentId) {
+        return students.get(studentId);
+    }
+
+    /**
+     * Every student added to the index, including those without templates.
+     */
+    public Collection<Student> getStudents() {
+        return Collections.unmodifiableCollection(students.values());
+    }
+
+    /**
+     * Every class a student is enrolled in, home class included; empty if unknown.
+     */
+    public Set<Long> getClassIds(long studentId) {
+        Set<Long> ids = classIds.get(studentId);
+        return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+    }
+
+    /**
+     * Gallery ordinals of the students of a class that have templates. Returns a copy.
+     */
+    public BitSet getClassMembers(long classId) {
+        BitSet members = classMembers.get(classId);
+        return members != null ? (BitSet) members.clone() : new BitSet();
+    }
+
+    /**
+     * Returns the duplicate finder for this index, building its k-d tree on first use.
+     */
+    public synchronized DuplicateFinder getDuplicateFinder() {
+        if (duplicateFinder == null) {
+            duplicateFinder = new DuplicateFinder(gallery);
+        }
+        return duplicateFinder;
+    }
+
+    /**
+     * The enrolled student closest to a face sample within DUPLICATE_DISTANCE, skipping
+     * the student with campus id ownStudentId, e.g. when re-enrolling them. Null if none.
+     */
+    public Student findLookalike(float[] features, String ownStudentId) {
+        for (DuplicateFinder.Duplicate duplicate : getDuplicateFinder()
+                .findNear(features, DuplicateFinder.DUPLICATE_DISTANCE)) {
+            Student existing = students.get(duplicate.otherStudentId);
+            if (!existing.getStudentId().equals(ownStudentId)) {
+                return existing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts a live session for a class.
+     *
+     * @param crossClassFallback search the rest of the campus when nobody in the
+     *                           class matches; such matches are flagged crossClass
+     */
+    public SessionMatcher newSession(long classId, boolean crossClassFallback) {
+        return new SessionMatcher(gallery, getClassMembers(classId), crossClassFallback);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.myapplication.recognition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds students whose templates are so close that matching cannot tell them apart,
+ * usually the same person enrolled twice. Uses radius queries on a KdTree, so
+ * auditing the whole gallery costs roughly n log n rather than n^2 comparisons.
+ */
+public class DuplicateFinder {
+
+    // Half the recognition threshold: closer than this, two students are likely one person
+    public static final float DUPLICATE_DISTANCE = 0.2f;
+
+    /**
+     * A pair of students, or a new sample and an existing student, that look alike.
+     * studentId is -1 when the sample is not enrolled yet.
+     */
+    public static class Duplicate implements Comparable<Duplicate> {
+        public final long studentId;
+        public final long otherStudentId;
+        public final float distance;
+
+        public Duplicate(long studentId, long otherStudentId, float distance) {
+            this.studentId = studentId;
+            this.otherStudentId = otherStudentId;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Duplicate other) {
+            return Float.compare(distance, other.distance);
+        }
+    }
+
+    private final KdTree tree;
+
+    public DuplicateFinder(FaceGallery gallery) {
+        this.tree = new KdTree(gallery);
+    }
+
+    /**
+     * Lists enrolled students with a template within radius of a new sample, closest first.
+     */
+    public List<Duplicate> findNear(float[] features, float radius) {
+        FaceGallery gallery = tree.getGallery();
+        Map<Integer, Float> closest = new HashMap<>();
+        tree.forEachWithin(features, radius, (template, distance) ->
+                keepCloser(closest, gallery.ownerOf(template), distance));
+
+        List<Duplicate> duplicates = new ArrayList<>(closest.size());
+        for (Map.Entry<Integer, Float> entry : closest.entrySet()) {
+            duplicates.add(new Duplicate(-1, gallery.getStudentId(entry.getKey()), entry.getValue()));
+        }
+        Collections.sort(duplicates);
+        return duplicates;
+    }
+
+    /**
+     * Lists every pair of different students with templates within radius, closest first.
+     * Each pair is reported once with its closest template distance.
+     */
+    public List<Duplicate> findAllPairs(float radius) {
+        FaceGallery gallery = tree.getGallery();
+        float[] query = new float[gallery.getDimension()];
+        Map<Long, Float> closest = new HashMap<>(); // Key packs the two ordinals
+        for (int t = 0; t < gallery.getTemplateCount(); t++) {
+            int owner = gallery.ownerOf(t);
+            gallery.copyTemplate(t, query);
+            tree.forEachWithin(query, radius, (template, distance) -> {
+                int other = gallery.ownerOf(template);
+                if (other > owner) { // Each pair once, never a student with itself
+                    keepCloser(closest, ((long) owner << 32) | other, distance);
+                }
+            });
+        }
+
+        List<Duplicate> duplicates = new ArrayList<>(closest.size());
+        for (Map.Entry<Long, Float> entry : closest.entrySet()) {
+            long key = entry.getKey();
+            duplicates.add(new Duplicate(gallery.getStudentId((int) (key >>> 32)),
+                    gallery.getStudentId((int) key), entry.getValue()));
+        }
+        Collections.sort(duplicates);
+        return duplicates;
+    }
+
+    private static <K> void keepCloser(Map<K, Float> closest, K key, float distance) {
+        Float previous = closest.get(key);
+        if (previous == null || distance < previous) {
+            closest.put(key, distance);
+        }
+    }
+}
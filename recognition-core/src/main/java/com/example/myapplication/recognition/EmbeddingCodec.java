@@ -0,0 +1,39 @@
+package com.example.myapplication.recognition;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Converts feature vectors to and from the byte form stored in the database.
+ * Stored blobs use the platform's native order, which is little-endian on every
+ * supported device and on the JVMs used for tests.
+ */
+public final class EmbeddingCodec {
+
+    private EmbeddingCodec() {}
+
+    public static byte[] encode(float[] features) {
+        ByteBuffer buffer = ByteBuffer.allocate(features.length * 4);
+        buffer.order(ByteOrder.nativeOrder());
+        for (float f : features)
+            buffer.putFloat(f);
+        return buffer.array();
+    }
+
+    public static float[] decode(byte[] bytes) {
+        return decode(bytes, ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Decodes features written in a given byte order, e.g. little-endian import files.
+     * Trailing bytes that do not form a whole float are ignored.
+     */
+    public static float[] decode(byte[] bytes, ByteOrder order) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.order(order);
+        float[] floats = new float[bytes.length / 4];
+        for (int i = 0; i < floats.length; i++)
+            floats[i] = buffer.getFloat();
+        return floats;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.myapplication.recognition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of face templates to match against, grouped by student.
+ * Templates are stored in one flat float array so a search walks contiguous memory.
+ * A student may own several templates; searches report one result per student.
+ */
+public class FaceGallery implements FaceMatcher {
+
+    /**
+     * Result of a search: the closest student and the closest other student.
+     */
+    public static class Match {
+        public final long studentId;
+        public final float distance;
+        public final long runnerUpId; // -1 if the gallery holds a single student
+        public final float runnerUpDistance; // Float.MAX_VALUE if there is no runner-up
+        public final boolean crossClass; // Found outside the class being searched
+
+        public Match(long studentId, float distance, long runnerUpId, float runnerUpDistance) {
+            this(studentId, distance, runnerUpId, runnerUpDistance, false);
+        }
+
+        public Match(long studentId, float distance, long runnerUpId, float runnerUpDistance, boolean crossClass) {
+            this.studentId = studentId;
+            this.distance = distance;
+            this.runnerUpId = runnerUpId;
+            this.runnerUpDistance = runnerUpDistance;
+            this.crossClass = crossClass;
+        }
+
+        /**
+         * Converts the distance to a 0..1 confidence score for display.
+         */
+        public float getConfidence() {
+            return Math.max(0f, 1.0f - (distance / 2.0f));
+        }
+    }
+
+    public static class Builder {
+        private final List<Long> studentIds = new ArrayList<>();
+        private final List<List<float[]>> templates = new ArrayList<>();
+        private int dimension = -1;
+
+        /**
+         * Adds a student with its templates. Templates whose length differs from the
+         * first template added to the gallery are ignored; students without any usable
+         * template are not added.
+         */
+        public Builder add(long studentId, List<float[]> studentTemplates) {
+            List<float[]> usable = new ArrayList<>(studentTemplates.size());
+            for (float[] template : studentTemplates) {
+                if (template == null) continue;
+                if (dimension < 0) dimension = template.length;
+                if (template.length == dimension) usable.add(template);
+            }
+            if (!usable.isEmpty()) {
+                studentIds.add(studentId);
+                templates.add(usable);
+            }
+            return this;
+        }
+
+        public FaceGallery build() {
+            return new FaceGallery(this);
+        }
+    }
+
+    private final int dimension;
+    private final long[] studentIds; // By student ordinal
+    private final int[] templateStart; // Ordinal -> first template index; length is size + 1
+    private final float[] data; // Template t occupies [t * dimension, (t + 1) * dimension)
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+
+    private FaceGallery(Builder builder) {
+        int size = builder.studentIds.size();
+        int templateCount = 0;
+        for (List<float[]> list : builder.templates) {
+            templateCount += list.size();
+        }
+
+        dimension = Math.max(builder.dimension, 0);
+        studentIds = new long[size];
+        templateStart = new int[size + 1];
+        data = new float[templateCount * dimension];
+
+        int t = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            studentIds[ordinal] = builder.studentIds.get(ordinal);
+            ordinals.put(studentIds[ordinal], ordinal);
+            templateStart[ordinal] = t;
+            for (float[] template : builder.templates.get(ordinal)) {
+                System.arraycopy(template, 0, data, t * dimension, dimension);
+                t++;
+            }
+        }
+        templateStart[size] = t;
+    }
+
+    public int size() {
+        return studentIds.length;
+    }
+
+    public int getTemplateCount() {
+        return templateStart[studentIds.length];
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public long getStudentId(int ordinal) {
+        return studentIds[ordinal];
+    }
+
+    /**
+     * Returns the ordinal of the student owning a template.
+     */
+    public int ownerOf(int template) {
+        int low = 0, high = studentIds.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (templateStart[mid] <= template) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Component i of template t, for indexes built over the gallery.
+     */
+    float templateValue(int t, int i) {
+        return data[t * dimension + i];
+    }
+
+    /**
+     * Squared distance between the query and template t.
+     */
+    float squaredDistance(int t, float[] query) {
+        float sum = 0;
+        int offset = t * dimension;
+        for (int i = 0; i < dimension; i++) {
+            float diff = query[i] - data[offset + i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Copies template t into out, which must hold getDimension() values.
+     */
+    public void copyTemplate(int t, float[] out) {
+        System.arraycopy(data, t * dimension, out, 0, dimension);
+    }
+
+    /**
+     * Returns the ordinal of a student, or -1 if the student is not in the gallery.
+     */
+    public int ordinalOf(long studentId) {
+        Integer ordinal = ordinals.get(studentId);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Finds the closest student to the query over all of its templates.
+     *
+     * @return the match, or null if the gallery is empty or the query has the wrong length
+     */
+    public Match findNearest(float[] query) {
+        if (query == null || query.length != dimension || studentIds.length == 0) {
+            return null;
+        }
+
+        int best = -1, second = -1;
+        float bestDistance = Float.MAX_VALUE, secondDistance = Float.MAX_VALUE;
+        for (int ordinal = 0; ordinal < studentIds.length; ordinal++) {
+            float distance = studentDistance(ordinal, query);
+            if (distance < bestDistance) {
+                second = best;
+                secondDistance = bestDistance;
+                best = ordinal;
+                bestDistance = distance;
+            } else if (distance < secondDistance) {
+                second = ordinal;
+                secondDistance = distance;
+            }
+        }
+        return new Match(studentIds[best], bestDistance,
+                second >= 0 ? studentIds[second] : -1, secondDistance);
+    }
+
+    @Override
+    public Match findNearest(float[] query, float maxDistance) {
+        return findNearest(query, null, maxDistance);
+    }
+
+    /**
+     * Finds the closest student among the candidate ordinals, ignoring anything farther
+     * than maxDistance. A template is abandoned as soon as its partial distance exceeds
+     * the current runner-up, so most of the gallery is rejected after a few dimensions.
+     * If no other candidate lies within maxDistance, the runner-up id is -1 and its
+     * distance is maxDistance, a lower bound on the true runner-up distance.
+     *
+     * @param candidates ordinals to search, or null for the whole gallery
+     * @return the match, or null if no candidate lies within maxDistance
+     */
+    public Match findNearest(float[] query, BitSet candidates, float maxDistance) {
+        if (query == null || query.length != dimension) {
+            return null;
+        }
+
+        float limit = maxDistance * maxDistance;
+        int best = -1, second = -1;
+        float bestSquared = limit, secondSquared = limit;
+        int ordinal = candidates == null ? 0 : candidates.nextSetBit(0);
+        while (ordinal >= 0 && ordinal < studentIds.length) {
+            float squared = boundedSquaredDistance(ordinal, query, secondSquared);
+            if (squared < bestSquared) {
+                second = best;
+                secondSquared = bestSquared;
+                best = ordinal;
+                bestSquared = squared;
+            } else if (squared < secondSquared) {
+                second = ordinal;
+                secondSquared = squared;
+            }
+            ordinal = candidates == null ? ordinal + 1 : candidates.nextSetBit(ordinal + 1);
+        }
+        if (best < 0) {
+            return null;
+        }
+        return new Match(studentIds[best], (float) Math.sqrt(bestSquared),
+                second >= 0 ? studentIds[second] : -1, (float) Math.sqrt(secondSquared));
+    }
+
+    /**
+     * Squared distance to the closest template of a student, or a value of at least
+     * limit if every template is farther than limit.
+     */
+    private float boundedSquaredDistance(int ordinal, float[] query, float limit) {
+        float best = limit;
+        for (int t = templateStart[ordinal]; t < templateStart[ordinal + 1]; t++) {
+            float sum = 0;
+            int offset = t * dimension;
+            for (int i = 0; i < dimension && sum < best; i++) {
+                float diff = query[i] - data[offset + i];
+                sum += diff * diff;
+            }
+            if (sum < best) best = sum;
+        }
+        return best;
+    }
+
+    /**
+     * Distance from the query to the closest template of a student.
+     */
+    public float studentDistance(int ordinal, float[] query) {
+        float best = Float.MAX_VALUE;
+        for (int t = templateStart[ordinal]; t < templateStart[ordinal + 1]; t++) {
+            float sum = 0;
+            int offset = t * dimension;
+            for (int i = 0; i < dimension; i++) {
+                float diff = query[i] - data[offset + i];
+                sum += diff * diff;
+            }
+            if (sum < best) best = sum;
+        }
+        return (float) Math.sqrt(best);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.myapplication.recognition;
+
+/**
+ * Something that can match a face feature vector against enrolled students.
+ */
+public interface FaceMatcher {
+
+    /**
+     * Finds the closest student within maxDistance.
+     *
+     * @return the match, or null if nobody is close enough
+     */
+    FaceGallery.Match findNearest(float[] query, float maxDistance);
+}
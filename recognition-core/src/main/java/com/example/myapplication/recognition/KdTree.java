@@ -0,0 +1,130 @@
+package com.example.myapplication.recognition;
+
+/**
+ * Static k-d tree over every template of a gallery, for radius queries.
+ * The tree is implicit: templates are permuted so that each subrange's middle element
+ * is the splitting point for that range, which needs no node objects at all.
+ */
+public class KdTree {
+
+    public interface Visitor {
+        /**
+         * Called for every template within the radius, in no particular order.
+         */
+        void visit(int template, float distance);
+    }
+
+    private static final int LEAF_SIZE = 8; // Ranges this small are scanned linearly
+
+    private final FaceGallery gallery;
+    private final int[] order; // Permuted template indexes
+    private final byte[] splitDimension; // By position in order; only set for split points
+
+    public KdTree(FaceGallery gallery) {
+        this.gallery = gallery;
+        int count = gallery.getTemplateCount();
+        order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        splitDimension = new byte[count];
+        if (gallery.getDimension() > 0) {
+            build(0, count);
+        }
+    }
+
+    public FaceGallery getGallery() {
+        return gallery;
+    }
+
+    /**
+     * Visits every template within radius of the query.
+     */
+    public void forEachWithin(float[] query, float radius, Visitor visitor) {
+        if (query == null || query.length != gallery.getDimension() || order.length == 0) {
+            return;
+        }
+        search(0, order.length, query, radius * radius, visitor);
+    }
+
+    private void build(int low, int high) {
+        if (high - low <= LEAF_SIZE) {
+            return;
+        }
+        int dimension = widestDimension(low, high);
+        int mid = (low + high) >>> 1;
+        select(low, high - 1, mid, dimension);
+        splitDimension[mid] = (byte) dimension;
+        build(low, mid);
+        build(mid + 1, high);
+    }
+
+    private void search(int low, int high, float[] query, float radiusSquared, Visitor visitor) {
+        if (high - low <= LEAF_SIZE) {
+            for (int i = low; i < high; i++) {
+                visitIfWithin(order[i], query, radiusSquared, visitor);
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        int dimension = splitDimension[mid];
+        visitIfWithin(order[mid], query, radiusSquared, visitor);
+
+        float diff = query[dimension] - gallery.templateValue(order[mid], dimension);
+        boolean leftFirst = diff < 0;
+        search(leftFirst ? low : mid + 1, leftFirst ? mid : high, query, radiusSquared, visitor);
+        if (diff * diff <= radiusSquared) {
+            search(leftFirst ? mid + 1 : low, leftFirst ? high : mid, query, radiusSquared, visitor);
+        }
+    }
+
+    private void visitIfWithin(int template, float[] query, float radiusSquared, Visitor visitor) {
+        float squared = gallery.squaredDistance(template, query);
+        if (squared <= radiusSquared) {
+            visitor.visit(template, (float) Math.sqrt(squared));
+        }
+    }
+
+    private int widestDimension(int low, int high) {
+        int best = 0;
+        float bestSpread = -1;
+        for (int d = 0; d < gallery.getDimension(); d++) {
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+            for (int i = low; i < high; i++) {
+                float value = gallery.templateValue(order[i], d);
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            if (max - min > bestSpread) {
+                bestSpread = max - min;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Quickselect: places the k-th smallest value along the dimension at position k,
+     * with smaller or equal values before it and larger or equal values after it.
+     */
+    private void select(int left, int right, int k, int dimension) {
+        while (right > left) {
+            float pivot = gallery.templateValue(order[(left + right) >>> 1], dimension);
+            int i = left, j = right;
+            while (i <= j) {
+                while (gallery.templateValue(order[i], dimension) < pivot) i++;
+                while (gallery.templateValue(order[j], dimension) > pivot) j--;
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.myapplication.recognition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Several class sessions sharing one camera, e.g. a kiosk at a building entrance that
+ * serves every lecture in a corridor. One SessionMatcher searches the union of the open
+ * rosters, so a face costs one search however many classes are open. A recognized
+ * student is then routed to every open session whose roster they are on.
+ * Classes can be opened and closed while the camera runs; students already present in
+ * the classes that stay open remain present.
+ * Not thread-safe; use it from the thread that receives detector results.
+ */
+public class KioskSessions implements FaceMatcher {
+
+    private static final class Session {
+        final BitSet members;
+        final Set<Long> present = new LinkedHashSet<>();
+
+        Session(BitSet members) {
+            this.members = members;
+        }
+    }
+
+    private final CampusIndex index;
+    private final Map<Long, Session> sessions = new LinkedHashMap<>();
+    private SessionMatcher matcher; // Over the open rosters; null while none are open
+
+    public KioskSessions(CampusIndex index) {
+        this.index = index;
+    }
+
+    public CampusIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return false if the class was already open
+     */
+    public boolean open(long classId) {
+        if (sessions.containsKey(classId)) return false;
+        sessions.put(classId, new Session(index.getClassMembers(classId)));
+        rebuildMatcher();
+        return true;
+    }
+
+    /**
+     * Closes a session, e.g. when its lecture ends; its presence is dropped.
+     *
+     * @return false if the class was not open
+     */
+    public boolean close(long classId) {
+        if (sessions.remove(classId) == null) return false;
+        rebuildMatcher();
+        return true;
+    }
+
+    private void rebuildMatcher() {
+        if (sessions.isEmpty()) {
+            matcher = null;
+            return;
+        }
+        BitSet roster = new BitSet(index.getGallery().size());
+        for (Session session : sessions.values()) roster.or(session.members);
+        matcher = new SessionMatcher(index.getGallery(), roster, false);
+        for (Session session : sessions.values()) {
+            for (long studentId : session.present) matcher.markPresent(studentId);
+        }
+    }
+
+    public Set<Long> getOpenClasses() {
+        return Collections.unmodifiableSet(sessions.keySet());
+    }
+
+    public boolean isOpen(long classId) {
+        return sessions.containsKey(classId);
+    }
+
+    /**
+     * Students present in an open session, in arrival order; empty if it is not open.
+     */
+    public Set<Long> getPresent(long classId) {
+        Session session = sessions.get(classId);
+        return session != null ? Collections.unmodifiableSet(session.present) : Collections.emptySet();
+    }
+
+    @Override
+    public FaceGallery.Match findNearest(float[] query, float maxDistance) {
+        return matcher != null ? matcher.findNearest(query, maxDistance) : null;
+    }
+
+    /**
+     * Marks a student present in every open session they are enrolled in.
+     *
+     * @return the classes the student was newly marked present in
+     */
+    public List<Long> markPresent(long studentId) {
+        List<Long> routed = new ArrayList<>(1);
+        int ordinal = index.getGallery().ordinalOf(studentId);
+        if (ordinal < 0) return routed;
+        for (Map.Entry<Long, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (session.members.get(ordinal) && session.present.add(studentId)) {
+                routed.add(entry.getKey());
+            }
+        }
+        if (!routed.isEmpty()) matcher.markPresent(studentId);
+        return routed;
+    }
+
+    /**
+     * Number of students still absent across all open sessions.
+     */
+    public int getAbsentCount() {
+        return matcher != null ? matcher.getAbsentCount() : 0;
+    }
+}
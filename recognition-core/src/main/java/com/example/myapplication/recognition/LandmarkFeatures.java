@@ -0,0 +1,63 @@
+package com.example.myapplication.recognition;
+
+/**
+ * Turns six facial landmark positions into a feature vector of distance ratios.
+ * Every distance is divided by the inter-ocular distance, which makes the features
+ * independent of face size and position in the frame. Landmarks are passed as plain
+ * coordinates so this runs without the detector's types.
+ */
+public final class LandmarkFeatures {
+
+    /** Landmark order in the points array; each landmark takes an x and a y. */
+    public static final int LEFT_EYE = 0;
+    public static final int RIGHT_EYE = 1;
+    public static final int NOSE_BASE = 2;
+    public static final int MOUTH_LEFT = 3;
+    public static final int MOUTH_RIGHT = 4;
+    public static final int MOUTH_BOTTOM = 5;
+    public static final int LANDMARK_COUNT = 6;
+
+    public static final int DIMENSION = 7;
+
+    private LandmarkFeatures() {}
+
+    /**
+     * Extracts features from landmark coordinates laid out as x0, y0, x1, y1, ...
+     * in the order of the constants above.
+     *
+     * @return the features, or null if the eyes coincide
+     */
+    public static float[] extract(float[] points) {
+        if (points.length < LANDMARK_COUNT * 2) {
+            throw new IllegalArgumentException("Expected " + LANDMARK_COUNT * 2 + " coordinates");
+        }
+        float leftEyeX = points[LEFT_EYE * 2], leftEyeY = points[LEFT_EYE * 2 + 1];
+        float rightEyeX = points[RIGHT_EYE * 2], rightEyeY = points[RIGHT_EYE * 2 + 1];
+        float noseX = points[NOSE_BASE * 2], noseY = points[NOSE_BASE * 2 + 1];
+        float mouthLeftX = points[MOUTH_LEFT * 2], mouthLeftY = points[MOUTH_LEFT * 2 + 1];
+        float mouthRightX = points[MOUTH_RIGHT * 2], mouthRightY = points[MOUTH_RIGHT * 2 + 1];
+        float mouthBottomX = points[MOUTH_BOTTOM * 2], mouthBottomY = points[MOUTH_BOTTOM * 2 + 1];
+
+        // Inter-ocular distance (IOD) is the reference scale
+        float iod = distance(leftEyeX, leftEyeY, rightEyeX, rightEyeY);
+        if (iod == 0)
+            return null; // Avoid division by zero
+
+        float eyeMidX = (leftEyeX + rightEyeX) / 2, eyeMidY = (leftEyeY + rightEyeY) / 2;
+        float mouthMidX = (mouthLeftX + mouthRightX) / 2, mouthMidY = (mouthLeftY + mouthRightY) / 2;
+
+        float[] features = new float[DIMENSION];
+        features[0] = distance(eyeMidX, eyeMidY, noseX, noseY) / iod;
+        features[1] = distance(eyeMidX, eyeMidY, mouthMidX, mouthMidY) / iod;
+        features[2] = distance(noseX, noseY, mouthMidX, mouthMidY) / iod;
+        features[3] = distance(mouthLeftX, mouthLeftY, mouthRightX, mouthRightY) / iod;
+        features[4] = distance(noseX, noseY, mouthBottomX, mouthBottomY) / iod;
+        features[5] = distance(leftEyeX, leftEyeY, mouthLeftX, mouthLeftY) / iod;
+        features[6] = distance(rightEyeX, rightEyeY, mouthRightX, mouthRightY) / iod;
+        return features;
+    }
+
+    private static float distance(float x1, float y1, float x2, float y2) {
+        return (float) Math.hypot(x1 - x2, y1 - y2);
+    }
+}
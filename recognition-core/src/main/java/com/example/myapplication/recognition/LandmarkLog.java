@@ -0,0 +1,367 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.FaceTemplate;
+import com.example.myapplication.models.Student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary log of what the detector reported for each analysed frame, so a
+ * live session can be replayed off-device without the camera or the people in it.
+ *
+ * Format: int MAGIC, byte VERSION, then a header holding the class, the recognition
+ * threshold and the templates of the class roster, so a log replays on its own. Then
+ * one entry per frame: a varint timestamp delta in microseconds and a face count.
+ * Each face has a tracking id, its box as varints, Euler angles in hundredths of a
+ * degree, a bitmask of present landmarks and their positions relative to the box in
+ * eighths of a pixel, followed by the quality gate verdict and the live match.
+ * Signed numbers are zigzag-encoded varints. The stream ends with a face count of -1.
+ * A face count of -2 instead introduces a student from another class, appended when
+ * the session first matches them; readers add it to the header's students. Version 1
+ * logs hold the whole campus in the header and no appended students.
+ */
+public final class LandmarkLog {
+
+    public static final int MAGIC = 0x41544c4c; // "ATLL"
+    public static final int VERSION = 2;
+
+    /** Live outcome of a face that was not matched to anyone. */
+    public static final long NO_MATCH = -1;
+    /** Gate verdict of a face that passed; other values are the app's rejection codes. */
+    public static final int ACCEPTED = 0;
+
+    private static final float POSITION_SCALE = 8f; // Eighths of a pixel
+    private static final float ANGLE_SCALE = 100f; // Hundredths of a degree
+    private static final int END = -1;
+    private static final int STUDENT = -2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private LandmarkLog() {}
+
+    /** The session a log was recorded in. */
+    public static final class Header {
+        public final long classId;
+        public final boolean crossClassFallback;
+        public final float recognitionThreshold;
+        public final List<Student> students; // Roster and cross-class matches, with templates
+
+        public Header(long classId, boolean crossClassFallback, float recognitionThreshold, List<Student> students) {
+            this.classId = classId;
+            this.crossClassFallback = crossClassFallback;
+            this.recognitionThreshold = recognitionThreshold;
+            this.students = students;
+        }
+
+        /**
+         * Rebuilds the index the session matched against.
+         */
+        public CampusIndex buildIndex() {
+            CampusIndex.Builder builder = new CampusIndex.Builder();
+            for (Student student : students) {
+                builder.add(student);
+            }
+            return builder.build();
+        }
+    }
+
+    /** One detected face in a frame. Missing landmarks are NaN. */
+    public static final class Face {
+        public final int trackingId; // -1 when tracking is off
+        public final int left, top, right, bottom;
+        public final float yaw, pitch, roll;
+        public final float[] points; // LandmarkFeatures layout
+        public final int gateVerdict; // ACCEPTED, or the rejection code
+        public final long liveMatch; // Student id matched live, or NO_MATCH
+
+        public Face(int trackingId, int left, int top, int right, int bottom, float yaw, float pitch, float roll,
+                    float[] points, int gateVerdict, long liveMatch) {
+            this.trackingId = trackingId;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.roll = roll;
+            this.points = points;
+            this.gateVerdict = gateVerdict;
+            this.liveMatch = liveMatch;
+        }
+
+        public boolean hasAllLandmarks() {
+            for (float p : points) {
+                if (Float.isNaN(p)) return false;
+            }
+            return true;
+        }
+    }
+
+    /** One analysed frame; faces is empty when nothing was detected. */
+    public static final class Frame {
+        public final long timestampMicros;
+        public final List<Face> faces;
+
+        public Frame(long timestampMicros, List<Face> faces) {
+            this.timestampMicros = timestampMicros;
+            this.faces = faces;
+        }
+    }
+
+    // ==================== WRITER ====================
+
+    /**
+     * Appends frames to a stream. Not thread-safe; use one writer thread.
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private long lastTimestamp = 0;
+        private long frameCount = 0;
+
+        public Writer(OutputStream stream, Header header) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            writeSigned(out, header.classId);
+            out.writeBoolean(header.crossClassFallback);
+            out.writeFloat(header.recognitionThreshold);
+            writeVarLong(out, header.students.size());
+            for (Student student : header.students) {
+                writeStudent(student);
+            }
+        }
+
+        /**
+         * Appends a student missing from the header, e.g. one matched from another class.
+         */
+        public void addStudent(Student student) throws IOException {
+            writeSigned(out, 0);
+            writeSigned(out, STUDENT);
+            writeStudent(student);
+        }
+
+        private void writeStudent(Student student) throws IOException {
+            writeSigned(out, student.getId());
+            writeSigned(out, student.getClassId());
+            List<float[]> templates = new ArrayList<>();
+            for (float[] template : student.getTemplateFeatures()) {
+                if (template != null) templates.add(template);
+            }
+            writeVarLong(out, templates.size());
+            for (float[] template : templates) {
+                writeVarLong(out, template.length);
+                for (float f : template) out.writeFloat(f);
+            }
+        }
+
+        public void write(Frame frame) throws IOException {
+            long delta = frame.timestampMicros - lastTimestamp;
+            lastTimestamp = frame.timestampMicros;
+            writeSigned(out, delta);
+            writeSigned(out, frame.faces.size());
+            for (Face face : frame.faces) {
+                writeFace(face);
+            }
+            frameCount++;
+        }
+
+        private void writeFace(Face face) throws IOException {
+            writeSigned(out, face.trackingId);
+            writeSigned(out, face.left);
+            writeSigned(out, face.top);
+            writeVarLong(out, Math.max(0, face.right - face.left));
+            writeVarLong(out, Math.max(0, face.bottom - face.top));
+            writeSigned(out, Math.round(face.yaw * ANGLE_SCALE));
+            writeSigned(out, Math.round(face.pitch * ANGLE_SCALE));
+            writeSigned(out, Math.round(face.roll * ANGLE_SCALE));
+
+            int present = 0;
+            for (int i = 0; i < LandmarkFeatures.LANDMARK_COUNT; i++) {
+                if (!Float.isNaN(face.points[i * 2]) && !Float.isNaN(face.points[i * 2 + 1])) {
+                    present |= 1 << i;
+                }
+            }
+            out.writeByte(present);
+            for (int i = 0; i < LandmarkFeatures.LANDMARK_COUNT; i++) {
+                if ((present & (1 << i)) == 0) continue;
+                writeSigned(out, Math.round((face.points[i * 2] - face.left) * POSITION_SCALE));
+                writeSigned(out, Math.round((face.points[i * 2 + 1] - face.top) * POSITION_SCALE));
+            }
+            out.writeByte(face.gateVerdict);
+            writeSigned(out, face.liveMatch);
+        }
+
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        /**
+         * Writes the end marker and closes the stream.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                writeSigned(out, 0);
+                writeSigned(out, END);
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    // ==================== READER ====================
+
+    /**
+     * Reads a log front to back. A log cut short, e.g. by the app being killed, reads
+     * up to its last complete frame.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final Header header;
+        private long lastTimestamp = 0;
+        private boolean done = false;
+
+        public Reader(InputStream stream) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+            if (in.readInt() != MAGIC) throw new IOException("Not a landmark log");
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported landmark log version " + version);
+            }
+
+            long classId = readSigned(in);
+            boolean crossClass = in.readBoolean();
+            float threshold = in.readFloat();
+            int studentCount = (int) readVarLong(in);
+            List<Student> students = new ArrayList<>(studentCount);
+            for (int s = 0; s < studentCount; s++) {
+                students.add(readStudent());
+            }
+            header = new Header(classId, crossClass, threshold, students);
+        }
+
+        private Student readStudent() throws IOException {
+            Student student = new Student();
+            student.setId(readSigned(in));
+            student.setClassId(readSigned(in));
+            int templateCount = (int) readVarLong(in);
+            List<FaceTemplate> templates = new ArrayList<>(templateCount);
+            for (int t = 0; t < templateCount; t++) {
+                float[] features = new float[(int) readVarLong(in)];
+                for (int i = 0; i < features.length; i++) features[i] = in.readFloat();
+                templates.add(new FaceTemplate(features, 1));
+            }
+            student.setTemplates(templates);
+            return student;
+        }
+
+        /**
+         * The header; its students grow as appended students are read, so build the
+         * index after reading the frames.
+         */
+        public Header getHeader() {
+            return header;
+        }
+
+        /**
+         * @return the next frame, or null at the end of the log
+         */
+        public Frame next() throws IOException {
+            if (done) return null;
+            try {
+                long delta = readSigned(in);
+                int faceCount = (int) readSigned(in);
+                while (faceCount == STUDENT) {
+                    header.students.add(readStudent());
+                    delta += readSigned(in);
+                    faceCount = (int) readSigned(in);
+                }
+                if (faceCount == END) {
+                    done = true;
+                    return null;
+                }
+                List<Face> faces = new ArrayList<>(faceCount);
+                for (int i = 0; i < faceCount; i++) {
+                    faces.add(readFace());
+                }
+                lastTimestamp += delta;
+                return new Frame(lastTimestamp, faces);
+            } catch (EOFException e) {
+                done = true; // Truncated log
+                return null;
+            }
+        }
+
+        private Face readFace() throws IOException {
+            int trackingId = (int) readSigned(in);
+            int left = (int) readSigned(in);
+            int top = (int) readSigned(in);
+            int right = left + (int) readVarLong(in);
+            int bottom = top + (int) readVarLong(in);
+            float yaw = readSigned(in) / ANGLE_SCALE;
+            float pitch = readSigned(in) / ANGLE_SCALE;
+            float roll = readSigned(in) / ANGLE_SCALE;
+
+            int present = in.readUnsignedByte();
+            float[] points = new float[LandmarkFeatures.LANDMARK_COUNT * 2];
+            Arrays.fill(points, Float.NaN);
+            for (int i = 0; i < LandmarkFeatures.LANDMARK_COUNT; i++) {
+                if ((present & (1 << i)) == 0) continue;
+                points[i * 2] = left + readSigned(in) / POSITION_SCALE;
+                points[i * 2 + 1] = top + readSigned(in) / POSITION_SCALE;
+            }
+            int gateVerdict = in.readUnsignedByte();
+            long liveMatch = readSigned(in);
+            return new Face(trackingId, left, top, right, bottom, yaw, pitch, roll, points, gateVerdict, liveMatch);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // ==================== VARINTS ====================
+
+    private static void writeSigned(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readSigned(DataInputStream in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
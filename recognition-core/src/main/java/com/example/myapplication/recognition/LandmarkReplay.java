@@ -0,0 +1,173 @@
+package com.example.myapplication.recognition;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Replays a LandmarkLog through feature extraction, matching and the session logic
+ * at full speed, as the live pipeline ran them after detection. Faces the live
+ * quality gate rejected are skipped, since the gate needs pixels the log does not keep.
+ *
+ * Usage: LandmarkReplay [--threshold T] [--repeat N] log...
+ */
+public final class LandmarkReplay {
+
+    /** What one replay of a log produced, and how long it took. */
+    public static final class Result {
+        public long frames;
+        public long faces;
+        public long gateRejected;
+        public long missingLandmarks;
+        public long matched;
+        public long unmatched;
+        public long agreedWithLive; // Same student, or no match in both
+        public long disagreedWithLive;
+        public final Set<Long> present = new LinkedHashSet<>(); // In order of recognition
+        public final Set<Long> crossClass = new LinkedHashSet<>();
+        public long elapsedNanos;
+        long[] frameNanos = new long[1024];
+
+        void recordFrame(long nanos) {
+            if (frames > frameNanos.length - 1) {
+                frameNanos = Arrays.copyOf(frameNanos, frameNanos.length * 2);
+            }
+            frameNanos[(int) frames] = nanos;
+        }
+
+        public double getFramesPerSecond() {
+            return elapsedNanos == 0 ? 0 : frames * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Per-frame processing time at a quantile between 0 and 1, in nanoseconds.
+         */
+        public long getFrameNanos(double quantile) {
+            if (frames == 0) return 0;
+            long[] sorted = Arrays.copyOf(frameNanos, (int) frames);
+            Arrays.sort(sorted);
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+            return sorted[Math.max(0, index)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "frames=%d faces=%d gateRejected=%d missingLandmarks=%d matched=%d unmatched=%d%n"
+                            + "present=%d crossClass=%d agreedWithLive=%d disagreedWithLive=%d%n"
+                            + "throughput=%.0f frames/s p50=%.2f us p99=%.2f us max=%.2f us",
+                    frames, faces, gateRejected, missingLandmarks, matched, unmatched,
+                    present.size(), crossClass.size(), agreedWithLive, disagreedWithLive,
+                    getFramesPerSecond(), getFrameNanos(0.5) / 1e3, getFrameNanos(0.99) / 1e3,
+                    getFrameNanos(1.0) / 1e3);
+        }
+    }
+
+    private LandmarkReplay() {}
+
+    /**
+     * Replays frames already read into memory, so I/O does not count toward timings.
+     *
+     * @param threshold recognition threshold, or NaN to use the one the log was recorded with
+     */
+    public static Result replay(LandmarkLog.Header header, List<LandmarkLog.Frame> frames, float threshold) {
+        float maxDistance = Float.isNaN(threshold) ? header.recognitionThreshold : threshold;
+        CampusIndex index = header.buildIndex();
+        SessionMatcher session = index.newSession(header.classId, header.crossClassFallback);
+
+        Result result = new Result();
+        long start = System.nanoTime();
+        for (LandmarkLog.Frame frame : frames) {
+            long frameStart = System.nanoTime();
+            for (LandmarkLog.Face face : frame.faces) {
+                result.faces++;
+                if (face.gateVerdict != LandmarkLog.ACCEPTED) {
+                    result.gateRejected++;
+                    continue;
+                }
+                float[] features = face.hasAllLandmarks() ? LandmarkFeatures.extract(face.points) : null;
+                if (features == null) {
+                    result.missingLandmarks++;
+                    compareWithLive(result, face, LandmarkLog.NO_MATCH);
+                    continue;
+                }
+                FaceGallery.Match match = session.findNearest(features, maxDistance);
+                if (match == null) {
+                    result.unmatched++;
+                    compareWithLive(result, face, LandmarkLog.NO_MATCH);
+                    continue;
+                }
+                result.matched++;
+                compareWithLive(result, face, match.studentId);
+                if (session.markPresent(match.studentId)) {
+                    (match.crossClass ? result.crossClass : result.present).add(match.studentId);
+                }
+            }
+            result.recordFrame(System.nanoTime() - frameStart);
+            result.frames++;
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static void compareWithLive(Result result, LandmarkLog.Face face, long replayed) {
+        if (face.liveMatch == replayed) result.agreedWithLive++;
+        else result.disagreedWithLive++;
+    }
+
+    /**
+     * Reads every frame of a log.
+     */
+    public static List<LandmarkLog.Frame> readAll(LandmarkLog.Reader reader) throws IOException {
+        List<LandmarkLog.Frame> frames = new ArrayList<>();
+        LandmarkLog.Frame frame;
+        while ((frame = reader.next()) != null) {
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    public static void main(String[] args) throws IOException {
+        float threshold = Float.NaN;
+        int repeat = 1;
+        List<String> logs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threshold") && i + 1 < args.length) {
+                threshold = Float.parseFloat(args[++i]);
+            } else if (args[i].equals("--repeat") && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            } else {
+                logs.add(args[i]);
+            }
+        }
+        if (logs.isEmpty()) {
+            System.err.println("Usage: LandmarkReplay [--threshold T] [--repeat N] log...");
+            System.exit(2);
+        }
+
+        for (String path : logs) {
+            LandmarkLog.Header header;
+            List<LandmarkLog.Frame> frames;
+            try (InputStream in = new FileInputStream(path);
+                 LandmarkLog.Reader reader = new LandmarkLog.Reader(in)) {
+                header = reader.getHeader();
+                frames = readAll(reader);
+            }
+            System.out.println(path + ": class " + header.classId + ", " + header.students.size()
+                    + " students, " + frames.size() + " frames");
+            // Earlier runs warm up the JIT; the last one is reported
+            Result result = null;
+            for (int r = 0; r < repeat; r++) {
+                result = replay(header, frames, threshold);
+            }
+            System.out.println(result);
+            System.out.println("present ids: " + result.present);
+        }
+    }
+}
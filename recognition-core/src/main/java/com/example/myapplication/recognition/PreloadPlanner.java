@@ -0,0 +1,74 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.ClassSchedule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides from the weekly timetable which classes should have their recognition data
+ * ready. A class is due from leadMinutes before it starts until graceMinutes after it
+ * ends, so its roster is loaded before students queue and dropped once the session is
+ * over. Times wrap around the week, so a Monday 08:00 class is due late on Sunday
+ * when the lead time reaches back that far.
+ */
+public class PreloadPlanner {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final List<ClassSchedule> slots;
+    private final int leadMinutes;
+    private final int graceMinutes;
+
+    public PreloadPlanner(List<ClassSchedule> slots, int leadMinutes, int graceMinutes) {
+        this.slots = slots;
+        this.leadMinutes = leadMinutes;
+        this.graceMinutes = graceMinutes;
+    }
+
+    /**
+     * Classes due at a time, most urgent first: classes under way, latest start first,
+     * then upcoming ones by how soon they start, then those that just ended. A class
+     * with several slots is listed once, at its most urgent.
+     *
+     * @param dayOfWeek 1 (Monday) to 7 (Sunday)
+     */
+    public List<Long> classesDue(int dayOfWeek, int minuteOfDay) {
+        int now = (dayOfWeek - 1) * MINUTES_PER_DAY + minuteOfDay;
+        Map<Long, Integer> urgency = new HashMap<>(); // Lower is more urgent
+        for (ClassSchedule slot : slots) {
+            int start = (slot.getDayOfWeek() - 1) * MINUTES_PER_DAY + slot.getStartMinute();
+            int length = slot.getEndMinute() - slot.getStartMinute();
+            int sinceStart = Math.floorMod(now - start, MINUTES_PER_WEEK);
+            int untilStart = Math.floorMod(start - now, MINUTES_PER_WEEK);
+            int key;
+            if (sinceStart < length) {
+                key = sinceStart - MINUTES_PER_WEEK; // Under way
+            } else if (untilStart <= leadMinutes) {
+                key = untilStart;
+            } else if (sinceStart <= length + graceMinutes) {
+                key = MINUTES_PER_WEEK + sinceStart; // Over, but stragglers may still be saved
+            } else {
+                continue;
+            }
+            Integer previous = urgency.get(slot.getClassId());
+            if (previous == null || key < previous) urgency.put(slot.getClassId(), key);
+        }
+
+        List<Long> due = new ArrayList<>(urgency.keySet());
+        due.sort((a, b) -> Integer.compare(urgency.get(a), urgency.get(b)));
+        return due;
+    }
+
+    /**
+     * The class to offer first when a session screen opens: the one under way that
+     * started most recently, or else the next to start. Null if nothing is due.
+     */
+    public Long currentClass(int dayOfWeek, int minuteOfDay) {
+        List<Long> due = classesDue(dayOfWeek, minuteOfDay);
+        return due.isEmpty() ? null : due.get(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.FaceTemplate;
+
+import java.util.List;
+
+/**
+ * Keeps each student's templates to a small, representative set of prototypes.
+ * New samples are added as prototypes and, once over budget, the two closest
+ * prototypes are merged into their weighted mean (online agglomerative clustering).
+ */
+public final class PrototypeLearner {
+
+    public static final int MAX_PROTOTYPES = 5;
+
+    // A live match is learned only when it is clearly the right student...
+    private static final float LEARN_DISTANCE = 0.25f;
+    private static final float LEARN_MARGIN = 0.1f;
+    // ...and different enough from the existing prototypes to add information
+    private static final float NOVELTY_DISTANCE = 0.08f;
+
+    private PrototypeLearner() {}
+
+    /**
+     * Returns true if a live match is confident and novel enough to become a template.
+     */
+    public static boolean shouldLearn(FaceGallery.Match match) {
+        return match.distance >= NOVELTY_DISTANCE
+                && match.distance <= LEARN_DISTANCE
+                && match.runnerUpDistance - match.distance >= LEARN_MARGIN;
+    }
+
+    /**
+     * Adds a sample to the prototypes, merging the closest pair while over maxPrototypes.
+     * Merged prototypes lose their database id and must be saved as a whole.
+     */
+    public static void addPrototype(List<FaceTemplate> prototypes, float[] features, int maxPrototypes) {
+        prototypes.add(new FaceTemplate(features, 1));
+        while (prototypes.size() > maxPrototypes) {
+            mergeClosestPair(prototypes);
+        }
+    }
+
+    private static void mergeClosestPair(List<FaceTemplate> prototypes) {
+        int bestI = 0, bestJ = 1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < prototypes.size(); i++) {
+            for (int j = i + 1; j < prototypes.size(); j++) {
+                float distance = squaredDistance(prototypes.get(i).getFeatures(), prototypes.get(j).getFeatures());
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestI = i;
+                    bestJ = j;
+                }
+            }
+        }
+
+        FaceTemplate a = prototypes.get(bestI);
+        FaceTemplate b = prototypes.get(bestJ);
+        int weight = a.getWeight() + b.getWeight();
+        float[] merged = new float[a.getFeatures().length];
+        for (int k = 0; k < merged.length; k++) {
+            merged[k] = (a.getFeatures()[k] * a.getWeight() + b.getFeatures()[k] * b.getWeight()) / weight;
+        }
+        prototypes.set(bestI, new FaceTemplate(merged, weight));
+        prototypes.remove(bestJ);
+    }
+
+    private static float squaredDistance(float[] f1, float[] f2) {
+        if (f1.length != f2.length)
+            return Float.MAX_VALUE;
+        float sum = 0;
+        for (int i = 0; i < f1.length; i++) {
+            float diff = f1[i] - f2[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
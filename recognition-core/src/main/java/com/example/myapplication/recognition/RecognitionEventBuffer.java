@@ -0,0 +1,164 @@
+package com.example.myapplication.recognition;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free stream of recognition events.
+ * Producers publish without blocking and without waiting for consumers. Each consumer
+ * reads through its own Cursor, in batches, at whatever rate suits it: the UI once
+ * per frame, a logger or persistence layer on its own schedule. The ring never grows;
+ * a consumer that falls more than a full ring behind skips the overwritten events and
+ * counts them as lost, so a stalled consumer cannot hold back producers or memory.
+ */
+public class RecognitionEventBuffer {
+
+    public enum Kind {
+        PRESENT,
+        CROSS_CLASS // Present, but enrolled in another class
+    }
+
+    public enum Source {
+        CAMERA,
+        PHOTO,
+        PEER // Merged from another device's PresenceSet
+    }
+
+    public static final class Event {
+        public final long sequence;
+        public final Kind kind;
+        public final Source source;
+        public final long studentId;
+        public final long classId;
+        public final float distance; // NaN when the source has no match distance
+        public final long timestampMs;
+
+        Event(long sequence, Kind kind, Source source, long studentId, long classId, float distance,
+              long timestampMs) {
+            this.sequence = sequence;
+            this.kind = kind;
+            this.source = source;
+            this.studentId = studentId;
+            this.classId = classId;
+            this.distance = distance;
+            this.timestampMs = timestampMs;
+        }
+    }
+
+    private final int mask;
+    private final AtomicReferenceArray<Event> slots;
+    private final AtomicLong next = new AtomicLong(); // Next sequence to claim
+    private final List<Runnable> wakeups = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public RecognitionEventBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Appends an event and wakes registered consumers. Safe from any thread.
+     */
+    public void publish(Kind kind, Source source, long studentId, long classId, float distance) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence & mask), new Event(sequence, kind, source, studentId, classId,
+                distance, System.currentTimeMillis()));
+        for (Runnable wakeup : wakeups) {
+            wakeup.run();
+        }
+    }
+
+    /**
+     * Total events ever published.
+     */
+    public long getPublishedCount() {
+        return next.get();
+    }
+
+    /**
+     * Registers a signal run after every publish, on the publishing thread. It should
+     * only schedule work, e.g. a frame callback, and must not drain inline.
+     */
+    public void addWakeup(Runnable wakeup) {
+        wakeups.add(wakeup);
+    }
+
+    public void removeWakeup(Runnable wakeup) {
+        wakeups.remove(wakeup);
+    }
+
+    /**
+     * A cursor positioned after the last published event, so it only sees new ones.
+     */
+    public Cursor newCursor() {
+        return new Cursor(next.get());
+    }
+
+    /**
+     * A cursor positioned at the oldest event still held in the ring.
+     */
+    public Cursor newCursorFromOldest() {
+        return new Cursor(Math.max(0, next.get() - capacity()));
+    }
+
+    /**
+     * One consumer's read position. Not thread-safe; drain it from a single thread.
+     */
+    public class Cursor {
+        private long position;
+        private long lost = 0;
+
+        Cursor(long position) {
+            this.position = position;
+        }
+
+        /**
+         * Moves up to max published events into out, oldest first.
+         *
+         * @return the number of events added
+         */
+        public int drain(List<Event> out, int max) {
+            int added = 0;
+            while (added < max) {
+                Event event = slots.get((int) (position & mask));
+                if (event == null || event.sequence < position) {
+                    break; // Not published yet, or claimed but still being written
+                }
+                if (event.sequence > position) {
+                    // Lapped by producers; resume at the oldest event that may still be there
+                    long resume = event.sequence - mask;
+                    lost += resume - position;
+                    position = resume;
+                    continue;
+                }
+                out.add(event);
+                position++;
+                added++;
+            }
+            return added;
+        }
+
+        /**
+         * True if at least one event is waiting for this cursor.
+         */
+        public boolean hasPending() {
+            return position < next.get();
+        }
+
+        /**
+         * Events this cursor skipped because it fell a full ring behind.
+         */
+        public long getLost() {
+            return lost;
+        }
+    }
+}
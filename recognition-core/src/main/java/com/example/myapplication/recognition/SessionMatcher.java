@@ -0,0 +1,116 @@
+package com.example.myapplication.recognition;
+
+import java.util.BitSet;
+
+/**
+ * Matches faces during a live attendance session in two tiers.
+ * Students not yet marked present are searched first. Students already present are
+ * only searched with a bound, to catch someone who lingers in front of the camera.
+ * That way they are neither reported as unknown nor mistaken for a look-alike who
+ * is still absent. As the session fills up, the absent tier shrinks toward zero.
+ * Optionally, students outside the roster are searched last and flagged as crossClass.
+ * Not thread-safe; use it from the thread that receives detector results.
+ */
+public class SessionMatcher implements FaceMatcher {
+
+    private final FaceGallery gallery;
+    private final BitSet roster;
+    private final BitSet absent;
+    private final BitSet present;
+    private final BitSet outside; // Not on the roster and not yet present; null without fallback
+
+    /**
+     * Starts a session over the whole gallery.
+     */
+    public SessionMatcher(FaceGallery gallery) {
+        this(gallery, allOf(gallery), false);
+    }
+
+    /**
+     * Starts a session over the roster ordinals of a larger gallery.
+     *
+     * @param crossClassFallback search the rest of the gallery when nobody on the roster matches
+     */
+    public SessionMatcher(FaceGallery gallery, BitSet roster, boolean crossClassFallback) {
+        this.gallery = gallery;
+        this.roster = (BitSet) roster.clone();
+        this.absent = (BitSet) roster.clone();
+        this.present = new BitSet(gallery.size());
+        if (crossClassFallback) {
+            outside = allOf(gallery);
+            outside.andNot(roster);
+        } else {
+            outside = null;
+        }
+    }
+
+    private static BitSet allOf(FaceGallery gallery) {
+        BitSet all = new BitSet(gallery.size());
+        all.set(0, gallery.size());
+        return all;
+    }
+
+    @Override
+    public FaceGallery.Match findNearest(float[] query, float maxDistance) {
+        FaceGallery.Match match = findOnRoster(query, maxDistance);
+        if (match == null && outside != null && !outside.isEmpty()) {
+            match = gallery.findNearest(query, outside, maxDistance);
+        }
+        if (match != null && !roster.get(gallery.ordinalOf(match.studentId))) {
+            return new FaceGallery.Match(match.studentId, match.distance,
+                    match.runnerUpId, match.runnerUpDistance, true);
+        }
+        return match;
+    }
+
+    private FaceGallery.Match findOnRoster(float[] query, float maxDistance) {
+        FaceGallery.Match match = gallery.findNearest(query, absent, maxDistance);
+        if (match == null) {
+            return present.isEmpty() ? null : gallery.findNearest(query, present, maxDistance);
+        }
+        if (present.isEmpty()) {
+            return match;
+        }
+
+        // Only present students closer than the absent runner-up can change the answer
+        FaceGallery.Match lingering = gallery.findNearest(query, present, match.runnerUpDistance);
+        if (lingering == null) {
+            return match;
+        }
+        if (lingering.distance < match.distance) {
+            if (lingering.runnerUpId >= 0 && lingering.runnerUpDistance < match.distance) {
+                return lingering;
+            }
+            return new FaceGallery.Match(lingering.studentId, lingering.distance, match.studentId, match.distance);
+        }
+        return new FaceGallery.Match(match.studentId, match.distance, lingering.studentId, lingering.distance);
+    }
+
+    /**
+     * Moves a student to the present tier.
+     *
+     * @return true if the student was not present before
+     */
+    public boolean markPresent(long studentId) {
+        int ordinal = gallery.ordinalOf(studentId);
+        if (ordinal < 0 || present.get(ordinal)) {
+            return false;
+        }
+        absent.clear(ordinal);
+        if (outside != null) outside.clear(ordinal);
+        present.set(ordinal);
+        return true;
+    }
+
+    public boolean isPresent(long studentId) {
+        int ordinal = gallery.ordinalOf(studentId);
+        return ordinal >= 0 && present.get(ordinal);
+    }
+
+    /**
+     * Number of roster students still searched in the first tier.
+     */
+    public int getAbsentCount() {
+        return absent.cardinality();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.myapplication.sync;
+
+/**
+ * One row of the change log: an insert, update or delete of a synced entity.
+ */
+public final class Change {
+    public final long seq; // Increases with every change on a device
+    public final String entity; // e.g. "student", "attendance"
+    public final String operation; // "insert", "update" or "delete"
+    public final long rowId;
+    public final String payload; // JSON object describing the row after the change
+    public final long timestampMs;
+
+    public Change(long seq, String entity, String operation, long rowId, String payload, long timestampMs) {
+        this.seq = seq;
+        this.entity = entity;
+        this.operation = operation;
+        this.rowId = rowId;
+        this.payload = payload;
+        this.timestampMs = timestampMs;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.myapplication.sync;
+
+import java.util.List;
+
+/**
+ * Where SyncEngine reads changes from and records what the server acknowledged.
+ */
+public interface ChangeSource {
+
+    /**
+     * Up to limit changes with a sequence number above afterSeq, in sequence order.
+     */
+    List<Change> readChanges(long afterSeq, int limit);
+
+    /**
+     * The highest sequence number the server has acknowledged, or 0 if none.
+     */
+    long getAcknowledgedSeq();
+
+    /**
+     * Records that the server holds every change up to seq. The source may discard them.
+     */
+    void acknowledge(long seq);
+}
@@ -0,0 +1,282 @@
+package com.example.myapplication.sync;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Presence for one session, a class on a date, recorded by any number of devices at
+ * once, e.g. one per entrance of a large hall. For every student and device it keeps
+ * the earliest time that device saw the student. Merging keeps the earlier of two
+ * times, so merges are commutative, associative and idempotent: devices that exchange
+ * marks in any order, any number of times, end with the same set, without a coordinator.
+ *
+ * Students and sessions are identified by campus-wide keys (the student id printed on
+ * the roster, and class name, section and date), not by row ids, which differ between
+ * devices. Presence only grows; marking someone absent is left to the saved record.
+ *
+ * Each change bumps a local version, so delta(since) returns only the marks a peer has
+ * not been sent yet, including ones merged from other devices, which lets marks spread
+ * through any chain of exchanges. Not thread-safe.
+ */
+public final class PresenceSet {
+
+    public static final int MAGIC = 0x41545053; // "ATPS"
+    public static final int VERSION = 1;
+
+    /** How a device saw a student. */
+    public static final int SOURCE_CAMERA = 0;
+    public static final int SOURCE_PHOTO = 1;
+
+    /** One device's earliest sighting of one student. */
+    public static final class Mark {
+        public final String studentKey;
+        public final String deviceId;
+        public final long firstSeenMs;
+        public final int source;
+
+        public Mark(String studentKey, String deviceId, long firstSeenMs, int source) {
+            this.studentKey = studentKey;
+            this.deviceId = deviceId;
+            this.firstSeenMs = firstSeenMs;
+            this.source = source;
+        }
+
+        /** True if this mark should replace an existing one for the same student and device. */
+        boolean supersedes(Mark other) {
+            if (firstSeenMs != other.firstSeenMs) return firstSeenMs < other.firstSeenMs;
+            return source < other.source; // Deterministic on ties
+        }
+    }
+
+    private static final class Entry {
+        Mark mark;
+        long version;
+    }
+
+    private final String sessionKey;
+    // Student key -> device id -> entry; insertion ordered so the set reads in arrival order
+    private final Map<String, Map<String, Entry>> students = new LinkedHashMap<>();
+    private long version = 0;
+
+    public PresenceSet(String sessionKey) {
+        this.sessionKey = sessionKey;
+    }
+
+    /**
+     * The key devices agree on for a class session, independent of local row ids.
+     */
+    public static String sessionKey(String className, String section, long epochDay) {
+        return className + "\u001f" + section + "\u001f" + epochDay;
+    }
+
+    public String getSessionKey() {
+        return sessionKey;
+    }
+
+    /**
+     * Increases with every local change; pass it to delta to get later changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Records a sighting by a device.
+     *
+     * @return true if the set changed
+     */
+    public boolean mark(String studentKey, String deviceId, long timestampMs, int source) {
+        return apply(new Mark(studentKey, deviceId, timestampMs, source));
+    }
+
+    /**
+     * Merges marks from another device.
+     *
+     * @return the marks that changed this set, to persist or forward
+     */
+    public List<Mark> merge(Collection<Mark> marks) {
+        List<Mark> changed = new ArrayList<>();
+        for (Mark mark : marks) {
+            if (apply(mark)) changed.add(mark);
+        }
+        return changed;
+    }
+
+    public List<Mark> merge(PresenceSet other) {
+        if (!sessionKey.equals(other.sessionKey)) {
+            throw new IllegalArgumentException("Cannot merge presence of a different session");
+        }
+        return merge(other.delta(0));
+    }
+
+    private boolean apply(Mark mark) {
+        Map<String, Entry> devices = students.get(mark.studentKey);
+        if (devices == null) {
+            devices = new HashMap<>();
+            students.put(mark.studentKey, devices);
+        }
+        Entry entry = devices.get(mark.deviceId);
+        if (entry == null) {
+            entry = new Entry();
+            devices.put(mark.deviceId, entry);
+        } else if (!mark.supersedes(entry.mark)) {
+            return false;
+        }
+        entry.mark = mark;
+        entry.version = ++version;
+        return true;
+    }
+
+    public boolean isPresent(String studentKey) {
+        return students.containsKey(studentKey);
+    }
+
+    /**
+     * Students seen by any device, in the order this set learned of them.
+     */
+    public Set<String> getPresent() {
+        return Collections.unmodifiableSet(students.keySet());
+    }
+
+    /**
+     * Which devices saw a student, and when each first did.
+     */
+    public List<Mark> getMarks(String studentKey) {
+        List<Mark> marks = new ArrayList<>();
+        Map<String, Entry> devices = students.get(studentKey);
+        if (devices != null) {
+            for (Entry entry : devices.values()) marks.add(entry.mark);
+        }
+        return marks;
+    }
+
+    /**
+     * The earliest sighting of a student by any device, or -1 if nobody saw them.
+     */
+    public long getFirstSeen(String studentKey) {
+        long first = -1;
+        for (Mark mark : getMarks(studentKey)) {
+            if (first < 0 || mark.firstSeenMs < first) first = mark.firstSeenMs;
+        }
+        return first;
+    }
+
+    /**
+     * Marks changed after a version; delta(0) is the whole set.
+     */
+    public List<Mark> delta(long sinceVersion) {
+        List<Mark> marks = new ArrayList<>();
+        for (Map<String, Entry> devices : students.values()) {
+            for (Entry entry : devices.values()) {
+                if (entry.version > sinceVersion) marks.add(entry.mark);
+            }
+        }
+        return marks;
+    }
+
+    // ==================== ENCODING ====================
+
+    /**
+     * Encodes marks compactly: device ids are written once, marks are grouped by student,
+     * and times are varints relative to the earliest one.
+     */
+    public static byte[] encode(String sessionKey, List<Mark> marks) {
+        Map<String, Integer> devices = new LinkedHashMap<>();
+        Map<String, List<Mark>> byStudent = new TreeMap<>();
+        long base = Long.MAX_VALUE;
+        for (Mark mark : marks) {
+            if (!devices.containsKey(mark.deviceId)) devices.put(mark.deviceId, devices.size());
+            byStudent.computeIfAbsent(mark.studentKey, k -> new ArrayList<>()).add(mark);
+            base = Math.min(base, mark.firstSeenMs);
+        }
+        if (marks.isEmpty()) base = 0;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + marks.size() * 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(sessionKey);
+            writeVarLong(out, devices.size());
+            for (String device : devices.keySet()) out.writeUTF(device);
+            out.writeLong(base);
+            writeVarLong(out, byStudent.size());
+            for (Map.Entry<String, List<Mark>> student : byStudent.entrySet()) {
+                out.writeUTF(student.getKey());
+                writeVarLong(out, student.getValue().size());
+                for (Mark mark : student.getValue()) {
+                    writeVarLong(out, devices.get(mark.deviceId));
+                    writeVarLong(out, mark.firstSeenMs - base);
+                    out.writeByte(mark.source);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Marks as received from a peer, with the session they belong to. */
+    public static final class Delta {
+        public final String sessionKey;
+        public final List<Mark> marks;
+
+        Delta(String sessionKey, List<Mark> marks) {
+            this.sessionKey = sessionKey;
+            this.marks = marks;
+        }
+    }
+
+    public static Delta decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) throw new IOException("Not a presence file");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported presence version " + version);
+        String sessionKey = in.readUTF();
+        String[] devices = new String[(int) readVarLong(in)];
+        for (int i = 0; i < devices.length; i++) devices[i] = in.readUTF();
+        long base = in.readLong();
+        int studentCount = (int) readVarLong(in);
+        List<Mark> marks = new ArrayList<>();
+        for (int s = 0; s < studentCount; s++) {
+            String studentKey = in.readUTF();
+            int markCount = (int) readVarLong(in);
+            for (int m = 0; m < markCount; m++) {
+                int device = (int) readVarLong(in);
+                if (device >= devices.length) throw new IOException("Bad device index");
+                long firstSeen = base + readVarLong(in);
+                marks.add(new Mark(studentKey, devices[device], firstSeen, in.readUnsignedByte()));
+            }
+        }
+        return new Delta(sessionKey, marks);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.myapplication.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Uploads the changes a server has not acknowledged yet, in gzip-compressed batches,
+ * so the upload is proportional to what changed since the last sync. The acknowledged
+ * sequence number is saved after every batch, so an interrupted sync resumes where
+ * the server left off.
+ *
+ * Protocol: each batch is a POST of newline-delimited JSON, one change per line:
+ * {"seq":..,"entity":..,"op":..,"rowId":..,"at":..,"data":{..}}, with Content-Encoding
+ * gzip and the X-Device-Id, X-First-Seq and X-Last-Seq headers. The server stores
+ * changes idempotently by device and seq and answers 200 with {"ack":N}, the highest
+ * seq it holds for the device. Timeouts, 408, 429 and 5xx are retried with exponential
+ * backoff; other statuses fail the sync without retrying.
+ */
+public class SyncEngine {
+
+    /** Waits between retries; replaced in tests. */
+    public interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /** What one sync did. */
+    public static final class Result {
+        public int batches;
+        public int changes;
+        public int retries;
+        public long bytesSent; // Compressed request bodies, excluding failed attempts
+        public long bytesUncompressed;
+        public long acknowledgedSeq;
+        public String error; // Null if everything pending was uploaded
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /** A failed attempt; retryable ones are tried again after a backoff delay. */
+    static final class UploadException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final boolean retryable;
+        final long retryAfterMs; // From a Retry-After header, or 0
+
+        UploadException(String message, boolean retryable, long retryAfterMs) {
+            super(message);
+            this.retryable = retryable;
+            this.retryAfterMs = retryAfterMs;
+        }
+    }
+
+    private static final Pattern ACK = Pattern.compile("\"ack\"\\s*:\\s*(-?\\d+)");
+
+    private final ChangeSource source;
+    private final URL endpoint;
+    private final String deviceId;
+    private final Random random = new Random();
+    private Sleeper sleeper = Thread::sleep;
+    private int batchSize = 500;
+    private int maxAttempts = 6;
+    private long baseDelayMs = 1000;
+    private long maxDelayMs = 60_000;
+    private int connectTimeoutMs = 15_000;
+    private int readTimeoutMs = 30_000;
+
+    public SyncEngine(ChangeSource source, URL endpoint, String deviceId) {
+        this.source = source;
+        this.endpoint = endpoint;
+        this.deviceId = deviceId;
+    }
+
+    public void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Attempts per batch, including the first, before the sync gives up until next time.
+     */
+    public void setRetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public void setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * Uploads batches until nothing is pending or an upload fails. Blocks; call off
+     * the main thread.
+     */
+    public Result sync() {
+        Result result = new Result();
+        long acked = source.getAcknowledgedSeq();
+        while (true) {
+            List<Change> batch = source.readChanges(acked, batchSize);
+            if (batch.isEmpty()) break;
+            long lastSeq = batch.get(batch.size() - 1).seq;
+            byte[] raw = encode(batch);
+            byte[] body;
+            try {
+                body = gzip(raw);
+            } catch (IOException e) {
+                result.error = "Could not compress batch: " + e.getMessage();
+                break;
+            }
+
+            long serverAck;
+            try {
+                serverAck = uploadWithRetry(body, batch.get(0).seq, lastSeq, result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.error = "Interrupted";
+                break;
+            } catch (IOException e) {
+                result.error = e.getMessage();
+                break;
+            }
+            if (serverAck <= acked) {
+                result.error = "Server did not acknowledge changes after " + acked;
+                break;
+            }
+            // The server may hold less than was sent; the rest goes again next batch
+            long newAck = Math.min(serverAck, lastSeq);
+            for (Change change : batch) {
+                if (change.seq <= newAck) result.changes++;
+            }
+            acked = newAck;
+            source.acknowledge(acked);
+            result.batches++;
+            result.bytesSent += body.length;
+            result.bytesUncompressed += raw.length;
+        }
+        result.acknowledgedSeq = acked;
+        return result;
+    }
+
+    private long uploadWithRetry(byte[] body, long firstSeq, long lastSeq, Result result)
+            throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return upload(body, firstSeq, lastSeq);
+            } catch (UploadException e) {
+                if (!e.retryable || attempt >= maxAttempts) throw e;
+                sleeper.sleep(Math.max(e.retryAfterMs, backoff(attempt)));
+            } catch (IOException e) {
+                // Connection refused, reset or timed out
+                if (attempt >= maxAttempts) throw e;
+                sleeper.sleep(backoff(attempt));
+            }
+            result.retries++;
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter, so devices that lost the network together do not
+     * all retry at the same moment.
+     */
+    long backoff(int attempt) {
+        long delay = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    private long upload(byte[] body, long firstSeq, long lastSeq) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(connectTimeoutMs);
+            connection.setReadTimeout(readTimeoutMs);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/x-ndjson; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty("X-Device-Id", deviceId);
+            connection.setRequestProperty("X-First-Seq", String.valueOf(firstSeq));
+            connection.setRequestProperty("X-Last-Seq", String.valueOf(lastSeq));
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                boolean retryable = status == 408 || status == 429 || status >= 500;
+                throw new UploadException("Server returned " + status, retryable, retryAfterMs(connection));
+            }
+            String response;
+            try (InputStream in = connection.getInputStream()) {
+                response = readText(in);
+            }
+            Matcher matcher = ACK.matcher(response);
+            if (!matcher.find()) throw new UploadException("Response has no ack", true, 0);
+            return Long.parseLong(matcher.group(1));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static long retryAfterMs(HttpURLConnection connection) {
+        String value = connection.getHeaderField("Retry-After");
+        if (value == null) return 0;
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return 0; // HTTP dates are not worth parsing here
+        }
+    }
+
+    // ==================== ENCODING ====================
+
+    static byte[] encode(List<Change> batch) {
+        StringBuilder sb = new StringBuilder(batch.size() * 128);
+        for (Change change : batch) {
+            sb.append("{\"seq\":").append(change.seq)
+                    .append(",\"entity\":");
+            appendString(sb, change.entity);
+            sb.append(",\"op\":");
+            appendString(sb, change.operation);
+            sb.append(",\"rowId\":").append(change.rowId)
+                    .append(",\"at\":").append(change.timestampMs)
+                    .append(",\"data\":").append(change.payload != null ? change.payload : "null")
+                    .append("}\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static byte[] gzip(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(raw);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String readText(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
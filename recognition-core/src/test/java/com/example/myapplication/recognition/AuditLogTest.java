@@ -0,0 +1,127 @@
+package com.example.myapplication.recognition;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AuditLogTest {
+
+    private static final long DAY = 20000;
+
+    private static byte[] segment(long epochDay, long... studentIds) {
+        ByteBuffer buffer = ByteBuffer.allocate(AuditLog.HEADER_SIZE + AuditLog.RECORD_SIZE * studentIds.length);
+        buffer.put(AuditLog.header(epochDay));
+        long timestamp = epochDay * 86_400_000L;
+        for (long id : studentIds) {
+            FaceGallery.Match match = new FaceGallery.Match(id, 0.2f, id + 100, 0.35f);
+            AuditLog.encode(buffer, timestamp++, 7, AuditLog.Decision.PRESENT, 0, id,
+                    match.distance, match.runnerUpId, match.runnerUpDistance, 0.4f);
+        }
+        return buffer.array();
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    public void reader_roundTripsRecords() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(AuditLog.HEADER_SIZE + AuditLog.RECORD_SIZE * 2);
+        buffer.put(AuditLog.header(DAY));
+        AuditLog.encode(buffer, 1234, 7, AuditLog.Decision.CROSS_CLASS, 0, 42, 0.31f, 43, 0.38f, 0.4f);
+        AuditLog.encode(buffer, 1300, 7, AuditLog.Decision.REJECTED, 3, -1, Float.NaN, -1, Float.NaN, 0.4f);
+
+        AuditLog.Reader reader = new AuditLog.Reader(new ByteArrayInputStream(buffer.array()));
+        assertEquals(DAY, reader.getEpochDay());
+        AuditLog.Record first = reader.next();
+        assertEquals(1234, first.timestampMs);
+        assertEquals(7, first.classId);
+        assertEquals(AuditLog.Decision.CROSS_CLASS, first.decision);
+        assertEquals(42, first.studentId);
+        assertEquals(0.31f, first.distance, 0f);
+        assertEquals(43, first.runnerUpId);
+        assertEquals(0.38f, first.runnerUpDistance, 0f);
+        assertEquals(0.4f, first.threshold, 0f);
+        AuditLog.Record second = reader.next();
+        assertEquals(AuditLog.Decision.REJECTED, second.decision);
+        assertEquals(3, second.detail);
+        assertTrue(Float.isNaN(second.distance));
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void reader_dropsTrailingPartialRecord() throws IOException {
+        byte[] bytes = segment(DAY, 1, 2, 3);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 10);
+        AuditLog.Reader reader = new AuditLog.Reader(new ByteArrayInputStream(truncated));
+        assertEquals(1, reader.next().studentId);
+        assertEquals(2, reader.next().studentId);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void query_findsStudentAcrossSegmentsOfOneDay() throws IOException {
+        File dir = Files.createTempDirectory("audit").toFile();
+        try {
+            write(new File(dir, AuditLog.segmentName(DAY, 0)), segment(DAY, 1, 2, 3));
+            write(new File(dir, AuditLog.segmentName(DAY, 1)), segment(DAY, 4, 5));
+            write(new File(dir, AuditLog.segmentName(DAY + 1, 0)), segment(DAY + 1, 2));
+            assertEquals(2, AuditLog.nextSequence(dir, DAY));
+            assertEquals(0, AuditLog.nextSequence(dir, DAY + 2));
+
+            List<AuditLog.Record> direct = AuditLog.query(dir, 2, DAY);
+            assertEquals(1, direct.size());
+            assertEquals(DAY * 86_400_000L + 1, direct.get(0).timestampMs);
+
+            // Student 105 was never matched but was the runner-up to student 5
+            List<AuditLog.Record> runnerUp = AuditLog.query(dir, 105, DAY);
+            assertEquals(1, runnerUp.size());
+            assertEquals(5, runnerUp.get(0).studentId);
+
+            assertEquals(5, AuditLog.query(dir, -1, DAY).size());
+            assertTrue(AuditLog.query(dir, 2, DAY + 2).isEmpty());
+        } finally {
+            for (File file : dir.listFiles()) file.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void prune_dropsOldDaysThenOldestSegmentsOverTheSizeLimit() throws IOException {
+        File dir = Files.createTempDirectory("audit").toFile();
+        try {
+            write(new File(dir, AuditLog.segmentName(DAY - 100, 0)), segment(DAY - 100, 1));
+            write(new File(dir, AuditLog.segmentName(DAY, 0)), segment(DAY, 1, 2));
+            write(new File(dir, AuditLog.segmentName(DAY, 1)), segment(DAY, 3, 4));
+            write(new File(dir, AuditLog.segmentName(DAY + 1, 0)), segment(DAY + 1, 5, 6));
+            write(new File(dir, "notes.txt"), new byte[1000]);
+            long segmentBytes = AuditLog.HEADER_SIZE + 2L * AuditLog.RECORD_SIZE;
+
+            assertEquals(1, AuditLog.prune(dir, DAY - 30, Long.MAX_VALUE));
+            assertEquals(2, AuditLog.segments(dir, DAY).size());
+
+            // Room for two segments: the oldest of DAY goes, the newest day stays
+            assertEquals(1, AuditLog.prune(dir, DAY - 30, 2 * segmentBytes));
+            assertEquals(1, AuditLog.segments(dir, DAY).size());
+            assertEquals(3, AuditLog.query(dir, -1, DAY).get(0).studentId);
+            assertEquals(1, AuditLog.segments(dir, DAY + 1).size());
+            assertTrue(new File(dir, "notes.txt").exists());
+
+            assertEquals(0, AuditLog.prune(dir, DAY - 30, 2 * segmentBytes));
+        } finally {
+            for (File file : dir.listFiles()) file.delete();
+            dir.delete();
+        }
+    }
+}
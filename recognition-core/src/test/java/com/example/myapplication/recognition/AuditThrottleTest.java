@@ -0,0 +1,47 @@
+package com.example.myapplication.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AuditThrottleTest {
+
+    @Test
+    public void repeatedDecisionIsLoggedOncePerInterval() {
+        AuditThrottle throttle = new AuditThrottle(5000);
+        int logged = 0;
+        for (long t = 0; t < 60_000; t += 33) { // A minute at 30 fps
+            if (throttle.shouldLog(t, 7, AuditLog.Decision.NOT_RECOGNIZED, 0, -1)) logged++;
+        }
+        assertEquals(12, logged);
+    }
+
+    @Test
+    public void distinctDecisionsAreTrackedSeparately() {
+        AuditThrottle throttle = new AuditThrottle(5000);
+        assertTrue(throttle.shouldLog(0, 7, AuditLog.Decision.REJECTED, 1, -1));
+        assertTrue(throttle.shouldLog(10, 7, AuditLog.Decision.REJECTED, 2, -1));
+        assertTrue(throttle.shouldLog(20, 7, AuditLog.Decision.ALREADY_PRESENT, 0, 42));
+        assertTrue(throttle.shouldLog(30, 7, AuditLog.Decision.ALREADY_PRESENT, 0, 43));
+        assertTrue(throttle.shouldLog(40, 8, AuditLog.Decision.ALREADY_PRESENT, 0, 42));
+        assertFalse(throttle.shouldLog(50, 7, AuditLog.Decision.REJECTED, 1, -1));
+        assertFalse(throttle.shouldLog(60, 7, AuditLog.Decision.ALREADY_PRESENT, 0, 42));
+    }
+
+    @Test
+    public void attendanceChangesAreNeverThrottled() {
+        AuditThrottle throttle = new AuditThrottle(5000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(throttle.shouldLog(i, 7, AuditLog.Decision.PRESENT, 0, 42));
+            assertTrue(throttle.shouldLog(i, 7, AuditLog.Decision.PEER_PRESENT, 0, 42));
+        }
+    }
+
+    @Test
+    public void clockGoingBackwardsDoesNotSilenceTheLog() {
+        AuditThrottle throttle = new AuditThrottle(5000);
+        assertTrue(throttle.shouldLog(100_000, 7, AuditLog.Decision.NOT_RECOGNIZED, 0, -1));
+        assertTrue(throttle.shouldLog(1_000, 7, AuditLog.Decision.NOT_RECOGNIZED, 0, -1));
+        assertFalse(throttle.shouldLog(2_000, 7, AuditLog.Decision.NOT_RECOGNIZED, 0, -1));
+    }
+}
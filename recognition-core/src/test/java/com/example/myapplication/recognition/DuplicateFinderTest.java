@@ -0,0 +1,82 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.Student;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DuplicateFinderTest {
+
+    @Test
+    public void findAllPairs_matchesBruteForce() {
+        Random random = new Random(5);
+        FaceGallery gallery = FaceGalleryTest.randomGallery(random, 400, 2);
+        float radius = 0.15f;
+
+        Set<String> expected = new HashSet<>();
+        float[] a = new float[gallery.getDimension()];
+        for (int t = 0; t < gallery.getTemplateCount(); t++) {
+            gallery.copyTemplate(t, a);
+            for (int ordinal = gallery.ownerOf(t) + 1; ordinal < gallery.size(); ordinal++) {
+                if (gallery.studentDistance(ordinal, a) <= radius) {
+                    expected.add(gallery.getStudentId(gallery.ownerOf(t)) + "-" + gallery.getStudentId(ordinal));
+                }
+            }
+        }
+
+        List<DuplicateFinder.Duplicate> pairs = new DuplicateFinder(gallery).findAllPairs(radius);
+        Set<String> actual = new HashSet<>();
+        for (DuplicateFinder.Duplicate pair : pairs) {
+            actual.add(pair.studentId + "-" + pair.otherStudentId);
+        }
+        assertEquals(expected, actual);
+        for (int i = 1; i < pairs.size(); i++) {
+            assertTrue(pairs.get(i - 1).distance <= pairs.get(i).distance);
+        }
+    }
+
+    @Test
+    public void findNear_reportsEachStudentOnce() {
+        Random random = new Random(9);
+        FaceGallery gallery = FaceGalleryTest.randomGallery(random, 50, 4);
+        float[] query = new float[gallery.getDimension()];
+        gallery.copyTemplate(0, query);
+
+        List<DuplicateFinder.Duplicate> near = new DuplicateFinder(gallery).findNear(query, 0.3f);
+        Set<Long> students = new HashSet<>();
+        for (DuplicateFinder.Duplicate duplicate : near) {
+            assertTrue(students.add(duplicate.otherStudentId));
+        }
+        assertEquals(gallery.getStudentId(0), near.get(0).otherStudentId);
+        assertEquals(0f, near.get(0).distance, 0f);
+    }
+
+    @Test
+    public void findLookalike_skipsTheStudentBeingReenrolled() {
+        Random random = new Random(3);
+        float[] face = FaceGalleryTest.randomVector(random);
+        CampusIndex.Builder builder = new CampusIndex.Builder();
+        for (int i = 0; i < 20; i++) {
+            builder.add(student(i + 1, "S" + i, FaceGalleryTest.randomVector(random)));
+        }
+        builder.add(student(100, "ALICE", face));
+        CampusIndex index = builder.build();
+
+        float[] sample = face.clone();
+        sample[0] += 0.01f;
+        assertEquals("ALICE", index.findLookalike(sample, "NEW").getStudentId());
+        assertNull(index.findLookalike(sample, "ALICE"));
+    }
+
+    private static Student student(long id, String studentId, float[] features) {
+        Student student = new Student(studentId, studentId, "A", 1, features);
+        student.setId(id);
+        return student;
+    }
+}
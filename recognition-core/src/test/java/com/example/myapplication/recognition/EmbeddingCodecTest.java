@@ -0,0 +1,33 @@
+package com.example.myapplication.recognition;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class EmbeddingCodecTest {
+
+    @Test
+    public void encode_roundTrips() {
+        float[] features = {0.5f, -1.25f, 3.4028235e38f, Float.MIN_VALUE, 0f, 0.333f, 12f};
+        byte[] bytes = EmbeddingCodec.encode(features);
+        assertEquals(features.length * 4, bytes.length);
+        assertArrayEquals(features, EmbeddingCodec.decode(bytes), 0f);
+    }
+
+    @Test
+    public void decode_honoursByteOrder() {
+        byte[] bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                .putFloat(1.5f).putFloat(-2f).array();
+        assertArrayEquals(new float[] {1.5f, -2f},
+                EmbeddingCodec.decode(bytes, ByteOrder.LITTLE_ENDIAN), 0f);
+    }
+
+    @Test
+    public void decode_ignoresTrailingBytes() {
+        byte[] bytes = new byte[9];
+        assertEquals(2, EmbeddingCodec.decode(bytes).length);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.myapplication.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FaceGalleryTest {
+
+    private static final int DIMENSION = LandmarkFeatures.DIMENSION;
+
+    static FaceGallery randomGallery(Random random, int students, int templatesPerStudent) {
+        FaceGallery.Builder builder = new FaceGallery.Builder();
+        for (int s = 0; s < students; s++) {
+            List<float[]> templates = new ArrayList<>();
+            for (int t = 0; t < templatesPerStudent; t++) {
+                templates.add(randomVector(random));
+            }
+            builder.add(1000 + s, templates);
+        }
+        return builder.build();
+    }
+
+    static float[] randomVector(Random random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) v[i] = random.nextFloat();
+        return v;
+    }
+
+    @Test
+    public void findNearest_matchesExhaustiveSearch() {
+        Random random = new Random(7);
+        FaceGallery gallery = randomGallery(random, 300, 3);
+        for (int q = 0; q < 500; q++) {
+            float[] query = randomVector(random);
+            FaceGallery.Match exhaustive = gallery.findNearest(query);
+            FaceGallery.Match bounded = gallery.findNearest(query, 10f);
+            assertEquals(exhaustive.studentId, bounded.studentId);
+            assertEquals(exhaustive.distance, bounded.distance, 1e-5f);
+            assertEquals(exhaustive.runnerUpId, bounded.runnerUpId);
+        }
+    }
+
+    @Test
+    public void findNearest_onlySearchesCandidates() {
+        Random random = new Random(11);
+        FaceGallery gallery = randomGallery(random, 100, 2);
+        BitSet candidates = new BitSet();
+        for (int ordinal = 0; ordinal < gallery.size(); ordinal += 3) candidates.set(ordinal);
+
+        for (int q = 0; q < 200; q++) {
+            float[] query = randomVector(random);
+            FaceGallery.Match match = gallery.findNearest(query, candidates, 10f);
+            int expected = -1;
+            float best = Float.MAX_VALUE;
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                float d = gallery.studentDistance(ordinal, query);
+                if (d < best) {
+                    best = d;
+                    expected = ordinal;
+                }
+            }
+            assertEquals(gallery.getStudentId(expected), match.studentId);
+        }
+    }
+
+    @Test
+    public void findNearest_respectsMaxDistance() {
+        FaceGallery gallery = new FaceGallery.Builder()
+                .add(1, Arrays.asList(new float[] {0, 0}))
+                .add(2, Arrays.asList(new float[] {1, 0}))
+                .build();
+        assertNull(gallery.findNearest(new float[] {0.5f, 0.5f}, 0.5f));
+
+        FaceGallery.Match match = gallery.findNearest(new float[] {0.1f, 0}, 0.5f);
+        assertEquals(1, match.studentId);
+        assertEquals(-1, match.runnerUpId); // Student 2 is beyond maxDistance
+    }
+
+    @Test
+    public void builder_skipsMismatchedTemplates() {
+        FaceGallery gallery = new FaceGallery.Builder()
+                .add(1, Arrays.asList(new float[] {0, 0}, new float[] {1, 1, 1}))
+                .add(2, Arrays.asList(new float[] {1, 1, 1}))
+                .build();
+        assertEquals(1, gallery.size());
+        assertEquals(1, gallery.getTemplateCount());
+        assertEquals(-1, gallery.ordinalOf(2));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.Student;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KioskSessionsTest {
+
+    private static Student student(long id, long classId, float... features) {
+        Student student = new Student("S" + id, "ID" + id, "A", classId, features);
+        student.setId(id);
+        return student;
+    }
+
+    private static CampusIndex index() {
+        return new CampusIndex.Builder()
+                .add(student(1, 10, 0, 0))
+                .add(student(2, 10, 1, 0))
+                .add(student(3, 20, 0, 1))
+                .add(student(4, 30, 1, 1))
+                .build();
+    }
+
+    @Test
+    public void recognizedStudents_areRoutedToTheirOwnSession() {
+        KioskSessions kiosk = new KioskSessions(index());
+        kiosk.open(10);
+        kiosk.open(20);
+
+        FaceGallery.Match match = kiosk.findNearest(new float[] {0, 1}, 0.4f);
+        assertEquals(3, match.studentId);
+        assertFalse(match.crossClass);
+        assertEquals(Collections.singletonList(20L), kiosk.markPresent(match.studentId));
+        assertTrue(kiosk.markPresent(match.studentId).isEmpty());
+
+        assertEquals(Collections.singletonList(10L), kiosk.markPresent(1));
+        assertTrue(kiosk.getPresent(10).contains(1L));
+        assertFalse(kiosk.getPresent(20).contains(1L));
+        assertEquals(1, kiosk.getAbsentCount());
+    }
+
+    @Test
+    public void studentsEnrolledInSeveralClasses_areRoutedToEach() {
+        CampusIndex index = new CampusIndex.Builder()
+                .add(student(1, 10, 0, 0))
+                .add(student(2, 20, 1, 0))
+                .addToClass(1, 20)
+                .build();
+        assertEquals(new HashSet<>(Arrays.asList(10L, 20L)), index.getClassIds(1));
+
+        KioskSessions kiosk = new KioskSessions(index);
+        kiosk.open(10);
+        kiosk.open(20);
+        assertEquals(Arrays.asList(10L, 20L), kiosk.markPresent(1));
+        assertEquals(Collections.singletonList(20L), kiosk.markPresent(2));
+    }
+
+    @Test
+    public void studentsOfClosedClasses_areNotRecognized() {
+        KioskSessions kiosk = new KioskSessions(index());
+        assertNull(kiosk.findNearest(new float[] {0, 0}, 0.4f));
+
+        kiosk.open(10);
+        assertNull(kiosk.findNearest(new float[] {1, 1}, 0.4f));
+        assertTrue(kiosk.markPresent(4).isEmpty());
+
+        kiosk.open(30);
+        assertEquals(4, kiosk.findNearest(new float[] {1, 1}, 0.4f).studentId);
+    }
+
+    @Test
+    public void closingAClass_keepsPresenceOfTheOthers() {
+        KioskSessions kiosk = new KioskSessions(index());
+        kiosk.open(10);
+        kiosk.open(20);
+        kiosk.markPresent(1);
+        kiosk.markPresent(3);
+
+        assertTrue(kiosk.close(20));
+        assertFalse(kiosk.close(20));
+        assertEquals(Collections.singleton(10L), kiosk.getOpenClasses());
+        assertTrue(kiosk.getPresent(10).contains(1L));
+        assertTrue(kiosk.getPresent(20).isEmpty());
+        // Student 1 stays in the present tier of the rebuilt matcher
+        assertEquals(1, kiosk.getAbsentCount());
+        assertEquals(1, kiosk.findNearest(new float[] {0.05f, 0}, 0.4f).studentId);
+    }
+
+    @Test
+    public void combinedSearch_agreesWithPerClassSearch() {
+        Random random = new Random(11);
+        CampusIndex.Builder builder = new CampusIndex.Builder();
+        for (int id = 1; id <= 300; id++) {
+            builder.add(student(id, id % 6, FaceGalleryTest.randomVector(random)));
+        }
+        CampusIndex index = builder.build();
+        KioskSessions kiosk = new KioskSessions(index);
+        for (long classId : Arrays.asList(1L, 2L, 4L)) kiosk.open(classId);
+
+        for (int i = 0; i < 200; i++) {
+            float[] query = FaceGalleryTest.randomVector(random);
+            FaceGallery.Match combined = kiosk.findNearest(query, Float.MAX_VALUE);
+            FaceGallery.Match best = null;
+            for (long classId : kiosk.getOpenClasses()) {
+                FaceGallery.Match match = index.newSession(classId, false).findNearest(query, Float.MAX_VALUE);
+                if (best == null || match.distance < best.distance) best = match;
+            }
+            assertEquals(best.studentId, combined.studentId);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.myapplication.recognition;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LandmarkFeaturesTest {
+
+    // Left eye, right eye, nose base, mouth left, mouth right, mouth bottom
+    private static final float[] FACE = {
+            30, 40, 70, 40, 50, 60, 35, 75, 65, 75, 50, 85
+    };
+
+    @Test
+    public void extract_isRatioOfInterOcularDistance() {
+        float[] features = LandmarkFeatures.extract(FACE);
+        assertEquals(LandmarkFeatures.DIMENSION, features.length);
+        assertEquals(20f / 40f, features[0], 1e-6f); // Eye midpoint to nose
+        assertEquals(35f / 40f, features[1], 1e-6f); // Eye midpoint to mouth midpoint
+        assertEquals(30f / 40f, features[3], 1e-6f); // Mouth width
+    }
+
+    @Test
+    public void extract_isScaleAndTranslationInvariant() {
+        float[] moved = new float[FACE.length];
+        for (int i = 0; i < FACE.length; i++) {
+            moved[i] = FACE[i] * 2.5f + (i % 2 == 0 ? 100 : -20);
+        }
+        assertArrayEquals(LandmarkFeatures.extract(FACE), LandmarkFeatures.extract(moved), 1e-5f);
+    }
+
+    @Test
+    public void extract_returnsNullWhenEyesCoincide() {
+        float[] points = FACE.clone();
+        points[2] = points[0];
+        points[3] = points[1];
+        assertNull(LandmarkFeatures.extract(points));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extract_rejectsMissingCoordinates() {
+        LandmarkFeatures.extract(new float[10]);
+    }
+}
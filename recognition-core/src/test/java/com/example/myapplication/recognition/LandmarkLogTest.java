@@ -0,0 +1,142 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.Student;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LandmarkLogTest {
+
+    // Left eye, right eye, nose base, mouth left, mouth right, mouth bottom
+    private static final float[] FACE_A = {30, 40, 70, 40, 50, 60, 35, 75, 65, 75, 50, 85};
+    private static final float[] FACE_B = {30, 40, 70, 40, 50, 68, 38, 82, 62, 82, 50, 95};
+
+    private static Student student(long id, long classId, float[] landmarks) {
+        Student student = new Student("S" + id, "ID" + id, "A", classId, LandmarkFeatures.extract(landmarks));
+        student.setId(id);
+        return student;
+    }
+
+    private static LandmarkLog.Face face(float[] landmarks, int verdict, long liveMatch) {
+        return new LandmarkLog.Face(3, 20, 30, 80, 100, 1.5f, -2.25f, 0.5f, landmarks.clone(), verdict, liveMatch);
+    }
+
+    private static byte[] write(LandmarkLog.Header header, List<LandmarkLog.Frame> frames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (LandmarkLog.Writer writer = new LandmarkLog.Writer(bytes, header)) {
+            for (LandmarkLog.Frame frame : frames) writer.write(frame);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void log_roundTripsFramesWithinQuantization() throws IOException {
+        LandmarkLog.Header header = new LandmarkLog.Header(10, true, 0.4f,
+                Arrays.asList(student(1, 10, FACE_A), student(2, 20, FACE_B)));
+        float[] partial = FACE_A.clone();
+        partial[4] = Float.NaN; // Nose missing
+        partial[5] = Float.NaN;
+        List<LandmarkLog.Frame> frames = Arrays.asList(
+                new LandmarkLog.Frame(1_000_000, Collections.singletonList(face(FACE_A, LandmarkLog.ACCEPTED, 1))),
+                new LandmarkLog.Frame(1_033_333, Collections.emptyList()),
+                new LandmarkLog.Frame(1_066_666, Collections.singletonList(face(partial, 5, LandmarkLog.NO_MATCH))));
+
+        LandmarkLog.Reader reader = new LandmarkLog.Reader(new ByteArrayInputStream(write(header, frames)));
+        assertEquals(10, reader.getHeader().classId);
+        assertTrue(reader.getHeader().crossClassFallback);
+        assertEquals(0.4f, reader.getHeader().recognitionThreshold, 0f);
+        assertEquals(2, reader.getHeader().students.size());
+        assertArrayEquals(LandmarkFeatures.extract(FACE_B),
+                reader.getHeader().students.get(1).getTemplateFeatures().get(0), 0f);
+
+        List<LandmarkLog.Frame> read = LandmarkReplay.readAll(reader);
+        assertEquals(3, read.size());
+        assertEquals(1_066_666, read.get(2).timestampMicros);
+        assertTrue(read.get(1).faces.isEmpty());
+
+        LandmarkLog.Face first = read.get(0).faces.get(0);
+        assertEquals(3, first.trackingId);
+        assertEquals(80, first.right);
+        assertEquals(-2.25f, first.pitch, 0.005f);
+        assertArrayEquals(FACE_A, first.points, 1f / 16);
+        assertEquals(1, first.liveMatch);
+
+        LandmarkLog.Face third = read.get(2).faces.get(0);
+        assertFalse(third.hasAllLandmarks());
+        assertEquals(5, third.gateVerdict);
+    }
+
+    @Test
+    public void reader_stopsAtTruncation() throws IOException {
+        LandmarkLog.Header header = new LandmarkLog.Header(10, false, 0.4f,
+                Collections.singletonList(student(1, 10, FACE_A)));
+        List<LandmarkLog.Frame> frames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            frames.add(new LandmarkLog.Frame(i * 33_333L, Collections.singletonList(face(FACE_A, 0, 1))));
+        }
+        byte[] bytes = write(header, frames);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 20);
+
+        List<LandmarkLog.Frame> read = LandmarkReplay.readAll(
+                new LandmarkLog.Reader(new ByteArrayInputStream(truncated)));
+        assertTrue(read.size() > 0 && read.size() < 10);
+    }
+
+    @Test
+    public void replay_reproducesLiveSession() throws IOException {
+        LandmarkLog.Header header = new LandmarkLog.Header(10, true, 0.4f,
+                Arrays.asList(student(1, 10, FACE_A), student(2, 20, FACE_B)));
+        List<LandmarkLog.Frame> frames = Arrays.asList(
+                new LandmarkLog.Frame(0, Collections.singletonList(face(FACE_A, LandmarkLog.ACCEPTED, 1))),
+                new LandmarkLog.Frame(33_333, Collections.singletonList(face(FACE_A, LandmarkLog.ACCEPTED, 1))),
+                new LandmarkLog.Frame(66_666, Collections.singletonList(face(FACE_B, 6, LandmarkLog.NO_MATCH))),
+                new LandmarkLog.Frame(99_999, Collections.singletonList(face(FACE_B, LandmarkLog.ACCEPTED, 2))),
+                new LandmarkLog.Frame(133_332, Collections.emptyList()));
+
+        LandmarkLog.Reader reader = new LandmarkLog.Reader(new ByteArrayInputStream(write(header, frames)));
+        LandmarkReplay.Result result = LandmarkReplay.replay(reader.getHeader(), LandmarkReplay.readAll(reader), Float.NaN);
+
+        assertEquals(5, result.frames);
+        assertEquals(4, result.faces);
+        assertEquals(1, result.gateRejected);
+        assertEquals(3, result.matched);
+        assertEquals(Collections.singleton(1L), result.present);
+        assertEquals(Collections.singleton(2L), result.crossClass);
+        assertEquals(3, result.agreedWithLive);
+        assertEquals(0, result.disagreedWithLive);
+        assertTrue(result.getFrameNanos(0.5) >= 0);
+    }
+
+    @Test
+    public void replay_findsCrossClassStudentsAppendedDuringTheSession() throws IOException {
+        LandmarkLog.Header header = new LandmarkLog.Header(10, true, 0.4f,
+                Collections.singletonList(student(1, 10, FACE_A)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (LandmarkLog.Writer writer = new LandmarkLog.Writer(bytes, header)) {
+            writer.write(new LandmarkLog.Frame(0, Collections.singletonList(face(FACE_A, LandmarkLog.ACCEPTED, 1))));
+            writer.addStudent(student(2, 20, FACE_B)); // First matched live in the next frame
+            writer.write(new LandmarkLog.Frame(33_333, Collections.singletonList(face(FACE_B, LandmarkLog.ACCEPTED, 2))));
+        }
+
+        LandmarkLog.Reader reader = new LandmarkLog.Reader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(1, reader.getHeader().students.size());
+        List<LandmarkLog.Frame> frames = LandmarkReplay.readAll(reader);
+        assertEquals(2, frames.size());
+        assertEquals(33_333, frames.get(1).timestampMicros);
+        assertEquals(2, reader.getHeader().students.size());
+
+        LandmarkReplay.Result result = LandmarkReplay.replay(reader.getHeader(), frames, Float.NaN);
+        assertEquals(Collections.singleton(1L), result.present);
+        assertEquals(Collections.singleton(2L), result.crossClass);
+        assertEquals(0, result.disagreedWithLive);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.ClassSchedule;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PreloadPlannerTest {
+
+    private static final int MONDAY = 1, TUESDAY = 2, SUNDAY = 7;
+
+    private static int at(String time) {
+        return ClassSchedule.parseTime(time);
+    }
+
+    private static ClassSchedule slot(long classId, int day, String start, String end) {
+        return new ClassSchedule(classId, day, at(start), at(end));
+    }
+
+    private static final List<ClassSchedule> TIMETABLE = Arrays.asList(
+            slot(1, MONDAY, "09:00", "10:30"),
+            slot(2, MONDAY, "10:00", "11:00"),
+            slot(3, MONDAY, "11:00", "12:00"),
+            slot(4, TUESDAY, "08:00", "09:00"),
+            slot(1, TUESDAY, "14:00", "15:00"));
+
+    private final PreloadPlanner planner = new PreloadPlanner(TIMETABLE, 30, 15);
+
+    @Test
+    public void classes_areDueFromLeadTimeUntilGraceEnds() {
+        assertEquals(Collections.emptyList(), planner.classesDue(MONDAY, at("08:29")));
+        assertEquals(Collections.singletonList(1L), planner.classesDue(MONDAY, at("08:30")));
+        assertEquals(Collections.singletonList(1L), planner.classesDue(MONDAY, at("09:15")));
+        assertEquals(Collections.emptyList(), planner.classesDue(MONDAY, at("12:16")));
+        assertEquals(Collections.singletonList(3L), planner.classesDue(MONDAY, at("12:15")));
+    }
+
+    @Test
+    public void classesDue_areOrderedByUrgency() {
+        // Class 2 is under way, class 3 starts in 25 minutes and class 1 just ended
+        assertEquals(Arrays.asList(2L, 3L, 1L), planner.classesDue(MONDAY, at("10:35")));
+        assertEquals(Long.valueOf(2), planner.currentClass(MONDAY, at("10:35")));
+        // Class 3 has started; class 2 ended a minute ago
+        assertEquals(Arrays.asList(3L, 2L), planner.classesDue(MONDAY, at("11:01")));
+    }
+
+    @Test
+    public void leadTime_wrapsAroundTheWeek() {
+        List<ClassSchedule> early = Collections.singletonList(slot(9, MONDAY, "00:10", "01:00"));
+        PreloadPlanner wrapping = new PreloadPlanner(early, 30, 15);
+        assertEquals(Collections.singletonList(9L), wrapping.classesDue(SUNDAY, at("23:50")));
+        assertNull(wrapping.currentClass(SUNDAY, at("23:30")));
+    }
+
+    @Test
+    public void classWithSeveralSlots_isListedOnce() {
+        List<ClassSchedule> twice = Arrays.asList(
+                slot(5, MONDAY, "09:00", "10:00"),
+                slot(5, MONDAY, "10:00", "11:00"));
+        assertEquals(Collections.singletonList(5L),
+                new PreloadPlanner(twice, 30, 15).classesDue(MONDAY, at("09:50")));
+    }
+
+    @Test
+    public void parseTime_rejectsNonTimes() {
+        assertEquals(9 * 60 + 5, ClassSchedule.parseTime("09:05"));
+        for (String text : new String[] { "24:00", "9", "09:60", "ab:cd" }) {
+            try {
+                ClassSchedule.parseTime(text);
+                fail(text);
+            } catch (IllegalArgumentException expected) {
+                // Rejected
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.myapplication.recognition;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecognitionEventBufferTest {
+
+    private static void publish(RecognitionEventBuffer buffer, long studentId) {
+        buffer.publish(RecognitionEventBuffer.Kind.PRESENT, RecognitionEventBuffer.Source.CAMERA,
+                studentId, 1, 0.1f);
+    }
+
+    @Test
+    public void capacity_isRoundedToPowerOfTwo() {
+        assertEquals(8, new RecognitionEventBuffer(8).capacity());
+        assertEquals(16, new RecognitionEventBuffer(9).capacity());
+    }
+
+    @Test
+    public void cursor_drainsInOrderAndInBatches() {
+        RecognitionEventBuffer buffer = new RecognitionEventBuffer(16);
+        RecognitionEventBuffer.Cursor cursor = buffer.newCursor();
+        for (int i = 0; i < 5; i++) publish(buffer, i);
+
+        List<RecognitionEventBuffer.Event> out = new ArrayList<>();
+        assertEquals(3, cursor.drain(out, 3));
+        assertEquals(2, cursor.drain(out, 10));
+        for (int i = 0; i < 5; i++) assertEquals(i, out.get(i).studentId);
+        assertFalse(cursor.hasPending());
+    }
+
+    @Test
+    public void cursors_areIndependent() {
+        RecognitionEventBuffer buffer = new RecognitionEventBuffer(16);
+        RecognitionEventBuffer.Cursor first = buffer.newCursor();
+        publish(buffer, 1);
+        RecognitionEventBuffer.Cursor second = buffer.newCursor();
+        publish(buffer, 2);
+
+        List<RecognitionEventBuffer.Event> out = new ArrayList<>();
+        assertEquals(2, first.drain(out, 10));
+        out.clear();
+        assertEquals(1, second.drain(out, 10));
+        assertEquals(2, out.get(0).studentId);
+    }
+
+    @Test
+    public void laggingCursor_skipsOverwrittenEvents() {
+        RecognitionEventBuffer buffer = new RecognitionEventBuffer(8);
+        RecognitionEventBuffer.Cursor cursor = buffer.newCursor();
+        for (int i = 0; i < 20; i++) publish(buffer, i);
+
+        List<RecognitionEventBuffer.Event> out = new ArrayList<>();
+        assertEquals(8, cursor.drain(out, 100));
+        assertEquals(12, cursor.getLost());
+        assertEquals(12, out.get(0).studentId);
+    }
+
+    @Test
+    public void concurrentProducers_loseNothingWithinCapacity() throws InterruptedException {
+        RecognitionEventBuffer buffer = new RecognitionEventBuffer(1 << 16);
+        RecognitionEventBuffer.Cursor cursor = buffer.newCursor();
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) publish(buffer, i);
+            });
+            producers[p].start();
+        }
+
+        List<RecognitionEventBuffer.Event> out = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (out.size() < 40_000 && System.currentTimeMillis() < deadline) {
+            cursor.drain(out, 1000);
+        }
+        for (Thread producer : producers) producer.join();
+        assertEquals(40_000, out.size());
+        assertEquals(0, cursor.getLost());
+        for (int i = 0; i < out.size(); i++) assertEquals(i, out.get(i).sequence);
+    }
+
+    @Test
+    public void wakeup_runsOnPublish() {
+        RecognitionEventBuffer buffer = new RecognitionEventBuffer(8);
+        int[] calls = {0};
+        Runnable wakeup = () -> calls[0]++;
+        buffer.addWakeup(wakeup);
+        publish(buffer, 1);
+        buffer.removeWakeup(wakeup);
+        publish(buffer, 2);
+        assertEquals(1, calls[0]);
+    }
+}
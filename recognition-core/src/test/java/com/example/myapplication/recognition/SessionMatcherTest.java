@@ -0,0 +1,76 @@
+package com.example.myapplication.recognition;
+
+import com.example.myapplication.models.Student;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SessionMatcherTest {
+
+    private static Student student(long id, long classId, float... features) {
+        Student student = new Student("S" + id, "ID" + id, "A", classId, features);
+        student.setId(id);
+        return student;
+    }
+
+    @Test
+    public void presentStudents_areStillRecognized() {
+        CampusIndex index = new CampusIndex.Builder()
+                .add(student(1, 10, 0, 0))
+                .add(student(2, 10, 1, 0))
+                .build();
+        SessionMatcher session = index.newSession(10, false);
+
+        assertTrue(session.markPresent(1));
+        assertFalse(session.markPresent(1));
+        assertEquals(1, session.getAbsentCount());
+
+        // A present student lingering in front of the camera is not mistaken for an absent one
+        FaceGallery.Match match = session.findNearest(new float[] {0.05f, 0}, 0.4f);
+        assertEquals(1, match.studentId);
+    }
+
+    @Test
+    public void crossClassFallback_flagsOtherClasses() {
+        CampusIndex index = new CampusIndex.Builder()
+                .add(student(1, 10, 0, 0))
+                .add(student(2, 20, 5, 5))
+                .build();
+
+        assertNull(index.newSession(10, false).findNearest(new float[] {5, 5}, 0.4f));
+
+        FaceGallery.Match match = index.newSession(10, true).findNearest(new float[] {5, 5}, 0.4f);
+        assertEquals(2, match.studentId);
+        assertTrue(match.crossClass);
+
+        match = index.newSession(10, true).findNearest(new float[] {0, 0}, 0.4f);
+        assertFalse(match.crossClass);
+    }
+
+    @Test
+    public void tieredSearch_agreesWithRosterSearch() {
+        Random random = new Random(3);
+        CampusIndex.Builder builder = new CampusIndex.Builder();
+        for (int id = 1; id <= 200; id++) {
+            builder.add(student(id, id % 4, FaceGalleryTest.randomVector(random)));
+        }
+        CampusIndex index = builder.build();
+        SessionMatcher session = index.newSession(1, false);
+        for (int id = 1; id <= 200; id += 8) session.markPresent(id);
+
+        for (int q = 0; q < 500; q++) {
+            float[] query = FaceGalleryTest.randomVector(random);
+            FaceGallery.Match expected = index.getGallery().findNearest(query, index.getClassMembers(1), 0.6f);
+            FaceGallery.Match actual = session.findNearest(query, 0.6f);
+            if (expected == null) {
+                assertNull(actual);
+            } else {
+                assertEquals(expected.studentId, actual.studentId);
+                assertEquals(expected.distance, actual.distance, 1e-6f);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.myapplication.sync;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PresenceSetTest {
+
+    private static final String SESSION = PresenceSet.sessionKey("CSE101", "A", 20000);
+
+    private static String snapshot(PresenceSet set) {
+        List<String> marks = new ArrayList<>();
+        for (PresenceSet.Mark mark : set.delta(0)) {
+            marks.add(mark.studentKey + "/" + mark.deviceId + "@" + mark.firstSeenMs + ":" + mark.source);
+        }
+        marks.sort(null);
+        return marks.toString();
+    }
+
+    @Test
+    public void merge_keepsEarliestSightingPerDevice() {
+        PresenceSet set = new PresenceSet(SESSION);
+        assertTrue(set.mark("242-15-001", "door-a", 1000, PresenceSet.SOURCE_CAMERA));
+        assertFalse(set.mark("242-15-001", "door-a", 2000, PresenceSet.SOURCE_CAMERA));
+        assertTrue(set.mark("242-15-001", "door-a", 500, PresenceSet.SOURCE_PHOTO));
+        assertTrue(set.mark("242-15-001", "door-b", 1500, PresenceSet.SOURCE_CAMERA));
+
+        assertEquals(2, set.getMarks("242-15-001").size());
+        assertEquals(500, set.getFirstSeen("242-15-001"));
+        assertEquals(-1, set.getFirstSeen("242-15-002"));
+    }
+
+    @Test
+    public void merge_isOrderIndependentAndIdempotent() {
+        Random random = new Random(3);
+        List<PresenceSet.Mark> marks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            marks.add(new PresenceSet.Mark("S" + random.nextInt(60), "device-" + random.nextInt(4),
+                    random.nextInt(10_000), random.nextInt(2)));
+        }
+
+        PresenceSet forward = new PresenceSet(SESSION);
+        forward.merge(marks);
+        List<PresenceSet.Mark> shuffled = new ArrayList<>(marks);
+        Collections.shuffle(shuffled, random);
+        PresenceSet shuffledSet = new PresenceSet(SESSION);
+        shuffledSet.merge(shuffled);
+        shuffledSet.merge(marks); // Again, in another order
+
+        assertEquals(snapshot(forward), snapshot(shuffledSet));
+        assertTrue(forward.merge(shuffledSet).isEmpty());
+    }
+
+    @Test
+    public void devices_convergeThroughAChainOfDeltas() throws IOException {
+        // Three doors; A only talks to B, and B only to C
+        PresenceSet a = new PresenceSet(SESSION);
+        PresenceSet b = new PresenceSet(SESSION);
+        PresenceSet c = new PresenceSet(SESSION);
+        for (int i = 0; i < 30; i++) a.mark("S" + i, "door-a", 1000 + i, PresenceSet.SOURCE_CAMERA);
+        for (int i = 20; i < 50; i++) b.mark("S" + i, "door-b", 2000 + i, PresenceSet.SOURCE_CAMERA);
+        for (int i = 40; i < 70; i++) c.mark("S" + i, "door-c", 3000 + i, PresenceSet.SOURCE_PHOTO);
+
+        long aSentToB = 0, bSentToA = 0, bSentToC = 0, cSentToB = 0;
+        for (int round = 0; round < 2; round++) {
+            long versionA = a.getVersion();
+            b.merge(PresenceSet.decode(PresenceSet.encode(SESSION, a.delta(aSentToB))).marks);
+            aSentToB = versionA;
+            long versionC = c.getVersion();
+            b.merge(PresenceSet.decode(PresenceSet.encode(SESSION, c.delta(cSentToB))).marks);
+            cSentToB = versionC;
+            long versionB = b.getVersion();
+            a.merge(PresenceSet.decode(PresenceSet.encode(SESSION, b.delta(bSentToA))).marks);
+            c.merge(PresenceSet.decode(PresenceSet.encode(SESSION, b.delta(bSentToC))).marks);
+            bSentToA = versionB;
+            bSentToC = versionB;
+        }
+
+        assertEquals(70, a.getPresent().size());
+        assertEquals(snapshot(a), snapshot(b));
+        assertEquals(snapshot(b), snapshot(c));
+        // Students seen at two doors keep both sightings
+        assertEquals(new HashSet<>(Arrays.asList("door-a", "door-b")),
+                new HashSet<>(Arrays.asList(c.getMarks("S25").get(0).deviceId, c.getMarks("S25").get(1).deviceId)));
+    }
+
+    @Test
+    public void delta_containsOnlyLaterChanges() {
+        PresenceSet set = new PresenceSet(SESSION);
+        set.mark("S1", "door-a", 1000, PresenceSet.SOURCE_CAMERA);
+        set.mark("S2", "door-a", 1100, PresenceSet.SOURCE_CAMERA);
+        long shared = set.getVersion();
+        set.mark("S3", "door-a", 1200, PresenceSet.SOURCE_CAMERA);
+        set.mark("S1", "door-a", 900, PresenceSet.SOURCE_PHOTO);
+
+        List<PresenceSet.Mark> delta = set.delta(shared);
+        assertEquals(2, delta.size());
+        assertTrue(set.delta(set.getVersion()).isEmpty());
+    }
+
+    @Test
+    public void encode_isCompactAndRoundTrips() throws IOException {
+        PresenceSet set = new PresenceSet(SESSION);
+        long start = 1_760_000_000_000L;
+        for (int i = 0; i < 300; i++) {
+            set.mark(String.format("242-15-%03d", i), "b7f3c2a0-1d2e-4f5a-9b8c-7d6e5f4a3b2c",
+                    start + i * 1500L, PresenceSet.SOURCE_CAMERA);
+        }
+        byte[] bytes = PresenceSet.encode(SESSION, set.delta(0));
+        // The roster id dominates; the device id and timestamp cost a few bytes per mark
+        int naive = 300 * (12 + 38 + 8 + 1);
+        assertTrue("size " + bytes.length, bytes.length * 3 < naive);
+
+        PresenceSet.Delta decoded = PresenceSet.decode(bytes);
+        assertEquals(SESSION, decoded.sessionKey);
+        PresenceSet copy = new PresenceSet(SESSION);
+        copy.merge(decoded.marks);
+        assertEquals(snapshot(set), snapshot(copy));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void merge_rejectsAnotherSession() {
+        new PresenceSet(SESSION).merge(new PresenceSet(PresenceSet.sessionKey("CSE101", "A", 20001)));
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsOtherFiles() throws IOException {
+        PresenceSet.decode(new byte[] { 1, 2, 3, 4, 5, 6 });
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.myapplication.sync;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class SyncEngineTest {
+
+    /** In-memory change log, as AttendanceDatabase keeps it. */
+    private static class MemorySource implements ChangeSource {
+        final List<Change> changes = new ArrayList<>();
+        long acknowledged;
+
+        void add(int count) {
+            for (int i = 0; i < count; i++) {
+                long seq = changes.size() + 1;
+                changes.add(new Change(seq, "attendance", "insert", seq,
+                        "{\"classId\":3,\"date\":20000,\"records\":[[1,1],[2,0],[3,1]]}", 1000 + seq));
+            }
+        }
+
+        @Override
+        public List<Change> readChanges(long afterSeq, int limit) {
+            List<Change> batch = new ArrayList<>();
+            for (Change change : changes) {
+                if (change.seq > afterSeq && batch.size() < limit) batch.add(change);
+            }
+            return batch;
+        }
+
+        @Override
+        public long getAcknowledgedSeq() {
+            return acknowledged;
+        }
+
+        @Override
+        public void acknowledge(long seq) {
+            acknowledged = seq;
+        }
+    }
+
+    /** Stand-in for the registrar's server; stores changes by seq and can fail on demand. */
+    private HttpServer server;
+    private final TreeSet<Long> stored = new TreeSet<>();
+    private final List<Integer> requestSizes = new ArrayList<>();
+    private int failuresLeft;
+    private int failureStatus = 503;
+
+    private MemorySource source;
+    private SyncEngine engine;
+    private final List<Long> sleeps = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/sync", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            synchronized (stored) {
+                requestSizes.add(body.length);
+                if (failuresLeft > 0) {
+                    failuresLeft--;
+                    exchange.sendResponseHeaders(failureStatus, -1);
+                    exchange.close();
+                    return;
+                }
+                assertEquals("gzip", exchange.getRequestHeaders().getFirst("Content-Encoding"));
+                assertEquals("tablet-1", exchange.getRequestHeaders().getFirst("X-Device-Id"));
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    assertTrue(line.contains("\"data\":{\"classId\":3"));
+                    stored.add(Long.parseLong(line.substring(7, line.indexOf(','))));
+                }
+                // Acknowledge the contiguous prefix, as a server that stores idempotently would
+                long ack = 0;
+                while (stored.contains(ack + 1)) ack++;
+                byte[] response = ("{\"ack\":" + ack + "}").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            }
+        });
+        server.start();
+
+        source = new MemorySource();
+        engine = new SyncEngine(source,
+                new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/sync"), "tablet-1");
+        engine.setSleeper(sleeps::add);
+        engine.setBatchSize(100);
+        engine.setRetryPolicy(4, 1000, 8000);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void sync_uploadsPendingChangesInCompressedBatches() {
+        source.add(250);
+
+        SyncEngine.Result result = engine.sync();
+
+        assertTrue(result.error, result.isSuccess());
+        assertEquals(3, result.batches);
+        assertEquals(250, result.changes);
+        assertEquals(250, source.acknowledged);
+        assertEquals(250, stored.size());
+        assertTrue(result.bytesSent * 4 < result.bytesUncompressed);
+    }
+
+    @Test
+    public void sync_uploadsOnlyChangesSinceLastAck() {
+        source.add(300);
+        engine.sync();
+        long fullUpload = sum(requestSizes);
+        requestSizes.clear();
+
+        source.add(3);
+        SyncEngine.Result result = engine.sync();
+
+        assertTrue(result.isSuccess());
+        assertEquals(1, result.batches);
+        assertEquals(3, result.changes);
+        assertEquals(303, source.acknowledged);
+        assertTrue(sum(requestSizes) * 10 < fullUpload);
+    }
+
+    @Test
+    public void sync_retriesServerErrorsWithBackoff() {
+        source.add(50);
+        failuresLeft = 3;
+
+        SyncEngine.Result result = engine.sync();
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.retries);
+        assertEquals(3, sleeps.size());
+        // Each delay falls in the upper half of 1 s, 2 s and 4 s
+        assertTrue(sleeps.get(0) >= 500 && sleeps.get(0) <= 1000);
+        assertTrue(sleeps.get(1) >= 1000 && sleeps.get(1) <= 2000);
+        assertTrue(sleeps.get(2) >= 2000 && sleeps.get(2) <= 4000);
+        assertEquals(50, source.acknowledged);
+    }
+
+    @Test
+    public void sync_resumesAfterGivingUp() {
+        source.add(250);
+        engine.sync();
+        source.add(250);
+        failuresLeft = 100; // Server down for the rest of this sync
+        requestSizes.clear();
+
+        SyncEngine.Result failed = engine.sync();
+        assertFalse(failed.isSuccess());
+        assertEquals(250, source.acknowledged);
+        assertEquals(4, requestSizes.size()); // One batch, tried maxAttempts times
+
+        failuresLeft = 0;
+        SyncEngine.Result resumed = engine.sync();
+        assertTrue(resumed.isSuccess());
+        assertEquals(250, resumed.changes);
+        assertEquals(500, source.acknowledged);
+        assertEquals(500, stored.size());
+    }
+
+    @Test
+    public void sync_doesNotRetryClientErrors() {
+        source.add(10);
+        failuresLeft = 1;
+        failureStatus = 400;
+
+        SyncEngine.Result result = engine.sync();
+
+        assertFalse(result.isSuccess());
+        assertEquals(0, result.retries);
+        assertTrue(sleeps.isEmpty());
+        assertEquals(0, source.acknowledged);
+    }
+
+    @Test
+    public void sync_withNothingPendingSendsNothing() {
+        SyncEngine.Result result = engine.sync();
+        assertTrue(result.isSuccess());
+        assertEquals(0, result.batches);
+        assertTrue(requestSizes.isEmpty());
+    }
+
+    private static long sum(List<Integer> values) {
+        long total = 0;
+        for (int v : values) total += v;
+        return total;
+    }
+}
@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "My Application"
 include(":app")
+include(":recognition-core")
+include(":recognition-benchmarks")